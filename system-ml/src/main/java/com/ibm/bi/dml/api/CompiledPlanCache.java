@@ -0,0 +1,670 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.api;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.ibm.bi.dml.conf.ConfigurationManager;
+import com.ibm.bi.dml.conf.DMLConfig;
+import com.ibm.bi.dml.hops.DataOp;
+import com.ibm.bi.dml.hops.Hop;
+import com.ibm.bi.dml.hops.Hop.DataOpTypes;
+import com.ibm.bi.dml.hops.HopsException;
+import com.ibm.bi.dml.hops.LiteralOp;
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.lops.Lop;
+import com.ibm.bi.dml.parser.DMLProgram;
+import com.ibm.bi.dml.parser.DataExpression;
+import com.ibm.bi.dml.parser.ForStatement;
+import com.ibm.bi.dml.parser.ForStatementBlock;
+import com.ibm.bi.dml.parser.FunctionStatement;
+import com.ibm.bi.dml.parser.FunctionStatementBlock;
+import com.ibm.bi.dml.parser.IfStatement;
+import com.ibm.bi.dml.parser.IfStatementBlock;
+import com.ibm.bi.dml.parser.LanguageException;
+import com.ibm.bi.dml.parser.StatementBlock;
+import com.ibm.bi.dml.parser.WhileStatement;
+import com.ibm.bi.dml.parser.WhileStatementBlock;
+import com.ibm.bi.dml.runtime.DMLRuntimeException;
+import com.ibm.bi.dml.runtime.controlprogram.ExternalFunctionProgramBlock;
+import com.ibm.bi.dml.runtime.controlprogram.ForProgramBlock;
+import com.ibm.bi.dml.runtime.controlprogram.FunctionProgramBlock;
+import com.ibm.bi.dml.runtime.controlprogram.IfProgramBlock;
+import com.ibm.bi.dml.runtime.controlprogram.LocalVariableMap;
+import com.ibm.bi.dml.runtime.controlprogram.ParForProgramBlock;
+import com.ibm.bi.dml.runtime.controlprogram.Program;
+import com.ibm.bi.dml.runtime.controlprogram.ProgramBlock;
+import com.ibm.bi.dml.runtime.controlprogram.WhileProgramBlock;
+import com.ibm.bi.dml.runtime.controlprogram.caching.MatrixObject;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.ProgramConverter;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.stat.InfrastructureAnalyzer;
+import com.ibm.bi.dml.runtime.instructions.Instruction;
+import com.ibm.bi.dml.runtime.instructions.cp.CPInstruction;
+import com.ibm.bi.dml.runtime.instructions.cp.Data;
+import com.ibm.bi.dml.runtime.instructions.cp.SpoofCPInstruction;
+import com.ibm.bi.dml.runtime.util.LocalFileUtils;
+import com.ibm.bi.dml.runtime.util.MapReduceTool;
+import com.ibm.bi.dml.utils.Explain.ExplainType;
+
+/**
+ * On-disk cache of compiled runtime programs, which allows to skip the entire
+ * compilation chain (parsing, validation, hop/lop construction, rewrites, and
+ * runtime program generation) for repeated invocations of the same script.
+ * Entries are keyed by a hash of the script, the DML config, the script arguments,
+ * and the relevant environment (platform, memory budget, parallelism). Since
+ * compiled plans additionally depend on the metadata of persistent reads, each
+ * entry stores fingerprints of these input metadata files, which are validated
+ * on lookup.
+ * 
+ * We only cache programs that are fully compiled, i.e., without blocks marked for
+ * dynamic recompilation (which require the hop dags), without parfor, external
+ * functions, or imported scripts, and that consist of CP instructions only. All other programs are
+ * always compiled from scratch. Cached programs are serialized with the parfor
+ * program serialization, where the scratch space prefix of the original process
+ * is replaced with the prefix of the current process on load. The number of cached
+ * entries is bounded, where the least recently used entries are evicted on write.
+ * 
+ */
+public class CompiledPlanCache 
+{
+	
+	private static final Log LOG = LogFactory.getLog(CompiledPlanCache.class.getName());
+	
+	private static final String FORMAT_VERSION = "1";
+	private static final String CACHE_DIR      = "plancache";
+	private static final String FILE_SUFFIX    = ".plan";
+	private static final String NO_METADATA    = "-";
+	
+	//max number of cached plans (lru replacement by file modification time)
+	private static final int MAX_CACHED_PLANS = 256;
+	
+	/**
+	 * Indicates if the compiled plan cache is enabled for the current configuration.
+	 * We exclude explain (which requires the hop dags) and compilation for the
+	 * yarn appmaster (where the program is compiled again in the appmaster).
+	 * 
+	 * @return
+	 */
+	public static boolean isEnabled()
+	{
+		DMLConfig conf = ConfigurationManager.getConfig();
+		return conf != null 
+			&& conf.getBooleanValue(DMLConfig.COMPILE_PLAN_CACHE)
+			&& !conf.getBooleanValue(DMLConfig.YARN_APPMASTER)
+			&& DMLScript.EXPLAIN == ExplainType.NONE;
+	}
+	
+	/**
+	 * Creates the cache key (hex-encoded SHA-256 hash) for the given script and
+	 * arguments under the current configuration and environment.
+	 * 
+	 * @param script
+	 * @param argVals
+	 * @param parsePyDML
+	 * @param inputs registered inputs (optional)
+	 * @param outputs registered outputs (optional)
+	 * @param vars symbol table of registered inputs (optional)
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	public static String createKey( String script, HashMap<String,String> argVals, boolean parsePyDML, 
+			String[] inputs, String[] outputs, LocalVariableMap vars ) 
+		throws DMLRuntimeException
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append(FORMAT_VERSION);
+		sb.append('\n');
+		sb.append(script);
+		sb.append('\n');
+		sb.append(ConfigurationManager.getConfig().serializeDMLConfig());
+		sb.append('\n');
+		if( argVals != null )
+			sb.append(new TreeMap<String,String>(argVals).toString());
+		sb.append('\n');
+		
+		//environment that affects compiled plans
+		sb.append(parsePyDML);
+		sb.append(',');
+		sb.append(DMLScript.rtplatform);
+		sb.append(',');
+		sb.append((long)OptimizerUtils.getLocalMemBudget());
+		sb.append(',');
+		sb.append(InfrastructureAnalyzer.getLocalParallelism());
+		sb.append('\n');
+		
+		//registered inputs and outputs (incl input meta data)
+		if( inputs != null )
+			for( String in : inputs ) {
+				sb.append(in);
+				Data dat = (vars != null) ? vars.get(in) : null;
+				if( dat instanceof MatrixObject )
+					sb.append(((MatrixObject)dat).getMatrixCharacteristics().toString());
+				sb.append(',');
+			}
+		sb.append('\n');
+		if( outputs != null )
+			for( String out : outputs ) {
+				sb.append(out);
+				sb.append(',');
+			}
+		
+		return getDigest(sb.toString());
+	}
+	
+	/**
+	 * Obtains the fingerprints (digests of metadata files) of all persistent reads
+	 * of the given program, which needs to be called after hop construction but
+	 * before any rewrites that might remove persistent reads.
+	 * 
+	 * Programs with imported scripts are not cached because the cache key only covers
+	 * the top-level script, i.e., modified imported scripts would not be detected.
+	 * 
+	 * @param prog
+	 * @return map of input filenames to fingerprints, or null if the program is not cacheable
+	 * @throws DMLRuntimeException
+	 */
+	public static TreeMap<String,String> getInputFingerprints( DMLProgram prog ) 
+		throws DMLRuntimeException
+	{
+		//imported scripts (non-default namespaces) not covered by cache key
+		if( prog.getNamespaces().size() > 1 )
+			return null;
+		
+		TreeMap<String,String> ret = new TreeMap<String,String>();
+		HashSet<Long> memo = new HashSet<Long>();
+		
+		try
+		{
+			for (String namespaceKey : prog.getNamespaces().keySet())
+				for (String fname : prog.getFunctionStatementBlocks(namespaceKey).keySet())
+					if( !rCollectInputFingerprints(prog.getFunctionStatementBlock(namespaceKey, fname), ret, memo) )
+						return null;
+			for( StatementBlock sb : prog.getStatementBlocks() )
+				if( !rCollectInputFingerprints(sb, ret, memo) )
+					return null;
+		}
+		catch(Exception ex) {
+			throw new DMLRuntimeException(ex);
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Writes the given runtime program to the cache, if it is eligible for caching.
+	 * Failures are only logged because the cache is purely an optimization.
+	 * 
+	 * @param key
+	 * @param fingerprints
+	 * @param rtprog
+	 */
+	public static void put( String key, TreeMap<String,String> fingerprints, Program rtprog )
+	{
+		if( key == null || fingerprints == null )
+			return;
+		
+		try
+		{
+			//check for supported programs
+			for( FunctionProgramBlock fpb : rtprog.getFunctionProgramBlocks().values() )
+				if( !rIsCacheable(fpb) ) 
+					return;
+			for( ProgramBlock pb : rtprog.getProgramBlocks() )
+				if( !rIsCacheable(pb) ) 
+					return;
+			
+			//serialize program (functions and program blocks)
+			String progStr = ProgramConverter.PARFOR_PROG_BEGIN 
+					+ ProgramConverter.serializeProgram(rtprog, rtprog.getProgramBlocks()) 
+					+ ProgramConverter.PARFOR_PROG_END;
+			String pbsStr = ProgramConverter.PARFOR_PBS_BEGIN 
+					+ ProgramConverter.rSerializeProgramBlocks(rtprog.getProgramBlocks()) 
+					+ ProgramConverter.PARFOR_PBS_END;
+			
+			StringBuilder sb = new StringBuilder();
+			sb.append(FORMAT_VERSION);
+			sb.append('\n');
+			sb.append(DMLScript.getUUID());
+			sb.append('\n');
+			sb.append(fingerprints.size());
+			sb.append('\n');
+			for( Entry<String,String> e : fingerprints.entrySet() ) {
+				sb.append(e.getKey());
+				sb.append('\t');
+				sb.append(e.getValue());
+				sb.append('\n');
+			}
+			sb.append(progStr.length());
+			sb.append('\n');
+			sb.append(progStr);
+			sb.append(pbsStr);
+			
+			//write to temporary file and rename (robustness against concurrent writers)
+			String dir = getCacheDir();
+			LocalFileUtils.createLocalFileIfNotExist(dir, DMLConfig.DEFAULT_SHARED_DIR_PERMISSION);
+			File tmp = new File(dir, key + FILE_SUFFIX + "." + DMLScript.getUUID());
+			BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(tmp), ProgramConverter.CHARSET));
+			try {
+				out.write(sb.toString());
+			}
+			finally {
+				out.close();
+			}
+			File file = new File(dir, key + FILE_SUFFIX);
+			if( !tmp.renameTo(file) ) {
+				file.delete();
+				if( !tmp.renameTo(file) )
+					tmp.delete();
+			}
+			
+			//evict least recently used entries
+			evictEntries(new File(dir));
+		}
+		catch(Exception ex) {
+			LOG.warn("Failed to write compiled plan to cache: "+ex.getMessage());
+		}
+	}
+	
+	/**
+	 * Reads the runtime program for the given key from the cache, if the entry exists
+	 * and the fingerprints of all inputs still match.
+	 * 
+	 * @param key
+	 * @return the cached runtime program, or null if not available
+	 */
+	public static Program get( String key )
+	{
+		if( key == null )
+			return null;
+		
+		File file = new File(getCacheDir(), key + FILE_SUFFIX);
+		if( !file.exists() )
+			return null;
+		
+		try
+		{
+			String entry = readFile(file);
+			int pos = 0;
+			
+			//check format version
+			int end = entry.indexOf('\n', pos);
+			if( !FORMAT_VERSION.equals(entry.substring(pos, end)) )
+				return null;
+			pos = end + 1;
+			end = entry.indexOf('\n', pos);
+			String uuid = entry.substring(pos, end);
+			pos = end + 1;
+			
+			//check input fingerprints
+			end = entry.indexOf('\n', pos);
+			int numInputs = Integer.parseInt(entry.substring(pos, end));
+			pos = end + 1;
+			for( int i=0; i<numInputs; i++ ) {
+				end = entry.indexOf('\n', pos);
+				String[] parts = entry.substring(pos, end).split("\t");
+				if( !parts[1].equals(getMetadataFingerprint(parts[0])) ) {
+					LOG.debug("Compiled plan cache: modified metadata of input "+parts[0]+".");
+					return null;
+				}
+				pos = end + 1;
+			}
+			
+			//parse program and program blocks (w/ replaced scratch space prefix)
+			end = entry.indexOf('\n', pos);
+			int progLen = Integer.parseInt(entry.substring(pos, end));
+			pos = end + 1;
+			String progStr = normalize(entry.substring(pos, pos + progLen), uuid);
+			String pbsStr = normalize(entry.substring(pos + progLen), uuid);
+			
+			Program prog = ProgramConverter.parseProgram(progStr, 0);
+			ArrayList<ProgramBlock> pbs = ProgramConverter.rParseProgramBlocks(pbsStr, prog, 0);
+			for( ProgramBlock pb : pbs )
+				prog.addProgramBlock(pb);
+			
+			//mark entry as recently used
+			file.setLastModified(System.currentTimeMillis());
+			
+			return prog;
+		}
+		catch(Exception ex) {
+			LOG.warn("Failed to read compiled plan from cache: "+ex.getMessage());
+			return null;
+		}
+	}
+	
+	/**
+	 * 
+	 * @return
+	 */
+	private static String getCacheDir() {
+		return ConfigurationManager.getConfig().getTextValue(DMLConfig.LOCAL_TMP_DIR) + "/" + CACHE_DIR;
+	}
+	
+	/**
+	 * 
+	 * @param sb
+	 * @param fingerprints
+	 * @param memo
+	 * @return
+	 * @throws HopsException
+	 * @throws LanguageException
+	 * @throws IOException
+	 */
+	private static boolean rCollectInputFingerprints( StatementBlock sb, TreeMap<String,String> fingerprints, HashSet<Long> memo ) 
+		throws HopsException, LanguageException, IOException
+	{
+		boolean ret = true;
+		
+		if( sb instanceof FunctionStatementBlock ) {
+			FunctionStatement fstmt = (FunctionStatement)sb.getStatement(0);
+			for( StatementBlock csb : fstmt.getBody() )
+				ret &= rCollectInputFingerprints(csb, fingerprints, memo);
+		}
+		else if( sb instanceof WhileStatementBlock ) {
+			WhileStatementBlock wsb = (WhileStatementBlock) sb;
+			ret &= rCollectInputFingerprints(wsb.getPredicateHops(), fingerprints, memo);
+			WhileStatement wstmt = (WhileStatement)sb.getStatement(0);
+			for( StatementBlock csb : wstmt.getBody() )
+				ret &= rCollectInputFingerprints(csb, fingerprints, memo);
+		}
+		else if( sb instanceof IfStatementBlock ) {
+			IfStatementBlock isb = (IfStatementBlock) sb;
+			ret &= rCollectInputFingerprints(isb.getPredicateHops(), fingerprints, memo);
+			IfStatement istmt = (IfStatement)sb.getStatement(0);
+			for( StatementBlock csb : istmt.getIfBody() )
+				ret &= rCollectInputFingerprints(csb, fingerprints, memo);
+			for( StatementBlock csb : istmt.getElseBody() )
+				ret &= rCollectInputFingerprints(csb, fingerprints, memo);
+		}
+		else if( sb instanceof ForStatementBlock ) { //incl parfor
+			ForStatementBlock fsb = (ForStatementBlock) sb;
+			ret &= rCollectInputFingerprints(fsb.getFromHops(), fingerprints, memo);
+			ret &= rCollectInputFingerprints(fsb.getToHops(), fingerprints, memo);
+			ret &= rCollectInputFingerprints(fsb.getIncrementHops(), fingerprints, memo);
+			ForStatement fstmt = (ForStatement)sb.getStatement(0);
+			for( StatementBlock csb : fstmt.getBody() )
+				ret &= rCollectInputFingerprints(csb, fingerprints, memo);
+		}
+		else if( sb.get_hops() != null ) { //generic
+			for( Hop hop : sb.get_hops() )
+				ret &= rCollectInputFingerprints(hop, fingerprints, memo);
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * 
+	 * @param hop
+	 * @param fingerprints
+	 * @param memo
+	 * @return
+	 * @throws LanguageException
+	 * @throws IOException
+	 */
+	private static boolean rCollectInputFingerprints( Hop hop, TreeMap<String,String> fingerprints, HashSet<Long> memo ) 
+		throws LanguageException, IOException
+	{
+		if( hop == null || memo.contains(hop.getHopID()) )
+			return true;
+		
+		boolean ret = true;
+		for( Hop c : hop.getInput() )
+			ret &= rCollectInputFingerprints(c, fingerprints, memo);
+		
+		if( hop instanceof DataOp && ((DataOp)hop).getDataOpType() == DataOpTypes.PERSISTENTREAD ) {
+			DataOp dop = (DataOp) hop;
+			Hop fname = dop.getInput().get(dop.getParameterIndex(DataExpression.IO_FILENAME));
+			if( fname instanceof LiteralOp ) {
+				String fnameStr = ((LiteralOp)fname).getStringValue();
+				fingerprints.put(fnameStr, getMetadataFingerprint(fnameStr));
+			}
+			else
+				ret = false; //unknown input filename
+		}
+		
+		memo.add(hop.getHopID());
+		return ret;
+	}
+	
+	/**
+	 * Obtains the fingerprint of the given input, which is the digest
+	 * of its metadata file or a placeholder if no metadata exists.
+	 * 
+	 * @param fname
+	 * @return
+	 * @throws LanguageException
+	 * @throws IOException
+	 */
+	private static String getMetadataFingerprint( String fname ) 
+		throws LanguageException, IOException
+	{
+		String mtdName = DataExpression.getMTDFileName(fname);
+		if( !MapReduceTool.existsFileOnHDFS(mtdName) )
+			return NO_METADATA;
+		
+		try {
+			return getDigest(MapReduceTool.readStringFromHDFSFile(mtdName));
+		}
+		catch(DMLRuntimeException ex) {
+			throw new IOException(ex);
+		}
+	}
+	
+	/**
+	 * 
+	 * @param pb
+	 * @return
+	 */
+	private static boolean rIsCacheable( ProgramBlock pb )
+	{
+		StatementBlock sb = pb.getStatementBlock();
+		
+		if( pb instanceof ParForProgramBlock || pb instanceof ExternalFunctionProgramBlock )
+			return false;
+		else if( pb instanceof FunctionProgramBlock ) {
+			FunctionProgramBlock fpb = (FunctionProgramBlock) pb;
+			if( fpb.isRecompileOnce() || !isCacheable(fpb.getChildBlocks()) )
+				return false;
+		}
+		else if( pb instanceof WhileProgramBlock ) {
+			WhileProgramBlock wpb = (WhileProgramBlock) pb;
+			if( (sb != null && ((WhileStatementBlock)sb).requiresPredicateRecompilation())
+				|| !isCacheableInst(wpb.getPredicate()) || !isCacheable(wpb.getChildBlocks()) )
+				return false;
+		}
+		else if( pb instanceof IfProgramBlock ) {
+			IfProgramBlock ipb = (IfProgramBlock) pb;
+			if( (sb != null && ((IfStatementBlock)sb).requiresPredicateRecompilation())
+				|| !isCacheableInst(ipb.getPredicate()) || !isCacheable(ipb.getChildBlocksIfBody()) 
+				|| !isCacheable(ipb.getChildBlocksElseBody()) )
+				return false;
+		}
+		else if( pb instanceof ForProgramBlock ) {
+			ForProgramBlock fpb = (ForProgramBlock) pb;
+			ForStatementBlock fsb = (ForStatementBlock) sb;
+			if( (fsb != null && (fsb.requiresFromRecompilation() || fsb.requiresToRecompilation() 
+					|| fsb.requiresIncrementRecompilation()))
+				|| !isCacheableInst(fpb.getFromInstructions()) || !isCacheableInst(fpb.getToInstructions()) 
+				|| !isCacheableInst(fpb.getIncrementInstructions()) || !isCacheable(fpb.getChildBlocks()) )
+				return false;
+		}
+		else { //generic
+			if( (sb != null && sb.requiresRecompilation()) || !isCacheableInst(pb.getInstructions()) )
+				return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * 
+	 * @param pbs
+	 * @return
+	 */
+	private static boolean isCacheable( ArrayList<ProgramBlock> pbs )
+	{
+		for( ProgramBlock pb : pbs )
+			if( !rIsCacheable(pb) )
+				return false;
+		return true;
+	}
+	
+	/**
+	 * Indicates if the given instructions can be serialized without loss, which
+	 * excludes non-CP instructions, generated operators, and instructions that
+	 * contain internal delimiters of the program serialization.
+	 * 
+	 * @param insts
+	 * @return
+	 */
+	private static boolean isCacheableInst( ArrayList<Instruction> insts )
+	{
+		if( insts == null )
+			return true;
+		
+		for( Instruction inst : insts ) {
+			if( !(inst instanceof CPInstruction) || inst instanceof SpoofCPInstruction )
+				return false;
+			String instStr = inst.toString();
+			if( instStr.contains(ProgramConverter.NEWLINE)
+				|| instStr.contains(ProgramConverter.COMPONENTS_DELIM)
+				|| instStr.contains(ProgramConverter.ELEMENT_DELIM)
+				|| instStr.contains(ProgramConverter.LEVELIN)
+				|| instStr.contains(ProgramConverter.LEVELOUT)
+				|| instStr.contains(ProgramConverter.PARFOR_CDATA_END) )
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * 
+	 * @param in
+	 * @param uuid
+	 * @return
+	 */
+	private static String normalize( String in, String uuid )
+	{
+		String ret = in.replace(ProgramConverter.NEWLINE, "");
+		return ret.replace(Lop.PROCESS_PREFIX + uuid, Lop.PROCESS_PREFIX + DMLScript.getUUID());
+	}
+	
+	/**
+	 * Deletes the least recently used cache entries (by modification time) if
+	 * the number of entries exceeds the maximum number of cached plans.
+	 * 
+	 * @param dir
+	 */
+	private static void evictEntries( File dir )
+	{
+		File[] files = dir.listFiles();
+		if( files == null )
+			return;
+		
+		ArrayList<File> entries = new ArrayList<File>();
+		for( File f : files )
+			if( f.getName().endsWith(FILE_SUFFIX) )
+				entries.add(f);
+		if( entries.size() <= MAX_CACHED_PLANS )
+			return;
+		
+		File[] sorted = entries.toArray(new File[0]);
+		Arrays.sort(sorted, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				long t1 = f1.lastModified();
+				long t2 = f2.lastModified();
+				return (t1 < t2) ? -1 : (t1 > t2) ? 1 : 0;
+			}
+		});
+		for( int i=0; i<sorted.length-MAX_CACHED_PLANS; i++ )
+			if( !sorted[i].delete() )
+				LOG.debug("Compiled plan cache: failed to evict entry "+sorted[i].getName()+".");
+	}
+	
+	/**
+	 * 
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	private static String readFile( File file ) 
+		throws IOException
+	{
+		StringBuilder sb = new StringBuilder();
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				new FileInputStream(file), ProgramConverter.CHARSET));
+		try {
+			char[] buff = new char[8192];
+			int len = -1;
+			while( (len = in.read(buff)) > 0 )
+				sb.append(buff, 0, len);
+		}
+		finally {
+			in.close();
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * 
+	 * @param in
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	private static String getDigest( String in ) 
+		throws DMLRuntimeException
+	{
+		try
+		{
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			byte[] hash = md.digest(in.getBytes(ProgramConverter.CHARSET));
+			StringBuilder sb = new StringBuilder();
+			for( byte b : hash )
+				sb.append(String.format("%02x", b & 0xff));
+			return sb.toString();
+		}
+		catch(NoSuchAlgorithmException ex) {
+			throw new DMLRuntimeException(ex);
+		}
+		catch(IOException ex) {
+			throw new DMLRuntimeException(ex);
+		}
+	}
+}
@@ -30,6 +30,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Scanner;
+import java.util.TreeMap;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -578,61 +579,77 @@ public class DMLScript
 			DMLAppMasterUtils.setupConfigRemoteMaxMemory(conf); 
 		}
 		
-		//Step 3: parse dml script
+		//Step 3: parse dml script (if not compiled plan cached)
 		Statistics.startCompileTimer();
-		AParserWrapper parser = AParserWrapper.createParser(parsePyDML);
-		DMLProgram prog = parser.parse(DML_FILE_PATH_ANTLR_PARSER, dmlScriptStr, argVals);
-		
-		//Step 4: construct HOP DAGs (incl LVA and validate)
-		DMLTranslator dmlt = new DMLTranslator(prog);
-		dmlt.liveVariableAnalysis(prog);			
-		dmlt.validateParseTree(prog);
-		dmlt.constructHops(prog);
-		
-		if (LOG.isDebugEnabled()) {
-			LOG.debug("\n********************** HOPS DAG (Before Rewrite) *******************");
-			dmlt.printHops(prog);
-			DMLTranslator.resetHopsDAGVisitStatus(prog);
+		String planKey = null;
+		TreeMap<String,String> planInputs = null;
+		DMLProgram prog = null;
+		Program rtprog = null;
+		if( CompiledPlanCache.isEnabled() ) {
+			planKey = CompiledPlanCache.createKey(dmlScriptStr, argVals, parsePyDML, null, null, null);
+			rtprog = CompiledPlanCache.get(planKey);
 		}
+		Statistics.setCompiledPlanCacheHit((planKey != null) ? Boolean.valueOf(rtprog != null) : null);
+		
+		if( rtprog == null )
+		{
+			AParserWrapper parser = AParserWrapper.createParser(parsePyDML);
+			prog = parser.parse(DML_FILE_PATH_ANTLR_PARSER, dmlScriptStr, argVals);
+		
+			//Step 4: construct HOP DAGs (incl LVA and validate)
+			DMLTranslator dmlt = new DMLTranslator(prog);
+			dmlt.liveVariableAnalysis(prog);			
+			dmlt.validateParseTree(prog);
+			dmlt.constructHops(prog);
+			if( planKey != null )
+				planInputs = CompiledPlanCache.getInputFingerprints(prog);
+		
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("\n********************** HOPS DAG (Before Rewrite) *******************");
+				dmlt.printHops(prog);
+				DMLTranslator.resetHopsDAGVisitStatus(prog);
+			}
 	
-		//Step 5: rewrite HOP DAGs (incl IPA and memory estimates)
-		dmlt.rewriteHopsDAG(prog);
-		
-		if (LOG.isDebugEnabled()) {
-			LOG.debug("\n********************** HOPS DAG (After Rewrite) *******************");
-			dmlt.printHops(prog);
-			DMLTranslator.resetHopsDAGVisitStatus(prog);
-		
-			LOG.debug("\n********************** OPTIMIZER *******************\n" + 
-			          "Level = " + OptimizerUtils.getOptLevel() + "\n"
-					 +"Available Memory = " + ((double)InfrastructureAnalyzer.getLocalMaxMemory()/1024/1024) + " MB" + "\n"
-					 +"Memory Budget = " + ((double)OptimizerUtils.getLocalMemBudget()/1024/1024) + " MB" + "\n");
-		}
+			//Step 5: rewrite HOP DAGs (incl IPA and memory estimates)
+			dmlt.rewriteHopsDAG(prog);
+		
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("\n********************** HOPS DAG (After Rewrite) *******************");
+				dmlt.printHops(prog);
+				DMLTranslator.resetHopsDAGVisitStatus(prog);
+		
+				LOG.debug("\n********************** OPTIMIZER *******************\n" + 
+				          "Level = " + OptimizerUtils.getOptLevel() + "\n"
+						 +"Available Memory = " + ((double)InfrastructureAnalyzer.getLocalMaxMemory()/1024/1024) + " MB" + "\n"
+						 +"Memory Budget = " + ((double)OptimizerUtils.getLocalMemBudget()/1024/1024) + " MB" + "\n");
+			}
 
-		//Step 6: construct lops (incl exec type and op selection)
-		dmlt.constructLops(prog);
+			//Step 6: construct lops (incl exec type and op selection)
+			dmlt.constructLops(prog);
 
-		if (LOG.isDebugEnabled()) {
-			LOG.debug("\n********************** LOPS DAG *******************");
-			dmlt.printLops(prog);
-			dmlt.resetLopsDAGVisitStatus(prog);
-		}
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("\n********************** LOPS DAG *******************");
+				dmlt.printLops(prog);
+				dmlt.resetLopsDAGVisitStatus(prog);
+			}
 		
-		//Step 7: generate runtime program
-		Program rtprog = prog.getRuntimeProgram(conf);
+			//Step 7: generate runtime program
+			rtprog = prog.getRuntimeProgram(conf);
 
-		if (LOG.isDebugEnabled()) {
-			LOG.info("********************** Instructions *******************");
-			rtprog.printMe();
-			LOG.info("*******************************************************");
-		}
+			if (LOG.isDebugEnabled()) {
+				LOG.info("********************** Instructions *******************");
+				rtprog.printMe();
+				LOG.info("*******************************************************");
+			}
 
-		//Step 8: [optional global data flow optimization]
-		if(OptimizerUtils.isOptLevel(OptimizationLevel.O4_GLOBAL_TIME_MEMORY) ) 
-		{
-			LOG.warn("Optimization level '" + OptimizationLevel.O4_GLOBAL_TIME_MEMORY + "' " +
-					"is still in experimental state and not intended for production use.");
-			rtprog = GlobalOptimizerWrapper.optimizeProgram(prog, rtprog);
+			//Step 8: [optional global data flow optimization]
+			if(OptimizerUtils.isOptLevel(OptimizationLevel.O4_GLOBAL_TIME_MEMORY) ) 
+			{
+				rtprog = GlobalOptimizerWrapper.optimizeProgram(prog, rtprog);
+			}
+			
+			//put compiled plan into cache (if eligible)
+			CompiledPlanCache.put(planKey, planInputs, rtprog);
 		}
 		
 		//launch SystemML appmaster (if requested and not already in launched AM)
@@ -670,7 +687,7 @@ public class DMLScript
 			initHadoopExecution( conf );
 			
 			//run execute (w/ exception handling to ensure proper shutdown)
-			ec = ExecutionContextFactory.createContext(rtprog);
+			ec = ExecutionContextFactory.createContext(true, rtprog, true);
 			rtprog.execute( ec );  
 			
 		}
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map.Entry;
 import java.util.Scanner;
+import java.util.TreeMap;
 
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
@@ -1280,38 +1281,55 @@ public class MLContext {
 		//simplified compilation chain
 		_rtprog = null;
 		
-		//parsing
-		AParserWrapper parser = AParserWrapper.createParser(parsePyDML);
-		DMLProgram prog = parser.parse(dmlScriptFilePath, dmlScriptStr, argVals);
-		if(prog == null) {
-			throw new ParseException("Couldnot parse the file:" + dmlScriptFilePath);
+		//probe compiled plan cache (w/ registered inputs and outputs)
+		String planKey = null;
+		TreeMap<String,String> planInputs = null;
+		if( CompiledPlanCache.isEnabled() ) {
+			planKey = CompiledPlanCache.createKey(dmlScriptStr, argVals, parsePyDML, inputs, outputs, inputSymbolTable);
+			_rtprog = CompiledPlanCache.get(planKey);
 		}
+		Statistics.setCompiledPlanCacheHit((planKey != null) ? Boolean.valueOf(_rtprog != null) : null);
 		
-		//language validate
-		DMLTranslator dmlt = new DMLTranslator(prog);
-		dmlt.liveVariableAnalysis(prog);			
-		dmlt.validateParseTree(prog);
-		
-		//hop construct/rewrite
-		dmlt.constructHops(prog);
-		dmlt.rewriteHopsDAG(prog);
-		
-		Explain.explain(prog);
-		
-		//rewrite persistent reads/writes
-		if(inputSymbolTable != null) {
-			RewriteRemovePersistentReadWrite rewrite = new RewriteRemovePersistentReadWrite(inputs, outputs);
-			ProgramRewriter rewriter2 = new ProgramRewriter(rewrite);
-			rewriter2.rewriteProgramHopDAGs(prog);
-		}
-		
-		//lop construct and runtime prog generation
-		dmlt.constructLops(prog);
-		_rtprog = prog.getRuntimeProgram(config);
-		
-		//optional global data flow optimization
-		if(OptimizerUtils.isOptLevel(OptimizationLevel.O4_GLOBAL_TIME_MEMORY) ) {
-			_rtprog = GlobalOptimizerWrapper.optimizeProgram(prog, _rtprog);
+		if( _rtprog == null ) 
+		{
+			//parsing
+			AParserWrapper parser = AParserWrapper.createParser(parsePyDML);
+			DMLProgram prog = parser.parse(dmlScriptFilePath, dmlScriptStr, argVals);
+			if(prog == null) {
+				throw new ParseException("Couldnot parse the file:" + dmlScriptFilePath);
+			}
+			
+			//language validate
+			DMLTranslator dmlt = new DMLTranslator(prog);
+			dmlt.liveVariableAnalysis(prog);			
+			dmlt.validateParseTree(prog);
+			
+			//hop construct/rewrite
+			dmlt.constructHops(prog);
+			if( planKey != null )
+				planInputs = CompiledPlanCache.getInputFingerprints(prog);
+			dmlt.rewriteHopsDAG(prog);
+			
+			Explain.explain(prog);
+			
+			//rewrite persistent reads/writes
+			if(inputSymbolTable != null) {
+				RewriteRemovePersistentReadWrite rewrite = new RewriteRemovePersistentReadWrite(inputs, outputs);
+				ProgramRewriter rewriter2 = new ProgramRewriter(rewrite);
+				rewriter2.rewriteProgramHopDAGs(prog);
+			}
+			
+			//lop construct and runtime prog generation
+			dmlt.constructLops(prog);
+			_rtprog = prog.getRuntimeProgram(config);
+			
+			//optional global data flow optimization
+			if(OptimizerUtils.isOptLevel(OptimizationLevel.O4_GLOBAL_TIME_MEMORY) ) {
+				_rtprog = GlobalOptimizerWrapper.optimizeProgram(prog, _rtprog);
+			}
+			
+			//put compiled plan into cache (if eligible)
+			CompiledPlanCache.put(planKey, planInputs, _rtprog);
 		}
 		
 		// launch SystemML appmaster not required as it is already launched
@@ -1327,7 +1345,7 @@ public class MLContext {
 		JMLCUtils.cleanupRuntimeProgram(_rtprog, outputs);
 				
 		//create and populate execution context
-		ExecutionContext ec = ExecutionContextFactory.createContext(_rtprog);
+		ExecutionContext ec = ExecutionContextFactory.createContext(true, _rtprog, true);
 		if(inputSymbolTable != null) {
 			ec.setVariables(inputSymbolTable);
 		}
@@ -67,6 +67,9 @@ public class DMLConfig
 	public static final String YARN_APPQUEUE    	= "dml.yarn.app.queue"; 
 	public static final String CP_PARALLEL_MATRIXMULT = "cp.parallel.matrixmult";
 	public static final String CP_PARALLEL_TEXTIO   = "cp.parallel.textio";
+	public static final String SP_PARTITION_SIZE    = "sp.partition.size";
+	public static final String GLOBALOPT_TIME_BUDGET = "globalopt.timebudget";
+	public static final String COMPILE_PLAN_CACHE   = "compile.plancache";
 
 	//obsolete nimble configuration (removed 06/24/2015)
 	//public static final String NUM_MERGE_TASKS      = "NumMergeTasks";
@@ -107,6 +110,9 @@ public class DMLConfig
 		//_defaultVals.put(NIMBLE_SCRATCH,       "nimbleoutput" );	
 		_defaultVals.put(CP_PARALLEL_MATRIXMULT, "true" );
 		_defaultVals.put(CP_PARALLEL_TEXTIO,     "true" );
+		_defaultVals.put(SP_PARTITION_SIZE,      "128" );
+		_defaultVals.put(GLOBALOPT_TIME_BUDGET,  "60" );
+		_defaultVals.put(COMPILE_PLAN_CACHE,     "false" );
 	}
 	
 	public DMLConfig()
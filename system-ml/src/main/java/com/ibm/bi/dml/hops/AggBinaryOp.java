@@ -338,6 +338,9 @@ public class AggBinaryOp extends Hop implements MultiThreadedHop
 		}
 		*/
 		//currently always estimated as dense in order to account for dense intermediate without unnecessary overestimation 
+		//(except for sketch-based sparsity estimates, where the dense intermediate is accounted as processing memory)
+		if( isSparseOutputEstimate(dim1, dim2, nnz) )
+			sparsity = OptimizerUtils.getSparsity(dim1, dim2, nnz);
 		double ret = OptimizerUtils.estimateSizeExactSparsity(dim1, dim2, sparsity);
 		
 		return ret;
@@ -352,9 +355,30 @@ public class AggBinaryOp extends Hop implements MultiThreadedHop
 		if( dim2 >= 2 ) //vectors always dense
 			ret = OptimizerUtils.estimateSizeExactSparsity(dim1, dim2, MatrixBlock.SPARSITY_TURN_POINT);
 		
+		//account for dense intermediate if output estimate is sparse (see computeOutputMemEstimate)
+		if( isSparseOutputEstimate(dim1, dim2, nnz) )
+			ret += OptimizerUtils.estimateSizeExactSparsity(dim1, dim2, 1.0);
+		
 		return ret;
 	}
 	
+	/**
+	 * Indicates if the output memory estimate is based on a sparse representation, which
+	 * is only the case for matrix multiplications with sketch-based sparsity estimates
+	 * below the sparsity turn point (see SparsityEstimator).
+	 * 
+	 * @param dim1
+	 * @param dim2
+	 * @param nnz
+	 * @return
+	 */
+	private boolean isSparseOutputEstimate( long dim1, long dim2, long nnz )
+	{
+		return OptimizerUtils.ALLOW_SKETCH_SPARSITY_ESTIMATION && isMatrixMultiply() 
+			&& _nnz < 0 && _nnzEstimate >= 0 && nnz >= 0 && dim2 >= 2 //vectors always dense
+			&& OptimizerUtils.getSparsity(dim1, dim2, nnz) < MatrixBlock.SPARSITY_TURN_POINT;
+	}
+	
 	@Override
 	protected long[] inferOutputCharacteristics( MemoTable memo )
 	{
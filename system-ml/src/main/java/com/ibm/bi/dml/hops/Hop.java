@@ -82,6 +82,7 @@ public abstract class Hop
 	protected long _rows_in_block = -1;
 	protected long _cols_in_block = -1;
 	protected long _nnz = -1;
+	protected long _nnzEstimate = -1; //approximate, only used for memory estimates (see SparsityEstimator)
 
 	protected ArrayList<Hop> _parent = new ArrayList<Hop>();
 	protected ArrayList<Hop> _input = new ArrayList<Hop>();
@@ -110,6 +111,10 @@ public abstract class Hop
 	// (the default storage level for caching is not yet exposed here)
 	protected boolean _requiresCheckpoint = false;
 	
+	// estimated number of reads of a checkpointed output (e.g., number of loop 
+	// iterations), used for the cost-based selection of storage levels (-1 unknown)
+	protected int _checkpointReuse = -1;
+	
 	// indicates if the output of this hops needs to contain materialized empty blocks 
 	// if those exists; otherwise only blocks w/ non-zero values are materialized
 	protected boolean _outputEmptyBlocks = true;
@@ -272,6 +277,16 @@ public abstract class Hop
 		return _requiresCheckpoint;
 	}
 	
+	public void setCheckpointReuse(int reuse)
+	{
+		_checkpointReuse = reuse;
+	}
+	
+	public int getCheckpointReuse()
+	{
+		return _checkpointReuse;
+	}
+	
 	
 	/**
 	 * 
@@ -367,28 +382,18 @@ public abstract class Hop
 		{
 			try
 			{
-				//investigate need for serialized storage of large sparse matrices
-				//(compile- instead of runtime-level for better debugging)
-				boolean serializedStorage = false;
-				if( dimsKnown(true) ) {
-					double matrixPSize = OptimizerUtils.estimatePartitionedSizeExactSparsity(_dim1, _dim2, _rows_in_block, _cols_in_block, _nnz);
-					double dataCache = SparkExecutionContext.getConfiguredTotalDataMemory(true);
-					serializedStorage = (MatrixBlock.evalSparseFormatInMemory(_dim1, _dim2, _nnz)
-							             && matrixPSize > dataCache ); //sparse in-memory does not fit in agg mem 
-				}
-				else {
-					setRequiresRecompile();
-				}
-			
-				//construct checkpoint w/ right storage level
-				Lop input = getLops();			
-				Lop chkpoint = new Checkpoint(input, getDataType(), getValueType(), 
-						serializedStorage ? Checkpoint.getSerializeStorageLevelString() :
-								            Checkpoint.getDefaultStorageLevelString() );
+				//determine storage level (compile- instead of runtime-level for better debugging)
+				String level = getCheckpointStorageLevel();
 				
-				setOutputDimensions( chkpoint );
-				setLineNumbers( chkpoint );
-				setLops( chkpoint );
+				//construct checkpoint w/ right storage level (if not single-use)
+				if( level != null ) {
+					Lop input = getLops();			
+					Lop chkpoint = new Checkpoint(input, getDataType(), getValueType(), level);
+					
+					setOutputDimensions( chkpoint );
+					setLineNumbers( chkpoint );
+					setLops( chkpoint );
+				}
 			}
 			catch( LopsException ex ) {
 				throw new HopsException(ex);
@@ -397,6 +402,49 @@ public abstract class Hop
 		
 	}
 	
+	/**
+	 * Obtains the storage level of a checkpoint on the output of this hop. If enabled, 
+	 * we use a simple cost model: single-use outputs are not persisted at all, outputs 
+	 * that fit into the executor data memory (in deserialized or serialized form) are 
+	 * persisted memory-only, and all other outputs are persisted serialized with spilling
+	 * to disk. Returns null if the output should not be persisted.
+	 * 
+	 * @return
+	 */
+	private String getCheckpointStorageLevel()
+	{
+		//unknown dimensions: default storage level, decided during recompilation
+		if( !dimsKnown(true) ) {
+			setRequiresRecompile();
+			return Checkpoint.getDefaultStorageLevelString();
+		}
+		
+		double matrixPSize = OptimizerUtils.estimatePartitionedSizeExactSparsity(_dim1, _dim2, _rows_in_block, _cols_in_block, _nnz);
+		double dataCache = SparkExecutionContext.getConfiguredTotalDataMemory(true);
+		
+		//investigate need for serialized storage of large sparse matrices
+		if( !OptimizerUtils.ALLOW_COSTBASED_CHECKPOINTING ) {
+			boolean serializedStorage = (MatrixBlock.evalSparseFormatInMemory(_dim1, _dim2, _nnz)
+					&& matrixPSize > dataCache ); //sparse in-memory does not fit in agg mem 
+			return serializedStorage ? Checkpoint.getSerializeStorageLevelString() :
+					Checkpoint.getDefaultStorageLevelString();
+		}
+		
+		//single-use output, where persist only adds overhead
+		if( _checkpointReuse >= 0 && _checkpointReuse <= 1 )
+			return null;
+		
+		//select storage level according to deserialized and serialized size
+		double memBudget = OptimizerUtils.CHECKPOINT_MEM_FRACTION * dataCache;
+		double matrixSerSize = MatrixBlock.estimateSizeOnDisk(_dim1, _dim2, _nnz);
+		if( matrixPSize <= memBudget )
+			return Checkpoint.getMemoryStorageLevelString();
+		else if( matrixSerSize <= memBudget )
+			return Checkpoint.getSerializeMemoryStorageLevelString();
+		else
+			return Checkpoint.getSerializeStorageLevelString();
+	}
+	
 	
 	/**
 	 * 
@@ -621,6 +669,11 @@ public abstract class Hop
 					//nnz always exactly known (see dimsKnown(true))
 					_outputMemEstimate = computeOutputMemEstimate( _dim1, _dim2, _nnz );
 				}
+				//1a') mem estimate based on exactly known dimensions and sketch-based sparsity estimate
+				//(approximate nnz, hence neither set as nnz nor propagated as worst-case statistics)
+				else if( dimsKnown() && _nnzEstimate >= 0 ) {
+					_outputMemEstimate = computeOutputMemEstimate( _dim1, _dim2, _nnzEstimate );
+				}
 				//1b) infer output statistics and mem estimate based on these statistics
 				else if( memo.hasInputStatistics(this) )
 				{
@@ -678,6 +731,10 @@ public abstract class Hop
 			//nnz always exactly known (see dimsKnown(true))
 			_processingMemEstimate = computeIntermediateMemEstimate( _dim1, _dim2, _nnz );
 		}
+		else if( dimsKnown() && _nnzEstimate >= 0 ) {
+			//sketch-based sparsity estimate (see step 1a')
+			_processingMemEstimate = computeIntermediateMemEstimate( _dim1, _dim2, _nnzEstimate );
+		}
 		else if( wstats!=null ) {
 			//use worst case characteristics to estimate mem
 			long lnnz = ((wstats[2]>=0)?wstats[2]:wstats[0]*wstats[1]);
@@ -837,6 +894,14 @@ public abstract class Hop
 	public long getNnz(){
 		return _nnz;
 	}
+	
+	public void setNnzEstimate(long nnz){
+		_nnzEstimate = nnz;
+	}
+	
+	public long getNnzEstimate(){
+		return _nnzEstimate;
+	}
 
 	public abstract Lop constructLops() 
 		throws HopsException, LopsException;
@@ -1808,6 +1873,7 @@ public abstract class Hop
 		_rows_in_block = that._rows_in_block;
 		_cols_in_block = that._cols_in_block;
 		_nnz = that._nnz;
+		_nnzEstimate = that._nnzEstimate;
 
 		//no copy of lops (regenerated)
 		_parent = new ArrayList<Hop>();
@@ -1822,6 +1888,7 @@ public abstract class Hop
 		_requiresRecompile = that._requiresRecompile;
 		_requiresReblock = that._requiresReblock;
 		_requiresCheckpoint = that._requiresCheckpoint;
+		_checkpointReuse = that._checkpointReuse;
 		_outputEmptyBlocks = that._outputEmptyBlocks;
 		
 		_beginLine = that._beginLine;
@@ -82,6 +82,35 @@ public class OptimizerUtils
 	public static boolean ALLOW_DYN_RECOMPILATION = true;
 	public static boolean ALLOW_PARALLEL_DYN_RECOMPILATION = ALLOW_DYN_RECOMPILATION && true;
 	
+	/**
+	 * Enables/disables the reuse of recompiled instructions for hop DAGs that are
+	 * recompiled with the same input statistics and scalar values as before (e.g., in 
+	 * loops with fixed sizes after the first iteration), see RecompilePlanCache.
+	 */
+	public static boolean ALLOW_RECOMPILE_PLAN_CACHE = ALLOW_DYN_RECOMPILATION && true;
+	
+	/**
+	 * Enables/disables the direct generation of instruction objects from lops (for variable 
+	 * and binary CP instructions) instead of generating and subsequently parsing instruction 
+	 * strings, which reduces the overhead of (re)compilation. Instruction strings are still 
+	 * generated for explain and the serialization of remote programs.
+	 */
+	public static boolean ALLOW_DIRECT_INST_GENERATION = true;
+	
+	/**
+	 * Enables/disables the parallel construction of hops and lops for independent statement
+	 * blocks (functions and top-level blocks) of large programs. This is safe because these
+	 * blocks have separate DAGs and hop/lop ids are obtained from synchronized sequences.
+	 */
+	public static boolean ALLOW_PARALLEL_COMPILATION = true;
+	
+	/**
+	 * Enables/disables the sparsity-aware ordering of matrix multiplication chains,
+	 * which uses nnz information and sparse kernel costs if at least one input of a 
+	 * chain is sparse, and otherwise falls back to the dimension-based ordering.
+	 */
+	public static boolean ALLOW_SPARSITY_AWARE_MMCHAIN_OPT = true;
+	
 	/**
 	 * Enables/disables to put operations with data-dependent output
 	 * size into individual statement blocks / program blocks.
@@ -118,6 +147,14 @@ public class OptimizerUtils
 	 */
 	public static boolean ALLOW_BRANCH_REMOVAL = true;
 	
+	/**
+	 * Enables the hoisting of loop-invariant operations (whose inputs are not updated
+	 * in the loop) out of while and for loop bodies into a new statement block before
+	 * the loop (guarded by the predicate of while loops), if the hoisted intermediates 
+	 * fit into a fraction of the local memory budget (see RewriteHoistLoopInvariantOperations).
+	 */
+	public static boolean ALLOW_LOOP_INVARIANT_CODE_MOTION = true;
+	
 	/**
 	 * 
 	 */
@@ -160,6 +197,20 @@ public class OptimizerUtils
 	 */
 	public static boolean ALLOW_INTER_PROCEDURAL_ANALYSIS = true;
 
+	/**
+	 * Enables the inlining of small DML-bodied functions into the hop dags of their callers
+	 * during IPA, for functions whose body is a single generic statement block after static
+	 * rewrites (e.g., after branch removal), which allows rewrites to span call boundaries.
+	 */
+	public static boolean ALLOW_IPA_FUNCTION_INLINING = true;
+
+	/**
+	 * Enables the creation of size-specialized function copies during IPA for functions that
+	 * are called with different input sizes, which allows to propagate exact statistics into
+	 * each copy. Experimental, hence disabled by default.
+	 */
+	public static boolean ALLOW_IPA_FUNCTION_SPECIALIZATION = false;
+
 	/**
 	 * Enables sum product rewrites such as mapmultchains. In the future, this will cover 
 	 * all sum-product related rewrites.
@@ -209,6 +260,62 @@ public class OptimizerUtils
 	 */
 	public static final boolean ALLOW_COMBINE_FILE_INPUT_FORMAT = true;
 	
+	/**
+	 * Enables the adaptive sizing of spark rdd partitions, where the number of partitions
+	 * of selected spark intermediates (e.g., shuffle outputs of removeEmpty/indexing or
+	 * inputs of outer products) is derived from the estimated output size and the 
+	 * configured target partition size instead of being inherited from the inputs.
+	 */
+	public static boolean ALLOW_SPARK_PARTITION_SIZING = true;
+	
+	/**
+	 * Enables the fusion of chains of block-local spark operations (matrix-scalar and 
+	 * unary builtin operations, optionally followed by a unary aggregate) into a single
+	 * cell-wise pipeline during lop compilation. This avoids the materialization of 
+	 * intermediate blocks, e.g., for sum((X-mu)^2).
+	 */
+	public static boolean ALLOW_SPARK_CELLWISE_FUSION = true;
+	
+	/**
+	 * Enables the fusion of cell-wise operations (optionally followed by a full, row, 
+	 * or column aggregate) into fused CP operators, whose operator classes are generated
+	 * and compiled at runtime (requires a JDK). This avoids the materialization of 
+	 * intermediates, e.g., for sum(X*log(Y+1e-10)). Experimental, hence disabled by default.
+	 */
+	public static boolean ALLOW_CODEGEN = false;
+	
+	/**
+	 * Enables the lineage-based reuse of intermediates of expensive CP instructions (tsmm,
+	 * ba+*, unary aggregates), i.e., results of identical operations over identical inputs
+	 * are kept in a reuse cache that shares the budget of the lazy write buffer (see 
+	 * LineageCache). Experimental, hence disabled by default.
+	 */
+	public static boolean ALLOW_LINEAGE_REUSE = false;
+	
+	/**
+	 * Enables the sketch-based sparsity estimation of intermediates during dynamic 
+	 * recompilation, where density maps of in-memory inputs are propagated through
+	 * matrix multiplications and cell-wise operations in order to obtain more accurate
+	 * memory estimates under skew (see SparsityEstimator). Experimental, hence disabled 
+	 * by default.
+	 */
+	public static boolean ALLOW_SKETCH_SPARSITY_ESTIMATION = false;
+	
+	/**
+	 * Enables the cost-based selection of spark checkpoint storage levels, where the
+	 * storage level (or no persist at all) is chosen according to the estimated size in
+	 * deserialized and serialized form, the aggregate data memory of all executors, and
+	 * the estimated number of reads (e.g., number of loop iterations). 
+	 */
+	public static boolean ALLOW_COSTBASED_CHECKPOINTING = true;
+	
+	/**
+	 * Fraction of the aggregate executor data memory, a single checkpoint is allowed to
+	 * occupy in order to use memory-only storage levels (the remaining memory is left
+	 * for other checkpoints and broadcasts).
+	 */
+	public static final double CHECKPOINT_MEM_FRACTION = 0.5;
+	
 	
 	//////////////////////
 	// Optimizer levels //
@@ -508,6 +615,68 @@ public class OptimizerUtils
 		return ret;
 	}
 	
+	/**
+	 * Returns the configured target partition size of spark intermediates in bytes.
+	 * 
+	 * @return
+	 */
+	public static long getSparkPartitionSize()
+	{
+		DMLConfig conf = ConfigurationManager.getConfig();
+		if( conf == null ) //e.g., without config file
+			return InfrastructureAnalyzer.getHDFSBlockSize();
+		return (long)conf.getIntValue(DMLConfig.SP_PARTITION_SIZE) * 1024 * 1024;
+	}
+	
+	/**
+	 * Returns the configured wall-clock time budget of global data flow 
+	 * optimization in milliseconds, where non-positive values indicate
+	 * an unlimited budget.
+	 * 
+	 * @return
+	 */
+	public static long getGlobalOptimizerTimeBudget()
+	{
+		DMLConfig conf = ConfigurationManager.getConfig();
+		if( conf == null ) //e.g., without config file
+			return 60 * 1000;
+		//note: fractional seconds allowed (e.g., for tests)
+		return (long)(Double.parseDouble(conf.getTextValue(DMLConfig.GLOBALOPT_TIME_BUDGET)) * 1000);
+	}
+	
+	/**
+	 * Estimates the number of spark partitions for a matrix of the given characteristics
+	 * such that partitions approximately match the configured target partition size. 
+	 * For unknown nnz, we use a dense worst-case estimate. 
+	 * 
+	 * @param rlen
+	 * @param clen
+	 * @param brlen
+	 * @param bclen
+	 * @param nnz
+	 * @return number of partitions, or -1 if dimensions are unknown
+	 */
+	public static int estimateNumPartitions(long rlen, long clen, long brlen, long bclen, long nnz)
+	{
+		if( rlen <= 0 || clen <= 0 )
+			return -1;
+		
+		long lnnz = (nnz >= 0) ? nnz : rlen * clen;
+		double size = estimatePartitionedSizeExactSparsity(rlen, clen, brlen, bclen, lnnz);
+		return (int) Math.max(Math.ceil(size / getSparkPartitionSize()), 1);
+	}
+	
+	/**
+	 * 
+	 * @param mc
+	 * @return
+	 */
+	public static int estimateNumPartitions(MatrixCharacteristics mc)
+	{
+		return estimateNumPartitions(mc.getRows(), mc.getCols(), 
+				mc.getRowsPerBlock(), mc.getColsPerBlock(), mc.getNonZeros());
+	}
+	
 	/**
 	 * 
 	 * @return
@@ -0,0 +1,124 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.hops.codegen;
+
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.ibm.bi.dml.hops.codegen.cplan.CNodeCell;
+import com.ibm.bi.dml.runtime.DMLRuntimeException;
+import com.ibm.bi.dml.runtime.codegen.CodegenUtils;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.util.IDSequence;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Compiler of generated operators (spoof: sum-product optimization and fusion), which
+ * creates the source of a given cplan and compiles it in-process into a new operator class.
+ * 
+ * All compiled classes are kept in a bounded plan cache (lru replacement) that is keyed
+ * by the generated source (with placeholder class name), i.e., by the fused template incl
+ * its operations and input configuration. Since literals are passed as scalar inputs, 
+ * repeated compilation of fused operators that only differ in constants (e.g., during
+ * dynamic recompilation in loops or functions) reuses the already generated classes and
+ * avoids the costs of java compilation and class loading.
+ * 
+ */
+public class SpoofCompiler
+{
+
+	private static final Log LOG = LogFactory.getLog(SpoofCompiler.class.getName());
+
+	//internal configuration flags
+	public static boolean USE_PLAN_CACHE = true;
+
+	public static final String CLASS_PREFIX = "SpoofCell";
+
+	//max number of cached plans (lru replacement)
+	private static final int MAX_CACHED_PLANS = 1024;
+
+	private static IDSequence _classSeq = new IDSequence();
+	private static LinkedHashMap<String, Class<?>> _planCache = null;
+
+	static
+	{
+		_planCache = new LinkedHashMap<String, Class<?>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 3452806711249538813L;
+			@Override
+			protected boolean removeEldestEntry(Entry<String, Class<?>> eldest) {
+				return size() > MAX_CACHED_PLANS;
+			}
+		};
+	}
+
+	/**
+	 * Generates and compiles the operator class of the given cplan, or obtains an
+	 * existing class with equivalent source from the plan cache.
+	 * 
+	 * @param cplan
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	public static synchronized Class<?> getOrCompileClass( CNodeCell cplan )
+		throws DMLRuntimeException
+	{
+		//generate source with placeholder class name (plan cache key)
+		String src = cplan.codegen();
+
+		//probe plan cache
+		Class<?> ret = USE_PLAN_CACHE ? _planCache.get(src) : null;
+		if( ret != null ) {
+			Statistics.incrementCodegenPlanCacheHits();
+			return ret;
+		}
+
+		//compile and load new class
+		long t0 = System.nanoTime();
+		String name = CLASS_PREFIX + _classSeq.getNextID();
+		ret = CodegenUtils.compileClass(CNodeCell.PACKAGE + "." + name,
+				src.replace(CNodeCell.CLASS_NAME, name));
+		Statistics.incrementCodegenClassCompile();
+		Statistics.incrementCodegenCompileTime(System.nanoTime()-t0);
+
+		if( LOG.isDebugEnabled() )
+			LOG.debug("Compiled generated class " + name + " in " + (System.nanoTime()-t0)/1000000 + "ms.");
+
+		if( USE_PLAN_CACHE )
+			_planCache.put(src, ret);
+
+		return ret;
+	}
+
+	/**
+	 * Clears the plan cache, where already compiled classes remain
+	 * available for existing instructions.
+	 */
+	public static synchronized void clearPlanCache() {
+		_planCache.clear();
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public static synchronized int getPlanCacheSize() {
+		return _planCache.size();
+	}
+}
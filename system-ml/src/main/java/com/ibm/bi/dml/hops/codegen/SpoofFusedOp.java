@@ -0,0 +1,259 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.hops.codegen;
+
+import java.util.ArrayList;
+
+import com.ibm.bi.dml.hops.Hop;
+import com.ibm.bi.dml.hops.HopsException;
+import com.ibm.bi.dml.hops.MemoTable;
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.hops.Hop.MultiThreadedHop;
+import com.ibm.bi.dml.lops.Lop;
+import com.ibm.bi.dml.lops.LopsException;
+import com.ibm.bi.dml.lops.SpoofFused;
+import com.ibm.bi.dml.lops.LopProperties.ExecType;
+import com.ibm.bi.dml.parser.Expression.DataType;
+import com.ibm.bi.dml.parser.Expression.ValueType;
+import com.ibm.bi.dml.runtime.codegen.SpoofCellwise.CellType;
+import com.ibm.bi.dml.runtime.matrix.MatrixCharacteristics;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
+
+/**
+ * Hop of a fused operator with generated operator class, whose inputs are the main
+ * input, side inputs and scalars of the fused region. Fused operators are currently
+ * only supported in CP because generated classes are only available in the compiling
+ * JVM; hence, the fusion planner only creates these hops for inputs with known
+ * dimensions whose memory requirements fit into the local memory budget.
+ * 
+ */
+public class SpoofFusedOp extends Hop implements MultiThreadedHop
+{
+
+	private Class<?> _class = null;
+	private CellType _type = null;
+	private int _numThreads = -1;
+
+	private SpoofFusedOp() {
+		//default constructor for clone
+	}
+
+	public SpoofFusedOp( String name, DataType dt, ValueType vt, Class<?> cla, CellType type, ArrayList<Hop> inputs )
+	{
+		super(name, dt, vt);
+		_class = cla;
+		_type = type;
+
+		for( Hop in : inputs ) {
+			getInput().add(in);
+			in.getParent().add(this);
+		}
+
+		//compute unknown output dimensions
+		refreshSizeInformation();
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public Class<?> getGeneratedClass() {
+		return _class;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public CellType getCellType() {
+		return _type;
+	}
+
+	@Override
+	public void setMaxNumThreads( int k ) {
+		_numThreads = k;
+	}
+
+	@Override
+	public int getMaxNumThreads() {
+		return _numThreads;
+	}
+
+	@Override
+	public boolean allowsAllExecTypes() {
+		return false;
+	}
+
+	@Override
+	protected double computeOutputMemEstimate( long dim1, long dim2, long nnz ) {
+		//generated operators always allocate a dense output
+		return OptimizerUtils.estimateSizeExactSparsity(dim1, dim2, 1.0);
+	}
+
+	@Override
+	protected double computeIntermediateMemEstimate( long dim1, long dim2, long nnz )
+	{
+		//sparse side inputs are converted to dense
+		double ret = 0;
+		for( int i=1; i<getInput().size(); i++ ) {
+			Hop in = getInput().get(i);
+			if( in.getDataType() == DataType.MATRIX && (in.getNnz() < 0
+				|| MatrixBlock.evalSparseFormatInMemory(in.getDim1(), in.getDim2(), in.getNnz())) )
+				ret += OptimizerUtils.estimateSizeExactSparsity(in.getDim1(), in.getDim2(), 1.0);
+		}
+		return ret;
+	}
+
+	@Override
+	protected long[] inferOutputCharacteristics( MemoTable memo )
+	{
+		long[] ret = null;
+
+		MatrixCharacteristics mc = memo.getAllInputStats(getInput().get(0));
+		if( mc.dimsKnown() ) {
+			switch( _type ) {
+				case NO_AGG:   ret = new long[]{mc.getRows(), mc.getCols(), -1}; break;
+				case ROW_AGG:  ret = new long[]{mc.getRows(), 1, mc.getRows()}; break;
+				case COL_AGG:  ret = new long[]{1, mc.getCols(), mc.getCols()}; break;
+				case FULL_AGG: break; //scalar output
+			}
+		}
+
+		return ret;
+	}
+
+	@Override
+	public Lop constructLops()
+		throws HopsException, LopsException
+	{
+		//return already created lops
+		if( getLops() != null )
+			return getLops();
+
+		ExecType et = optFindExecType();
+
+		ArrayList<Lop> inputs = new ArrayList<Lop>();
+		for( Hop c : getInput() )
+			inputs.add(c.constructLops());
+
+		try {
+			SpoofFused lop = new SpoofFused(inputs, getDataType(), getValueType(), _class, et);
+			lop.setNumThreads(OptimizerUtils.getConstrainedNumThreads(_numThreads));
+			setOutputDimensions(lop);
+			setLineNumbers(lop);
+			setLops(lop);
+		}
+		catch(LopsException ex) {
+			throw new HopsException(this.printErrorLocation() + "error constructing lops for SpoofFusedOp.", ex);
+		}
+
+		//add reblock/checkpoint lops if necessary
+		constructAndSetLopsDataFlowProperties();
+
+		return getLops();
+	}
+
+	@Override
+	protected ExecType optFindExecType()
+		throws HopsException
+	{
+		checkAndSetForcedPlatform();
+
+		//generated operators are only available in CP (see fusion planner for
+		//the validation of dimensions and memory estimates)
+		_etype = ExecType.CP;
+
+		return _etype;
+	}
+
+	@Override
+	public String getOpString() {
+		return "spoof(" + _class.getSimpleName() + ")";
+	}
+
+	@Override
+	public void printMe() throws HopsException {
+		if (LOG.isDebugEnabled()){
+			if (getVisited() != VisitStatus.DONE) {
+				super.printMe();
+				LOG.debug("  Class: " + _class.getName());
+				for (Hop h : getInput()) {
+					h.printMe();
+				}
+			}
+			setVisited(VisitStatus.DONE);
+		}
+	}
+
+	@Override
+	public void refreshSizeInformation()
+	{
+		Hop in = getInput().get(0);
+		switch( _type ) {
+			case NO_AGG:
+				setDim1( in.getDim1() );
+				setDim2( in.getDim2() );
+				break;
+			case ROW_AGG:
+				setDim1( in.getDim1() );
+				setDim2( 1 );
+				break;
+			case COL_AGG:
+				setDim1( 1 );
+				setDim2( in.getDim2() );
+				break;
+			case FULL_AGG:
+				//do nothing: always scalar
+				break;
+		}
+	}
+
+	@Override
+	public Object clone() throws CloneNotSupportedException
+	{
+		SpoofFusedOp ret = new SpoofFusedOp();
+
+		//copy generic attributes
+		ret.clone(this, false);
+
+		//copy specific attributes
+		ret._class      = _class;
+		ret._type       = _type;
+		ret._numThreads = _numThreads;
+
+		return ret;
+	}
+
+	@Override
+	public boolean compare( Hop that )
+	{
+		if( !(that instanceof SpoofFusedOp) )
+			return false;
+
+		SpoofFusedOp that2 = (SpoofFusedOp)that;
+		boolean ret = (_class == that2._class
+				&& _type == that2._type
+				&& _numThreads == that2._numThreads
+				&& getInput().size() == that2.getInput().size());
+
+		for( int i=0; i<getInput().size() && ret; i++ )
+			ret &= (getInput().get(i) == that2.getInput().get(i));
+
+		return ret;
+	}
+}
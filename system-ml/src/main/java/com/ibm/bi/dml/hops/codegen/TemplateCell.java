@@ -0,0 +1,429 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.hops.codegen;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.ibm.bi.dml.api.DMLScript;
+import com.ibm.bi.dml.api.DMLScript.RUNTIME_PLATFORM;
+import com.ibm.bi.dml.hops.AggUnaryOp;
+import com.ibm.bi.dml.hops.BinaryOp;
+import com.ibm.bi.dml.hops.Hop;
+import com.ibm.bi.dml.hops.Hop.AggOp;
+import com.ibm.bi.dml.hops.Hop.Direction;
+import com.ibm.bi.dml.hops.Hop.OpOp1;
+import com.ibm.bi.dml.hops.Hop.OpOp2;
+import com.ibm.bi.dml.hops.HopsException;
+import com.ibm.bi.dml.hops.LiteralOp;
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.hops.UnaryOp;
+import com.ibm.bi.dml.hops.codegen.cplan.CNode;
+import com.ibm.bi.dml.hops.codegen.cplan.CNodeBinary;
+import com.ibm.bi.dml.hops.codegen.cplan.CNodeBinary.BinaryType;
+import com.ibm.bi.dml.hops.codegen.cplan.CNodeCell;
+import com.ibm.bi.dml.hops.codegen.cplan.CNodeData;
+import com.ibm.bi.dml.hops.codegen.cplan.CNodeData.InputType;
+import com.ibm.bi.dml.hops.codegen.cplan.CNodeUnary;
+import com.ibm.bi.dml.hops.codegen.cplan.CNodeUnary.UnaryType;
+import com.ibm.bi.dml.hops.rewrite.HopRewriteUtils;
+import com.ibm.bi.dml.parser.Expression.DataType;
+import com.ibm.bi.dml.parser.Expression.ValueType;
+import com.ibm.bi.dml.runtime.codegen.SpoofCellwise.CellType;
+
+/**
+ * Fusion template for cell-wise operations: starting at a given root (a cell-wise
+ * operation or a unary aggregate over a cell-wise operation), this template greedily
+ * collects all cell-wise unary, binary and matrix-scalar operations over inputs of
+ * equal size, whose intermediates are not consumed by operations outside the fused
+ * region. The fused region is then compiled into a cplan with the region inputs as
+ * main input, side inputs and scalars (incl literals).
+ * 
+ * Fused operators are executed in CP only. Hence, the template is only applied for
+ * inputs with known dimensions, whose memory requirements fit into the local budget.
+ * 
+ */
+public class TemplateCell
+{
+
+	//minimum number of fused operations (incl aggregates)
+	private static final int MIN_FUSED_OPS = 2;
+
+	private static final OpOp1[] SUPPORTED_UNARY = new OpOp1[]{ OpOp1.ABS, OpOp1.SIN, OpOp1.COS, OpOp1.TAN,
+		OpOp1.ASIN, OpOp1.ACOS, OpOp1.ATAN, OpOp1.SQRT, OpOp1.LOG, OpOp1.EXP, OpOp1.ROUND, OpOp1.CEIL,
+		OpOp1.FLOOR, OpOp1.SIGMOID, OpOp1.SELP, OpOp1.SPROP };
+	private static final OpOp2[] SUPPORTED_BINARY = new OpOp2[]{ OpOp2.PLUS, OpOp2.MINUS, OpOp2.MULT,
+		OpOp2.DIV, OpOp2.POW, OpOp2.MIN, OpOp2.MAX, OpOp2.LOG, OpOp2.MINUS1_MULT, OpOp2.LESS,
+		OpOp2.LESSEQUAL, OpOp2.GREATER, OpOp2.GREATEREQUAL, OpOp2.EQUAL, OpOp2.NOTEQUAL };
+	private static final AggOp[] SUPPORTED_AGG = new AggOp[]{ AggOp.SUM, AggOp.SUM_SQ, AggOp.MIN, AggOp.MAX };
+
+	private AggUnaryOp _agg = null;
+	private HashMap<Long, Hop> _region = null;
+	private ArrayList<Hop> _inputs = null;
+	private Hop _main = null;
+	private boolean _sparseSafe = false;
+	private CNodeCell _cplan = null;
+
+	/**
+	 * Creates the cell template for the given root and constructs the cplan
+	 * if the fused region is valid.
+	 * 
+	 * @param root
+	 * @throws HopsException
+	 */
+	public TemplateCell( Hop root )
+		throws HopsException
+	{
+		_agg = (root instanceof AggUnaryOp) ? (AggUnaryOp)root : null;
+		_region = new HashMap<Long, Hop>();
+		_inputs = new ArrayList<Hop>();
+
+		//collect fused region and validate
+		Hop top = (_agg != null) ? root.getInput().get(0) : root;
+		rCollectRegion(top, top);
+		if( isValidRegion(top) )
+			_cplan = constructCplan(top);
+	}
+
+	/**
+	 * Indicates if the given hop is a valid root of a cell template.
+	 * 
+	 * @param hop
+	 * @return
+	 */
+	public static boolean isValidRoot( Hop hop )
+	{
+		if( hop instanceof AggUnaryOp ) {
+			AggUnaryOp agg = (AggUnaryOp)hop;
+			return HopRewriteUtils.isValidOp(agg.getOp(), SUPPORTED_AGG)
+				&& agg.getInput().get(0).getDataType() == DataType.MATRIX
+				&& isValidOperation(agg.getInput().get(0));
+		}
+		return isValidOperation(hop);
+	}
+
+	/**
+	 * Indicates if the given hop is a supported cell-wise operation
+	 * with matrix output.
+	 * 
+	 * @param hop
+	 * @return
+	 */
+	public static boolean isValidOperation( Hop hop )
+	{
+		if( hop.getDataType() != DataType.MATRIX )
+			return false;
+
+		if( hop instanceof UnaryOp ) {
+			return HopRewriteUtils.isValidOp(((UnaryOp)hop).getOp(), SUPPORTED_UNARY)
+				&& hop.getInput().get(0).getDataType() == DataType.MATRIX;
+		}
+		else if( hop instanceof BinaryOp ) {
+			if( !HopRewriteUtils.isValidOp(((BinaryOp)hop).getOp(), SUPPORTED_BINARY) )
+				return false;
+			//inputs of equal size or scalars (no matrix-vector broadcasting)
+			for( Hop in : hop.getInput() ) {
+				boolean valid = (in.getDataType() == DataType.SCALAR) ?
+					in.getValueType() != ValueType.STRING && in.getValueType() != ValueType.OBJECT :
+					HopRewriteUtils.isEqualSize(in, hop);
+				if( !valid )
+					return false;
+			}
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public boolean isValid() {
+		return (_cplan != null);
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public CNodeCell getCplan() {
+		return _cplan;
+	}
+
+	/**
+	 * Returns the inputs of the fused region (main input, side inputs, and scalars)
+	 * in the order expected by the generated operator.
+	 * 
+	 * @return
+	 */
+	public ArrayList<Hop> getInputs() {
+		return _inputs;
+	}
+
+	/**
+	 * Returns all fused operations, including the root.
+	 * 
+	 * @return
+	 */
+	public ArrayList<Hop> getFusedHops() {
+		ArrayList<Hop> ret = new ArrayList<Hop>(_region.values());
+		if( _agg != null )
+			ret.add(_agg);
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public CellType getCellType() {
+		return _cplan.getCellType();
+	}
+
+	/**
+	 * 
+	 * @param hop
+	 * @param top
+	 */
+	private void rCollectRegion( Hop hop, Hop top )
+	{
+		if( _region.containsKey(hop.getHopID()) || _inputs.contains(hop) )
+			return;
+
+		//fuse the top operation and all valid intermediates whose consumers are all fused
+		if( hop == top || (isValidOperation(hop) && HopRewriteUtils.isEqualSize(hop, top)
+			&& hasOnlyRegionParents(hop)) )
+		{
+			_region.put(hop.getHopID(), hop);
+			for( Hop c : hop.getInput() )
+				rCollectRegion(c, top);
+		}
+		else {
+			//note: literals are passed as scalar inputs for reuse of generated operators
+			_inputs.add(hop);
+		}
+	}
+
+	/**
+	 * 
+	 * @param hop
+	 * @return
+	 */
+	private boolean hasOnlyRegionParents( Hop hop )
+	{
+		for( Hop p : hop.getParent() )
+			if( !_region.containsKey(p.getHopID()) )
+				return false;
+		return true;
+	}
+
+	/**
+	 * 
+	 * @param top
+	 * @return
+	 * @throws HopsException
+	 */
+	private boolean isValidRegion( Hop top )
+		throws HopsException
+	{
+		//check for exec type and minimum number of fused operations
+		if( DMLScript.rtplatform == RUNTIME_PLATFORM.HADOOP
+			|| DMLScript.rtplatform == RUNTIME_PLATFORM.SPARK )
+			return false;
+		if( _region.size() + ((_agg != null) ? 1 : 0) < MIN_FUSED_OPS )
+			return false;
+
+		//aggregates can only be fused if the aggregated intermediate is not consumed otherwise
+		if( _agg != null && top.getParent().size() > 1 )
+			return false;
+
+		//preserve hand-coded fused operators for sum(X*Y) and sum(X*Y*Z)
+		if( _agg != null && _agg.getOp() == AggOp.SUM && _agg.getDirection() == Direction.RowCol
+			&& rIsMultChain(top) )
+			return false;
+
+		//check for known dimensions and memory requirements (dense side inputs and output)
+		if( !top.dimsKnown() )
+			return false;
+		double mem = OptimizerUtils.estimateSizeExactSparsity(top.getDim1(), top.getDim2(), 1.0);
+		for( Hop in : _inputs )
+			if( in.getDataType() == DataType.MATRIX ) {
+				if( !HopRewriteUtils.isEqualSize(in, top) )
+					return false;
+				mem += OptimizerUtils.estimateSizeExactSparsity(in.getDim1(), in.getDim2(), 1.0);
+			}
+		if( mem > OptimizerUtils.getLocalMemBudget() )
+			return false;
+
+		//determine main input (sparse-safe, with minimum number of non-zeros)
+		for( Hop in : _inputs )
+			if( in.getDataType() == DataType.MATRIX ) {
+				boolean safe = rIsSparseSafe(top, in);
+				if( _main == null || (safe && !_sparseSafe) || (safe == _sparseSafe && getNnz(in) < getNnz(_main)) ) {
+					_main = in;
+					_sparseSafe = safe;
+				}
+			}
+
+		return (_main != null);
+	}
+
+	/**
+	 * 
+	 * @param top
+	 * @return
+	 * @throws HopsException
+	 */
+	private CNodeCell constructCplan( Hop top )
+		throws HopsException
+	{
+		//reorder inputs (main input, side inputs, scalars) and create data nodes
+		ArrayList<Hop> inputs = new ArrayList<Hop>();
+		HashMap<Long, CNode> memo = new HashMap<Long, CNode>();
+		inputs.add(_main);
+		memo.put(_main.getHopID(), new CNodeData(InputType.MAIN, 0));
+		int posSide = 0, posScalar = 0;
+		for( Hop in : _inputs )
+			if( in != _main && in.getDataType() == DataType.MATRIX ) {
+				inputs.add(in);
+				memo.put(in.getHopID(), new CNodeData(InputType.SIDE, posSide++));
+			}
+		for( Hop in : _inputs )
+			if( in.getDataType() == DataType.SCALAR ) {
+				inputs.add(in);
+				memo.put(in.getHopID(), new CNodeData(InputType.SCALAR, posScalar++));
+			}
+		_inputs = inputs;
+
+		//construct cplan of fused region
+		CNode out = rConstructCNodes(top, memo);
+
+		//determine cell type and aggregation function
+		CellType type = CellType.NO_AGG;
+		com.ibm.bi.dml.runtime.codegen.SpoofCellwise.AggOp aggop = null;
+		if( _agg != null ) {
+			switch( _agg.getDirection() ) {
+				case RowCol: type = CellType.FULL_AGG; break;
+				case Row:    type = CellType.ROW_AGG; break;
+				case Col:    type = CellType.COL_AGG; break;
+			}
+			aggop = com.ibm.bi.dml.runtime.codegen.SpoofCellwise.AggOp.valueOf(_agg.getOp().name());
+		}
+
+		return new CNodeCell(out, type, aggop, _sparseSafe);
+	}
+
+	/**
+	 * 
+	 * @param hop
+	 * @param memo
+	 * @return
+	 * @throws HopsException
+	 */
+	private CNode rConstructCNodes( Hop hop, HashMap<Long, CNode> memo )
+		throws HopsException
+	{
+		if( memo.containsKey(hop.getHopID()) )
+			return memo.get(hop.getHopID());
+
+		CNode ret = null;
+		if( hop instanceof UnaryOp ) {
+			CNode in1 = rConstructCNodes(hop.getInput().get(0), memo);
+			ret = new CNodeUnary(in1, UnaryType.valueOf(((UnaryOp)hop).getOp().name()));
+		}
+		else if( hop instanceof BinaryOp ) {
+			CNode in1 = rConstructCNodes(hop.getInput().get(0), memo);
+			CNode in2 = rConstructCNodes(hop.getInput().get(1), memo);
+			ret = new CNodeBinary(in1, in2, BinaryType.valueOf(((BinaryOp)hop).getOp().name()));
+		}
+		else {
+			throw new HopsException(hop.printErrorLocation() + "Unsupported operation in cell template: " + hop.getOpString());
+		}
+
+		memo.put(hop.getHopID(), ret);
+		return ret;
+	}
+
+	/**
+	 * Indicates if the fused expression evaluates to zero whenever the given
+	 * input is zero (which allows to skip zero cells of this input).
+	 * 
+	 * @param hop
+	 * @param in
+	 * @return
+	 * @throws HopsException
+	 */
+	private boolean rIsSparseSafe( Hop hop, Hop in )
+		throws HopsException
+	{
+		if( hop == in )
+			return true;
+		if( !_region.containsKey(hop.getHopID()) )
+			return false;
+
+		if( hop instanceof UnaryOp ) {
+			return UnaryType.valueOf(((UnaryOp)hop).getOp().name()).isSparseSafe()
+				&& rIsSparseSafe(hop.getInput().get(0), in);
+		}
+		else if( hop instanceof BinaryOp ) {
+			Hop left = hop.getInput().get(0);
+			Hop right = hop.getInput().get(1);
+			switch( ((BinaryOp)hop).getOp() ) {
+				case MULT:
+					return rIsSparseSafe(left, in) || rIsSparseSafe(right, in);
+				case PLUS: case MINUS: case MIN: case MAX: case NOTEQUAL:
+					return rIsSparseSafe(left, in) && rIsSparseSafe(right, in);
+				case DIV:
+					return rIsSparseSafe(left, in) && right instanceof LiteralOp
+						&& HopRewriteUtils.getDoubleValue((LiteralOp)right) != 0;
+				case POW:
+					return rIsSparseSafe(left, in) && right instanceof LiteralOp
+						&& HopRewriteUtils.getDoubleValue((LiteralOp)right) > 0;
+				default:
+					return false;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * 
+	 * @param hop
+	 * @return
+	 */
+	private boolean rIsMultChain( Hop hop )
+	{
+		if( !_region.containsKey(hop.getHopID()) )
+			return true;
+		if( !(hop instanceof BinaryOp && ((BinaryOp)hop).getOp() == OpOp2.MULT) )
+			return false;
+		return rIsMultChain(hop.getInput().get(0))
+			&& rIsMultChain(hop.getInput().get(1));
+	}
+
+	/**
+	 * 
+	 * @param hop
+	 * @return
+	 */
+	private static long getNnz( Hop hop ) {
+		return (hop.getNnz() >= 0) ? hop.getNnz() : hop.getDim1() * hop.getDim2();
+	}
+}
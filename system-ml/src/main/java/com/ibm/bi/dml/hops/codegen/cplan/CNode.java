@@ -0,0 +1,111 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.hops.codegen.cplan;
+
+import java.util.ArrayList;
+
+import com.ibm.bi.dml.runtime.controlprogram.parfor.util.IDSequence;
+
+/**
+ * Base class of all nodes of a code generation plan (cplan), i.e., the fused
+ * representation of a hop sub-DAG from which the source of a generated operator
+ * is created. Every node generates at most one statement that assigns its result
+ * to a new temporary variable.
+ * 
+ */
+public abstract class CNode
+{
+
+	public static final String VAR_PREFIX = "TMP";
+
+	protected ArrayList<CNode> _inputs = null;
+	protected String _genVar = null;
+	protected boolean _generated = false;
+
+	public CNode() {
+		_inputs = new ArrayList<CNode>();
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public ArrayList<CNode> getInput() {
+		return _inputs;
+	}
+
+	/**
+	 * Returns the name of the variable (or expression) holding
+	 * the result of this node in the generated code.
+	 * 
+	 * @return
+	 */
+	public String getVarname() {
+		return _genVar;
+	}
+
+	/**
+	 * Resets the generated state of this node and all its inputs, which
+	 * allows to generate the code of a plan multiple times.
+	 */
+	public void resetGenerated()
+	{
+		if( !_generated )
+			return;
+
+		for( CNode c : _inputs )
+			c.resetGenerated();
+		_generated = false;
+	}
+
+	/**
+	 * Appends the statements of this node and all its not yet generated inputs
+	 * to the given string builder, where new temporary variable names are
+	 * created from the given sequence.
+	 * 
+	 * @param sb
+	 * @param seq
+	 */
+	public void codegen(StringBuilder sb, IDSequence seq)
+	{
+		if( _generated )
+			return;
+
+		//generate inputs (in order) and the statement of this node
+		for( CNode c : _inputs )
+			c.codegen(sb, seq);
+		codegenStatement(sb, seq);
+		_generated = true;
+	}
+
+	/**
+	 * 
+	 * @param sb
+	 * @param seq
+	 */
+	protected abstract void codegenStatement(StringBuilder sb, IDSequence seq);
+
+	/**
+	 * 
+	 * @param seq
+	 * @return
+	 */
+	protected static String createVarname(IDSequence seq) {
+		return VAR_PREFIX + seq.getNextID();
+	}
+}
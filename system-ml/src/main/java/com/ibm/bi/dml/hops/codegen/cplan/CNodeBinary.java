@@ -0,0 +1,87 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.hops.codegen.cplan;
+
+import com.ibm.bi.dml.runtime.controlprogram.parfor.util.IDSequence;
+
+/**
+ * Cplan node of a cell-wise binary operation over two cells or a cell and a scalar.
+ * 
+ */
+public class CNodeBinary extends CNode
+{
+
+	public enum BinaryType {
+		PLUS, MINUS, MULT, DIV, POW, MIN, MAX, LOG, MINUS1_MULT,
+		LESS, LESSEQUAL, GREATER, GREATEREQUAL, EQUAL, NOTEQUAL;
+
+		/**
+		 * Returns the code template of this operation, where %IN1% and %IN2% 
+		 * are replaced by the variable names of the inputs.
+		 * 
+		 * @return
+		 */
+		public String getTemplate() {
+			switch( this ) {
+				case PLUS:         return "%IN1% + %IN2%";
+				case MINUS:        return "%IN1% - %IN2%";
+				case MULT:         return "%IN1% * %IN2%";
+				case DIV:          return "%IN1% / %IN2%";
+				case POW:          return "Math.pow(%IN1%, %IN2%)";
+				case MIN:          return "(%IN1% <= %IN2%) ? %IN1% : %IN2%";
+				case MAX:          return "(%IN1% >= %IN2%) ? %IN1% : %IN2%";
+				case LOG:          return "Math.log(%IN1%) / Math.log(%IN2%)";
+				case MINUS1_MULT:  return "1 - %IN1% * %IN2%";
+				case LESS:         return "(%IN1% < %IN2%) ? 1 : 0";
+				case LESSEQUAL:    return "(%IN1% <= %IN2%) ? 1 : 0";
+				case GREATER:      return "(%IN1% > %IN2%) ? 1 : 0";
+				case GREATEREQUAL: return "(%IN1% >= %IN2%) ? 1 : 0";
+				case EQUAL:        return "(%IN1% == %IN2%) ? 1 : 0";
+				case NOTEQUAL:     return "(%IN1% != %IN2%) ? 1 : 0";
+				default:
+					throw new RuntimeException("Invalid binary type: "+this.toString());
+			}
+		}
+	}
+
+	private BinaryType _type = null;
+
+	public CNodeBinary( CNode in1, CNode in2, BinaryType type ) {
+		_inputs.add(in1);
+		_inputs.add(in2);
+		_type = type;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public BinaryType getType() {
+		return _type;
+	}
+
+	@Override
+	protected void codegenStatement(StringBuilder sb, IDSequence seq)
+	{
+		_genVar = createVarname(seq);
+		String expr = _type.getTemplate()
+			.replace("%IN1%", _inputs.get(0).getVarname())
+			.replace("%IN2%", _inputs.get(1).getVarname());
+		sb.append("\t\tdouble " + _genVar + " = " + expr + ";\n");
+	}
+}
@@ -0,0 +1,119 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.hops.codegen.cplan;
+
+import com.ibm.bi.dml.runtime.codegen.SpoofCellwise.AggOp;
+import com.ibm.bi.dml.runtime.codegen.SpoofCellwise.CellType;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.util.IDSequence;
+
+/**
+ * Root node of a cplan for a fused cell-wise operator, which generates the
+ * source of an entire class that extends SpoofCellwise. The generated class 
+ * name is a placeholder that is replaced on compilation, which allows to use
+ * the generated source as key of the plan cache.
+ * 
+ */
+public class CNodeCell extends CNode
+{
+
+	public static final String CLASS_NAME = "%TMP%";
+	public static final String PACKAGE = "codegen";
+
+	private static final String TEMPLATE = 
+		  "package " + PACKAGE + ";\n"
+		+ "\n"
+		+ "import com.ibm.bi.dml.runtime.codegen.SpoofCellwise;\n"
+		+ "import com.ibm.bi.dml.runtime.codegen.SpoofCellwise.AggOp;\n"
+		+ "import com.ibm.bi.dml.runtime.codegen.SpoofCellwise.CellType;\n"
+		+ "\n"
+		+ "public final class " + CLASS_NAME + " extends SpoofCellwise {\n"
+		+ "\tpublic " + CLASS_NAME + "() {\n"
+		+ "\t\tsuper(CellType.%TYPE%, %AGG_OP%, %SPARSE_SAFE%);\n"
+		+ "\t}\n"
+		+ "\t@Override\n"
+		+ "\tprotected double genexec( double a, double[][] b, double[] scalars, int n, int rix, int cix ) {\n"
+		+ "%BODY%"
+		+ "\t\treturn %OUT%;\n"
+		+ "\t}\n"
+		+ "}\n";
+
+	private CNode _output = null;
+	private CellType _type = null;
+	private AggOp _aggOp = null;
+	private boolean _sparseSafe = false;
+
+	public CNodeCell( CNode output, CellType type, AggOp aggOp, boolean sparseSafe ) {
+		_inputs.add(output);
+		_output = output;
+		_type = type;
+		_aggOp = aggOp;
+		_sparseSafe = sparseSafe;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public CellType getCellType() {
+		return _type;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public AggOp getAggOp() {
+		return _aggOp;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public boolean isSparseSafe() {
+		return _sparseSafe;
+	}
+
+	/**
+	 * Generates the source of the fused operator class, where the 
+	 * class name is the placeholder CLASS_NAME.
+	 * 
+	 * @return
+	 */
+	public String codegen()
+	{
+		resetGenerated();
+		StringBuilder sb = new StringBuilder();
+		codegen(sb, new IDSequence());
+		return sb.toString();
+	}
+
+	@Override
+	protected void codegenStatement(StringBuilder sb, IDSequence seq)
+	{
+		//note: at this point, the body is already generated into sb
+		String body = sb.toString();
+		sb.setLength(0);
+		sb.append(TEMPLATE
+			.replace("%TYPE%", _type.name())
+			.replace("%AGG_OP%", (_aggOp != null) ? "AggOp." + _aggOp.name() : "null")
+			.replace("%SPARSE_SAFE%", String.valueOf(_sparseSafe))
+			.replace("%BODY%", body)
+			.replace("%OUT%", _output.getVarname()));
+	}
+}
@@ -0,0 +1,75 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.hops.codegen.cplan;
+
+import com.ibm.bi.dml.runtime.controlprogram.parfor.util.IDSequence;
+
+/**
+ * Leaf node of a cplan, referring to an input of the generated operator: the main
+ * input (whose cell value is passed directly), a dense side input, or a scalar input.
+ * Literals are passed as scalar inputs as well (instead of inlining their values), 
+ * which allows to reuse generated operators that only differ in constants.
+ * 
+ */
+public class CNodeData extends CNode
+{
+
+	public enum InputType {
+		MAIN,
+		SIDE,
+		SCALAR,
+	}
+
+	private InputType _type = null;
+	private int _pos = -1;
+
+	/**
+	 * Constructor for main, side and scalar inputs, where pos is the
+	 * position of the input within side inputs and scalars, respectively.
+	 * 
+	 * @param type
+	 * @param pos
+	 */
+	public CNodeData(InputType type, int pos) {
+		_type = type;
+		_pos = pos;
+
+		if( type == InputType.MAIN )
+			_genVar = "a";
+		else if( type == InputType.SCALAR )
+			_genVar = "scalars[" + pos + "]";
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public InputType getInputType() {
+		return _type;
+	}
+
+	@Override
+	protected void codegenStatement(StringBuilder sb, IDSequence seq)
+	{
+		//only side inputs require an explicit read, which is generated once per plan
+		if( _type == InputType.SIDE ) {
+			_genVar = createVarname(seq);
+			sb.append("\t\tdouble " + _genVar + " = getValue(b[" + _pos + "], n, rix, cix);\n");
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.hops.codegen.cplan;
+
+import com.ibm.bi.dml.runtime.controlprogram.parfor.util.IDSequence;
+
+/**
+ * Cplan node of a cell-wise unary operation.
+ * 
+ */
+public class CNodeUnary extends CNode
+{
+
+	public enum UnaryType {
+		ABS, SIN, COS, TAN, ASIN, ACOS, ATAN, SQRT, LOG, EXP, 
+		ROUND, CEIL, FLOOR, SIGMOID, SELP, SPROP;
+
+		/**
+		 * Returns the code template of this operation, where %IN1% is
+		 * replaced by the variable name of the input.
+		 * 
+		 * @return
+		 */
+		public String getTemplate() {
+			switch( this ) {
+				case ABS:     return "Math.abs(%IN1%)";
+				case SIN:     return "Math.sin(%IN1%)";
+				case COS:     return "Math.cos(%IN1%)";
+				case TAN:     return "Math.tan(%IN1%)";
+				case ASIN:    return "Math.asin(%IN1%)";
+				case ACOS:    return "Math.acos(%IN1%)";
+				case ATAN:    return "Math.atan(%IN1%)";
+				case SQRT:    return "Math.sqrt(%IN1%)";
+				case LOG:     return "Math.log(%IN1%)";
+				case EXP:     return "Math.exp(%IN1%)";
+				case ROUND:   return "Math.round(%IN1%)";
+				case CEIL:    return "Math.ceil(%IN1%)";
+				case FLOOR:   return "Math.floor(%IN1%)";
+				case SIGMOID: return "1 / (1 + Math.exp(-%IN1%))";
+				case SELP:    return "(%IN1% > 0) ? %IN1% : 0";
+				case SPROP:   return "%IN1% * (1 - %IN1%)";
+				default:
+					throw new RuntimeException("Invalid unary type: "+this.toString());
+			}
+		}
+
+		/**
+		 * Indicates if the operation maps zero to zero.
+		 * 
+		 * @return
+		 */
+		public boolean isSparseSafe() {
+			switch( this ) {
+				case ABS: case SIN: case TAN: case ASIN: case ATAN: case SQRT: 
+				case ROUND: case CEIL: case FLOOR: case SELP: case SPROP:
+					return true;
+				default:
+					return false;
+			}
+		}
+	}
+
+	private UnaryType _type = null;
+
+	public CNodeUnary( CNode in1, UnaryType type ) {
+		_inputs.add(in1);
+		_type = type;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public UnaryType getType() {
+		return _type;
+	}
+
+	@Override
+	protected void codegenStatement(StringBuilder sb, IDSequence seq)
+	{
+		_genVar = createVarname(seq);
+		String expr = _type.getTemplate().replace("%IN1%", _inputs.get(0).getVarname());
+		sb.append("\t\tdouble " + _genVar + " = " + expr + ";\n");
+	}
+}
@@ -0,0 +1,311 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.hops.estim;
+
+import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
+import com.ibm.bi.dml.runtime.matrix.data.SparseRow;
+
+/**
+ * Density map of a matrix, i.e., the density (fraction of non-zeros) per square block
+ * of b x b cells, which is a small sketch of the non-zero structure that allows the
+ * estimation of the number of non-zeros of intermediate results (e.g., matrix products)
+ * under skew. Within each block, we assume uniformly distributed non-zeros, which gives
+ * the known average-case estimates if b covers the entire matrix.
+ * 
+ * The block size is chosen such that the number of blocks does not exceed a fixed
+ * maximum (by doubling the default block size), and maps can only be combined if
+ * their block sizes match.
+ * 
+ */
+public class DensityMap
+{
+
+	public static final int DEFAULT_BLOCKSIZE = 256;
+	public static final long MAX_NUM_BLOCKS = 1L << 18;
+
+	private final long _rlen;
+	private final long _clen;
+	private final int _b;
+	private final int _rblen; //number of row blocks
+	private final int _cblen; //number of column blocks
+	private final double[] _dens; //row-major densities per block
+
+	private DensityMap( long rlen, long clen, int b )
+	{
+		_rlen = rlen;
+		_clen = clen;
+		_b = b;
+		_rblen = (int) Math.max((rlen + b - 1) / b, 1);
+		_cblen = (int) Math.max((clen + b - 1) / b, 1);
+		_dens = new double[_rblen * _cblen];
+	}
+
+	/**
+	 * Creates the density map of the given matrix block with a single pass
+	 * over its non-zeros (sparse) or cells (dense).
+	 * 
+	 * @param mb
+	 * @return
+	 */
+	public static DensityMap create( MatrixBlock mb )
+	{
+		final int m = mb.getNumRows();
+		final int n = mb.getNumColumns();
+		DensityMap ret = new DensityMap(m, n, getBlocksize(m, n));
+		final int b = ret._b;
+		final int cblen = ret._cblen;
+		double[] cnt = ret._dens;
+
+		//count non-zeros per block
+		if( !mb.isEmptyBlock(false) )
+		{
+			if( mb.isInSparseFormat() ) {
+				SparseRow[] a = mb.getSparseRows();
+				for( int i=0; i<Math.min(m, a.length); i++ )
+					if( a[i] != null && !a[i].isEmpty() ) {
+						int alen = a[i].size();
+						int[] aix = a[i].getIndexContainer();
+						int off = (i / b) * cblen;
+						for( int k=0; k<alen; k++ )
+							cnt[off + aix[k] / b]++;
+					}
+			}
+			else {
+				double[] a = mb.getDenseArray();
+				for( int i=0, aix=0; i<m; i++ ) {
+					int off = (i / b) * cblen;
+					for( int j=0; j<n; j++, aix++ )
+						if( a[aix] != 0 )
+							cnt[off + j / b]++;
+				}
+			}
+		}
+
+		//convert counts to densities
+		for( int bi=0; bi<ret._rblen; bi++ )
+			for( int bj=0; bj<cblen; bj++ )
+				cnt[bi * cblen + bj] /= ret.getBlockCells(bi, bj);
+
+		return ret;
+	}
+
+	/**
+	 * Creates a density map with uniformly distributed non-zeros, which is used for
+	 * inputs without data (e.g., not in memory) in combination with other maps.
+	 * 
+	 * @param rlen
+	 * @param clen
+	 * @param nnz
+	 * @param b
+	 * @return
+	 */
+	public static DensityMap createUniform( long rlen, long clen, long nnz, int b )
+	{
+		DensityMap ret = new DensityMap(rlen, clen, b);
+		double sp = (rlen * clen > 0) ? Math.min((double)nnz / rlen / clen, 1) : 0;
+		for( int i=0; i<ret._dens.length; i++ )
+			ret._dens[i] = sp;
+		return ret;
+	}
+
+	/**
+	 * Obtains the smallest block size (default block size times a power of two)
+	 * such that the number of blocks does not exceed the maximum.
+	 * 
+	 * @param rlen
+	 * @param clen
+	 * @return
+	 */
+	public static int getBlocksize( long rlen, long clen )
+	{
+		int b = DEFAULT_BLOCKSIZE;
+		while( ((rlen + b - 1) / b) * ((clen + b - 1) / b) > MAX_NUM_BLOCKS )
+			b *= 2;
+		return b;
+	}
+
+	public long getNumRows() {
+		return _rlen;
+	}
+
+	public long getNumColumns() {
+		return _clen;
+	}
+
+	public int getBlocksize() {
+		return _b;
+	}
+
+	/**
+	 * 
+	 * @param bi
+	 * @param bj
+	 * @return
+	 */
+	public double getDensity( int bi, int bj ) {
+		return _dens[bi * _cblen + bj];
+	}
+
+	/**
+	 * Estimates the number of non-zeros as the sum of non-zeros
+	 * of all blocks, which is exact for maps created from data.
+	 * 
+	 * @return
+	 */
+	public long getNonZeros()
+	{
+		double nnz = 0;
+		for( int bi=0; bi<_rblen; bi++ )
+			for( int bj=0; bj<_cblen; bj++ )
+				nnz += _dens[bi * _cblen + bj] * getBlockCells(bi, bj);
+		//never round non-empty estimates to zero (which might be exploited by rewrites)
+		return (nnz > 0) ? Math.max(Math.round(nnz), 1) : 0;
+	}
+
+	/**
+	 * Estimates the density map of the matrix product this %*% that, where an output
+	 * block (i,j) is zero in a cell if all products over the common dimension are zero,
+	 * i.e., sp(i,j) = 1 - prod_k (1 - sp1(i,k)*sp2(k,j))^len(k).
+	 * 
+	 * @param that
+	 * @return the output density map, or null if the maps are not compatible
+	 */
+	public DensityMap matMult( DensityMap that )
+	{
+		if( _clen != that._rlen || _b != that._b )
+			return null;
+
+		DensityMap ret = new DensityMap(_rlen, that._clen, _b);
+		for( int bi=0; bi<ret._rblen; bi++ )
+			for( int bj=0; bj<ret._cblen; bj++ ) {
+				//probability of zero in log space (for numerical stability)
+				double lp0 = 0;
+				for( int bk=0; bk<_cblen; bk++ ) {
+					double sp = getDensity(bi, bk) * that.getDensity(bk, bj);
+					lp0 += (sp < 1) ? getBlockCols(bk) * Math.log1p(-sp) : Double.NEGATIVE_INFINITY;
+				}
+				ret._dens[bi * ret._cblen + bj] = 1 - Math.exp(lp0);
+			}
+
+		return ret;
+	}
+
+	/**
+	 * Estimates the density map of the cell-wise multiplication this * that
+	 * (intersection of non-zeros under independence).
+	 * 
+	 * @param that
+	 * @return the output density map, or null if the maps are not compatible
+	 */
+	public DensityMap mult( DensityMap that )
+	{
+		if( !isAligned(that) )
+			return null;
+
+		DensityMap ret = new DensityMap(_rlen, _clen, _b);
+		for( int i=0; i<_dens.length; i++ )
+			ret._dens[i] = _dens[i] * that._dens[i];
+		return ret;
+	}
+
+	/**
+	 * Estimates the density map of the cell-wise addition/subtraction this +/- that
+	 * (union of non-zeros under independence).
+	 * 
+	 * @param that
+	 * @return the output density map, or null if the maps are not compatible
+	 */
+	public DensityMap plus( DensityMap that )
+	{
+		if( !isAligned(that) )
+			return null;
+
+		DensityMap ret = new DensityMap(_rlen, _clen, _b);
+		for( int i=0; i<_dens.length; i++ )
+			ret._dens[i] = _dens[i] + that._dens[i] - _dens[i] * that._dens[i];
+		return ret;
+	}
+
+	/**
+	 * Coarsens the density map to the given block size, which needs to be
+	 * a multiple of the current block size (e.g., to align two maps).
+	 * 
+	 * @param b
+	 * @return the coarsened density map, or this map if b matches
+	 */
+	public DensityMap coarsen( int b )
+	{
+		if( b == _b || b % _b != 0 )
+			return this;
+
+		//aggregate non-zeros per coarse block
+		DensityMap ret = new DensityMap(_rlen, _clen, b);
+		int f = b / _b;
+		for( int bi=0; bi<_rblen; bi++ )
+			for( int bj=0; bj<_cblen; bj++ )
+				ret._dens[(bi / f) * ret._cblen + bj / f] += _dens[bi * _cblen + bj] * getBlockCells(bi, bj);
+
+		//convert non-zeros to densities
+		for( int bi=0; bi<ret._rblen; bi++ )
+			for( int bj=0; bj<ret._cblen; bj++ )
+				ret._dens[bi * ret._cblen + bj] /= ret.getBlockCells(bi, bj);
+
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @return the density map of the transposed matrix
+	 */
+	public DensityMap transpose()
+	{
+		DensityMap ret = new DensityMap(_clen, _rlen, _b);
+		for( int bi=0; bi<_rblen; bi++ )
+			for( int bj=0; bj<_cblen; bj++ )
+				ret._dens[bj * ret._cblen + bi] = _dens[bi * _cblen + bj];
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param that
+	 * @return
+	 */
+	private boolean isAligned( DensityMap that ) {
+		return (_rlen == that._rlen && _clen == that._clen && _b == that._b);
+	}
+
+	/**
+	 * 
+	 * @param bj
+	 * @return
+	 */
+	private long getBlockCols( int bj ) {
+		return Math.min(_clen - (long)bj * _b, _b);
+	}
+
+	/**
+	 * 
+	 * @param bi
+	 * @param bj
+	 * @return
+	 */
+	private double getBlockCells( int bi, int bj ) {
+		return Math.max(Math.min(_rlen - (long)bi * _b, _b) * getBlockCols(bj), 1);
+	}
+}
@@ -0,0 +1,204 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.hops.estim;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.ibm.bi.dml.hops.AggBinaryOp;
+import com.ibm.bi.dml.hops.BinaryOp;
+import com.ibm.bi.dml.hops.DataOp;
+import com.ibm.bi.dml.hops.Hop;
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.hops.ReorgOp;
+import com.ibm.bi.dml.hops.Hop.DataOpTypes;
+import com.ibm.bi.dml.hops.Hop.OpOp2;
+import com.ibm.bi.dml.hops.Hop.ReOrgOp;
+import com.ibm.bi.dml.parser.Expression.DataType;
+import com.ibm.bi.dml.runtime.controlprogram.LocalVariableMap;
+import com.ibm.bi.dml.runtime.controlprogram.caching.MatrixObject;
+import com.ibm.bi.dml.runtime.instructions.cp.Data;
+
+/**
+ * Sketch-based sparsity estimation of intermediates during dynamic recompilation.
+ * Starting from the density maps of in-memory inputs (see MatrixObject), we propagate
+ * density maps through matrix multiplications, cell-wise multiplications/additions, and
+ * transpose, and set the resulting estimates as approximate number of non-zeros of the
+ * respective hops. These estimates are kept separate from the hops' number of non-zeros
+ * (which serves as exact or worst-case statistics for size propagation and rewrites) and
+ * are only used for memory estimates. This gives more accurate memory estimates (and hence exec type decisions) for
+ * consumers of sparse intermediates than the average-case or worst-case estimates over
+ * the total number of non-zeros, especially under skew (e.g., power-law degree
+ * distributions of graphs).
+ * 
+ * Inputs without density map (e.g., evicted or not yet computed matrices) are represented
+ * by uniform maps if their number of non-zeros is known, while hops whose inputs have
+ * no data-based density map at all have no estimate.
+ * 
+ */
+public class SparsityEstimator
+{
+
+	/**
+	 * Indicates if sketch-based sparsity estimation is enabled.
+	 * 
+	 * @return
+	 */
+	public static boolean isEnabled() {
+		return OptimizerUtils.ALLOW_SKETCH_SPARSITY_ESTIMATION;
+	}
+
+	/**
+	 * Estimates the sparsity of all supported intermediates of the given hop dag,
+	 * based on the density maps of in-memory matrices of the given symbol table.
+	 * 
+	 * @param hops
+	 * @param vars
+	 */
+	public static void estimateSparsity( ArrayList<Hop> hops, LocalVariableMap vars )
+	{
+		if( !isEnabled() || hops == null )
+			return;
+
+		HashMap<Long, DensityMap> memo = new HashMap<Long, DensityMap>();
+		for( Hop hopRoot : hops )
+			rEstimateSparsity(hopRoot, vars, memo);
+	}
+
+	/**
+	 * 
+	 * @param hop
+	 * @param vars
+	 */
+	public static void estimateSparsity( Hop hop, LocalVariableMap vars )
+	{
+		if( !isEnabled() || hop == null )
+			return;
+
+		HashMap<Long, DensityMap> memo = new HashMap<Long, DensityMap>();
+		rEstimateSparsity(hop, vars, memo);
+	}
+
+	/**
+	 * 
+	 * @param hop
+	 * @param vars
+	 * @param memo density maps by hop id (null if no data-based map available)
+	 * @return
+	 */
+	private static DensityMap rEstimateSparsity( Hop hop, LocalVariableMap vars, HashMap<Long, DensityMap> memo )
+	{
+		if( memo.containsKey(hop.getHopID()) )
+			return memo.get(hop.getHopID());
+
+		//recursively process children
+		ArrayList<DensityMap> inMaps = new ArrayList<DensityMap>();
+		boolean anyMap = false;
+		for( Hop c : hop.getInput() ) {
+			DensityMap map = rEstimateSparsity(c, vars, memo);
+			inMaps.add(map);
+			anyMap |= (map != null);
+		}
+
+		DensityMap ret = null;
+		hop.setNnzEstimate(-1); //reset estimates of previous passes
+
+		//obtain density maps of in-memory inputs
+		if( hop instanceof DataOp
+			&& ((DataOp)hop).getDataOpType() == DataOpTypes.TRANSIENTREAD
+			&& hop.getDataType() == DataType.MATRIX )
+		{
+			Data dat = vars.get(hop.getName());
+			if( dat instanceof MatrixObject )
+				ret = ((MatrixObject)dat).getDensityMap();
+		}
+		//propagate density maps through supported operations
+		else if( anyMap && hop.getDataType() == DataType.MATRIX && hop.dimsKnown() )
+		{
+			if( hop instanceof AggBinaryOp && ((AggBinaryOp)hop).isMatrixMultiply() ) {
+				DensityMap m1 = getInputMap(hop, 0, inMaps);
+				DensityMap m2 = getInputMap(hop, 1, inMaps);
+				if( m1 != null && m2 != null ) {
+					//align block sizes (incl bounded size of output map)
+					int b = Math.max(Math.max(m1.getBlocksize(), m2.getBlocksize()), 
+						DensityMap.getBlocksize(hop.getDim1(), hop.getDim2()));
+					ret = m1.coarsen(b).matMult(m2.coarsen(b));
+				}
+			}
+			else if( hop instanceof BinaryOp && isMatrixMatrixOp(hop) ) {
+				OpOp2 op = ((BinaryOp)hop).getOp();
+				DensityMap m1 = getInputMap(hop, 0, inMaps);
+				DensityMap m2 = getInputMap(hop, 1, inMaps);
+				if( m1 != null && m2 != null ) {
+					int b = Math.max(m1.getBlocksize(), m2.getBlocksize());
+					m1 = m1.coarsen(b);
+					m2 = m2.coarsen(b);
+					if( op == OpOp2.MULT )
+						ret = m1.mult(m2);
+					else if( op == OpOp2.PLUS || op == OpOp2.MINUS )
+						ret = m1.plus(m2);
+				}
+			}
+			else if( hop instanceof ReorgOp && ((ReorgOp)hop).getOp() == ReOrgOp.TRANSPOSE ) {
+				ret = inMaps.get(0).transpose();
+			}
+
+			//set estimated number of non-zeros (for memory estimates only)
+			if( ret != null )
+				hop.setNnzEstimate(ret.getNonZeros());
+		}
+
+		memo.put(hop.getHopID(), ret);
+		return ret;
+	}
+
+	/**
+	 * Obtains the density map of the given input, where inputs without data-based
+	 * density map are represented by a uniform map with aligned block size.
+	 * 
+	 * @param hop
+	 * @param pos
+	 * @param inMaps
+	 * @return the input density map, or null if unknown
+	 */
+	private static DensityMap getInputMap( Hop hop, int pos, ArrayList<DensityMap> inMaps )
+	{
+		DensityMap ret = inMaps.get(pos);
+		if( ret == null ) {
+			Hop in = hop.getInput().get(pos);
+			DensityMap other = inMaps.get(1 - pos);
+			if( in.dimsKnown(true) && other != null )
+				ret = DensityMap.createUniform(in.getDim1(), in.getDim2(), in.getNnz(), Math.max(
+					other.getBlocksize(), DensityMap.getBlocksize(in.getDim1(), in.getDim2())));
+		}
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param hop
+	 * @return
+	 */
+	private static boolean isMatrixMatrixOp( Hop hop )
+	{
+		Hop in1 = hop.getInput().get(0);
+		Hop in2 = hop.getInput().get(1);
+		return in1.getDataType() == DataType.MATRIX && in2.getDataType() == DataType.MATRIX
+			&& in1.getDim1() == in2.getDim1() && in1.getDim2() == in2.getDim2();
+	}
+}
@@ -19,6 +19,9 @@ package com.ibm.bi.dml.hops.globalopt;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.TreeMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -55,11 +58,15 @@ import com.ibm.bi.dml.runtime.controlprogram.parfor.stat.Timing;
 /**
  * Global data flow optimization via enumeration-based optimizer (dynamic programming). 
  * 
+ * In order to make this optimizer applicable to large programs, we (1) memoize the 
+ * costs of runtime plans by their effective hop configurations, (2) recompile only the 
+ * program blocks affected by the current and previously costed plan, and (3) enforce a 
+ * wall-clock time budget, after which we stop enumerating alternative block sizes and
+ * fall back to preferred plans without costing. If the final plan is more expensive 
+ * than the default plan, we fall back to the default plan.
  * 
  * ADDITIONAL PERFORMANCE OPT (once everything is completely working)
  * TODO cache for interesting properties
- * TODO partial runtime plan generation
- * TODO partial runtime plan costing  
  * 
  */
 public class GDFEnumOptimizer extends GlobalOptimizer
@@ -73,6 +80,8 @@ public class GDFEnumOptimizer extends GlobalOptimizer
 	private static final boolean PREFERRED_PLAN_SELECTION = true;
 	private static final boolean COST_FULL_PROGRAMS       = false;
 	private static final boolean ENUM_CP_BLOCKSIZES  	  = false;
+	private static final boolean MEMOIZE_PLAN_COSTS       = true;
+	private static final boolean PARTIAL_RECOMPILATION    = true;
 	private static final MismatchHeuristicType DEFAULT_MISMATCH_HEURISTIC = MismatchHeuristicType.FIRST;
 	
 	//internal configuration parameters 
@@ -90,13 +99,29 @@ public class GDFEnumOptimizer extends GlobalOptimizer
 	private static long _compiledPlans = 0;
 	private static long _costedPlans = 0;
 	private static long _planMismatches = 0;
-
+	private static long _memoizedCostings = 0;
+	
+	//memo of plan costs by effective plan configuration
+	private static HashMap<String, Double> _costMemo = new HashMap<String, Double>();
+	//program blocks with stale instructions from previously costed plans
+	private static LinkedHashSet<ProgramBlock> _dirtyBlocks = new LinkedHashSet<ProgramBlock>();
 	
-	public GDFEnumOptimizer( ) 
+	//wall-clock time budget
+	private long _timeBudget = -1;
+	private static long _deadline = Long.MAX_VALUE;
+	private static boolean _budgetExceeded = false;
+	
+	/**
+	 * 
+	 * @param timeBudget time budget in ms (non-positive for unlimited)
+	 * @throws DMLRuntimeException
+	 */
+	public GDFEnumOptimizer( long timeBudget ) 
 		throws DMLRuntimeException 
 	{
 		//init internal memo structure
 		_memo = new MemoStructure();
+		_timeBudget = timeBudget;
 		
 		//init mismatch heuristic
 		_resolve = MismatchHeuristicFactory.createMismatchHeuristic(
@@ -110,14 +135,22 @@ public class GDFEnumOptimizer extends GlobalOptimizer
 		Timing time = new Timing(true);
 		
 		Program prog = gdfgraph.getRuntimeProgram();
-		ExecutionContext ec = ExecutionContextFactory.createContext(prog);
 		ArrayList<GDFNode> roots = gdfgraph.getGraphRootNodes();
+		resetOptimizerState();
 		
-		//Step 1: baseline costing for branch and bound costs
+		//Step 0: consistent recompiled default plan (as basis for partial recompilation)
+		if( PARTIAL_RECOMPILATION )
+			Recompiler.recompileProgramBlockHierarchy(prog.getProgramBlocks(), new LocalVariableMap(), 0, false);
+		HashMap<Long, Hop> hops = new HashMap<Long, Hop>();
+		rCollectHops(roots, hops, new HashSet<Long>());
+		HashMap<Long, String> defaultConfigs = getHopConfigs(hops);
+		
+		//Step 1: baseline costing for fallback and branch and bound costs
+		ExecutionContext ec = ExecutionContextFactory.createContext(prog);
+		double defaultCosts = CostEstimationWrapper.getTimeEstimate(prog, ec);
 		double initCosts = Double.MAX_VALUE;
 		if( BRANCH_AND_BOUND_PRUNING ) {
-			initCosts = CostEstimationWrapper.getTimeEstimate(prog, ec);
-			initCosts = initCosts * (1+BRANCH_AND_BOUND_REL_THRES);
+			initCosts = defaultCosts * (1+BRANCH_AND_BOUND_REL_THRES);
 		}
 		
 		//Step 2: dynamic programming plan generation
@@ -139,13 +172,43 @@ public class GDFEnumOptimizer extends GlobalOptimizer
 		
 		//generate final runtime plan (w/ optimal config)
 		Recompiler.recompileProgramBlockHierarchy(prog.getProgramBlocks(), new LocalVariableMap(), 0, false);
+		_dirtyBlocks.clear();
 		
 		ec = ExecutionContextFactory.createContext(prog);
 		double optCosts = CostEstimationWrapper.getTimeEstimate(prog, ec);
 		
+		//fallback to default plan if not improved (e.g., due to exceeded budget)
+		boolean fallback = false;
+		if( optCosts > defaultCosts ) {
+			LOG.warn("Global data flow optimization did not improve the default plan "
+					+ "(costs "+optCosts+" > "+defaultCosts+"). Falling back to default plan.");
+			HashMap<Long, Plan> memo2 = new HashMap<Long,Plan>();
+			for( Plan p : rootPlans )
+				rResetRuntimePlanConfig(p, memo2);
+			Recompiler.recompileProgramBlockHierarchy(prog.getProgramBlocks(), new LocalVariableMap(), 0, false);
+			ec = ExecutionContextFactory.createContext(prog);
+			optCosts = CostEstimationWrapper.getTimeEstimate(prog, ec);
+			fallback = true;
+		}
+		
+		//report changed hop configurations (chosen vs default plan)
+		HashMap<Long, String> optConfigs = getHopConfigs(hops);
+		for( Long hopID : new TreeMap<Long,String>(defaultConfigs).keySet() ) {
+			String dconf = defaultConfigs.get(hopID);
+			String oconf = optConfigs.get(hopID);
+			if( !dconf.equals(oconf) ) {
+				Hop hop = hops.get(hopID);
+				summary.addPlanChange( hopID, hop.getOpString(), hop.getBeginLine(), dconf, oconf );
+			}
+		}
+		
 		//maintain optimization summary statistics
-		summary.setCostsInitial( initCosts );
+		summary.setCostsInitial( defaultCosts );
 		summary.setCostsOptimal( optCosts );
+		summary.setTimeBudget( _timeBudget );
+		summary.setBudgetExceeded( _budgetExceeded );
+		summary.setFallback( fallback );
+		summary.setNumMemoizedCostings( _memoizedCostings );
 		summary.setNumEnumPlans( _enumeratedPlans );
 		summary.setNumPrunedInvalidPlans( _prunedInvalidPlans );
 		summary.setNumPrunedSuboptPlans( _prunedSuboptimalPlans );
@@ -238,7 +301,8 @@ public class GDFEnumOptimizer extends GlobalOptimizer
 						      || HopRewriteUtils.alwaysRequiresReblock(dhop)) ? 
 						       CLUSTER : ExecType.CP;
 				
-				int[] blocksizes = (et == CLUSTER) ? BLOCK_SIZES : new int[]{BLOCK_SIZES[0]};
+				int[] blocksizes = (et == CLUSTER && !isBudgetExceeded()) ? 
+						BLOCK_SIZES : new int[]{BLOCK_SIZES[0]};
 				for( Integer bs : blocksizes )
 				{
 					RewriteConfig rcmr = new RewriteConfig(et, bs, FileFormatTypes.BINARY);
@@ -330,8 +394,10 @@ public class GDFEnumOptimizer extends GlobalOptimizer
 		}
 		
 		//create mr plans, if required
+		//(default blocksize only, if time budget exceeded)
 		if( node.requiresMREnumeration() ) {
-			for( Integer bs : BLOCK_SIZES )
+			int[] bstmp = !isBudgetExceeded() ? BLOCK_SIZES : new int[]{BLOCK_SIZES[0]};
+			for( Integer bs : bstmp )
 			{
 				RewriteConfig rcmr = new RewriteConfig(CLUSTER, bs, FileFormatTypes.BINARY);
 				InterestingProperties ipsmr = rcmr.deriveInterestingProperties();
@@ -399,8 +465,10 @@ public class GDFEnumOptimizer extends GlobalOptimizer
 		throws DMLRuntimeException, DMLUnsupportedOperationException
 	{
 		//costing of all plans incl containment check
+		//(if time budget exceeded, no costing and selection of preferred plans per IPS)
+		boolean costing = !isBudgetExceeded();
 		for( Plan p : plans.getPlans() ) {
-			p.setCosts( costRuntimePlan(p) );
+			p.setCosts( costing ? costRuntimePlan(p) : 0 );
 		}
 		
 		//build and probe for optimal plans (hash-groupby on IPC, min costs) 
@@ -454,16 +522,26 @@ public class GDFEnumOptimizer extends GlobalOptimizer
 		if( prog == null )
 			throw new DMLRuntimeException("Program not available for runtime plan costing.");
 		
+		boolean fullProgram = COST_FULL_PROGRAMS || 
+				(p.getNode().getHop()==null || p.getNode().getProgramBlock()==null);
+		
+		//probe memo of plan costs by effective plan configuration
+		String key = MEMOIZE_PLAN_COSTS ? getPlanCostKey(p, fullProgram) : null;
+		if( key != null && _costMemo.containsKey(key) ) {
+			_memoizedCostings++;
+			return _costMemo.get(key);
+		}
+		
 		//put data flow configuration into program
 		rSetRuntimePlanConfig(p, new HashMap<Long,Plan>());
+		LinkedHashSet<ProgramBlock> blocks = new LinkedHashSet<ProgramBlock>();
+		rCollectPlanProgramBlocks(p, blocks, new HashSet<Long>());
 		
 		double costs = -1;
-		if( COST_FULL_PROGRAMS || 
-		   (p.getNode().getHop()==null || p.getNode().getProgramBlock()==null) )
+		if( fullProgram )
 		{
 			//recompile entire runtime program
-			Recompiler.recompileProgramBlockHierarchy(prog.getProgramBlocks(), new LocalVariableMap(), 0, false);
-			_compiledPlans++;
+			recompileRuntimePlan(prog, null);
 			
 			//cost entire runtime program
 			ExecutionContext ec = ExecutionContextFactory.createContext(prog);
@@ -488,8 +566,7 @@ public class GDFEnumOptimizer extends GlobalOptimizer
 				}
 				
 				//recompile modified runtime program
-				Recompiler.recompileProgramBlockHierarchy(prog.getProgramBlocks(), new LocalVariableMap(), 0, false);
-				_compiledPlans++;
+				recompileRuntimePlan(prog, blocks);
 				
 				//cost partial runtime program up to current hop
 				ExecutionContext ec = ExecutionContextFactory.createContext(prog);
@@ -507,12 +584,114 @@ public class GDFEnumOptimizer extends GlobalOptimizer
 		}
 		
 		//release forced data flow configuration from program
+		//(instructions of affected blocks are stale until next recompilation)
 		rResetRuntimePlanConfig(p, new HashMap<Long,Plan>());		
+		_dirtyBlocks = blocks;
 		_costedPlans++;
 		
+		if( key != null )
+			_costMemo.put(key, costs);
+		
 		return costs;
 	}
 	
+	/**
+	 * Recompiles the given runtime program, where we recompile only the given program 
+	 * blocks and the blocks affected by the previously costed plan if partial 
+	 * recompilation is enabled and blocks are given, and the entire program otherwise. 
+	 * 
+	 * @param prog
+	 * @param blocks
+	 * @throws DMLRuntimeException
+	 */
+	private static void recompileRuntimePlan( Program prog, LinkedHashSet<ProgramBlock> blocks ) 
+		throws DMLRuntimeException
+	{
+		if( PARTIAL_RECOMPILATION && blocks != null ) {
+			LinkedHashSet<ProgramBlock> tmp = new LinkedHashSet<ProgramBlock>(_dirtyBlocks);
+			tmp.addAll(blocks);
+			Recompiler.recompileProgramBlockHierarchy(new ArrayList<ProgramBlock>(tmp), new LocalVariableMap(), 0, false);
+		}
+		else {
+			Recompiler.recompileProgramBlockHierarchy(prog.getProgramBlocks(), new LocalVariableMap(), 0, false);
+		}
+		_compiledPlans++;
+	}
+	
+	/**
+	 * Obtains the memoization key of the given plan, which consists of the costed hop
+	 * (or -1 for full program costing) and the rewrite configurations of all contained
+	 * hop nodes. Plans with configuration mismatches on shared nodes are not memoized
+	 * because their effective configuration depends on the mismatch heuristic.
+	 * 
+	 * @param p
+	 * @param fullProgram
+	 * @return memo key, or null if the plan cannot be memoized
+	 */
+	private static String getPlanCostKey( Plan p, boolean fullProgram )
+	{
+		TreeMap<Long, String> configs = new TreeMap<Long, String>();
+		if( !rGetPlanConfigs(p, configs, new HashMap<Long, Plan>()) )
+			return null;
+		
+		long hopID = fullProgram ? -1 : p.getNode().getHop().getHopID();
+		return hopID + ":" + configs.toString();
+	}
+	
+	/**
+	 * 
+	 * @param p
+	 * @param configs
+	 * @param memo
+	 * @return false if the plan contains configuration mismatches
+	 */
+	private static boolean rGetPlanConfigs( Plan p, TreeMap<Long, String> configs, HashMap<Long, Plan> memo )
+	{
+		//containment check (consistent with rSetRuntimePlanConfig)
+		Plan pmemo = memo.get(p.getNode().getID());
+		if( pmemo != null ) {
+			if( pmemo == p )
+				return true;
+			if( !p.getInterestingProperties().equals(pmemo.getInterestingProperties()) )
+				return false;
+		}
+		
+		if( p.getNode().getHop() != null )
+			configs.put(p.getNode().getID(), p.getRewriteConfig().toString());
+		memo.put(p.getNode().getID(), p);
+		
+		//process childs
+		boolean ret = true;
+		if( p.getChilds() != null )
+			for( Plan c : p.getChilds() )
+				ret &= rGetPlanConfigs(c, configs, memo);
+		
+		return ret;
+	}
+	
+	/**
+	 * 
+	 * @param p
+	 * @param blocks
+	 * @param memo
+	 */
+	private static void rCollectPlanProgramBlocks( Plan p, LinkedHashSet<ProgramBlock> blocks, HashSet<Long> memo )
+	{
+		if( memo.contains(p.getNode().getID()) )
+			return;
+		
+		GDFNode node = p.getNode();
+		if( node.getHop() != null && node.getProgramBlock() != null )
+			blocks.add(node.getProgramBlock());
+		
+		//process childs
+		if( p.getChilds() != null )
+			for( Plan c : p.getChilds() )
+				rCollectPlanProgramBlocks(c, blocks, memo);
+		
+		memo.add(node.getID());
+	}
+	
 	private static void rSetRuntimePlanConfig( Plan p, HashMap<Long, Plan> memo )
 	{
 		ExecType CLUSTER = OptimizerUtils.isSparkExecutionMode() ? ExecType.SPARK : ExecType.MR;
@@ -593,6 +772,83 @@ public class GDFEnumOptimizer extends GlobalOptimizer
 		memo.put(p.getNode().getID(), p);
 	}
 	
+	/**
+	 * 
+	 * @param nodes
+	 * @param hops
+	 * @param memo
+	 */
+	private static void rCollectHops( Iterable<GDFNode> nodes, HashMap<Long, Hop> hops, HashSet<Long> memo )
+	{
+		for( GDFNode node : nodes )
+		{
+			if( memo.contains(node.getID()) )
+				continue;
+			memo.add(node.getID());
+			
+			if( node.getHop() != null )
+				hops.put(node.getHop().getHopID(), node.getHop());
+			rCollectHops(node.getInputs(), hops, memo);
+			
+			//process loop predicate and outputs
+			if( node instanceof GDFLoopNode ) {
+				GDFLoopNode lnode = (GDFLoopNode) node;
+				if( lnode.getLoopPredicate() != null ) {
+					ArrayList<GDFNode> tmp = new ArrayList<GDFNode>();
+					tmp.add(lnode.getLoopPredicate());
+					rCollectHops(tmp, hops, memo);
+				}
+				rCollectHops(lnode.getLoopOutputs().values(), hops, memo);
+			}
+		}
+	}
+	
+	/**
+	 * 
+	 * @param hops
+	 * @return
+	 */
+	private static HashMap<Long, String> getHopConfigs( HashMap<Long, Hop> hops )
+	{
+		HashMap<Long, String> ret = new HashMap<Long, String>();
+		for( Hop hop : hops.values() )
+			ret.put(hop.getHopID(), hop.getExecType()+","+hop.getRowsInBlock());
+		return ret;
+	}
+	
+	/**
+	 * 
+	 */
+	private void resetOptimizerState()
+	{
+		_enumeratedPlans = 0;
+		_prunedInvalidPlans = 0;
+		_prunedSuboptimalPlans = 0;
+		_compiledPlans = 0;
+		_costedPlans = 0;
+		_planMismatches = 0;
+		_memoizedCostings = 0;
+		_costMemo.clear();
+		_dirtyBlocks = new LinkedHashSet<ProgramBlock>();
+		_deadline = (_timeBudget > 0) ? System.currentTimeMillis() + _timeBudget : Long.MAX_VALUE;
+		_budgetExceeded = false;
+	}
+	
+	/**
+	 * Indicates if the wall-clock time budget of the current optimization run is exceeded.
+	 * 
+	 * @return
+	 */
+	private static boolean isBudgetExceeded()
+	{
+		if( !_budgetExceeded && System.currentTimeMillis() > _deadline ) {
+			LOG.warn("Global data flow optimization exceeded its time budget, "
+					+ "continuing with reduced enumeration and without costing.");
+			_budgetExceeded = true;
+		}
+		return _budgetExceeded;
+	}
+	
 	private static long getPlanMismatches(){
 		return _planMismatches;
 	}
@@ -22,7 +22,9 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
+import com.ibm.bi.dml.api.DMLScript;
 import com.ibm.bi.dml.hops.HopsException;
+import com.ibm.bi.dml.hops.OptimizerUtils;
 import com.ibm.bi.dml.hops.globalopt.gdfgraph.GDFGraph;
 import com.ibm.bi.dml.hops.globalopt.gdfgraph.GraphBuilder;
 import com.ibm.bi.dml.lops.LopsException;
@@ -32,6 +34,7 @@ import com.ibm.bi.dml.runtime.DMLUnsupportedOperationException;
 import com.ibm.bi.dml.runtime.controlprogram.Program;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.stat.Timing;
 import com.ibm.bi.dml.utils.Explain;
+import com.ibm.bi.dml.utils.Explain.ExplainType;
 
 /**
  * Main entry point for Global Data Flow Optimization. It is intended to be invoked after 
@@ -43,7 +46,7 @@ public class GlobalOptimizerWrapper
 {	
 	
 	private static final Log LOG = LogFactory.getLog(GlobalOptimizerWrapper.class);
-	private static final boolean LDEBUG = true; //local debug flag
+	private static final boolean LDEBUG = false; //local debug flag
 	
 	//supported optimizers
 	public enum GlobalOptimizerType{
@@ -54,6 +57,9 @@ public class GlobalOptimizerWrapper
 	//internal parameters
 	private static final GlobalOptimizerType OPTIM = GlobalOptimizerType.ENUMERATE_DP; 
 	
+	//summary of the last optimization run (e.g., for tests)
+	private static Summary _lastSummary = null;
+	
 	static
 	{
 		// for internal debugging only
@@ -97,11 +103,28 @@ public class GlobalOptimizerWrapper
 		
 		//print global optimizer summary
 		LOG.info( summary );
+		_lastSummary = summary;
+		
+		//explain chosen vs default plan configurations
+		if( DMLScript.EXPLAIN != ExplainType.NONE ) {
+			LOG.info("EXPLAIN GLOBAL OPTIMIZATION:\n" + Explain.explainGlobalOptimization(summary));
+		}
 		
 		LOG.debug("Finished global data flow optimization in " + time.stop() + " ms.");
 		return rtprog;
 	}
 	
+	/**
+	 * Returns the summary of the last global data flow optimization run, 
+	 * or null if there was no such run.
+	 * 
+	 * @return
+	 */
+	public static Summary getLastSummary()
+	{
+		return _lastSummary;
+	}
+	
 	/**
 	 * 
 	 * @param type
@@ -118,7 +141,8 @@ public class GlobalOptimizerWrapper
 		switch( type )
 		{
 			case ENUMERATE_DP: 
-				optimizer = new GDFEnumOptimizer();
+				optimizer = new GDFEnumOptimizer( 
+						OptimizerUtils.getGlobalOptimizerTimeBudget() );
 				break;
 				
 			//case TRANSFORM: 
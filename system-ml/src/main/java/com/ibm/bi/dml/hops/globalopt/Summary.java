@@ -17,6 +17,8 @@
 
 package com.ibm.bi.dml.hops.globalopt;
 
+import java.util.ArrayList;
+
 public class Summary
 {
 
@@ -31,6 +33,11 @@ public class Summary
 	private long _numFinalPlanMismatch = -1;
 	private double _timeGDFGraph = -1;
 	private double _timeOptim = -1;
+	private long _timeBudget = -1;
+	private boolean _budgetExceeded = false;
+	private boolean _fallback = false;
+	private long _numMemoizedCostings = -1;
+	private ArrayList<PlanChange> _planChanges = new ArrayList<PlanChange>();
 
 	public void setCostsInitial(double costsInitial) {
 		_costsInitial = costsInitial;
@@ -76,6 +83,50 @@ public class Summary
 		_timeOptim = timeOptim;
 	}
 
+	public void setTimeBudget(long timeBudget) {
+		_timeBudget = timeBudget;
+	}
+
+	public void setBudgetExceeded(boolean budgetExceeded) {
+		_budgetExceeded = budgetExceeded;
+	}
+
+	public void setFallback(boolean fallback) {
+		_fallback = fallback;
+	}
+
+	public void setNumMemoizedCostings(long numMemoizedCostings) {
+		_numMemoizedCostings = numMemoizedCostings;
+	}
+	
+	public void addPlanChange(long hopID, String opString, int line, String defaultConfig, String optimalConfig) {
+		_planChanges.add(new PlanChange(hopID, opString, line, defaultConfig, optimalConfig));
+	}
+	
+	public double getCostsInitial() {
+		return _costsInitial;
+	}
+	
+	public double getCostsOptimal() {
+		return _costsOptimal;
+	}
+	
+	public long getTimeBudget() {
+		return _timeBudget;
+	}
+	
+	public boolean isBudgetExceeded() {
+		return _budgetExceeded;
+	}
+	
+	public boolean isFallback() {
+		return _fallback;
+	}
+	
+	public ArrayList<PlanChange> getPlanChanges() {
+		return _planChanges;
+	}
+
 	@Override
 	public String toString()
 	{
@@ -89,11 +140,56 @@ public class Summary
 		sb.append("-- # pruned subopt plans:  "+_numPrunedSuboptPlans +"\n");
 		sb.append("-- # program compilations: "+_numCompiledPlans +"\n");
 		sb.append("-- # program costings:     "+_numCostedPlans +"\n");
+		sb.append("-- # memoized costings:    "+_numMemoizedCostings +"\n");
 		sb.append("-- # enum plan mismatch:   "+_numEnumPlanMismatch +"\n");
 		sb.append("-- # final plan mismatch:  "+_numFinalPlanMismatch +"\n");
 		sb.append("-- graph creation time:    "+String.format("%.3f", _timeGDFGraph/1000)+" sec.\n");
-		sb.append("-- optimization time:      "+String.format("%.3f", _timeOptim/1000)+" sec.");
+		sb.append("-- optimization time:      "+String.format("%.3f", _timeOptim/1000)+" sec.\n");
+		sb.append("-- time budget exceeded:   "+_budgetExceeded +"\n");
+		sb.append("-- default plan fallback:  "+_fallback +"\n");
+		sb.append("-- # changed hops:         "+_planChanges.size());
 	
 		return sb.toString();
 	}
+	
+	/**
+	 * Configuration change of a single hop in the chosen plan 
+	 * compared to the default plan (exec type, block size).
+	 */
+	public static class PlanChange
+	{
+		private long _hopID = -1;
+		private String _opString = null;
+		private int _line = -1;
+		private String _defaultConfig = null;
+		private String _optimalConfig = null;
+		
+		public PlanChange(long hopID, String opString, int line, String defaultConfig, String optimalConfig) {
+			_hopID = hopID;
+			_opString = opString;
+			_line = line;
+			_defaultConfig = defaultConfig;
+			_optimalConfig = optimalConfig;
+		}
+		
+		public long getHopID() {
+			return _hopID;
+		}
+		
+		public String getOpString() {
+			return _opString;
+		}
+		
+		public int getLine() {
+			return _line;
+		}
+		
+		public String getDefaultConfig() {
+			return _defaultConfig;
+		}
+		
+		public String getOptimalConfig() {
+			return _optimalConfig;
+		}
+	}
 }
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -30,6 +31,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
+import com.ibm.bi.dml.api.DMLScript;
 import com.ibm.bi.dml.hops.BinaryOp;
 import com.ibm.bi.dml.hops.DataGenOp;
 import com.ibm.bi.dml.hops.DataOp;
@@ -57,8 +59,11 @@ import com.ibm.bi.dml.parser.FunctionStatementBlock;
 import com.ibm.bi.dml.parser.IfStatement;
 import com.ibm.bi.dml.parser.IfStatementBlock;
 import com.ibm.bi.dml.parser.LanguageException;
+import com.ibm.bi.dml.parser.ParForStatementBlock;
 import com.ibm.bi.dml.parser.ParseException;
+import com.ibm.bi.dml.parser.Statement;
 import com.ibm.bi.dml.parser.StatementBlock;
+import com.ibm.bi.dml.parser.VariableSet;
 import com.ibm.bi.dml.parser.WhileStatement;
 import com.ibm.bi.dml.parser.WhileStatementBlock;
 import com.ibm.bi.dml.runtime.controlprogram.LocalVariableMap;
@@ -125,6 +130,9 @@ public class InterProceduralAnalysis
 	private static final boolean FLAG_FUNCTION_RECOMPILE_ONCE   = true; //flag functions which require recompilation inside a loop for full function recompile
 	private static final boolean REMOVE_UNNECESSARY_CHECKPOINTS = true; //remove unnecessary checkpoints (unconditionally overwritten intermediates) 
 	private static final boolean REMOVE_CONSTANT_BINARY_OPS     = true; //remove constant binary operations (e.g., X*ones, where ones=matrix(1,...)) 
+	private static final int INLINING_MAX_NUM_OPS               = 16;   //max number of operations (excl reads/writes/literals) of inlined functions
+	private static final int MAX_FUNCTION_SPECIALIZATIONS       = 4;    //max number of size-specialized copies per function
+	private static final String SPECIALIZATION_SUFFIX           = "_spec"; //name suffix of size-specialized function copies
 	
 	static {
 		// for internal debugging only
@@ -151,6 +159,16 @@ public class InterProceduralAnalysis
 	public void analyzeProgram( DMLProgram dmlp ) 
 		throws HopsException, ParseException, LanguageException
 	{
+		//step 0: inline small functions and create size-specialized function copies
+		if( dmlp.getFunctionStatementBlocks().size() > 0 )
+		{
+			if( OptimizerUtils.ALLOW_IPA_FUNCTION_INLINING && !DMLScript.ENABLE_DEBUG_MODE )
+				inlineFunctions( dmlp );
+			if( OptimizerUtils.ALLOW_IPA_FUNCTION_SPECIALIZATION )
+				specializeFunctions( dmlp );
+			DMLTranslator.resetHopsDAGVisitStatus( dmlp );
+		}
+		
 		//step 1: get candidates for statistics propagation into functions (if required)
 		Map<String, Integer> fcandCounts = new HashMap<String, Integer>();
 		Map<String, FunctionOp> fcandHops = new HashMap<String, FunctionOp>();
@@ -231,6 +249,643 @@ public class InterProceduralAnalysis
 	}
 	
 	
+	/////////////////////////////
+	// FUNCTION INLINING
+	//////
+	
+	/**
+	 * Inlines calls to small DML-bodied functions into the hop dags of their callers,
+	 * in function bodies (e.g., nested calls) and the main program. Note that the parser
+	 * already inlines functions with a single generic statement block on statement level;
+	 * this IPA pass additionally covers functions that become a single generic statement 
+	 * block only after static rewrites (e.g., branch removal with constant arguments).
+	 * 
+	 * @param dmlp
+	 * @throws HopsException
+	 * @throws LanguageException
+	 */
+	private void inlineFunctions( DMLProgram dmlp ) 
+		throws HopsException, LanguageException
+	{
+		for( FunctionStatementBlock fsb : dmlp.getFunctionStatementBlocks() )
+			rInlineFunctions( fsb, dmlp );
+		for( StatementBlock sb : dmlp.getStatementBlocks() )
+			rInlineFunctions( sb, dmlp );
+	}
+	
+	/**
+	 * 
+	 * @param sb
+	 * @param dmlp
+	 * @throws HopsException
+	 */
+	private void rInlineFunctions( StatementBlock sb, DMLProgram dmlp ) 
+		throws HopsException
+	{
+		if (sb instanceof FunctionStatementBlock)
+		{
+			FunctionStatementBlock fsb = (FunctionStatementBlock)sb;
+			FunctionStatement fstmt = (FunctionStatement)fsb.getStatement(0);
+			for (StatementBlock sbi : fstmt.getBody())
+				rInlineFunctions(sbi, dmlp);
+		}
+		else if (sb instanceof WhileStatementBlock)
+		{
+			WhileStatementBlock wsb = (WhileStatementBlock) sb;
+			WhileStatement wstmt = (WhileStatement)wsb.getStatement(0);
+			for (StatementBlock sbi : wstmt.getBody())
+				rInlineFunctions(sbi, dmlp);
+		}	
+		else if (sb instanceof IfStatementBlock)
+		{
+			IfStatementBlock isb = (IfStatementBlock) sb;
+			IfStatement istmt = (IfStatement)isb.getStatement(0);
+			for (StatementBlock sbi : istmt.getIfBody())
+				rInlineFunctions(sbi, dmlp);
+			for (StatementBlock sbi : istmt.getElseBody())
+				rInlineFunctions(sbi, dmlp);
+		}
+		else if (sb instanceof ForStatementBlock) //incl parfor
+		{
+			ForStatementBlock fsb = (ForStatementBlock) sb;
+			ForStatement fstmt = (ForStatement)fsb.getStatement(0);
+			for (StatementBlock sbi : fstmt.getBody())
+				rInlineFunctions(sbi, dmlp);
+		}
+		else //generic (last-level)
+		{
+			//note: function calls are always roots of their hop dags
+			ArrayList<Hop> roots = sb.get_hops();
+			if( roots == null ) //empty statement blocks
+				return;
+			for( int i=0; i<roots.size(); i++ )
+			{
+				Hop root = roots.get(i);
+				if( !(root instanceof FunctionOp) )
+					continue;
+				FunctionOp fop = (FunctionOp) root;
+				FunctionStatementBlock fsb = dmlp.getFunctionStatementBlock(fop.getFunctionNamespace(), fop.getFunctionName());
+				if( isInlineableFunctionCall(fop, fsb) )
+				{
+					//replace function call by the rewired function body
+					ArrayList<Hop> body = inlineFunctionCall(fop, fsb);
+					roots.remove(i);
+					roots.addAll(i, body);
+					i += body.size() - 1;
+					
+					LOG.debug("IPA: FUNC inlined: "+DMLProgram.constructFunctionKey(
+						fop.getFunctionNamespace(), fop.getFunctionName()));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Indicates if the given function call can be inlined, i.e., if it calls a small DML-bodied 
+	 * function whose body is a single generic statement block without nested function calls, 
+	 * where all inputs are bound to the function parameters and all outputs are written.
+	 * 
+	 * @param fop
+	 * @param fsb
+	 * @return
+	 * @throws HopsException
+	 */
+	private boolean isInlineableFunctionCall( FunctionOp fop, FunctionStatementBlock fsb ) 
+		throws HopsException
+	{
+		//check for dml-bodied function with single generic statement block
+		if(    fsb == null || fop.getFunctionType() != FunctionType.DML
+			|| fop.getFunctionNamespace().equals(DMLProgram.INTERNAL_NAMESPACE) )
+			return false;
+		FunctionStatement fstmt = (FunctionStatement)fsb.getStatement(0);
+		if( fstmt.getBody().size() != 1 )
+			return false;
+		StatementBlock body = fstmt.getBody().get(0);
+		if(    body instanceof WhileStatementBlock || body instanceof IfStatementBlock 
+			|| body instanceof ForStatementBlock || body.get_hops() == null )
+			return false;
+		
+		//check that all parameters are bound with matching types (no default values)
+		ArrayList<DataIdentifier> inputParams = fstmt.getInputParams();
+		if( inputParams.size() != fop.getInput().size() 
+			|| fstmt.getOutputParams().size() != fop.getOutputVariableNames().length )
+			return false;
+		for( int i=0; i<inputParams.size(); i++ ) {
+			DataIdentifier param = inputParams.get(i);
+			Hop input = fop.getInput().get(i);
+			if(    param.getDataType() != input.getDataType() 
+				|| (param.getDataType() == DataType.SCALAR && param.getValueType() != input.getValueType()) )
+				return false;
+		}
+		
+		//check body for size, nested function calls, and reads/writes of non-parameters
+		HashSet<String> params = new HashSet<String>();
+		for( DataIdentifier param : inputParams )
+			params.add(param.getName());
+		HashMap<Long, Hop> ops = new HashMap<Long, Hop>();
+		for( Hop root : body.get_hops() )
+			rCollectFunctionBodyOps(root, ops);
+		int numOps = 0;
+		for( Hop hop : ops.values() ) {
+			if( hop instanceof FunctionOp )
+				return false;
+			else if( hop instanceof DataOp ) {
+				if( ((DataOp)hop).getDataOpType() == DataOpTypes.TRANSIENTREAD
+					&& !params.contains(hop.getName()) )
+					return false;
+			}
+			else if( !(hop instanceof LiteralOp) )
+				numOps++;
+		}
+		if( numOps > INLINING_MAX_NUM_OPS )
+			return false;
+		
+		//check that all outputs are written
+		HashSet<String> writes = new HashSet<String>();
+		for( Hop root : body.get_hops() )
+			if( root instanceof DataOp && ((DataOp)root).getDataOpType() == DataOpTypes.TRANSIENTWRITE )
+				writes.add(root.getName());
+		for( DataIdentifier param : fstmt.getOutputParams() )
+			if( !writes.contains(param.getName()) )
+				return false;
+		
+		return true;
+	}
+	
+	/**
+	 * Creates a copy of the function body hop dag, where transient reads of parameters are 
+	 * replaced by the function call inputs, and transient writes of outputs are renamed to
+	 * the function call outputs (transient writes of local variables are removed).
+	 * 
+	 * @param fop
+	 * @param fsb
+	 * @return the hop dag roots that replace the function call
+	 * @throws HopsException
+	 */
+	private ArrayList<Hop> inlineFunctionCall( FunctionOp fop, FunctionStatementBlock fsb ) 
+		throws HopsException
+	{
+		FunctionStatement fstmt = (FunctionStatement)fsb.getStatement(0);
+		ArrayList<Hop> roots = Recompiler.deepCopyHopsDag(fstmt.getBody().get(0).get_hops());
+		
+		//create mappings of parameters to function call inputs/outputs
+		HashMap<String, Hop> inputs = new HashMap<String, Hop>();
+		for( int i=0; i<fstmt.getInputParams().size(); i++ )
+			inputs.put(fstmt.getInputParams().get(i).getName(), fop.getInput().get(i));
+		HashMap<String, String> outputs = new HashMap<String, String>();
+		for( int i=0; i<fstmt.getOutputParams().size(); i++ )
+			outputs.put(fstmt.getOutputParams().get(i).getName(), fop.getOutputVariableNames()[i]);
+		
+		//rewire transient reads of parameters to function call inputs
+		Hop.resetVisitStatus(roots);
+		for( Hop root : roots )
+			rReplaceFunctionParameters(root, inputs);
+		
+		//rename transient writes of outputs, and remove all other transient writes
+		ArrayList<Hop> ret = new ArrayList<Hop>();
+		for( Hop root : roots ) {
+			if( root instanceof DataOp && ((DataOp)root).getDataOpType() == DataOpTypes.TRANSIENTWRITE ) {
+				String oname = outputs.get(root.getName());
+				if( oname == null ) {
+					HopRewriteUtils.removeAllChildReferences(root);
+					continue;
+				}
+				root.setName(oname);
+			}
+			ret.add(root);
+		}
+		
+		//detach function call from its inputs
+		HopRewriteUtils.removeAllChildReferences(fop);
+		
+		return ret;
+	}
+	
+	/**
+	 * 
+	 * @param hop
+	 * @param inputs
+	 */
+	private void rReplaceFunctionParameters( Hop hop, HashMap<String, Hop> inputs )
+	{
+		if( hop.getVisited() == VisitStatus.DONE )
+			return;
+		
+		for( int i=0; i<hop.getInput().size(); i++ )
+		{
+			Hop c = hop.getInput().get(i);
+			if( c instanceof DataOp && ((DataOp)c).getDataOpType() == DataOpTypes.TRANSIENTREAD
+				&& inputs.containsKey(c.getName()) )
+			{
+				HopRewriteUtils.removeChildReferenceByPos(hop, c, i);
+				HopRewriteUtils.addChildReference(hop, inputs.get(c.getName()), i);
+			}
+			else
+				rReplaceFunctionParameters(c, inputs);
+		}
+		
+		hop.setVisited(VisitStatus.DONE);
+	}
+	
+	/**
+	 * 
+	 * @param hop
+	 * @param ops
+	 */
+	private void rCollectFunctionBodyOps( Hop hop, HashMap<Long, Hop> ops )
+	{
+		if( ops.containsKey(hop.getHopID()) )
+			return;
+		
+		for( Hop c : hop.getInput() )
+			rCollectFunctionBodyOps(c, ops);
+		
+		ops.put(hop.getHopID(), hop);
+	}
+	
+	
+	/////////////////////////////
+	// FUNCTION SPECIALIZATION
+	//////
+	
+	/**
+	 * Creates size-specialized copies of functions that are called multiple times from the main
+	 * program with different input sizes or literal arguments. Calls are grouped by their size 
+	 * signature and each group (up to a maximum number of copies) calls its own function copy. 
+	 * Since all calls of a copy have consistent statistics, the subsequent statistics propagation 
+	 * can then propagate exact sizes into each copy. Calls with unknown sizes (and calls from other 
+	 * functions) keep calling the original function.
+	 * 
+	 * @param dmlp
+	 * @throws HopsException
+	 * @throws ParseException
+	 * @throws LanguageException
+	 */
+	private void specializeFunctions( DMLProgram dmlp ) 
+		throws HopsException, ParseException, LanguageException
+	{
+		//collect function calls of main program and functions called by other functions
+		Map<String, ArrayList<FunctionOp>> mainCalls = new HashMap<String, ArrayList<FunctionOp>>();
+		Map<String, ArrayList<FunctionOp>> otherCalls = new HashMap<String, ArrayList<FunctionOp>>();
+		for( StatementBlock sb : dmlp.getStatementBlocks() )
+			rCollectFunctionCalls(sb, mainCalls);
+		for( FunctionStatementBlock fsb : dmlp.getFunctionStatementBlocks() )
+			rCollectFunctionCalls(fsb, otherCalls);
+		
+		//determine candidates (dml-bodied functions w/ multiple calls from main, w/o parfor)
+		ArrayList<String> fcand = new ArrayList<String>();
+		for( Entry<String, ArrayList<FunctionOp>> e : mainCalls.entrySet() ) {
+			FunctionOp fop = e.getValue().get(0);
+			FunctionStatementBlock fsb = dmlp.getFunctionStatementBlock(fop.getFunctionNamespace(), fop.getFunctionName());
+			if( e.getValue().size() > 1 && fop.getFunctionType() == FunctionType.DML
+				&& !fop.getFunctionNamespace().equals(DMLProgram.INTERNAL_NAMESPACE)
+				&& fsb != null && !rContainsParFor(fsb) )
+				fcand.add(e.getKey());
+		}
+		if( fcand.isEmpty() )
+			return;
+		
+		//propagate statistics across the main program in order to obtain call sizes
+		//(without propagation into functions, which is done after specialization)
+		DMLTranslator.resetHopsDAGVisitStatus( dmlp );
+		LocalVariableMap callVars = new LocalVariableMap();
+		for( StatementBlock sb : dmlp.getStatementBlocks() )
+			propagateStatisticsAcrossBlock( sb, new HashSet<String>(), callVars, 
+				new HashMap<String, Set<Long>>(), new HashSet<String>() );
+		
+		for( String fkey : fcand )
+		{
+			//group function calls by size signature (in order of appearance)
+			Map<String, ArrayList<FunctionOp>> groups = new LinkedHashMap<String, ArrayList<FunctionOp>>();
+			boolean unknownCalls = otherCalls.containsKey(fkey);
+			for( FunctionOp fop : mainCalls.get(fkey) ) {
+				String sig = getFunctionCallSignature(fop);
+				if( sig == null ) {
+					unknownCalls = true;
+					continue;
+				}
+				if( !groups.containsKey(sig) )
+					groups.put(sig, new ArrayList<FunctionOp>());
+				groups.get(sig).add(fop);
+			}
+			
+			//create function copies per group (original for first group if no unknown calls)
+			FunctionOp fop0 = mainCalls.get(fkey).get(0);
+			String fnamespace = fop0.getFunctionNamespace();
+			String fname = fop0.getFunctionName();
+			FunctionStatementBlock fsb = dmlp.getFunctionStatementBlock(fnamespace, fname);
+			int numCopies = 0;
+			boolean first = true;
+			for( ArrayList<FunctionOp> group : groups.values() )
+			{
+				if( (first && !unknownCalls) || numCopies >= MAX_FUNCTION_SPECIALIZATIONS ) {
+					first = false;
+					continue;
+				}
+				
+				//create and register function copy
+				String fname2 = createFunctionCopyName(dmlp, fnamespace, fname);
+				dmlp.addFunctionStatementBlock(fnamespace, fname2, createFunctionCopy(fsb, fname2));
+				for( FunctionOp fop : group )
+					fop.setFunctionName(fname2);
+				numCopies++;
+				first = false;
+				
+				LOG.debug("IPA: FUNC specialized: "+fkey+" -> "
+					+DMLProgram.constructFunctionKey(fnamespace, fname2)+", callCount="+group.size());
+			}
+		}
+	}
+	
+	/**
+	 * 
+	 * @param sb
+	 * @param fcalls
+	 * @throws HopsException
+	 */
+	private void rCollectFunctionCalls( StatementBlock sb, Map<String, ArrayList<FunctionOp>> fcalls ) 
+		throws HopsException
+	{
+		if (sb instanceof FunctionStatementBlock)
+		{
+			FunctionStatementBlock fsb = (FunctionStatementBlock)sb;
+			FunctionStatement fstmt = (FunctionStatement)fsb.getStatement(0);
+			for (StatementBlock sbi : fstmt.getBody())
+				rCollectFunctionCalls(sbi, fcalls);
+		}
+		else if (sb instanceof WhileStatementBlock)
+		{
+			WhileStatementBlock wsb = (WhileStatementBlock) sb;
+			WhileStatement wstmt = (WhileStatement)wsb.getStatement(0);
+			for (StatementBlock sbi : wstmt.getBody())
+				rCollectFunctionCalls(sbi, fcalls);
+		}	
+		else if (sb instanceof IfStatementBlock)
+		{
+			IfStatementBlock isb = (IfStatementBlock) sb;
+			IfStatement istmt = (IfStatement)isb.getStatement(0);
+			for (StatementBlock sbi : istmt.getIfBody())
+				rCollectFunctionCalls(sbi, fcalls);
+			for (StatementBlock sbi : istmt.getElseBody())
+				rCollectFunctionCalls(sbi, fcalls);
+		}
+		else if (sb instanceof ForStatementBlock) //incl parfor
+		{
+			ForStatementBlock fsb = (ForStatementBlock) sb;
+			ForStatement fstmt = (ForStatement)fsb.getStatement(0);
+			for (StatementBlock sbi : fstmt.getBody())
+				rCollectFunctionCalls(sbi, fcalls);
+		}
+		else //generic (last-level)
+		{
+			//note: function calls are always roots of their hop dags
+			ArrayList<Hop> roots = sb.get_hops();
+			if( roots != null ) //empty statement blocks
+				for( Hop root : roots )
+					if( root instanceof FunctionOp ) {
+						FunctionOp fop = (FunctionOp) root;
+						String fkey = DMLProgram.constructFunctionKey(fop.getFunctionNamespace(), fop.getFunctionName());
+						if( !fcalls.containsKey(fkey) )
+							fcalls.put(fkey, new ArrayList<FunctionOp>());
+						fcalls.get(fkey).add(fop);
+					}
+		}
+	}
+	
+	/**
+	 * Obtains the size signature of a function call, which is consistent with the 
+	 * check for multiple function calls with equal statistics (dimensions, number of
+	 * non-zeros, and literal values).
+	 * 
+	 * @param fop
+	 * @return the signature, or null if the input sizes are unknown
+	 */
+	private String getFunctionCallSignature( FunctionOp fop )
+	{
+		StringBuilder sb = new StringBuilder();
+		for( Hop input : fop.getInput() )
+		{
+			if( input.getDataType() == DataType.MATRIX ) {
+				if( !input.dimsKnown() )
+					return null;
+				sb.append(input.getDim1()+"x"+input.getDim2()+"x"+input.getNnz());
+			}
+			else if( input instanceof LiteralOp ) {
+				LiteralOp lit = (LiteralOp) input;
+				sb.append(lit.getValueType()+":"+lit.getName());
+			}
+			else
+				sb.append("?");
+			sb.append(",");
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * 
+	 * @param dmlp
+	 * @param fnamespace
+	 * @param fname
+	 * @return
+	 */
+	private String createFunctionCopyName( DMLProgram dmlp, String fnamespace, String fname )
+	{
+		String ret = null;
+		for( int i=1; ret == null || dmlp.getFunctionStatementBlock(fnamespace, ret) != null; i++ )
+			ret = fname + SPECIALIZATION_SUFFIX + i;
+		return ret;
+	}
+	
+	/**
+	 * 
+	 * @param sb
+	 * @return
+	 */
+	private boolean rContainsParFor( StatementBlock sb )
+	{
+		boolean ret = false;
+		
+		if (sb instanceof ParForStatementBlock)
+		{
+			ret = true;
+		}
+		else if (sb instanceof FunctionStatementBlock)
+		{
+			FunctionStatement fstmt = (FunctionStatement)sb.getStatement(0);
+			for (StatementBlock sbi : fstmt.getBody())
+				ret |= rContainsParFor(sbi);
+		}
+		else if (sb instanceof WhileStatementBlock)
+		{
+			WhileStatement wstmt = (WhileStatement)sb.getStatement(0);
+			for (StatementBlock sbi : wstmt.getBody())
+				ret |= rContainsParFor(sbi);
+		}	
+		else if (sb instanceof IfStatementBlock)
+		{
+			IfStatement istmt = (IfStatement)sb.getStatement(0);
+			for (StatementBlock sbi : istmt.getIfBody())
+				ret |= rContainsParFor(sbi);
+			for (StatementBlock sbi : istmt.getElseBody())
+				ret |= rContainsParFor(sbi);
+		}
+		else if (sb instanceof ForStatementBlock)
+		{
+			ForStatement fstmt = (ForStatement)sb.getStatement(0);
+			for (StatementBlock sbi : fstmt.getBody())
+				ret |= rContainsParFor(sbi);
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Creates a deep copy of the given function statement block, where all statement blocks,
+	 * hop dags, and live variable sets are copied (because they are subject to subsequent 
+	 * size-dependent rewrites) but statements and predicates are shared.
+	 * 
+	 * @param fsb
+	 * @param fname
+	 * @return
+	 * @throws HopsException
+	 */
+	private FunctionStatementBlock createFunctionCopy( FunctionStatementBlock fsb, String fname ) 
+		throws HopsException
+	{
+		FunctionStatement fstmt = (FunctionStatement)fsb.getStatement(0);
+		FunctionStatement fstmt2 = new FunctionStatement();
+		fstmt2.setName(fname);
+		fstmt2.setInputParams(new ArrayList<DataIdentifier>(fstmt.getInputParams()));
+		fstmt2.setOutputParams(new ArrayList<DataIdentifier>(fstmt.getOutputParams()));
+		fstmt2.setBody(rDeepCopyStatementBlocks(fstmt.getBody()));
+		fstmt2.setAllPositions(fstmt.getFilename(), fstmt.getBeginLine(), fstmt.getBeginColumn(), fstmt.getEndLine(), fstmt.getEndColumn());
+		
+		FunctionStatementBlock ret = new FunctionStatementBlock();
+		ret.addStatement(fstmt2);
+		copyStatementBlockMetaData(fsb, ret);
+		ret.setRecompileOnce(fsb.isRecompileOnce());
+		
+		return ret;
+	}
+	
+	/**
+	 * 
+	 * @param sbs
+	 * @return
+	 * @throws HopsException
+	 */
+	private ArrayList<StatementBlock> rDeepCopyStatementBlocks( ArrayList<StatementBlock> sbs ) 
+		throws HopsException
+	{
+		ArrayList<StatementBlock> ret = new ArrayList<StatementBlock>();
+		for( StatementBlock sb : sbs )
+			ret.add(rDeepCopyStatementBlock(sb));
+		return ret;
+	}
+	
+	/**
+	 * 
+	 * @param sb
+	 * @return
+	 * @throws HopsException
+	 */
+	private StatementBlock rDeepCopyStatementBlock( StatementBlock sb ) 
+		throws HopsException
+	{
+		StatementBlock ret = null;
+		
+		if (sb instanceof WhileStatementBlock)
+		{
+			WhileStatementBlock wsb = (WhileStatementBlock) sb;
+			WhileStatement wstmt = (WhileStatement)wsb.getStatement(0);
+			WhileStatement wstmt2 = new WhileStatement();
+			wstmt2.setPredicate(wstmt.getConditionalPredicate());
+			wstmt2.setBody(rDeepCopyStatementBlocks(wstmt.getBody()));
+			wstmt2.setAllPositions(wstmt.getFilename(), wstmt.getBeginLine(), wstmt.getBeginColumn(), wstmt.getEndLine(), wstmt.getEndColumn());
+			WhileStatementBlock wsb2 = new WhileStatementBlock();
+			wsb2.addStatement(wstmt2);
+			wsb2.setPredicateHops(deepCopyHopsDag(wsb.getPredicateHops()));
+			ret = wsb2;
+		}
+		else if (sb instanceof IfStatementBlock)
+		{
+			IfStatementBlock isb = (IfStatementBlock) sb;
+			IfStatement istmt = (IfStatement)isb.getStatement(0);
+			IfStatement istmt2 = new IfStatement();
+			istmt2.setConditionalPredicate(istmt.getConditionalPredicate());
+			istmt2.setIfBody(rDeepCopyStatementBlocks(istmt.getIfBody()));
+			istmt2.setElseBody(rDeepCopyStatementBlocks(istmt.getElseBody()));
+			istmt2.setAllPositions(istmt.getFilename(), istmt.getBeginLine(), istmt.getBeginColumn(), istmt.getEndLine(), istmt.getEndColumn());
+			IfStatementBlock isb2 = new IfStatementBlock();
+			isb2.addStatement(istmt2);
+			isb2.setPredicateHops(deepCopyHopsDag(isb.getPredicateHops()));
+			ret = isb2;
+		}
+		else if (sb instanceof ForStatementBlock) //excl parfor (see candidates)
+		{
+			ForStatementBlock fsb = (ForStatementBlock) sb;
+			ForStatement fstmt = (ForStatement)fsb.getStatement(0);
+			ForStatement fstmt2 = new ForStatement();
+			fstmt2.setPredicate(fstmt.getIterablePredicate());
+			fstmt2.setBody(rDeepCopyStatementBlocks(fstmt.getBody()));
+			fstmt2.setAllPositions(fstmt.getFilename(), fstmt.getBeginLine(), fstmt.getBeginColumn(), fstmt.getEndLine(), fstmt.getEndColumn());
+			ForStatementBlock fsb2 = new ForStatementBlock();
+			fsb2.addStatement(fstmt2);
+			fsb2.setFromHops(deepCopyHopsDag(fsb.getFromHops()));
+			fsb2.setToHops(deepCopyHopsDag(fsb.getToHops()));
+			fsb2.setIncrementHops(deepCopyHopsDag(fsb.getIncrementHops()));
+			ret = fsb2;
+		}
+		else //generic (last-level)
+		{
+			ret = new StatementBlock();
+			ret.setStatements(new ArrayList<Statement>(sb.getStatements()));
+			if( sb.get_hops() != null )
+				ret.set_hops(Recompiler.deepCopyHopsDag(sb.get_hops()));
+		}
+		
+		copyStatementBlockMetaData(sb, ret);
+		
+		return ret;
+	}
+	
+	/**
+	 * 
+	 * @param hops
+	 * @return
+	 * @throws HopsException
+	 */
+	private Hop deepCopyHopsDag( Hop hops ) 
+		throws HopsException
+	{
+		return (hops != null) ? Recompiler.deepCopyHopsDag(hops) : null;
+	}
+	
+	/**
+	 * 
+	 * @param sb
+	 * @param ret
+	 */
+	private void copyStatementBlockMetaData( StatementBlock sb, StatementBlock ret )
+	{
+		ret.setDMLProg(sb.getDMLProg());
+		ret.setAllPositions(sb.getFilename(), sb.getBeginLine(), sb.getBeginColumn(), sb.getEndLine(), sb.getEndColumn());
+		ret.setLiveIn(copyVariableSet(sb.liveIn()));
+		ret.setLiveOut(copyVariableSet(sb.liveOut()));
+		ret.setUpdatedVariables(copyVariableSet(sb.variablesUpdated()));
+		ret.setReadVariables(copyVariableSet(sb.variablesRead()));
+	}
+	
+	/**
+	 * 
+	 * @param vs
+	 * @return
+	 */
+	private VariableSet copyVariableSet( VariableSet vs ) {
+		return (vs != null) ? new VariableSet(vs) : null;
+	}
+	
+
 	/////////////////////////////
 	// GET FUNCTION CANDIDATES
 	//////
@@ -0,0 +1,320 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.hops.recompile;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+import com.ibm.bi.dml.api.DMLScript;
+import com.ibm.bi.dml.hops.AggUnaryOp;
+import com.ibm.bi.dml.hops.DataOp;
+import com.ibm.bi.dml.hops.Hop;
+import com.ibm.bi.dml.hops.IndexingOp;
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.hops.UnaryOp;
+import com.ibm.bi.dml.hops.Hop.DataOpTypes;
+import com.ibm.bi.dml.hops.Hop.Direction;
+import com.ibm.bi.dml.hops.Hop.MultiThreadedHop;
+import com.ibm.bi.dml.hops.Hop.OpOp1;
+import com.ibm.bi.dml.runtime.controlprogram.LocalVariableMap;
+import com.ibm.bi.dml.runtime.controlprogram.caching.MatrixObject;
+import com.ibm.bi.dml.runtime.instructions.Instruction;
+import com.ibm.bi.dml.runtime.instructions.cp.Data;
+import com.ibm.bi.dml.runtime.instructions.cp.ScalarObject;
+import com.ibm.bi.dml.runtime.matrix.MatrixCharacteristics;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Bounded cache of recompiled instructions per hop DAG, keyed by a signature of the
+ * DAG inputs, i.e., the matrix characteristics of all matrix reads and the values of
+ * all scalar reads (which are replaced by literals during recompilation), as well as
+ * the runtime platform and local memory budget. Since optimizers modify the original DAG
+ * in-place (e.g., forced exec types and degree of parallelism by the parfor optimizer),
+ * the signature also covers these hop configurations. Recompiling a DAG for an input signature
+ * that has been seen before (e.g., in loops with fixed sizes after the first iteration)
+ * is then replaced by reusing the previously generated instructions, which is safe
+ * because instructions of the original (non-recompiled) program are reused across
+ * executions as well.
+ * 
+ * DAGs whose recompilation depends on actual data values of matrices (literal
+ * replacement of as.scalar or full aggregates over small matrices) and DAGs with
+ * persistent reads of unknown size are never cached.
+ * 
+ */
+public class RecompilePlanCache
+{
+
+	//max number of cached DAGs and signatures per DAG (lru replacement)
+	private static final int MAX_CACHED_DAGS = 512;
+	private static final int MAX_CACHED_PLANS_PER_DAG = 4;
+
+	//cache of recompiled instructions, per dag and input signature
+	private static LinkedHashMap<DagKey, LinkedHashMap<String, ArrayList<Instruction>>> _cache = null;
+
+	static
+	{
+		_cache = new LinkedHashMap<DagKey, LinkedHashMap<String, ArrayList<Instruction>>>(16, 0.75f, true) {
+			private static final long serialVersionUID = -6358211587645102863L;
+			@Override
+			protected boolean removeEldestEntry(Entry<DagKey, LinkedHashMap<String, ArrayList<Instruction>>> eldest) {
+				return size() > MAX_CACHED_DAGS;
+			}
+		};
+	}
+
+	/**
+	 * Indicates if the plan cache is applicable for the given recompilation, which is only
+	 * the case for deep-copy recompilation without recompile status (i.e., recompilation
+	 * without side effects on the original DAG and status).
+	 * 
+	 * @param inplace
+	 * @param status
+	 * @return
+	 */
+	public static boolean isApplicable( boolean inplace, RecompileStatus status )
+	{
+		return OptimizerUtils.ALLOW_RECOMPILE_PLAN_CACHE
+			&& !inplace && status == null;
+	}
+
+	/**
+	 * Creates the input signature of the given hop DAG, or null if the DAG cannot be cached.
+	 * 
+	 * @param hops
+	 * @param vars
+	 * @return
+	 */
+	public static String createSignature( ArrayList<Hop> hops, LocalVariableMap vars )
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append(DMLScript.rtplatform);
+		sb.append(',');
+		sb.append((long)OptimizerUtils.getLocalMemBudget());
+
+		HashSet<Long> memo = new HashSet<Long>();
+		for( Hop hop : hops )
+			if( !rCreateSignature(hop, vars, memo, sb) )
+				return null;
+
+		return sb.toString();
+	}
+
+	/**
+	 * Creates the input signature of the given predicate hop DAG, or null if the DAG cannot be cached.
+	 * 
+	 * @param hops
+	 * @param vars
+	 * @return
+	 */
+	public static String createSignature( Hop hops, LocalVariableMap vars )
+	{
+		ArrayList<Hop> tmp = new ArrayList<Hop>();
+		tmp.add(hops);
+		return createSignature(tmp, vars);
+	}
+
+	/**
+	 * Probes the cache for instructions of the given DAG and input signature,
+	 * and maintains the hit/miss statistics.
+	 * 
+	 * @param hops the original hop DAG (identity)
+	 * @param sig
+	 * @return
+	 */
+	public static synchronized ArrayList<Instruction> get( Object hops, String sig )
+	{
+		LinkedHashMap<String, ArrayList<Instruction>> plans = _cache.get(new DagKey(hops));
+		ArrayList<Instruction> ret = (plans != null) ? plans.get(sig) : null;
+
+		if( DMLScript.STATISTICS ) {
+			if( ret != null )
+				Statistics.incrementRecompilePlanCacheHits();
+			else
+				Statistics.incrementRecompilePlanCacheMisses();
+		}
+
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param hops the original hop DAG (identity)
+	 * @param sig
+	 * @param inst
+	 */
+	public static synchronized void put( Object hops, String sig, ArrayList<Instruction> inst )
+	{
+		DagKey key = new DagKey(hops);
+		LinkedHashMap<String, ArrayList<Instruction>> plans = _cache.get(key);
+		if( plans == null ) {
+			plans = new LinkedHashMap<String, ArrayList<Instruction>>(8, 0.75f, true) {
+				private static final long serialVersionUID = 2187376451370951274L;
+				@Override
+				protected boolean removeEldestEntry(Entry<String, ArrayList<Instruction>> eldest) {
+					return size() > MAX_CACHED_PLANS_PER_DAG;
+				}
+			};
+			_cache.put(key, plans);
+		}
+		plans.put(sig, inst);
+	}
+
+	/**
+	 * 
+	 */
+	public static synchronized void clear()
+	{
+		_cache.clear();
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public static synchronized int size()
+	{
+		int ret = 0;
+		for( LinkedHashMap<String, ArrayList<Instruction>> plans : _cache.values() )
+			ret += plans.size();
+		return ret;
+	}
+
+	/**
+	 * Appends the input statistics of all reads of the given DAG to the signature,
+	 * and returns false if the DAG cannot be cached. Note that we use a separate memo
+	 * table instead of the visit status because the original DAG is potentially shared.
+	 * 
+	 * @param hop
+	 * @param vars
+	 * @param memo
+	 * @param sb
+	 * @return
+	 */
+	private static boolean rCreateSignature( Hop hop, LocalVariableMap vars, HashSet<Long> memo, StringBuilder sb )
+	{
+		if( memo.contains(hop.getHopID()) )
+			return true;
+
+		//in-place hop configurations (e.g., set by parfor optimizer)
+		if( hop.getForcedExecType() != null ) {
+			sb.append(",et");
+			sb.append(hop.getHopID());
+			sb.append('=');
+			sb.append(hop.getForcedExecType());
+		}
+		if( hop instanceof MultiThreadedHop ) {
+			sb.append(",k");
+			sb.append(hop.getHopID());
+			sb.append('=');
+			sb.append(((MultiThreadedHop)hop).getMaxNumThreads());
+		}
+
+		//value-dependent literal replacement (see LiteralReplacement)
+		if( isValueDependentLiteralReplacement(hop, vars) )
+			return false;
+
+		if( hop instanceof DataOp )
+		{
+			DataOp dop = (DataOp) hop;
+			if( dop.getDataOpType() == DataOpTypes.PERSISTENTREAD && !dop.dimsKnown() )
+				return false; //size from meta data file
+
+			if( dop.getDataOpType() != DataOpTypes.PERSISTENTREAD
+				&& vars.keySet().contains(dop.getName()) )
+			{
+				Data dat = vars.get(dop.getName());
+				sb.append(',');
+				sb.append(dop.getName());
+				sb.append('=');
+				if( dat instanceof MatrixObject ) {
+					MatrixCharacteristics mc = ((MatrixObject)dat).getMatrixCharacteristics();
+					sb.append(mc.getRows()); sb.append('x'); sb.append(mc.getCols());
+					sb.append('x'); sb.append(mc.getRowsPerBlock()); sb.append('x'); sb.append(mc.getColsPerBlock());
+					sb.append('x'); sb.append(mc.getNonZeros());
+				}
+				else if( dat instanceof ScalarObject ) {
+					sb.append(((ScalarObject)dat).getStringValue());
+				}
+				else
+					return false;
+			}
+		}
+
+		if( hop.getInput() != null )
+			for( Hop c : hop.getInput() )
+				if( !rCreateSignature(c, vars, memo, sb) )
+					return false;
+
+		memo.add(hop.getHopID());
+		return true;
+	}
+
+	/**
+	 * Indicates if the literal replacement might replace the given hop by a literal
+	 * computed from actual matrix values, which is not covered by the signature.
+	 * 
+	 * @param hop
+	 * @param vars
+	 * @return
+	 */
+	private static boolean isValueDependentLiteralReplacement( Hop hop, LocalVariableMap vars )
+	{
+		boolean cast = (hop instanceof UnaryOp && ((UnaryOp)hop).getOp() == OpOp1.CAST_AS_SCALAR);
+		boolean agg = (hop instanceof AggUnaryOp && ((AggUnaryOp)hop).getDirection() == Direction.RowCol);
+		if( !cast && !agg )
+			return false;
+
+		Hop in = hop.getInput().get(0);
+		if( in instanceof IndexingOp )
+			in = in.getInput().get(0);
+		else if( cast && in instanceof DataOp )
+			return vars.keySet().contains(in.getName());
+
+		if( in instanceof DataOp && vars.get(in.getName()) instanceof MatrixObject ) {
+			MatrixObject mo = (MatrixObject) vars.get(in.getName());
+			return mo.getNumRows()*mo.getNumColumns() < LiteralReplacement.REPLACE_LITERALS_MAX_MATRIX_SIZE;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Cache key of a hop DAG by object identity, because the same DAG
+	 * might be modified in-place (e.g., by parfor recompilation).
+	 */
+	private static class DagKey
+	{
+		private Object _hops = null;
+
+		public DagKey( Object hops ) {
+			_hops = hops;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(_hops);
+		}
+
+		@Override
+		public boolean equals( Object o ) {
+			return (o instanceof DagKey && ((DagKey)o)._hops == _hops);
+		}
+	}
+}
@@ -51,6 +51,7 @@ import com.ibm.bi.dml.hops.MemoTable;
 import com.ibm.bi.dml.hops.OptimizerUtils;
 import com.ibm.bi.dml.hops.ReorgOp;
 import com.ibm.bi.dml.hops.UnaryOp;
+import com.ibm.bi.dml.hops.estim.SparsityEstimator;
 import com.ibm.bi.dml.hops.rewrite.HopRewriteUtils;
 import com.ibm.bi.dml.hops.rewrite.ProgramRewriter;
 import com.ibm.bi.dml.lops.CSVReBlock;
@@ -133,6 +134,7 @@ public class Recompiler
 	public static void reinitRecompiler()
 	{
 		rewriter = new ProgramRewriter(false, true);
+		RecompilePlanCache.clear();
 	}
 	
 	/**
@@ -163,54 +165,71 @@ public class Recompiler
 			LOG.debug ("\n**************** Optimizer (Recompile) *************\nMemory Budget = " + 
 					   OptimizerUtils.toMB(OptimizerUtils.getLocalMemBudget()) + " MB");
 	
-			// prepare hops dag for recompile
-			if( !inplace ){ 
-				// deep copy hop dag (for non-reversable rewrites)
-				hops = deepCopyHopsDag(hops);
-			}
-			else {
-				// clear existing lops
-				Hop.resetVisitStatus(hops);
-				for( Hop hopRoot : hops )
-					rClearLops( hopRoot );
-			}
+			// probe plan cache of recompiled instructions (equal input statistics)
+			String sig = RecompilePlanCache.isApplicable(inplace, status) ? 
+				RecompilePlanCache.createSignature(hops, vars) : null;
+			Object origHops = hops;
+			if( sig != null )
+				newInst = RecompilePlanCache.get(origHops, sig);
+			
+			if( newInst == null )
+			{
+				// prepare hops dag for recompile
+				if( !inplace ){ 
+					// deep copy hop dag (for non-reversable rewrites)
+					hops = deepCopyHopsDag(hops);
+				}
+				else {
+					// clear existing lops
+					Hop.resetVisitStatus(hops);
+					for( Hop hopRoot : hops )
+						rClearLops( hopRoot );
+				}
 
-			// replace scalar reads with literals 
-			if( !inplace ) {
+				// replace scalar reads with literals 
+				if( !inplace ) {
+					Hop.resetVisitStatus(hops);
+					for( Hop hopRoot : hops )
+						rReplaceLiterals( hopRoot, vars );
+				}
+			
+				// refresh matrix characteristics (update stats)			
 				Hop.resetVisitStatus(hops);
 				for( Hop hopRoot : hops )
-					rReplaceLiterals( hopRoot, vars );
-			}
+					rUpdateStatistics( hopRoot, vars );
 			
-			// refresh matrix characteristics (update stats)			
-			Hop.resetVisitStatus(hops);
-			for( Hop hopRoot : hops )
-				rUpdateStatistics( hopRoot, vars );
+				// dynamic hop rewrites
+				if( !inplace )
+					rewriter.rewriteHopDAGs( hops, null );
 			
-			// dynamic hop rewrites
-			if( !inplace )
-				rewriter.rewriteHopDAGs( hops, null );
+				// sketch-based sparsity estimation of intermediates
+				SparsityEstimator.estimateSparsity( hops, vars );
 			
-			// refresh memory estimates (based on updated stats,
-			// before: init memo table with propagated worst-case estimates,
-			// after: extract worst-case estimates from memo table 
-			Hop.resetVisitStatus(hops);
-			MemoTable memo = new MemoTable();
-			memo.init(hops, status);
-			Hop.resetVisitStatus(hops);
-			for( Hop hopRoot : hops )
-				hopRoot.refreshMemEstimates(memo); 
-			memo.extract(hops, status);
+				// refresh memory estimates (based on updated stats,
+				// before: init memo table with propagated worst-case estimates,
+				// after: extract worst-case estimates from memo table 
+				Hop.resetVisitStatus(hops);
+				MemoTable memo = new MemoTable();
+				memo.init(hops, status);
+				Hop.resetVisitStatus(hops);
+				for( Hop hopRoot : hops )
+					hopRoot.refreshMemEstimates(memo); 
+				memo.extract(hops, status);
 			
-			// construct lops			
-			Dag<Lop> dag = new Dag<Lop>();
-			for( Hop hopRoot : hops ){
-				Lop lops = hopRoot.constructLops();
-				lops.addToDag(dag);	
-			}		
+				// construct lops			
+				Dag<Lop> dag = new Dag<Lop>();
+				for( Hop hopRoot : hops ){
+					Lop lops = hopRoot.constructLops();
+					lops.addToDag(dag);	
+				}		
 			
-			// generate runtime instructions (incl piggybacking)
-			newInst = dag.getJobs(sb, ConfigurationManager.getConfig());	
+				// generate runtime instructions (incl piggybacking)
+				newInst = dag.getJobs(sb, ConfigurationManager.getConfig());
+				
+				// keep instructions for subsequent recompilations
+				if( sig != null )
+					RecompilePlanCache.put(origHops, sig, newInst);
+			}
 		}
 		
 		// replace thread ids in new instructions
@@ -261,46 +280,63 @@ public class Recompiler
 			LOG.debug ("\n**************** Optimizer (Recompile) *************\nMemory Budget = " + 
 					   OptimizerUtils.toMB(OptimizerUtils.getLocalMemBudget()) + " MB");
 
-			// prepare hops dag for recompile
-			if( !inplace ) {
-				// deep copy hop dag (for non-reversable rewrites)
-				//(this also clears existing lops in the created dag) 
-				hops = deepCopyHopsDag(hops);	
-			}
-			else {
-				// clear existing lops
-				hops.resetVisitStatus();
-				rClearLops( hops );	
-			}
+			// probe plan cache of recompiled instructions (equal input statistics)
+			String sig = RecompilePlanCache.isApplicable(inplace, status) ? 
+				RecompilePlanCache.createSignature(hops, vars) : null;
+			Object origHops = hops;
+			if( sig != null )
+				newInst = RecompilePlanCache.get(origHops, sig);
 			
-			// replace scalar reads with literals 
-			if( !inplace ) {
+			if( newInst == null )
+			{
+				// prepare hops dag for recompile
+				if( !inplace ) {
+					// deep copy hop dag (for non-reversable rewrites)
+					//(this also clears existing lops in the created dag) 
+					hops = deepCopyHopsDag(hops);	
+				}
+				else {
+					// clear existing lops
+					hops.resetVisitStatus();
+					rClearLops( hops );	
+				}
+			
+				// replace scalar reads with literals 
+				if( !inplace ) {
+					hops.resetVisitStatus();
+					rReplaceLiterals( hops, vars );
+				}
+			
+				// refresh matrix characteristics (update stats)			
 				hops.resetVisitStatus();
-				rReplaceLiterals( hops, vars );
-			}
+				rUpdateStatistics( hops, vars );
 			
-			// refresh matrix characteristics (update stats)			
-			hops.resetVisitStatus();
-			rUpdateStatistics( hops, vars );
+				// dynamic hop rewrites
+				if( !inplace )
+					rewriter.rewriteHopDAG( hops, null );
 			
-			// dynamic hop rewrites
-			if( !inplace )
-				rewriter.rewriteHopDAG( hops, null );
+				// sketch-based sparsity estimation of intermediates
+				SparsityEstimator.estimateSparsity( hops, vars );
 			
-			// refresh memory estimates (based on updated stats)
-			MemoTable memo = new MemoTable();
-			hops.resetVisitStatus();
-			memo.init(hops, status);
-			hops.resetVisitStatus();
-			hops.refreshMemEstimates(memo); 		
+				// refresh memory estimates (based on updated stats)
+				MemoTable memo = new MemoTable();
+				hops.resetVisitStatus();
+				memo.init(hops, status);
+				hops.resetVisitStatus();
+				hops.refreshMemEstimates(memo); 		
 			
-			// construct lops			
-			Dag<Lop> dag = new Dag<Lop>();
-			Lop lops = hops.constructLops();
-			lops.addToDag(dag);		
+				// construct lops			
+				Dag<Lop> dag = new Dag<Lop>();
+				Lop lops = hops.constructLops();
+				lops.addToDag(dag);		
 			
-			// generate runtime instructions (incl piggybacking)
-			newInst = dag.getJobs(null, ConfigurationManager.getConfig());
+				// generate runtime instructions (incl piggybacking)
+				newInst = dag.getJobs(null, ConfigurationManager.getConfig());
+				
+				// keep instructions for subsequent recompilations
+				if( sig != null )
+					RecompilePlanCache.put(origHops, sig, newInst);
+			}
 		}
 		
 		// replace thread ids in new instructions
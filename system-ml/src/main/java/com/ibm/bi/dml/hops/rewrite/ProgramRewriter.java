@@ -129,6 +129,14 @@ public class ProgramRewriter
 			//(2) newly introduced operators potentially created redundancy (incl leaf merge to allow for cse)
 			if( OptimizerUtils.ALLOW_COMMON_SUBEXPRESSION_ELIMINATION )             
 				_dagRuleSet.add( new RewriteCommonSubexpressionElimination(true) ); //dependency: simplifications 			
+			
+			//fusion of cell-wise operators w/ generated code (enabled via ALLOW_CODEGEN, which is
+			//checked inside the rule because the recompiler uses a static program rewriter)
+			_dagRuleSet.add(     new RewriteCodegenFusion()                       ); //dependency: cse
+
+			//hoisting of loop-invariant operations (after ipa because it requires sizes for the memory budget)
+			if( OptimizerUtils.ALLOW_LOOP_INVARIANT_CODE_MOTION )
+				_sbRuleSet.add(  new RewriteHoistLoopInvariantOperations()        ); //dependency: all dag rewrites
 		}
 	}
 	
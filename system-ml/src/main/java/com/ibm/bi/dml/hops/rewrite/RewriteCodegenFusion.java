@@ -0,0 +1,152 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.hops.rewrite;
+
+import java.util.ArrayList;
+
+import com.ibm.bi.dml.hops.Hop;
+import com.ibm.bi.dml.hops.HopsException;
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.hops.Hop.VisitStatus;
+import com.ibm.bi.dml.hops.codegen.SpoofCompiler;
+import com.ibm.bi.dml.hops.codegen.SpoofFusedOp;
+import com.ibm.bi.dml.hops.codegen.TemplateCell;
+import com.ibm.bi.dml.parser.Expression.DataType;
+import com.ibm.bi.dml.parser.Expression.ValueType;
+import com.ibm.bi.dml.runtime.DMLRuntimeException;
+import com.ibm.bi.dml.runtime.codegen.CodegenUtils;
+import com.ibm.bi.dml.runtime.codegen.SpoofCellwise.CellType;
+
+/**
+ * Rule: Fusion of cell-wise operator pipelines via runtime code generation. This
+ * dynamic rewrite traverses the hop DAG top-down and replaces maximal regions of
+ * cell-wise operations (optionally with a final full, row, or column aggregate) by
+ * a single fused operator, whose operator class is generated and compiled in-process
+ * (see SpoofCompiler). This avoids the materialization of intermediates, e.g., for
+ * sum(X*log(Y+1e-10)) or 1/(1+exp(-X%*%w)).
+ * 
+ * Since fusion requires known sizes, this rewrite is applied during initial compilation
+ * and dynamic recompilation, where the plan cache of generated classes avoids repeated
+ * compilation of equivalent fused operators.
+ */
+public class RewriteCodegenFusion extends HopRewriteRule
+{
+
+	@Override
+	public ArrayList<Hop> rewriteHopDAGs(ArrayList<Hop> roots, ProgramRewriteStatus state)
+		throws HopsException
+	{
+		if( roots == null || !isEnabled() )
+			return roots;
+
+		for( int i=0; i<roots.size(); i++ )
+			roots.set(i, rule_FuseCellwiseOperators(roots.get(i)));
+
+		return roots;
+	}
+
+	@Override
+	public Hop rewriteHopDAG(Hop root, ProgramRewriteStatus state)
+		throws HopsException
+	{
+		if( root == null || !isEnabled() )
+			return root;
+
+		return rule_FuseCellwiseOperators(root);
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	private static boolean isEnabled() {
+		return OptimizerUtils.ALLOW_CODEGEN
+			&& CodegenUtils.isCompilerAvailable();
+	}
+
+	/**
+	 * Top-down traversal that replaces the largest valid cell templates, i.e., roots
+	 * are probed before their inputs, and the traversal continues at the inputs of
+	 * the fused region.
+	 * 
+	 * @param hop
+	 * @return
+	 * @throws HopsException
+	 */
+	private Hop rule_FuseCellwiseOperators( Hop hop )
+		throws HopsException
+	{
+		if( hop.getVisited() == VisitStatus.DONE )
+			return hop;
+
+		Hop ret = hop;
+		if( TemplateCell.isValidRoot(hop) )
+		{
+			TemplateCell tpl = new TemplateCell(hop);
+			if( tpl.isValid() )
+				ret = createFusedOperator(hop, tpl);
+		}
+
+		for( Hop c : ret.getInput() )
+			rule_FuseCellwiseOperators(c);
+
+		ret.setVisited(VisitStatus.DONE);
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param hop
+	 * @param tpl
+	 * @return
+	 * @throws HopsException
+	 */
+	private Hop createFusedOperator( Hop hop, TemplateCell tpl )
+		throws HopsException
+	{
+		//generate and compile operator class (or obtain from plan cache)
+		Class<?> cla = null;
+		try {
+			cla = SpoofCompiler.getOrCompileClass(tpl.getCplan());
+		}
+		catch(DMLRuntimeException ex) {
+			throw new HopsException(hop.printErrorLocation() + "Failed to generate fused operator.", ex);
+		}
+
+		//create fused operator
+		CellType type = tpl.getCellType();
+		DataType dt = (type == CellType.FULL_AGG) ? DataType.SCALAR : DataType.MATRIX;
+		SpoofFusedOp fop = new SpoofFusedOp(hop.getName(), dt, ValueType.DOUBLE, cla, type, tpl.getInputs());
+		HopRewriteUtils.setOutputBlocksizes(fop, hop.getRowsInBlock(), hop.getColsInBlock());
+		HopRewriteUtils.copyLineNumbers(hop, fop);
+		fop.setNnz(hop.getNnz());
+
+		//rewire parents of fused root and remove fused operations
+		for( Hop p : new ArrayList<Hop>(hop.getParent()) ) {
+			int pos = HopRewriteUtils.getChildReferencePos(p, hop);
+			HopRewriteUtils.removeChildReferenceByPos(p, hop, pos);
+			HopRewriteUtils.addChildReference(p, fop, pos);
+		}
+		for( Hop h : tpl.getFusedHops() )
+			HopRewriteUtils.removeAllChildReferences(h);
+
+		LOG.debug("Applied fuseCellwiseOperators (line " + hop.getBeginLine() + "): " + fop.getOpString());
+
+		return fop;
+	}
+}
@@ -0,0 +1,458 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.hops.rewrite;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import com.ibm.bi.dml.hops.AggUnaryOp;
+import com.ibm.bi.dml.hops.BinaryOp;
+import com.ibm.bi.dml.hops.DataGenOp;
+import com.ibm.bi.dml.hops.DataOp;
+import com.ibm.bi.dml.hops.FunctionOp;
+import com.ibm.bi.dml.hops.Hop;
+import com.ibm.bi.dml.hops.HopsException;
+import com.ibm.bi.dml.hops.LiteralOp;
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.hops.UnaryOp;
+import com.ibm.bi.dml.hops.Hop.DataOpTypes;
+import com.ibm.bi.dml.hops.Hop.Direction;
+import com.ibm.bi.dml.hops.Hop.OpOp1;
+import com.ibm.bi.dml.hops.Hop.OpOp2;
+import com.ibm.bi.dml.hops.recompile.Recompiler;
+import com.ibm.bi.dml.parser.DataIdentifier;
+import com.ibm.bi.dml.parser.ForStatement;
+import com.ibm.bi.dml.parser.ForStatementBlock;
+import com.ibm.bi.dml.parser.FunctionStatementBlock;
+import com.ibm.bi.dml.parser.IfStatement;
+import com.ibm.bi.dml.parser.IfStatementBlock;
+import com.ibm.bi.dml.parser.ParForStatementBlock;
+import com.ibm.bi.dml.parser.StatementBlock;
+import com.ibm.bi.dml.parser.VariableSet;
+import com.ibm.bi.dml.parser.WhileStatement;
+import com.ibm.bi.dml.parser.WhileStatementBlock;
+import com.ibm.bi.dml.parser.Expression.DataType;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.util.IDSequence;
+
+/**
+ * Rule: Hoist loop-invariant operations out of while and for loops. An operation is
+ * loop-invariant if all its inputs are literals, transient reads of variables that are
+ * not updated within the loop, or loop-invariant operations themselves. We hoist maximal
+ * loop-invariant sub-DAGs of the last-level statement blocks of the loop body (e.g.,
+ * t(X)%*%X or colMeans(X) over a read-only X) into a new statement block before the loop,
+ * and replace them in the loop body by transient reads of new variables, which are
+ * removed on loop exit.
+ * 
+ * In order to prevent pinning huge intermediates over the entire loop, we only hoist
+ * matrices of known size whose total size is below a fraction of the local memory
+ * budget; sub-DAGs that exceed this budget are probed for smaller invariant inputs.
+ * Data generators (rand/sample), operations with side effects, and function calls are
+ * never hoisted. Loops in parfor bodies are excluded because the parfor optimizer
+ * reasons about the original body program.
+ * 
+ * Since hoisted operations are executed even if the loop would not execute any iteration
+ * (where they might fail or be expensive), we only hoist out of for loops with a known 
+ * number of iterations of at least two, and out of while loops guarded by an if block 
+ * with a copy of the loop predicate, i.e., if(pred){ hoisted ops; while(pred){...} }.
+ * 
+ * This is a recursive statementblock rewrite rule, i.e., operations of nested for loops are
+ * hoisted into the body of the outer loop first and, if invariant, subsequently out of
+ * the outer loop.
+ */
+public class RewriteHoistLoopInvariantOperations extends StatementBlockRewriteRule
+{
+
+	public static final String VARNAME_PREFIX = "_licmvar";
+
+	//max fraction of the local memory budget for hoisted intermediates per loop
+	private static final double MAX_HOIST_MEM_FRACTION = 0.1;
+
+	private static IDSequence _seq = new IDSequence();
+
+	@Override
+	public ArrayList<StatementBlock> rewriteStatementBlock(StatementBlock sb, ProgramRewriteStatus status)
+		throws HopsException
+	{
+		ArrayList<StatementBlock> ret = new ArrayList<StatementBlock>();
+
+		//apply rewrite for while and for loops only (not parfor or loops in parfor bodies)
+		if( !OptimizerUtils.ALLOW_LOOP_INVARIANT_CODE_MOTION
+			|| !(sb instanceof WhileStatementBlock || sb instanceof ForStatementBlock)
+			|| sb instanceof ParForStatementBlock || status.isInParforContext()
+			|| !hasMultipleIterations(sb) )
+		{
+			ret.add(sb);
+			return ret;
+		}
+
+		//step 1: collect variables updated in the loop (incl artificial variables of dag splits)
+		ArrayList<StatementBlock> body = (sb instanceof WhileStatementBlock) ?
+			((WhileStatement)sb.getStatement(0)).getBody() : ((ForStatement)sb.getStatement(0)).getBody();
+		HashSet<String> updated = new HashSet<String>(sb.variablesUpdated().getVariableNames());
+		if( sb instanceof ForStatementBlock )
+			updated.add(((ForStatementBlock)sb).getIterPredicate().getIterVar().getName());
+		for( StatementBlock csb : body )
+			rCollectUpdatedVariables(csb, updated);
+
+		//step 2: collect maximal loop-invariant sub-DAGs of last-level statement blocks
+		ArrayList<Hop> cand = new ArrayList<Hop>();
+		HashMap<Long, Boolean> memo = new HashMap<Long, Boolean>();
+		HashSet<Long> visited = new HashSet<Long>();
+		double[] budget = new double[]{ MAX_HOIST_MEM_FRACTION * OptimizerUtils.getLocalMemBudget() };
+		for( StatementBlock csb : body )
+			if( isLastLevelStatementBlock(csb) && csb.get_hops() != null )
+				for( Hop root : csb.get_hops() )
+					rCollectLoopInvariantOperations(root, updated, memo, visited, budget, cand);
+
+		//step 3: move candidates to a new statement block before the loop
+		StatementBlock guard = null;
+		if( !cand.isEmpty() )
+		{
+			StatementBlock sb0 = new StatementBlock();
+			sb0.setDMLProg(sb.getDMLProg());
+			sb0.setAllPositions(sb.getFilename(), sb.getBeginLine(), sb.getBeginColumn(), sb.getEndLine(), sb.getEndColumn());
+			sb0.setLiveIn(new VariableSet(sb.liveIn()));
+			sb0.setLiveOut(new VariableSet(sb.liveIn()));
+
+			//collect all hoisted operations (for rewiring only consumers outside hoisted sub-DAGs)
+			HashSet<Hop> hoisted = new HashSet<Hop>();
+			for( Hop c : cand )
+				rCollectSubDag(c, hoisted);
+
+			ArrayList<Hop> sb0hops = new ArrayList<Hop>();
+			for( Hop c : cand )
+			{
+				String varname = VARNAME_PREFIX + _seq.getNextID();
+
+				//replace candidate by transient read in the loop body
+				DataOp tread = new DataOp(varname, c.getDataType(), c.getValueType(), DataOpTypes.TRANSIENTREAD,
+					null, c.getDim1(), c.getDim2(), c.getNnz(), c.getRowsInBlock(), c.getColsInBlock());
+				HopRewriteUtils.copyLineNumbers(c, tread);
+				for( Hop p : new ArrayList<Hop>(c.getParent()) )
+					if( !hoisted.contains(p) ) {
+						int pos = HopRewriteUtils.getChildReferencePos(p, c);
+						HopRewriteUtils.removeChildReferenceByPos(p, c, pos);
+						HopRewriteUtils.addChildReference(p, tread, pos);
+					}
+
+				//add candidate sub dag with transient write to new statement block
+				DataOp twrite = new DataOp(varname, c.getDataType(), c.getValueType(), c, DataOpTypes.TRANSIENTWRITE, null);
+				twrite.setOutputParams(c.getDim1(), c.getDim2(), c.getNnz(), c.getRowsInBlock(), c.getColsInBlock());
+				HopRewriteUtils.copyLineNumbers(c, twrite);
+				sb0hops.add(twrite);
+
+				//update live variables of new statement block, loop, and loop body
+				DataIdentifier diVar = new DataIdentifier(varname);
+				diVar.setDimensions(c.getDim1(), c.getDim2());
+				diVar.setBlockDimensions(c.getRowsInBlock(), c.getColsInBlock());
+				diVar.setDataType(c.getDataType());
+				diVar.setValueType(c.getValueType());
+				sb0.liveOut().addVariable(varname, new DataIdentifier(diVar));
+				sb.liveIn().addVariable(varname, new DataIdentifier(diVar));
+				for( StatementBlock csb : body ) {
+					csb.liveIn().addVariable(varname, new DataIdentifier(diVar));
+					csb.liveOut().addVariable(varname, new DataIdentifier(diVar));
+				}
+			}
+
+			//deep copy new dag (in order to prevent operators shared across dags)
+			sb0.set_hops(Recompiler.deepCopyHopsDag(sb0hops));
+			sb0.updateRecompilationFlag();
+			for( Hop twrite : sb0hops )
+				HopRewriteUtils.removeAllChildReferences(twrite);
+
+			//remove references from remaining operators of the loop body to hoisted operators
+			HashSet<Hop> remaining = new HashSet<Hop>();
+			for( StatementBlock csb : body )
+				if( isLastLevelStatementBlock(csb) && csb.get_hops() != null ) {
+					for( Hop root : csb.get_hops() )
+						rCollectSubDag(root, remaining);
+					csb.updateRecompilationFlag();
+				}
+			for( Hop h : hoisted )
+				if( !remaining.contains(h) )
+					for( Hop in : h.getInput() )
+						if( remaining.contains(in) )
+							in.getParent().remove(h);
+
+			//guard while loops in order to execute hoisted operations only on loop entry
+			if( sb instanceof WhileStatementBlock ) {
+				guard = createLoopEntryGuard((WhileStatementBlock)sb, sb0);
+				ret.add(guard);
+			}
+			else
+				ret.add(sb0);
+
+			LOG.debug("Applied hoistLoopInvariantOperations (lines "+sb.getBeginLine()+"-"+sb.getEndLine()+"): "
+				+ cand.size() + " operations.");
+		}
+
+		//add original statement block to end (if not guarded)
+		if( guard == null )
+			ret.add(sb);
+
+		return ret;
+	}
+
+	/**
+	 * Creates an if block with a copy of the predicate of the given while loop, 
+	 * whose if body consists of the given block of hoisted operations and the loop.
+	 * 
+	 * @param wsb
+	 * @param sb0
+	 * @return
+	 * @throws HopsException
+	 */
+	private static IfStatementBlock createLoopEntryGuard( WhileStatementBlock wsb, StatementBlock sb0 )
+		throws HopsException
+	{
+		WhileStatement wstmt = (WhileStatement)wsb.getStatement(0);
+		IfStatement istmt = new IfStatement();
+		istmt.setConditionalPredicate(wstmt.getConditionalPredicate());
+		istmt.setAllPositions(wstmt.getFilename(), wstmt.getBeginLine(), wstmt.getBeginColumn(), wstmt.getEndLine(), wstmt.getEndColumn());
+		istmt.addStatementBlockIfBody(sb0);
+		istmt.addStatementBlockIfBody(wsb);
+
+		IfStatementBlock isb = new IfStatementBlock();
+		isb.addStatement(istmt);
+		isb.setDMLProg(wsb.getDMLProg());
+		isb.setAllPositions(wsb.getFilename(), wsb.getBeginLine(), wsb.getBeginColumn(), wsb.getEndLine(), wsb.getEndColumn());
+		isb.setLiveIn(new VariableSet(sb0.liveIn()));
+		isb.setLiveOut(new VariableSet(wsb.liveOut()));
+		isb.setReadVariables(new VariableSet(wsb.variablesRead()));
+		isb.setUpdatedVariables(new VariableSet(wsb.variablesUpdated()));
+		isb.setPredicateHops(Recompiler.deepCopyHopsDag(wsb.getPredicateHops()));
+		isb.updatePredicateRecompilationFlag();
+
+		return isb;
+	}
+
+	/**
+	 * Indicates if the given variable is an artificial variable of a hoisted operation,
+	 * which needs to be removed on exit of the loop it has been hoisted from.
+	 * 
+	 * @param varname
+	 * @return
+	 */
+	public static boolean isHoistedVariable( String varname ) {
+		return varname.startsWith(VARNAME_PREFIX);
+	}
+
+	/**
+	 * 
+	 * @param sb
+	 * @return
+	 */
+	private static boolean isLastLevelStatementBlock( StatementBlock sb ) {
+		return !(sb instanceof WhileStatementBlock || sb instanceof ForStatementBlock
+			|| sb instanceof IfStatementBlock || sb instanceof FunctionStatementBlock);
+	}
+
+	/**
+	 * Indicates if the given loop potentially executes multiple iterations. For while
+	 * loops this is unknown (but hoisted operations are guarded by the loop predicate),
+	 * while for loops qualify only with literal predicates of at least two iterations.
+	 * 
+	 * @param sb
+	 * @return
+	 */
+	private static boolean hasMultipleIterations( StatementBlock sb )
+	{
+		if( sb instanceof WhileStatementBlock )
+			return true;
+
+		ForStatementBlock fsb = (ForStatementBlock) sb;
+		Hop from = fsb.getFromHops();
+		Hop to = fsb.getToHops();
+		Hop incr = fsb.getIncrementHops();
+		if( from instanceof LiteralOp && to instanceof LiteralOp
+			&& (incr == null || incr instanceof LiteralOp) )
+		{
+			double dfrom = HopRewriteUtils.getDoubleValueSafe((LiteralOp)from);
+			double dto = HopRewriteUtils.getDoubleValueSafe((LiteralOp)to);
+			double dincr = (incr != null) ? HopRewriteUtils.getDoubleValueSafe((LiteralOp)incr) :
+				((dfrom > dto) ? -1 : 1);
+			return (dincr != 0 && Math.floor((dto-dfrom)/dincr) + 1 > 1);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Collects the names of all variables written by transient writes or function
+	 * calls in the given statement block, including nested statement blocks.
+	 * 
+	 * @param sb
+	 * @param updated
+	 */
+	private static void rCollectUpdatedVariables( StatementBlock sb, HashSet<String> updated )
+	{
+		if( sb instanceof WhileStatementBlock ) {
+			for( StatementBlock csb : ((WhileStatement)sb.getStatement(0)).getBody() )
+				rCollectUpdatedVariables(csb, updated);
+		}
+		else if( sb instanceof ForStatementBlock ) { //incl parfor
+			updated.add(((ForStatementBlock)sb).getIterPredicate().getIterVar().getName());
+			for( StatementBlock csb : ((ForStatement)sb.getStatement(0)).getBody() )
+				rCollectUpdatedVariables(csb, updated);
+		}
+		else if( sb instanceof IfStatementBlock ) {
+			IfStatement istmt = (IfStatement)sb.getStatement(0);
+			for( StatementBlock csb : istmt.getIfBody() )
+				rCollectUpdatedVariables(csb, updated);
+			for( StatementBlock csb : istmt.getElseBody() )
+				rCollectUpdatedVariables(csb, updated);
+		}
+		else if( sb.get_hops() != null ) { //generic (last-level)
+			updated.addAll(sb.variablesUpdated().getVariableNames());
+			for( Hop root : sb.get_hops() ) {
+				if( root instanceof DataOp && ((DataOp)root).getDataOpType()==DataOpTypes.TRANSIENTWRITE )
+					updated.add(root.getName());
+				else if( root instanceof FunctionOp )
+					for( String out : ((FunctionOp)root).getOutputVariableNames() )
+						updated.add(out);
+			}
+		}
+	}
+
+	/**
+	 * Top-down traversal that collects maximal loop-invariant operations as long as their
+	 * (accumulated) output size fits into the remaining budget; otherwise, the traversal
+	 * continues at the inputs of the invariant operation.
+	 * 
+	 * @param hop
+	 * @param updated
+	 * @param memo
+	 * @param visited
+	 * @param budget remaining memory budget (in/out)
+	 * @param cand
+	 */
+	private static void rCollectLoopInvariantOperations( Hop hop, HashSet<String> updated,
+		HashMap<Long, Boolean> memo, HashSet<Long> visited, double[] budget, ArrayList<Hop> cand )
+	{
+		if( visited.contains(hop.getHopID()) )
+			return;
+
+		if( isHoistCandidate(hop) && isLoopInvariant(hop, updated, memo) )
+		{
+			double size = getOutputSize(hop);
+			if( size <= budget[0] ) {
+				cand.add(hop);
+				budget[0] -= size;
+				visited.add(hop.getHopID());
+				return;
+			}
+		}
+
+		for( Hop c : hop.getInput() )
+			rCollectLoopInvariantOperations(c, updated, memo, visited, budget, cand);
+
+		visited.add(hop.getHopID());
+	}
+
+	/**
+	 * Indicates if the given operation is worth hoisting, i.e., an actual operation over
+	 * matrices with known output size, or a full aggregate. We do not hoist other scalar
+	 * operations because these are cheap and potentially used in size expressions,
+	 * which would prevent size propagation.
+	 * 
+	 * @param hop
+	 * @return
+	 */
+	private static boolean isHoistCandidate( Hop hop )
+	{
+		if( hop instanceof DataOp || hop instanceof LiteralOp )
+			return false;
+
+		return (hop.getDataType() == DataType.MATRIX && hop.dimsKnown())
+			|| (hop instanceof AggUnaryOp && ((AggUnaryOp)hop).getDirection()==Direction.RowCol
+				&& hop.getInput().get(0).getDataType() == DataType.MATRIX);
+	}
+
+	/**
+	 * 
+	 * @param hop
+	 * @param updated
+	 * @param memo
+	 * @return
+	 */
+	private static boolean isLoopInvariant( Hop hop, HashSet<String> updated, HashMap<Long, Boolean> memo )
+	{
+		if( memo.containsKey(hop.getHopID()) )
+			return memo.get(hop.getHopID());
+
+		boolean ret = false;
+		if( hop instanceof LiteralOp )
+			ret = true;
+		else if( hop instanceof DataOp )
+			ret = ((DataOp)hop).getDataOpType() == DataOpTypes.TRANSIENTREAD
+				&& !updated.contains(hop.getName());
+		else if( hop instanceof DataGenOp || hop instanceof FunctionOp || hasSideEffects(hop) )
+			ret = false;
+		else {
+			ret = true;
+			for( Hop c : hop.getInput() )
+				ret &= isLoopInvariant(c, updated, memo);
+		}
+
+		memo.put(hop.getHopID(), ret);
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param hop
+	 * @return
+	 */
+	private static boolean hasSideEffects( Hop hop )
+	{
+		return (hop instanceof UnaryOp && (((UnaryOp)hop).getOp()==OpOp1.PRINT || ((UnaryOp)hop).getOp()==OpOp1.STOP))
+			|| (hop instanceof BinaryOp && ((BinaryOp)hop).getOp()==OpOp2.PRINT);
+	}
+
+	/**
+	 * 
+	 * @param hop
+	 * @return
+	 */
+	private static double getOutputSize( Hop hop )
+	{
+		if( hop.getDataType() != DataType.MATRIX )
+			return 0;
+
+		double sp = (hop.getNnz() >= 0) ?
+			OptimizerUtils.getSparsity(hop.getDim1(), hop.getDim2(), hop.getNnz()) : 1.0;
+		return OptimizerUtils.estimateSizeExactSparsity(hop.getDim1(), hop.getDim2(), sp);
+	}
+
+	/**
+	 * 
+	 * @param hop
+	 * @param hops
+	 */
+	private static void rCollectSubDag( Hop hop, HashSet<Hop> hops )
+	{
+		if( hops.contains(hop) )
+			return;
+
+		hops.add(hop);
+		for( Hop c : hop.getInput() )
+			rCollectSubDag(c, hops);
+	}
+}
@@ -18,16 +18,22 @@
 package com.ibm.bi.dml.hops.rewrite;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 
 import com.ibm.bi.dml.hops.DataOp;
 import com.ibm.bi.dml.hops.Hop;
 import com.ibm.bi.dml.hops.HopsException;
+import com.ibm.bi.dml.hops.LiteralOp;
 import com.ibm.bi.dml.hops.Hop.DataOpTypes;
 import com.ibm.bi.dml.hops.OptimizerUtils;
 import com.ibm.bi.dml.parser.DataIdentifier;
+import com.ibm.bi.dml.parser.ForStatement;
 import com.ibm.bi.dml.parser.ForStatementBlock;
+import com.ibm.bi.dml.parser.IfStatement;
+import com.ibm.bi.dml.parser.IfStatementBlock;
 import com.ibm.bi.dml.parser.StatementBlock;
 import com.ibm.bi.dml.parser.VariableSet;
+import com.ibm.bi.dml.parser.WhileStatement;
 import com.ibm.bi.dml.parser.WhileStatementBlock;
 import com.ibm.bi.dml.parser.Expression.DataType;
 import com.ibm.bi.dml.parser.Expression.ValueType;
@@ -63,8 +69,8 @@ public class RewriteInjectSparkLoopCheckpointing extends StatementBlockRewriteRu
 		
 		//1) We currently add checkpoint operations without information about the global program structure,
 		//this assumes that redundant checkpointing is prevented at runtime level (instruction-level)
-		//2) Also, we do not take size information into account right now. This means that all candidates
-		//are checkpointed even if they are only used by CP operations.
+		//2) Size information and the estimated number of reads (known for-loop iterations) are taken 
+		//into account by the cost-based selection of storage levels during lop construction (see Hop).
 		
 		int blocksize = status.getBlocksize(); //block size set by reblock rewrite
 		
@@ -91,12 +97,15 @@ public class RewriteInjectSparkLoopCheckpointing extends StatementBlockRewriteRu
 				ArrayList<Hop> hops = new ArrayList<Hop>();
 				VariableSet livein = new VariableSet();
 				VariableSet liveout = new VariableSet();
+				int numIter = estimateNumIterations(sb);
 				for( String var : candidates ) 
 				{
 					DataIdentifier dat = read.getVariable(var);
 					DataOp tread = new DataOp(var, DataType.MATRIX, ValueType.DOUBLE, DataOpTypes.TRANSIENTREAD, 
 							            dat.getFilename(), dat.getDim1(), dat.getDim2(), dat.getNnz(), blocksize, blocksize);
 					tread.setRequiresCheckpoint( true );
+					if( numIter >= 0 ) //known number of iterations
+						tread.setCheckpointReuse( numIter * countReadsPerIteration(sb, var) );
 					DataOp twrite = new DataOp(var, DataType.MATRIX, ValueType.DOUBLE, tread, DataOpTypes.TRANSIENTWRITE, null);
 					HopRewriteUtils.setOutputParameters(twrite, dat.getDim1(), dat.getDim2(), blocksize, blocksize, dat.getNnz());					
 					hops.add(twrite);
@@ -115,4 +124,126 @@ public class RewriteInjectSparkLoopCheckpointing extends StatementBlockRewriteRu
 		
 		return ret;
 	}
+	
+	/**
+	 * Estimates the number of iterations of for loops with literal from, to, and 
+	 * increment expressions. Returns -1 for while loops or unknown predicates.
+	 * 
+	 * @param sb
+	 * @return
+	 */
+	private static int estimateNumIterations( StatementBlock sb )
+	{
+		if( !(sb instanceof ForStatementBlock) )
+			return -1;
+		
+		ForStatementBlock fsb = (ForStatementBlock) sb;
+		Hop from = fsb.getFromHops();
+		Hop to = fsb.getToHops();
+		Hop incr = fsb.getIncrementHops();
+		if( from instanceof LiteralOp && to instanceof LiteralOp 
+			&& (incr == null || incr instanceof LiteralOp) )
+		{
+			double dfrom = HopRewriteUtils.getDoubleValueSafe((LiteralOp)from);
+			double dto = HopRewriteUtils.getDoubleValueSafe((LiteralOp)to);
+			double dincr = (incr != null) ? HopRewriteUtils.getDoubleValueSafe((LiteralOp)incr) : 
+				((dfrom > dto) ? -1 : 1);
+			if( dincr != 0 )
+				return (int) Math.max(Math.floor((dto-dfrom)/dincr) + 1, 0);
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Counts the number of transient reads of the given variable in a single iteration
+	 * of the given for loop, i.e., in its body but without the lower bound of nested loops
+	 * (see rCountReads) for the loop itself. Returns at least 1 because the variable 
+	 * might also be read in ways not covered by the hop dags (e.g., predicates).
+	 * 
+	 * @param sb
+	 * @param var
+	 * @return
+	 */
+	private static int countReadsPerIteration( StatementBlock sb, String var )
+	{
+		int count = 0;
+		ForStatement fstmt = (ForStatement)sb.getStatement(0); //incl parfor
+		for( StatementBlock csb : fstmt.getBody() )
+			count += rCountReads(csb, var);
+		
+		return Math.max(count, 1);
+	}
+	
+	/**
+	 * Counts the number of transient reads of the given variable in a single 
+	 * iteration of the given loop. Reads within nested loops are counted at least 
+	 * twice because they are potentially executed multiple times.
+	 * 
+	 * @param sb
+	 * @param var
+	 * @return
+	 */
+	private static int rCountReads( StatementBlock sb, String var )
+	{
+		int count = 0;
+		
+		if( sb instanceof WhileStatementBlock ) {
+			WhileStatementBlock wsb = (WhileStatementBlock) sb;
+			WhileStatement wstmt = (WhileStatement)wsb.getStatement(0);
+			count += countReads(wsb.getPredicateHops(), var, new HashSet<Long>());
+			for( StatementBlock csb : wstmt.getBody() )
+				count += rCountReads(csb, var);
+		}
+		else if( sb instanceof ForStatementBlock ) { //incl parfor
+			ForStatementBlock fsb = (ForStatementBlock) sb;
+			ForStatement fstmt = (ForStatement)fsb.getStatement(0);
+			for( StatementBlock csb : fstmt.getBody() )
+				count += rCountReads(csb, var);
+		}
+		else if( sb instanceof IfStatementBlock ) {
+			IfStatementBlock isb = (IfStatementBlock) sb;
+			IfStatement istmt = (IfStatement)isb.getStatement(0);
+			count += countReads(isb.getPredicateHops(), var, new HashSet<Long>());
+			for( StatementBlock csb : istmt.getIfBody() )
+				count += rCountReads(csb, var);
+			for( StatementBlock csb : istmt.getElseBody() )
+				count += rCountReads(csb, var);
+		}
+		else if( sb.get_hops() != null ) { //generic (last-level)
+			HashSet<Long> memo = new HashSet<Long>();
+			for( Hop root : sb.get_hops() )
+				count += countReads(root, var, memo);
+		}
+		
+		//nested loops potentially read the variable multiple times
+		if( count > 0 && (sb instanceof WhileStatementBlock || sb instanceof ForStatementBlock) )
+			count = Math.max(count, 2);
+		
+		return count;
+	}
+	
+	/**
+	 * 
+	 * @param hop
+	 * @param var
+	 * @param memo
+	 * @return
+	 */
+	private static int countReads( Hop hop, String var, HashSet<Long> memo )
+	{
+		if( hop == null || memo.contains(hop.getHopID()) )
+			return 0;
+		
+		int count = 0;
+		if( hop instanceof DataOp && ((DataOp)hop).getDataOpType()==DataOpTypes.TRANSIENTREAD 
+			&& var.equals(hop.getName()) ) {
+			count++;
+		}
+		for( Hop c : hop.getInput() )
+			count += countReads(c, var, memo);
+		
+		memo.add(hop.getHopID());
+		return count;
+	}
 }
@@ -26,14 +26,23 @@ import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
 import com.ibm.bi.dml.hops.AggBinaryOp;
+import com.ibm.bi.dml.hops.DataOp;
 import com.ibm.bi.dml.hops.Hop;
 import com.ibm.bi.dml.hops.HopsException;
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
 import com.ibm.bi.dml.utils.Explain;
 
 /**
  * Rule: Determine the optimal order of execution for a chain of
  * matrix multiplications Solution: Classic Dynamic Programming
- * Approach Currently, the approach based only on matrix dimensions
+ * Approach based on matrix dimensions, which is extended by sparsity
+ * estimates if at least one input of the chain is known to be sparse
+ * (e.g., P %*% X %*% V with ultra-sparse selection matrix P), in order
+ * to account for sparse matrix multiplication kernels and prevent dense
+ * intermediates. Since this rewrite is applied during dynamic
+ * recompilation as well, chains with unknown nnz are marked for 
+ * recompilation and reordered once the exact nnz become known.
  * Goal: To reduce the number of computations in the run-time
  * (map-reduce) layer
  */
@@ -206,9 +215,12 @@ public class RewriteMatrixMultChainOptimization extends HopRewriteRule
 				
 				// Step 4: Find the optimal ordering via dynamic programming.
 				
-				// Invoke Dynamic Programming
+				// Invoke Dynamic Programming (sparsity-aware if any sparse input)
 				int size = mmChain.size();
-				int[][] split = mmChainDP(dimsArray, mmChain.size());
+				double[] sparsityArray = getSparsityArray( hop, mmChain );
+				int[][] split = (sparsityArray != null) ?
+						mmChainDPSparse(dimsArray, sparsityArray, mmChain.size()) :
+						mmChainDP(dimsArray, mmChain.size());
 				
 				 // Step 5: Relink the hops using the optimal ordering (split[][]) found from DP.
 				LOG.trace("Optimal MM Chain: ");
@@ -262,6 +274,88 @@ public class RewriteMatrixMultChainOptimization extends HopRewriteRule
 
 		return split;
 	}
+	
+	/**
+	 * mmChainDPSparse(): Sparsity-aware variant of the dynamic programming approach, 
+	 * where the costs of a matrix multiplication reflect the sparse kernels of 
+	 * LibMatrixMult and the size of the (sparse or dense) intermediate. The sparsity
+	 * of intermediates is estimated with the average-case estimator for matrix 
+	 * multiplications, given the sparsity of the chosen subchains. 
+	 * 
+	 * @param dimArray
+	 * @param spArray
+	 * @param size
+	 * @return
+	 */
+	private int[][] mmChainDPSparse(double[] dimArray, double[] spArray, int size) 
+	{
+		double[][] dpMatrix = new double[size][size]; //min cost table
+		double[][] spMatrix = new double[size][size]; //sparsity of intermediates
+		int[][] split = new int[size][size]; //min cost index table
+
+		//init minimum costs for chains of length 1
+		for (int i = 0; i < size; i++) {
+			Arrays.fill(dpMatrix[i], 0);
+			Arrays.fill(split[i], -1);
+			spMatrix[i][i] = spArray[i];
+		}
+
+		//compute cost-optimal chains for increasing chain sizes 
+		for (int l = 2; l <= size; l++) { // chain length
+			for (int i = 0; i < size - l + 1; i++) {
+				int j = i + l - 1;
+				// find cost of (i,j)
+				dpMatrix[i][j] = Double.MAX_VALUE;
+				for (int k = i; k <= j - 1; k++) 
+				{
+					//sparsity of output (avg-case estimate)
+					double sp = OptimizerUtils.getMatMultSparsity(spMatrix[i][k], spMatrix[k+1][j], 
+							(long)dimArray[i], (long)dimArray[k+1], (long)dimArray[j+1], false);
+					
+					//recursive cost computation
+					double cost = dpMatrix[i][k] + dpMatrix[k + 1][j] + getMatMultCost(dimArray[i], 
+							dimArray[k + 1], dimArray[j + 1], spMatrix[i][k], spMatrix[k+1][j], sp);
+					
+					//prune suboptimal
+					if (cost < dpMatrix[i][j]) {
+						dpMatrix[i][j] = cost;
+						spMatrix[i][j] = sp;
+						split[i][j] = k;
+					}
+				}
+
+				if( LOG.isTraceEnabled() ){
+					LOG.trace("mmchainopt [i="+(i+1)+",j="+(j+1)+"]: costs = "+dpMatrix[i][j]+", sparsity = "+spMatrix[i][j]+", split = "+(split[i][j]+1));
+				}
+			}
+		}
+
+		return split;
+	}
+	
+	/**
+	 * Estimates the costs of a matrix multiplication (m x k) %*% (k x n) as number of 
+	 * multiply-adds of the respective kernels in LibMatrixMult (sparse-dense: nnz(A)*n, 
+	 * dense-sparse: m*nnz(B), sparse-sparse: nnz(A)*nnz(B)/k) plus the size of the output.
+	 * Inputs and outputs above the sparsity turn point are considered dense.
+	 * 
+	 * @param m
+	 * @param k
+	 * @param n
+	 * @param sp1
+	 * @param sp2
+	 * @param sp3
+	 * @return
+	 */
+	private static double getMatMultCost( double m, double k, double n, double sp1, double sp2, double sp3 )
+	{
+		double lsp1 = (sp1 < MatrixBlock.SPARSITY_TURN_POINT) ? sp1 : 1;
+		double lsp2 = (sp2 < MatrixBlock.SPARSITY_TURN_POINT) ? sp2 : 1;
+		double lsp3 = (sp3 < MatrixBlock.SPARSITY_TURN_POINT) ? sp3 : 1;
+		
+		return m * k * n * lsp1 * lsp2   //compute
+			+ m * n * lsp3;              //output
+	}
 
 	/**
 	 * mmChainRelinkHops(): This method gets invoked after finding the optimal
@@ -393,6 +487,42 @@ public class RewriteMatrixMultChainOptimization extends HopRewriteRule
 	}
 
 	
+	/**
+	 * Obtains the sparsity of all inputs of the chain, or null if the sparsity-aware
+	 * optimization is disabled or no input is known to be sparse (in which case the 
+	 * classic dimension-based ordering applies). Chains with leaf inputs (reads) of 
+	 * unknown nnz are marked for recompilation in order to reorder them once the exact 
+	 * nnz become known, whereas intermediates with unknown nnz do not trigger recompile.
+	 * 
+	 * @param hop
+	 * @param chain
+	 * @return
+	 */
+	private double[] getSparsityArray( Hop hop, ArrayList<Hop> chain )
+	{
+		if( !OptimizerUtils.ALLOW_SPARSITY_AWARE_MMCHAIN_OPT )
+			return null;
+		
+		double[] ret = new double[chain.size()];
+		boolean sparse = false;
+		boolean dimsKnown = true;
+		boolean nnzUnknown = false;
+		for( int i=0; i<chain.size(); i++ ) {
+			Hop h = chain.get(i);
+			ret[i] = OptimizerUtils.getSparsity(h.getDim1(), h.getDim2(), h.getNnz());
+			sparse |= (ret[i] < MatrixBlock.SPARSITY_TURN_POINT);
+			dimsKnown &= h.dimsKnown();
+			nnzUnknown |= (h instanceof DataOp && h.getNnz() < 0);
+		}
+		
+		//recompile only if the ordering might change with exact nnz, i.e., dims known 
+		//(otherwise no chain optimization) and read inputs with unknown nnz could be sparse
+		if( dimsKnown && nnzUnknown && OptimizerUtils.ALLOW_DYN_RECOMPILATION )
+			hop.setRequiresRecompile();
+		
+		return sparse ? ret : null;
+	}
+	
 	/**
 	 * 
 	 * @param p
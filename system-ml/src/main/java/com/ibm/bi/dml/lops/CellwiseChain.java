@@ -0,0 +1,244 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.lops;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import com.ibm.bi.dml.hops.AggBinaryOp.SparkAggType;
+import com.ibm.bi.dml.hops.HopsException;
+import com.ibm.bi.dml.lops.LopProperties.ExecLocation;
+import com.ibm.bi.dml.lops.LopProperties.ExecType;
+import com.ibm.bi.dml.lops.compile.JobType;
+import com.ibm.bi.dml.parser.Expression.DataType;
+import com.ibm.bi.dml.parser.Expression.ValueType;
+
+
+/**
+ * Lop to perform a fused chain of block-local spark operations, i.e., a sequence of
+ * cell-wise matrix-scalar and unary builtin operations, optionally followed by a unary
+ * aggregate. The entire chain is evaluated cell-wise in a single pass over the input
+ * blocks, without materializing intermediate blocks. Chains are identified on lop level
+ * by the lop compiler (see Dag) and replace the individual unary and partial aggregate lops.
+ * 
+ */
+public class CellwiseChain extends Lop
+{
+
+	public static final String OPCODE = "cellchain";
+	public static final String NO_AGG = "none";
+
+	//stage types (unary builtin, scalar-matrix, matrix-scalar)
+	public static final String STAGE_UNARY = "U";
+	public static final String STAGE_LEFT  = "L";
+	public static final String STAGE_RIGHT = "R";
+
+	//supported cell-wise operations
+	private static final HashSet<String> UNARY_OPCODES = new HashSet<String>(Arrays.asList(
+		"abs", "sin", "cos", "tan", "asin", "acos", "atan", "sqrt", "exp", "log", "log_nz",
+		"round", "ceil", "floor", "sprop", "sigmoid", "sel+" ));
+	private static final HashSet<String> SCALAR_OPCODES = new HashSet<String>(Arrays.asList(
+		"+", "-", "*", "/", "%%", "%/%", "^", "^2", "*2", "1-*", "max", "min", "log",
+		">", ">=", "<", "<=", "==", "!=" ));
+	private static final HashSet<String> AGG_OPCODES = new HashSet<String>(Arrays.asList(
+		"uak+", "uark+", "uack+", "uasqk+", "uarsqk+", "uacsqk+", "uamean", "uarmean", "uacmean",
+		"uamax", "uarmax", "uacmax", "uamin", "uarmin", "uacmin" ));
+
+	//fused operations (in execution order)
+	private ArrayList<Unary> _stages = null;
+	private PartialAggregate _agg = null;
+
+	/**
+	 * Constructor to setup a fused cell-wise chain. The first input is the matrix input
+	 * of the first stage, followed by the scalar inputs of all stages in execution order.
+	 * 
+	 * @param input
+	 * @param stages
+	 * @param agg
+	 * @param dt
+	 * @param vt
+	 * @throws LopsException
+	 */
+	public CellwiseChain(Lop input, ArrayList<Unary> stages, PartialAggregate agg, DataType dt, ValueType vt)
+		throws LopsException
+	{
+		super(Lop.Type.CellwiseChain, dt, vt);
+
+		_stages = stages;
+		_agg = agg;
+
+		//setup inputs (matrix input, scalar inputs of all stages)
+		addInput(input);
+		input.addOutput(this);
+		for( Unary stage : stages ) {
+			for( Lop in : stage.getInputs() )
+				if( in.getDataType() == DataType.SCALAR ) {
+					addInput(in);
+					in.addOutput(this);
+				}
+		}
+
+		//setup output dimensions according to last fused operation
+		Lop last = (agg != null) ? agg : stages.get(stages.size()-1);
+		OutputParameters oparams = last.getOutputParameters();
+		try {
+			outParams.setDimensions(oparams.getNumRows(), oparams.getNumCols(),
+					oparams.getRowsInBlock(), oparams.getColsInBlock(), oparams.getNnz());
+		}
+		catch(HopsException ex) {
+			throw new LopsException(last.printErrorLocation() + "Failed to setup output dimensions of cellwise chain.", ex);
+		}
+		setAllPositions(last.getBeginLine(), last.getBeginColumn(), last.getEndLine(), last.getEndColumn());
+
+		//setup spark parameters
+		boolean breaksAlignment = false;
+		boolean aligner = false;
+		boolean definesMRJob = false;
+		lps.addCompatibility(JobType.INVALID);
+		lps.setProperties(inputs, ExecType.SPARK, ExecLocation.ControlProgram, breaksAlignment, aligner, definesMRJob);
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public ArrayList<Unary> getStages() {
+		return _stages;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public PartialAggregate getAggregate() {
+		return _agg;
+	}
+
+	/**
+	 * Indicates if the given lop is a block-local spark operation that can be
+	 * evaluated cell-wise as a stage of a fused chain.
+	 * 
+	 * @param lop
+	 * @return
+	 * @throws LopsException
+	 */
+	public static boolean isFusableStage( Lop lop )
+		throws LopsException
+	{
+		if( !(lop instanceof Unary) || lop.getExecType() != ExecType.SPARK
+			|| lop.getDataType() != DataType.MATRIX )
+			return false;
+
+		Unary ulop = (Unary) lop;
+		if( ulop.getInputs().size() == 1 )
+			return UNARY_OPCODES.contains(ulop.getOpcode());
+		else if( ulop.getInputs().size() == 2 )
+			return SCALAR_OPCODES.contains(ulop.getOpcode())
+				&& (ulop.getInputs().get(0).getDataType() == DataType.SCALAR
+				   || ulop.getInputs().get(1).getDataType() == DataType.SCALAR);
+
+		return false;
+	}
+
+	/**
+	 * Indicates if the given lop is a spark unary aggregate that can be fused
+	 * as the last operation of a chain.
+	 * 
+	 * @param lop
+	 * @return
+	 */
+	public static boolean isFusableAggregate( Lop lop )
+	{
+		return lop instanceof PartialAggregate
+			&& lop.getExecType() == ExecType.SPARK
+			&& AGG_OPCODES.contains(((PartialAggregate)lop).getOpcode());
+	}
+
+	/**
+	 * Returns the matrix input of a fusable lop.
+	 * 
+	 * @param lop
+	 * @return
+	 */
+	public static Lop getMatrixInput( Lop lop )
+	{
+		for( Lop in : lop.getInputs() )
+			if( in.getDataType() == DataType.MATRIX )
+				return in;
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return "Operation = CellwiseChain";
+	}
+
+	/**
+	 * Instruction generation for spark, where the labels of the matrix and scalar
+	 * inputs are obtained from the input lops (arbitrary number of scalar inputs).
+	 * 
+	 */
+	@Override
+	public String getInstructions(String output)
+		throws LopsException
+	{
+		StringBuilder sb = new StringBuilder();
+
+		//exec type
+		sb.append(getExecType());
+		sb.append(Lop.OPERAND_DELIMITOR);
+
+		//inst op code
+		sb.append(OPCODE);
+		sb.append(Lop.OPERAND_DELIMITOR);
+
+		//inputs and outputs
+		Lop input = getInputs().get(0);
+		sb.append( input.prepInputOperand(input.getOutputParameters().getLabel()) );
+		sb.append(Lop.OPERAND_DELIMITOR);
+		sb.append( prepOutputOperand(output) );
+		sb.append(Lop.OPERAND_DELIMITOR);
+
+		//cell-wise stages (opcode, type, optional scalar operand)
+		sb.append( _stages.size() );
+		for( Unary stage : _stages ) {
+			sb.append(Lop.OPERAND_DELIMITOR);
+			sb.append(stage.getOpcode());
+			sb.append(Lop.OPERAND_DELIMITOR);
+			if( stage.getInputs().size() == 1 ) {
+				sb.append(STAGE_UNARY);
+			}
+			else {
+				boolean left = (stage.getInputs().get(0).getDataType() == DataType.SCALAR);
+				Lop scalar = stage.getInputs().get(left ? 0 : 1);
+				sb.append(left ? STAGE_LEFT : STAGE_RIGHT);
+				sb.append(Lop.OPERAND_DELIMITOR);
+				sb.append(scalar.prepScalarInputOperand(getExecType()));
+			}
+		}
+		sb.append(Lop.OPERAND_DELIMITOR);
+
+		//optional unary aggregate
+		sb.append( (_agg != null) ? _agg.getOpcode() : NO_AGG );
+		sb.append(Lop.OPERAND_DELIMITOR);
+		sb.append( (_agg != null) ? _agg.getAggType() : SparkAggType.NONE );
+
+		return sb.toString();
+	}
+}
@@ -42,6 +42,8 @@ public class Checkpoint extends Lop
 	
 	public static final StorageLevel DEFAULT_STORAGE_LEVEL = StorageLevel.MEMORY_AND_DISK();
 	public static final StorageLevel SER_STORAGE_LEVEL = StorageLevel.MEMORY_AND_DISK_SER();
+	public static final StorageLevel MEM_STORAGE_LEVEL = StorageLevel.MEMORY_ONLY();
+	public static final StorageLevel MEM_SER_STORAGE_LEVEL = StorageLevel.MEMORY_ONLY_SER();
 	public static final String STORAGE_LEVEL = "storage.level"; 
 
 	private StorageLevel _storageLevel;
@@ -164,4 +166,20 @@ public class Checkpoint extends Lop
 	public static String getSerializeStorageLevelString() {
 		return getStorageLevelString( SER_STORAGE_LEVEL );
 	}
+	
+	/**
+	 * 
+	 * @return
+	 */
+	public static String getMemoryStorageLevelString() {
+		return getStorageLevelString( MEM_STORAGE_LEVEL );
+	}
+	
+	/**
+	 * 
+	 * @return
+	 */
+	public static String getSerializeMemoryStorageLevelString() {
+		return getStorageLevelString( MEM_SER_STORAGE_LEVEL );
+	}
 }
\ No newline at end of file
@@ -56,6 +56,8 @@ public abstract class Lop
 		WeightedSquaredLoss, WeightedSigmoid, WeightedDivMM, WeightedCeMM,
 		SortKeys, PickValues,
 		Checkpoint, 										//Spark persist into storage level
+		CellwiseChain,                                      //Spark fused cell-wise operations
+		SpoofFused,                                         //CP fused operators with generated code
 	};
 
 	/**
@@ -250,9 +250,13 @@ public class PartialAggregate extends Lop
 		return "Partial Aggregate " + operation;
 	}
 	
-	private String getOpcode() {
+	String getOpcode() {
 		return getOpcode(operation, direction);
 	}
+	
+	public SparkAggType getAggType() {
+		return _aggtype;
+	}
 
 	/**
 	 * Instruction generation for for CP and Spark
@@ -0,0 +1,108 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.lops;
+
+import java.util.ArrayList;
+
+import com.ibm.bi.dml.lops.LopProperties.ExecLocation;
+import com.ibm.bi.dml.lops.LopProperties.ExecType;
+import com.ibm.bi.dml.lops.compile.JobType;
+import com.ibm.bi.dml.parser.Expression.DataType;
+import com.ibm.bi.dml.parser.Expression.ValueType;
+
+
+/**
+ * Lop of a fused operator with generated operator class (see SpoofFusedOp), 
+ * which takes an arbitrary number of matrix and scalar inputs.
+ * 
+ */
+public class SpoofFused extends Lop
+{
+
+	public static final String OPCODE = "spoof";
+
+	private Class<?> _class = null;
+	private int _numThreads = 1;
+
+	public SpoofFused( ArrayList<Lop> inputs, DataType dt, ValueType vt, Class<?> cla, ExecType etype )
+		throws LopsException
+	{
+		super(Lop.Type.SpoofFused, dt, vt);
+		_class = cla;
+
+		for( Lop lop : inputs ) {
+			addInput(lop);
+			lop.addOutput(this);
+		}
+
+		//setup cp parameters
+		boolean breaksAlignment = false;
+		boolean aligner = false;
+		boolean definesMRJob = false;
+		lps.addCompatibility(JobType.INVALID);
+		lps.setProperties(this.inputs, etype, ExecLocation.ControlProgram, breaksAlignment, aligner, definesMRJob);
+	}
+
+	/**
+	 * 
+	 * @param k
+	 */
+	public void setNumThreads(int k) {
+		_numThreads = k;
+	}
+
+	@Override
+	public String toString() {
+		return "spoof(" + _class.getSimpleName() + ")";
+	}
+
+	/**
+	 * Instruction generation for fused operators, where the labels of all inputs are
+	 * obtained from the input lops (arbitrary number of inputs).
+	 * 
+	 */
+	@Override
+	public String getInstructions(String output)
+		throws LopsException
+	{
+		StringBuilder sb = new StringBuilder();
+
+		//exec type
+		sb.append(getExecType());
+		sb.append(Lop.OPERAND_DELIMITOR);
+
+		//inst op code and generated class
+		sb.append(OPCODE);
+		sb.append(Lop.OPERAND_DELIMITOR);
+		sb.append(_class.getName());
+
+		//matrix and scalar inputs
+		for( Lop input : getInputs() ) {
+			sb.append(Lop.OPERAND_DELIMITOR);
+			sb.append( input.prepInputOperand(input.getOutputParameters().getLabel()) );
+		}
+
+		//output and degree of parallelism
+		sb.append(Lop.OPERAND_DELIMITOR);
+		sb.append( prepOutputOperand(output) );
+		sb.append(Lop.OPERAND_DELIMITOR);
+		sb.append( _numThreads );
+
+		return sb.toString();
+	}
+}
@@ -160,7 +160,7 @@ public class Unary extends Lop
 			return "Operation: " + operation + " " + "Label: N/A";
 	}
 
-	private String getOpcode() throws LopsException {
+	String getOpcode() throws LopsException {
 		switch (operation) {
 		case NOT:
 			return "!";
@@ -41,9 +41,11 @@ import com.ibm.bi.dml.hops.HopsException;
 import com.ibm.bi.dml.hops.OptimizerUtils;
 import com.ibm.bi.dml.lops.AppendM;
 import com.ibm.bi.dml.lops.BinaryM;
+import com.ibm.bi.dml.lops.CellwiseChain;
 import com.ibm.bi.dml.lops.CombineBinary;
 import com.ibm.bi.dml.lops.Data;
 import com.ibm.bi.dml.lops.PMMJ;
+import com.ibm.bi.dml.lops.PartialAggregate;
 import com.ibm.bi.dml.lops.ParameterizedBuiltin;
 import com.ibm.bi.dml.lops.SortKeys;
 import com.ibm.bi.dml.lops.Data.OperationTypes;
@@ -71,8 +73,10 @@ import com.ibm.bi.dml.runtime.instructions.CPInstructionParser;
 import com.ibm.bi.dml.runtime.instructions.Instruction;
 import com.ibm.bi.dml.runtime.instructions.Instruction.INSTRUCTION_TYPE;
 import com.ibm.bi.dml.runtime.instructions.InstructionParser;
+import com.ibm.bi.dml.runtime.instructions.InstructionUtils;
 import com.ibm.bi.dml.runtime.instructions.SPInstructionParser;
 import com.ibm.bi.dml.runtime.instructions.cp.CPInstruction;
+import com.ibm.bi.dml.runtime.instructions.cp.CPOperand;
 import com.ibm.bi.dml.runtime.instructions.cp.VariableCPInstruction;
 import com.ibm.bi.dml.runtime.instructions.cp.CPInstruction.CPINSTRUCTION_TYPE;
 import com.ibm.bi.dml.runtime.instructions.MRJobInstruction;
@@ -240,6 +244,10 @@ public class Dag<N extends Lop>
 			scratch = config.getTextValue(DMLConfig.SCRATCH_SPACE) + "/";
 		}
 		
+		// fuse chains of block-local spark operations
+		if( OptimizerUtils.ALLOW_SPARK_CELLWISE_FUSION )
+			fuseSparkCellwiseChains();
+		
 		// hold all nodes in a vector (needed for ordering)
 		ArrayList<N> node_v = new ArrayList<N>();
 		node_v.addAll(nodes);
@@ -260,6 +268,70 @@ public class Dag<N extends Lop>
 
 	}
 
+	/**
+	 * Method to fuse chains of block-local spark operations (cell-wise matrix-scalar
+	 * and unary builtin operations, optionally followed by a unary aggregate) into
+	 * a single cellwise chain lop. Intermediates of a chain are fused only if they
+	 * have a single consumer, i.e., the next operation of the chain. 
+	 * 
+	 * @throws LopsException
+	 */
+	@SuppressWarnings("unchecked")
+	private void fuseSparkCellwiseChains() 
+		throws LopsException 
+	{
+		ArrayList<N> tmp = new ArrayList<N>(nodes);
+		for( N node : tmp ) 
+		{
+			//probe chain tails (aggregate or last fusable stage w/o fusable consumer)
+			boolean agg = CellwiseChain.isFusableAggregate(node);
+			if( !nodes.contains(node) || !(agg || CellwiseChain.isFusableStage(node)) )
+				continue;
+			if( !agg && node.getOutputs().size() == 1 
+				&& (CellwiseChain.isFusableStage(node.getOutputs().get(0)) 
+				   || CellwiseChain.isFusableAggregate(node.getOutputs().get(0))) )
+				continue;
+			
+			//collect stages of the chain (in execution order)
+			ArrayList<Unary> stages = new ArrayList<Unary>();
+			Lop current = agg ? node.getInputs().get(0) : node;
+			while( CellwiseChain.isFusableStage(current) && nodes.contains(current)
+				   && (current == node || current.getOutputs().size() == 1) ) 
+			{
+				stages.add(0, (Unary)current);
+				current = CellwiseChain.getMatrixInput(current);
+			}
+			if( stages.isEmpty() || (stages.size() == 1 && !agg) )
+				continue;
+			
+			//create fused lop
+			PartialAggregate aggLop = agg ? (PartialAggregate)node : null;
+			CellwiseChain fused = new CellwiseChain(current, stages, aggLop, node.getDataType(), node.getValueType());
+			ArrayList<Lop> fusedLops = new ArrayList<Lop>(stages);
+			if( agg )
+				fusedLops.add(aggLop);
+			
+			//rewire inputs and consumers
+			for( Lop lop : fusedLops )
+				for( Lop in : lop.getInputs() )
+					in.getOutputs().remove(lop);
+			for( Lop out : node.getOutputs() ) {
+				ArrayList<Lop> inputs = out.getInputs();
+				for( int i=0; i<inputs.size(); i++ )
+					if( inputs.get(i) == node )
+						inputs.set(i, fused);
+				fused.addOutput(out);
+			}
+			
+			//replace fused lops in dag
+			nodes.removeAll(fusedLops);
+			nodes.add((N)fused);
+			
+			if( LOG.isTraceEnabled() )
+				LOG.trace("Fused cellwise chain of "+fusedLops.size()+" spark operations into lop "+fused.getID());
+		}
+	}
+	
 	/**
 	 * Method to remove transient reads that do not have a transient write
 	 * 
@@ -1577,7 +1649,9 @@ public class Dag<N extends Lop>
 				// are handled separately, by simply passing ONLY the output variable to getInstructions()
 				if (node.getType() == Lop.Type.ParameterizedBuiltin
 						|| node.getType() == Lop.Type.GroupedAgg 
-						|| node.getType() == Lop.Type.DataGen ){ 
+						|| node.getType() == Lop.Type.DataGen 
+						|| node.getType() == Lop.Type.CellwiseChain 
+						|| node.getType() == Lop.Type.SpoofFused ){ 
 					inst_string = node.getInstructions(node.getOutputParameters().getLabel());
 				} 
 				
@@ -1668,7 +1742,7 @@ public class Dag<N extends Lop>
 				try {
 					if( LOG.isTraceEnabled() )
 						LOG.trace("Generating instruction - "+ inst_string);
-					Instruction currInstr = InstructionParser.parseSingleInstruction(inst_string);
+					Instruction currInstr = createSingleInstruction(node, inst_string);
 					if (node._beginLine != 0)
 						currInstr.setLocation(node);
 					else if ( !node.getOutputs().isEmpty() )
@@ -1771,6 +1845,59 @@ public class Dag<N extends Lop>
 		}
 
 	}
+	
+	/**
+	 * Creates the CP instruction of the given lop. For binary CP operations, the 
+	 * instruction object is created directly from the lop's inputs and output, which 
+	 * avoids the string round-trip of parsing the generated instruction string (still
+	 * kept for explain and remote execution). All other instructions are parsed.
+	 * 
+	 * @param node
+	 * @param inst_string
+	 * @return
+	 * @throws DMLUnsupportedOperationException
+	 * @throws DMLRuntimeException
+	 */
+	private static Instruction createSingleInstruction( Lop node, String inst_string ) 
+		throws DMLUnsupportedOperationException, DMLRuntimeException
+	{
+		Instruction ret = null;
+		
+		if( OptimizerUtils.ALLOW_DIRECT_INST_GENERATION
+			&& node.getExecType() == ExecType.CP && node.getInputs().size() == 2
+			&& (node.getType() == Lop.Type.Binary || node.getType() == Lop.Type.BinaryCP) )
+		{
+			CPOperand in1 = createInputOperand(node.getInputs().get(0));
+			CPOperand in2 = createInputOperand(node.getInputs().get(1));
+			CPOperand out = new CPOperand(node.getOutputParameters().getLabel(), 
+					node.getValueType(), node.getDataType());
+			String opcode = InstructionUtils.getOpCode(inst_string);
+			ret = CPInstructionParser.createBinaryInstruction(opcode, in1, in2, out, inst_string);
+		}
+		
+		//fallback: parse instruction string
+		if( ret == null )
+			ret = InstructionParser.parseSingleInstruction(inst_string);
+		
+		return ret;
+	}
+	
+	/**
+	 * Creates a CP operand equivalent to the parsed operand string of 
+	 * Lop.prepInputOperand or Lop.prepScalarInputOperand.
+	 * 
+	 * @param input
+	 * @return
+	 */
+	private static CPOperand createInputOperand( Lop input )
+	{
+		boolean literal = input.getDataType() != DataType.MATRIX
+			&& input.getExecLocation() == ExecLocation.Data 
+			&& ((Data)input).isLiteral();
+		
+		return new CPOperand(input.getOutputParameters().getLabel(), 
+				input.getValueType(), input.getDataType(), literal);
+	}
 
 	/**
 	 * Method to remove all child nodes of a queued node that should be executed
@@ -26,6 +26,7 @@ import org.apache.commons.logging.LogFactory;
 
 import com.ibm.bi.dml.api.DMLScript;
 import com.ibm.bi.dml.conf.DMLConfig;
+import com.ibm.bi.dml.hops.rewrite.RewriteHoistLoopInvariantOperations;
 import com.ibm.bi.dml.lops.LopProperties;
 import com.ibm.bi.dml.lops.Lop;
 import com.ibm.bi.dml.lops.LopsException;
@@ -268,6 +269,10 @@ public class DMLProgram
 				rtpb.addProgramBlock(childBlock);
 			}
 			
+			// remove hoisted loop-invariant intermediates on loop exit
+			for (Instruction inst : createHoistedVariableCleanupInstructions(wsb))
+				rtpb.addExitInstruction(inst);
+			
 			// check there are actually Lops in to process (loop stmt body will not have any)
 			if (wsb.getLops() != null && !wsb.getLops().isEmpty() ){
 				LOG.error(wsb.printBlockErrorLocation() + "WhileStatementBlock should have no Lops");
@@ -413,6 +418,10 @@ public class DMLProgram
 				ProgramBlock childBlock = createRuntimeProgramBlock(prog, sblock, config);
 				rtpb.addProgramBlock(childBlock); 
 			}
+			
+			// remove hoisted loop-invariant intermediates on loop exit
+			for (Instruction inst : createHoistedVariableCleanupInstructions(fsb))
+				rtpb.addExitInstruction(inst);
 		
 			// check there are actually Lops in to process (loop stmt body will not have any)
 			if (fsb.getLops() != null && !fsb.getLops().isEmpty()){
@@ -639,6 +648,31 @@ public class DMLProgram
 		return pb;
 	}
 	
+	/**
+	 * Creates RMVAR instructions for all artificial variables of operations that
+	 * have been hoisted out of the given loop (see RewriteHoistLoopInvariantOperations),
+	 * i.e., hoisted variables that are live-in but not live-out of the loop.
+	 * 
+	 * @param sb
+	 * @return
+	 * @throws DMLUnsupportedOperationException
+	 * @throws DMLRuntimeException
+	 */
+	private ArrayList<Instruction> createHoistedVariableCleanupInstructions(StatementBlock sb) 
+		throws DMLUnsupportedOperationException, DMLRuntimeException
+	{
+		ArrayList<Instruction> ret = new ArrayList<Instruction>();
+		for( String varName : sb.liveIn().getVariableNames() )
+			if( RewriteHoistLoopInvariantOperations.isHoistedVariable(varName) 
+				&& !sb.liveOut().containsVariable(varName) ) 
+			{
+				Instruction inst = createCleanupInstruction(varName);
+				inst.setLocation(sb.getEndLine(), sb.getEndLine(), -1, -1);
+				ret.add(inst);
+			}
+		return ret;
+	}
+	
 	private Instruction createCleanupInstruction(String varName) 
 		throws DMLUnsupportedOperationException, DMLRuntimeException
 	{
@@ -21,6 +21,11 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -64,6 +69,7 @@ import com.ibm.bi.dml.parser.Expression.ParameterizedBuiltinFunctionOp;
 import com.ibm.bi.dml.parser.Expression.ValueType;
 import com.ibm.bi.dml.parser.PrintStatement.PRINTTYPE;
 import com.ibm.bi.dml.runtime.DMLRuntimeException;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.stat.InfrastructureAnalyzer;
 
 
 public class DMLTranslator 
@@ -71,6 +77,9 @@ public class DMLTranslator
 	
 	public static int DMLBlockSize = 1000;
 	
+	//min number of function and top-level statement blocks for parallel compilation
+	private static final int PAR_COMPILE_MIN_BLOCKS = 16;
+	
 	private static final Log LOG = LogFactory.getLog(DMLTranslator.class.getName());
 	private DMLProgram _dmlProg = null;
 	
@@ -239,6 +248,18 @@ public class DMLTranslator
 	public void constructHops(DMLProgram dmlp) 
 		throws ParseException, LanguageException 
 	{
+		//parallel hop construction for large programs
+		if( isParallelCompilation(dmlp) ) {
+			Throwable err = constructParallel(dmlp, true);
+			if( err instanceof ParseException )
+				throw (ParseException) err;
+			else if( err instanceof LanguageException )
+				throw (LanguageException) err;
+			else if( err != null )
+				throw new LanguageException("Failed parallel hop construction.", err);
+			return;
+		}
+		
 		// Step 1: construct hops for all functions
 		// for each namespace, handle function program blocks
 		for (String namespaceKey : dmlp.getNamespaces().keySet()){		
@@ -292,6 +313,18 @@ public class DMLTranslator
 	
 	public void constructLops(DMLProgram dmlp) throws ParseException, LanguageException, HopsException, LopsException {
 
+		//parallel lop construction for large programs
+		if( isParallelCompilation(dmlp) ) {
+			Throwable err = constructParallel(dmlp, false);
+			if( err instanceof HopsException )
+				throw (HopsException) err;
+			else if( err instanceof LopsException )
+				throw (LopsException) err;
+			else if( err != null )
+				throw new LopsException("Failed parallel lop construction.", err);
+			return;
+		}
+		
 		// for each namespace, handle function program blocks handle function 
 		for (String namespaceKey : dmlp.getNamespaces().keySet()){
 			for (String fname: dmlp.getFunctionStatementBlocks(namespaceKey).keySet()) {
@@ -307,6 +340,73 @@ public class DMLTranslator
 		}
 	}
 	
+	/**
+	 * Indicates if hops and lops of the given program should be constructed in parallel,
+	 * which is only the case for programs with many function and top-level blocks.
+	 * 
+	 * @param dmlp
+	 * @return
+	 */
+	private static boolean isParallelCompilation( DMLProgram dmlp )
+	{
+		if( !OptimizerUtils.ALLOW_PARALLEL_COMPILATION 
+			|| InfrastructureAnalyzer.getLocalParallelism() <= 1 )
+			return false;
+		
+		int count = dmlp.getNumStatementBlocks();
+		for (String namespaceKey : dmlp.getNamespaces().keySet())
+			count += dmlp.getFunctionStatementBlocks(namespaceKey).size();
+		return (count >= PAR_COMPILE_MIN_BLOCKS);
+	}
+	
+	/**
+	 * Constructs hops or lops for all function and top-level statement blocks in parallel,
+	 * where each task processes an entire block (incl nested blocks). Errors are reported
+	 * in the order of blocks in order to match sequential compilation.
+	 * 
+	 * @param dmlp
+	 * @param hops true for hop construction, false for lop construction
+	 * @return the error of the first failed block, or null if all succeeded
+	 */
+	private Throwable constructParallel( DMLProgram dmlp, boolean hops )
+	{
+		//collect function and top-level blocks
+		ArrayList<StatementBlock> sbs = new ArrayList<StatementBlock>();
+		for (String namespaceKey : dmlp.getNamespaces().keySet())
+			for (String fname: dmlp.getFunctionStatementBlocks(namespaceKey).keySet())
+				sbs.add(dmlp.getFunctionStatementBlock(namespaceKey, fname));
+		for (int i = 0; i < dmlp.getNumStatementBlocks(); i++)
+			sbs.add(dmlp.getStatementBlock(i));
+		
+		int k = Math.min(InfrastructureAnalyzer.getLocalParallelism(), sbs.size());
+		ExecutorService pool = Executors.newFixedThreadPool( k );
+		try
+		{
+			ArrayList<ConstructTask> tasks = new ArrayList<ConstructTask>();
+			for( StatementBlock sb : sbs )
+				tasks.add(new ConstructTask(sb, hops));
+			
+			//wait for all tasks and obtain first error in block order
+			Throwable err = null;
+			for( Future<Object> f : pool.invokeAll(tasks) ) {
+				try {
+					f.get();
+				}
+				catch(ExecutionException ex) {
+					if( err == null )
+						err = ex.getCause();
+				}
+			}
+			return err;
+		}
+		catch(InterruptedException ex) {
+			return ex;
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+	
 	/**
 	 * 
 	 * @param sb
@@ -2811,4 +2911,29 @@ public class DMLTranslator
 		
 		return ret;
 	}
+	
+	/**
+	 * Task for parallel hop or lop construction of a single statement block.
+	 */
+	private class ConstructTask implements Callable<Object> 
+	{
+		private StatementBlock _sb = null;
+		private boolean _hops = false;
+		
+		protected ConstructTask( StatementBlock sb, boolean hops ) {
+			_sb = sb;
+			_hops = hops;
+		}
+		
+		@Override
+		public Object call() 
+			throws ParseException, LanguageException, HopsException, LopsException 
+		{
+			if( _hops )
+				constructHops(_sb);
+			else
+				constructLops(_sb);
+			return null;
+		}
+	}
 }
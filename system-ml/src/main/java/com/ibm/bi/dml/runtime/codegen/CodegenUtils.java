@@ -0,0 +1,303 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.runtime.codegen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.ibm.bi.dml.runtime.DMLRuntimeException;
+
+/**
+ * Utilities for the in-process compilation of generated operator classes via javax.tools.
+ * Both the generated sources and the compiled byte code are held in memory; all compiled
+ * classes are registered by name in order to allow the lookup of generated classes during
+ * instruction parsing (e.g., after recompilation). This registry is bounded (lru replacement),
+ * where evicted classes remain available to already created operator instances.
+ * 
+ * Note that generated classes are only available in the JVM that compiled them.
+ * 
+ */
+public class CodegenUtils
+{
+
+	private static final Log LOG = LogFactory.getLog(CodegenUtils.class.getName());
+
+	//max number of registered classes (lru replacement)
+	private static final int MAX_CACHED_CLASSES = 1024;
+
+	//registry of compiled classes by class name
+	private static LinkedHashMap<String, Class<?>> _classes = null;
+
+	//cached availability of the system java compiler (requires a JDK)
+	private static Boolean _compilerAvailable = null;
+
+	static
+	{
+		_classes = new LinkedHashMap<String, Class<?>>(16, 0.75f, true) {
+			private static final long serialVersionUID = -1482297542387931475L;
+			@Override
+			protected boolean removeEldestEntry(Entry<String, Class<?>> eldest) {
+				return size() > MAX_CACHED_CLASSES;
+			}
+		};
+	}
+
+	/**
+	 * Indicates if a system java compiler is available, which is a
+	 * precondition for runtime code generation.
+	 * 
+	 * @return
+	 */
+	public static synchronized boolean isCompilerAvailable()
+	{
+		if( _compilerAvailable == null )
+			_compilerAvailable = (ToolProvider.getSystemJavaCompiler() != null);
+		return _compilerAvailable;
+	}
+
+	/**
+	 * Compiles the given source of a generated class and loads the class, where the
+	 * class name is the fully qualified name of the class in the source.
+	 * 
+	 * @param name
+	 * @param src
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	public static synchronized Class<?> compileClass( String name, String src )
+		throws DMLRuntimeException
+	{
+		//check for already compiled class
+		if( _classes.containsKey(name) )
+			return _classes.get(name);
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if( compiler == null )
+			throw new DMLRuntimeException("Failed to compile generated class "+name+": no java compiler available.");
+
+		try
+		{
+			//setup in-memory file manager and compiler options
+			DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+			StandardJavaFileManager sfm = compiler.getStandardFileManager(diagnostics, null, null);
+			InMemoryFileManager fm = new InMemoryFileManager(sfm);
+			List<String> options = Arrays.asList("-classpath", getClassPath(), "-nowarn");
+
+			//compile generated source
+			JavaFileObject source = new InMemorySource(name, src);
+			Boolean success = compiler.getTask(null, fm, diagnostics,
+					options, null, Arrays.asList(source)).call();
+			fm.close();
+
+			if( !success ) {
+				StringBuilder sb = new StringBuilder();
+				for( Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics() )
+					sb.append("\n"+d.getMessage(null));
+				throw new DMLRuntimeException("Failed to compile generated class "+name+":"+sb.toString());
+			}
+
+			//load compiled class
+			ClassLoader loader = new InMemoryClassLoader(fm.getClassBytes(), SpoofOperator.class.getClassLoader());
+			Class<?> ret = loader.loadClass(name);
+			_classes.put(name, ret);
+
+			if( LOG.isTraceEnabled() )
+				LOG.trace("Compiled generated class "+name+":\n"+src);
+
+			return ret;
+		}
+		catch(DMLRuntimeException ex) {
+			throw ex;
+		}
+		catch(Exception ex) {
+			throw new DMLRuntimeException("Failed to compile generated class "+name+".", ex);
+		}
+	}
+
+	/**
+	 * Obtains a previously compiled class by its fully qualified name.
+	 * 
+	 * @param name
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	public static synchronized Class<?> getClass( String name )
+		throws DMLRuntimeException
+	{
+		Class<?> ret = _classes.get(name);
+		if( ret == null )
+			throw new DMLRuntimeException("Generated class "+name+" is not available in this JVM.");
+		return ret;
+	}
+
+	/**
+	 * Creates a new operator instance of a previously compiled class.
+	 * 
+	 * @param name
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	public static SpoofOperator createInstance( String name )
+		throws DMLRuntimeException
+	{
+		try {
+			return (SpoofOperator) getClass(name).newInstance();
+		}
+		catch(DMLRuntimeException ex) {
+			throw ex;
+		}
+		catch(Exception ex) {
+			throw new DMLRuntimeException("Failed to instantiate generated class "+name+".", ex);
+		}
+	}
+
+	/**
+	 * 
+	 */
+	public static synchronized void clearClassCache() {
+		_classes.clear();
+	}
+
+	/**
+	 * Obtains the class path for compiling generated classes, consisting of the
+	 * location of the runtime classes and the class path of the current JVM.
+	 * 
+	 * @return
+	 */
+	private static String getClassPath()
+	{
+		String cp = System.getProperty("java.class.path");
+		try {
+			String loc = new File(SpoofOperator.class.getProtectionDomain()
+					.getCodeSource().getLocation().toURI()).getPath();
+			cp = loc + File.pathSeparator + cp;
+		}
+		catch(Exception ex) {
+			//use plain class path if code source unavailable
+		}
+		return cp;
+	}
+
+	/**
+	 * Source file object of a generated class.
+	 */
+	private static class InMemorySource extends SimpleJavaFileObject
+	{
+		private String _src = null;
+
+		protected InMemorySource(String name, String src) {
+			super(URI.create("string:///"+name.replace('.', '/')+Kind.SOURCE.extension), Kind.SOURCE);
+			_src = src;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return _src;
+		}
+	}
+
+	/**
+	 * Class file object of a compiled class.
+	 */
+	private static class InMemoryClass extends SimpleJavaFileObject
+	{
+		private ByteArrayOutputStream _bytes = new ByteArrayOutputStream();
+
+		protected InMemoryClass(String name) {
+			super(URI.create("bytes:///"+name.replace('.', '/')+Kind.CLASS.extension), Kind.CLASS);
+		}
+
+		@Override
+		public OutputStream openOutputStream() {
+			return _bytes;
+		}
+
+		public byte[] getBytes() {
+			return _bytes.toByteArray();
+		}
+	}
+
+	/**
+	 * File manager that captures all compiled classes in memory.
+	 */
+	private static class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager>
+	{
+		private HashMap<String, InMemoryClass> _classes = new HashMap<String, InMemoryClass>();
+
+		protected InMemoryFileManager(StandardJavaFileManager fm) {
+			super(fm);
+		}
+
+		@Override
+		public JavaFileObject getJavaFileForOutput(Location location, String className, Kind kind, FileObject sibling) {
+			InMemoryClass ret = new InMemoryClass(className);
+			_classes.put(className, ret);
+			return ret;
+		}
+
+		public HashMap<String, byte[]> getClassBytes() {
+			HashMap<String, byte[]> ret = new HashMap<String, byte[]>();
+			for( Entry<String, InMemoryClass> e : _classes.entrySet() )
+				ret.put(e.getKey(), e.getValue().getBytes());
+			return ret;
+		}
+	}
+
+	/**
+	 * Class loader for compiled classes from memory, which delegates
+	 * all other classes to the given parent class loader.
+	 */
+	private static class InMemoryClassLoader extends ClassLoader
+	{
+		private HashMap<String, byte[]> _bytes = null;
+
+		protected InMemoryClassLoader(HashMap<String, byte[]> bytes, ClassLoader parent) {
+			super(parent);
+			_bytes = bytes;
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			byte[] b = _bytes.get(name);
+			if( b == null )
+				return super.findClass(name);
+			return defineClass(name, b, 0, b.length);
+		}
+	}
+}
@@ -0,0 +1,377 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.runtime.codegen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.ibm.bi.dml.runtime.DMLRuntimeException;
+import com.ibm.bi.dml.runtime.functionobjects.KahanPlus;
+import com.ibm.bi.dml.runtime.instructions.cp.DoubleObject;
+import com.ibm.bi.dml.runtime.instructions.cp.KahanObject;
+import com.ibm.bi.dml.runtime.instructions.cp.ScalarObject;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
+import com.ibm.bi.dml.runtime.matrix.data.SparseRow;
+import com.ibm.bi.dml.runtime.util.ThreadBudget;
+
+/**
+ * Base class of generated cell-wise operators, i.e., fused pipelines of cell-wise unary,
+ * binary and matrix-scalar operations over inputs of equal size, optionally followed by
+ * a full, row or column aggregate. Generated subclasses only implement the computation of
+ * a single cell (genexec), where 'a' is the value of the main input and all side inputs
+ * are accessed as dense arrays.
+ * 
+ * If the fused expression is sparse-safe with regard to the main input (i.e., evaluates to
+ * zero whenever the main input is zero), sparse main inputs are processed over non-zero
+ * values only.
+ * 
+ */
+public abstract class SpoofCellwise extends SpoofOperator
+{
+
+	//internal configuration
+	private static final long PAR_NUMCELL_THRESHOLD = 1024*1024; //min number of cells for multi-threading
+
+	public enum CellType {
+		NO_AGG,
+		FULL_AGG,
+		ROW_AGG,
+		COL_AGG,
+	}
+
+	public enum AggOp {
+		SUM,
+		SUM_SQ,
+		MIN,
+		MAX,
+	}
+
+	private final CellType _type;
+	private final AggOp _aggOp;
+	private final boolean _sparseSafe;
+
+	public SpoofCellwise(CellType type, AggOp aggOp, boolean sparseSafe) {
+		_type = type;
+		_aggOp = aggOp;
+		_sparseSafe = sparseSafe;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public CellType getCellType() {
+		return _type;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public AggOp getAggOp() {
+		return _aggOp;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public boolean isSparseSafe() {
+		return _sparseSafe;
+	}
+
+	/**
+	 * Generated computation of a single cell.
+	 * 
+	 * @param a value of the main input
+	 * @param b dense side inputs
+	 * @param scalars scalar inputs
+	 * @param n number of columns
+	 * @param rix row index
+	 * @param cix column index
+	 * @return
+	 */
+	protected abstract double genexec( double a, double[][] b, double[] scalars, int n, int rix, int cix );
+
+	@Override
+	public ScalarObject execute(ArrayList<MatrixBlock> inputs, ArrayList<ScalarObject> scalarObjects, int k)
+		throws DMLRuntimeException
+	{
+		if( _type != CellType.FULL_AGG )
+			throw new DMLRuntimeException("Invalid scalar execute for cell type "+_type+".");
+
+		MatrixBlock out = new MatrixBlock(1, 1, false);
+		execute(inputs, scalarObjects, out, k);
+
+		return new DoubleObject(out.quickGetValue(0, 0));
+	}
+
+	@Override
+	public void execute(ArrayList<MatrixBlock> inputs, ArrayList<ScalarObject> scalarObjects, MatrixBlock out, int k)
+		throws DMLRuntimeException
+	{
+		//sanity check
+		if( inputs==null || inputs.isEmpty() )
+			throw new DMLRuntimeException("Invalid input arguments: no main input.");
+
+		//prepare inputs (main input, dense side inputs, scalars)
+		MatrixBlock a = inputs.get(0);
+		final int m = a.getNumRows();
+		final int n = a.getNumColumns();
+		double[][] b = prepInputMatrices(inputs, 1);
+		double[] scalars = prepInputScalars(scalarObjects);
+
+		//allocate and initialize dense output
+		int m2 = (_type==CellType.NO_AGG || _type==CellType.ROW_AGG) ? m : 1;
+		int n2 = (_type==CellType.NO_AGG || _type==CellType.COL_AGG) ? n : 1;
+		out.reset(m2, n2, false);
+		out.allocateDenseBlock();
+		double[] c = out.getDenseArray();
+		initAggregate(c);
+
+		//core sequential or multi-threaded execution
+		if( k <= 1 || (long)m*n < PAR_NUMCELL_THRESHOLD || m < k ) {
+			executeRows(a, b, scalars, c, new double[c.length], n, 0, m);
+		}
+		else {
+			executeParallel(a, b, scalars, c, m, n, k);
+		}
+
+		//post-processing
+		out.recomputeNonZeros();
+		out.examSparsity();
+	}
+
+	/**
+	 * 
+	 * @param a
+	 * @param b
+	 * @param scalars
+	 * @param c
+	 * @param m
+	 * @param n
+	 * @param k
+	 * @throws DMLRuntimeException
+	 */
+	private void executeParallel(MatrixBlock a, double[][] b, double[] scalars, double[] c, int m, int n, int k)
+		throws DMLRuntimeException
+	{
+		//full and column aggregates require partial results per task
+		boolean partial = (_type==CellType.FULL_AGG || _type==CellType.COL_AGG);
+
+		//acquire threads from shared thread budget (e.g., nested in parfor workers)
+		k = ThreadBudget.acquire( k );
+
+		try {
+			ExecutorService pool = Executors.newFixedThreadPool( k );
+			ArrayList<ParExecTask> tasks = new ArrayList<ParExecTask>();
+			int blklen = (int)(Math.ceil((double)m/k));
+			for( int i=0; i<k & i*blklen<m; i++ )
+				tasks.add(new ParExecTask(a, b, scalars, partial ? null : c, c.length,
+						n, i*blklen, Math.min((i+1)*blklen, m)));
+			List<Future<double[]>> rtasks = pool.invokeAll(tasks);
+			pool.shutdown();
+
+			//aggregate partial results (and check for errors)
+			KahanObject kbuff = new KahanObject(0, 0);
+			double[] corr = new double[c.length];
+			for( Future<double[]> rtask : rtasks ) {
+				double[] tmp = rtask.get();
+				if( partial )
+					for( int i=0; i<c.length; i++ )
+						aggregateValue(c, corr, i, tmp[i], (_aggOp==AggOp.SUM_SQ) ? AggOp.SUM : _aggOp, kbuff);
+			}
+		}
+		catch(Exception ex) {
+			throw new DMLRuntimeException(ex);
+		}
+		finally {
+			ThreadBudget.release( k );
+		}
+	}
+
+	/**
+	 * Core execution over the row range [rl,ru) of the main input. The output array
+	 * holds the entire output (no aggregation), one value per row (row aggregates),
+	 * one value per column (column aggregates), or a single value (full aggregates).
+	 * 
+	 * @param a
+	 * @param b
+	 * @param scalars
+	 * @param c
+	 * @param corr
+	 * @param n
+	 * @param rl
+	 * @param ru
+	 */
+	private void executeRows(MatrixBlock a, double[][] b, double[] scalars, double[] c, double[] corr, int n, int rl, int ru)
+	{
+		//zero cells of the main input can be skipped for sparse-safe operations if the
+		//aggregation is not affected by zeros (no min/max aggregates)
+		boolean skipZeros = _sparseSafe && (_type==CellType.NO_AGG
+			|| _aggOp==AggOp.SUM || _aggOp==AggOp.SUM_SQ);
+		KahanObject kbuff = new KahanObject(0, 0);
+
+		if( !a.isInSparseFormat() ) //DENSE MAIN INPUT
+		{
+			double[] avals = a.getDenseArray();
+			if( avals == null && skipZeros )
+				return; //empty main input
+
+			for( int i=rl, ix=rl*n; i<ru; i++ )
+				for( int j=0; j<n; j++, ix++ ) {
+					double aval = (avals != null) ? avals[ix] : 0;
+					if( aval != 0 || !skipZeros )
+						processCell(c, corr, genexec(aval, b, scalars, n, i, j), i, j, ix, kbuff);
+				}
+		}
+		else //SPARSE MAIN INPUT
+		{
+			SparseRow[] arows = a.getSparseRows();
+			for( int i=rl; i<ru; i++ )
+			{
+				SparseRow arow = (arows != null) ? arows[i] : null;
+				int alen = (arow != null) ? arow.size() : 0;
+				int[] aix = (alen > 0) ? arow.getIndexContainer() : null;
+				double[] avals = (alen > 0) ? arow.getValueContainer() : null;
+
+				if( skipZeros ) {
+					//iterate over non-zero values only
+					for( int k=0; k<alen; k++ )
+						processCell(c, corr, genexec(avals[k], b, scalars, n, i, aix[k]), i, aix[k], i*n+aix[k], kbuff);
+				}
+				else {
+					//iterate over all cells, merging in non-zero values
+					for( int j=0, pos=0; j<n; j++ ) {
+						double aval = (pos < alen && aix[pos] == j) ? avals[pos++] : 0;
+						processCell(c, corr, genexec(aval, b, scalars, n, i, j), i, j, i*n+j, kbuff);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @param c
+	 * @param corr
+	 * @param val
+	 * @param i
+	 * @param j
+	 * @param ix
+	 * @param kbuff
+	 */
+	private void processCell(double[] c, double[] corr, double val, int i, int j, int ix, KahanObject kbuff)
+	{
+		switch( _type ) {
+			case NO_AGG:   c[ix] = val; break;
+			case ROW_AGG:  aggregateValue(c, corr, i, val, _aggOp, kbuff); break;
+			case COL_AGG:  aggregateValue(c, corr, j, val, _aggOp, kbuff); break;
+			case FULL_AGG: aggregateValue(c, corr, 0, val, _aggOp, kbuff); break;
+		}
+	}
+
+	/**
+	 * 
+	 * @param c
+	 * @param corr
+	 * @param ix
+	 * @param val
+	 * @param aggop
+	 * @param kbuff
+	 */
+	private static void aggregateValue(double[] c, double[] corr, int ix, double val, AggOp aggop, KahanObject kbuff)
+	{
+		switch( aggop ) {
+			case SUM:
+			case SUM_SQ:
+				kbuff.set(c[ix], corr[ix]);
+				KahanPlus.getKahanPlusFnObject().execute2(kbuff, (aggop==AggOp.SUM_SQ) ? val*val : val);
+				c[ix] = kbuff._sum;
+				corr[ix] = kbuff._correction;
+				break;
+			case MIN:
+				c[ix] = (c[ix] <= val) ? c[ix] : val;
+				break;
+			case MAX:
+				c[ix] = (c[ix] >= val) ? c[ix] : val;
+				break;
+		}
+	}
+
+	/**
+	 * 
+	 * @param c
+	 */
+	private void initAggregate(double[] c)
+	{
+		if( _type == CellType.NO_AGG )
+			return;
+
+		if( _aggOp == AggOp.MIN )
+			Arrays.fill(c, Double.MAX_VALUE);
+		else if( _aggOp == AggOp.MAX )
+			Arrays.fill(c, -Double.MAX_VALUE);
+	}
+
+	/**
+	 * Task for multi-threaded execution over a row range, where tasks without
+	 * shared output allocate and return their own partial aggregates.
+	 */
+	private class ParExecTask implements Callable<double[]>
+	{
+		private MatrixBlock _a = null;
+		private double[][] _b = null;
+		private double[] _scalars = null;
+		private double[] _c = null;
+		private int _clen = -1;
+		private int _n = -1;
+		private int _rl = -1;
+		private int _ru = -1;
+
+		protected ParExecTask( MatrixBlock a, double[][] b, double[] scalars, double[] c, int clen, int n, int rl, int ru ) {
+			_a = a;
+			_b = b;
+			_scalars = scalars;
+			_c = c;
+			_clen = clen;
+			_n = n;
+			_rl = rl;
+			_ru = ru;
+		}
+
+		@Override
+		public double[] call() throws DMLRuntimeException
+		{
+			//allocate local partial aggregate if necessary
+			if( _c == null ) {
+				_c = new double[_clen];
+				initAggregate(_c);
+			}
+
+			executeRows(_a, _b, _scalars, _c, new double[_clen], _n, _rl, _ru);
+
+			return _c;
+		}
+	}
+}
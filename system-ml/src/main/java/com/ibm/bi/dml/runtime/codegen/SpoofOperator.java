@@ -0,0 +1,114 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.runtime.codegen;
+
+import java.util.ArrayList;
+
+import com.ibm.bi.dml.runtime.DMLRuntimeException;
+import com.ibm.bi.dml.runtime.instructions.cp.ScalarObject;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
+
+/**
+ * Base class of all generated operators (spoof: sum-product optimization and fusion).
+ * Generated operators are compiled at runtime from the fused operator templates of the
+ * hop-level fusion planner and only implement the specialized cell computations, while
+ * iteration, aggregation and multi-threading are provided by the template base classes.
+ * 
+ */
+public abstract class SpoofOperator
+{
+
+	/**
+	 * Executes the generated operator with matrix output.
+	 * 
+	 * @param inputs
+	 * @param scalars
+	 * @param out
+	 * @param k
+	 * @throws DMLRuntimeException
+	 */
+	public abstract void execute(ArrayList<MatrixBlock> inputs, ArrayList<ScalarObject> scalars, MatrixBlock out, int k)
+		throws DMLRuntimeException;
+
+	/**
+	 * Executes the generated operator with scalar output (e.g., full aggregates).
+	 * 
+	 * @param inputs
+	 * @param scalars
+	 * @param k
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	public ScalarObject execute(ArrayList<MatrixBlock> inputs, ArrayList<ScalarObject> scalars, int k)
+		throws DMLRuntimeException
+	{
+		throw new DMLRuntimeException("Invalid invocation of scalar execute for operator "+getClass().getName()+".");
+	}
+
+	/**
+	 * Prepares the side inputs (all matrix inputs starting at the given offset) as
+	 * dense arrays in row-major order, where sparse inputs are converted to dense and
+	 * empty inputs are represented as null.
+	 * 
+	 * @param inputs
+	 * @param offset
+	 * @return
+	 */
+	protected static double[][] prepInputMatrices(ArrayList<MatrixBlock> inputs, int offset)
+	{
+		double[][] b = new double[inputs.size()-offset][];
+		for( int i=offset; i<inputs.size(); i++ ) {
+			MatrixBlock in = inputs.get(i);
+			if( in.isInSparseFormat() && !in.isEmptyBlock(false) ) {
+				MatrixBlock tmp = new MatrixBlock();
+				tmp.copy(in, false);
+				in = tmp;
+			}
+			b[i-offset] = !in.isInSparseFormat() ? in.getDenseArray() : null;
+		}
+
+		return b;
+	}
+
+	/**
+	 * 
+	 * @param scalarObjects
+	 * @return
+	 */
+	protected static double[] prepInputScalars(ArrayList<ScalarObject> scalarObjects)
+	{
+		double[] scalars = new double[scalarObjects.size()];
+		for( int i=0; i<scalarObjects.size(); i++ )
+			scalars[i] = scalarObjects.get(i).getDoubleValue();
+		return scalars;
+	}
+
+	/**
+	 * Returns the value of a dense side input at the given position,
+	 * where null represents an empty input.
+	 * 
+	 * @param data
+	 * @param n
+	 * @param rowIndex
+	 * @param colIndex
+	 * @return
+	 */
+	protected static double getValue(double[] data, int n, int rowIndex, int colIndex) {
+		return (data != null) ? data[rowIndex*n+colIndex] : 0;
+	}
+}
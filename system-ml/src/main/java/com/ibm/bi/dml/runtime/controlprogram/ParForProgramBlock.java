@@ -53,15 +53,19 @@ import com.ibm.bi.dml.runtime.controlprogram.context.ExecutionContext;
 import com.ibm.bi.dml.runtime.controlprogram.context.SparkExecutionContext;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.DataPartitioner;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.DataPartitionerLocal;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.DataPartitionerLocalMemory;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.DataPartitionerRemoteMR;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.DataPartitionerRemoteSpark;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.LocalParWorker;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.LocalParWorkerController;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.LocalTaskQueue;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.LocalTaskQueueWorkStealing;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.ParForBody;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.ProgramConverter;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.RemoteDPParForMR;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.RemoteDPParForSpark;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.RemoteParForJobReturn;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.RemoteParForLocal;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.RemoteParForMR;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.RemoteParForSpark;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.ResultMerge;
@@ -78,6 +82,7 @@ import com.ibm.bi.dml.runtime.controlprogram.parfor.TaskPartitionerFactoringCmin
 import com.ibm.bi.dml.runtime.controlprogram.parfor.TaskPartitionerFixedsize;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.TaskPartitionerNaive;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.TaskPartitionerStatic;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.TaskPartitionerWorkStealing;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.mqo.RuntimePiggybacking;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.opt.CostEstimator;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.opt.CostEstimatorHops;
@@ -100,6 +105,7 @@ import com.ibm.bi.dml.runtime.instructions.cp.IntObject;
 import com.ibm.bi.dml.runtime.instructions.cp.StringObject;
 import com.ibm.bi.dml.runtime.instructions.cp.VariableCPInstruction;
 import com.ibm.bi.dml.runtime.matrix.data.OutputInfo;
+import com.ibm.bi.dml.runtime.util.ThreadBudget;
 import com.ibm.bi.dml.utils.Statistics;
 import com.ibm.bi.dml.yarn.ropt.YarnClusterAnalyzer;
 
@@ -135,6 +141,7 @@ public class ParForProgramBlock extends ForProgramBlock
 		FACTORING,  //factoring task partitioner  
 		FACTORING_CMIN,  //constrained factoring task partitioner, uses tasksize as min constraint
 		FACTORING_CMAX,  //constrained factoring task partitioner, uses tasksize as max constraint
+		WORK_STEALING,   //work-stealing task partitioner (per-worker deques, adaptive splitting), uses tasksize as min chunk size
 		UNSPECIFIED
 	}
 	
@@ -179,6 +186,7 @@ public class ParForProgramBlock extends ForProgramBlock
 	public enum PDataPartitioner {
 		NONE,       // no data partitioning
 		LOCAL,      // local file based partition split on master node
+		LOCAL_MEM,  // local in-memory partitions (row/column slices of in-memory data, no partition files)
 		REMOTE_MR,  // remote partition split using a reblock MR job 
 		REMOTE_SPARK, // remote partition split using a spark job
 		UNSPECIFIED, 
@@ -208,12 +216,20 @@ public class ParForProgramBlock extends ForProgramBlock
 	public static final boolean USE_PB_CACHE                = false; // reuse copied program blocks whenever possible, not there can be issues related to recompile
 	public static       boolean USE_RANGE_TASKS_IF_USEFUL   = true;   	// use range tasks whenever size>3, false, otherwise wrong split order in remote 
 	public static final boolean USE_STREAMING_TASK_CREATION = true;  	// start working while still creating tasks, prevents blocking due to too small task queue
+	public static       boolean USE_STRUCTURAL_CLONING      = true;   // share immutable instructions across program block copies, only thread-id/function dependent instructions are copied
+	public static       boolean USE_COMPACT_SERIALIZATION   = true;   // compress the serialized parfor body for remote workers (smaller job confs and closures)
+	public static       boolean USE_READONLY_INPUT_PINNING  = true;   // pin loop-invariant read-only inputs of local parfor (lock-free reads, no eviction)
+	public static       boolean USE_INMEMORY_PARTITIONING   = true;   // serve row/column partitions of local parfor from memory if inputs fit in the CP budget (no physical partitions)
+	public static       boolean USE_DYNAMIC_PARALLELISM     = true;   // grow/shrink the number of active local workers at runtime according to heap usage and gc time
+	public static       boolean USE_SPECULATIVE_EXECUTION   = false;  // duplicate straggler tasks of remote parfor (first attempt wins, attempt-specific result files), NOTE: result files of losing remote attempts are only removed with the scratch space
+	public static       boolean USE_LOCAL_SPECULATION       = false;  // run remote parfor in local mode via local stand-in with speculative task execution (testing)
 	public static final boolean ALLOW_NESTED_PARALLELISM	= true;    // if not, transparently change parfor to for on program conversions (local,remote)
 	public static       boolean ALLOW_REUSE_MR_JVMS         = true;    // potential benefits: less setup costs per task, NOTE> cannot be used MR4490 in Hadoop 1.0.3, still not fixed in 1.1.1
 	public static       boolean ALLOW_REUSE_MR_PAR_WORKER   = ALLOW_REUSE_MR_JVMS; //potential benefits: less initialization, reuse in-memory objects and result consolidation!
 	public static final boolean USE_FLEX_SCHEDULER_CONF     = false;
-	public static final boolean USE_PARALLEL_RESULT_MERGE   = false;    // if result merge is run in parallel or serial 
+	public static       boolean USE_PARALLEL_RESULT_MERGE   = false;    // if result merge is run in parallel or serial (local in-memory merge partitioned by row ranges)
 	public static final boolean USE_PARALLEL_RESULT_MERGE_REMOTE = true; // if remote result merge should be run in parallel for multiple result vars
+	public static       boolean USE_DELTA_RESULT_MERGE      = true;   // track dirty ranges of left indexing on result variables and merge only dirty ranges (local in-memory, remote spark)
 	public static final boolean ALLOW_DATA_COLOCATION       = true;
 	public static final boolean CREATE_UNSCOPED_RESULTVARS  = true;
 	public static       boolean ALLOW_REUSE_PARTITION_VARS  = true; //reuse partition input matrices, applied only if read-only in surrounding loops
@@ -271,6 +287,10 @@ public class ParForProgramBlock extends ForProgramBlock
 	//specifics for spark 
 	protected Collection<String> _variablesRP = null;
 	protected Collection<String> _variablesECache = null;
+	//specifics for read-only inputs
+	protected Collection<String> _variablesROPin = null;
+	//specifics for dynamic degree of parallelism
+	protected int              _numThreadsInit  = -1; //initial number of active workers (-1 for static dop)
 	
 	// program block meta data
 	protected long                _ID           = -1;
@@ -502,6 +522,28 @@ public class ParForProgramBlock extends ForProgramBlock
 		_variablesECache = vars;
 	}
 	
+	public void setReadOnlyPinnedVariables(Collection<String> vars) {
+		_variablesROPin = vars;
+	}
+	
+	public Collection<String> getReadOnlyPinnedVariables() {
+		return _variablesROPin;
+	}
+	
+	/**
+	 * Enables the runtime control of the degree of parallelism for local parfor,
+	 * where execution starts with the given number of active workers.
+	 * 
+	 * @param k initial number of active workers, -1 for static degree of parallelism
+	 */
+	public void setInitialDegreeOfParallelism(int k) {
+		_numThreadsInit = k;
+	}
+	
+	public int getInitialDegreeOfParallelism() {
+		return _numThreadsInit;
+	}
+	
 	public long getNumIterations()
 	{
 		return _numIterations;
@@ -593,6 +635,11 @@ public class ParForProgramBlock extends ForProgramBlock
 		ArrayList<String> varList = ec.getVarList();
 		HashMap<String, Boolean> varState = ec.pinVariables(varList);
 		
+		//enable dirty range tracking of result variables (delta result merge)
+		ArrayList<MatrixObject> tracked = new ArrayList<MatrixObject>();
+		if( USE_DELTA_RESULT_MERGE )
+			enableDirtyRangeTracking( ec, tracked );
+		
 		try 
 		{		
 			switch( _execMode )
@@ -602,7 +649,10 @@ public class ParForProgramBlock extends ForProgramBlock
 					break;
 					
 				case REMOTE_MR: // create parworkers as MR tasks (one job per parfor)
-					executeRemoteMRParFor(ec, iterVar, from, to, incr);
+					if( USE_LOCAL_SPECULATION && InfrastructureAnalyzer.isLocalMode() )
+						executeRemoteLocalParFor(ec, iterVar, from, to, incr);
+					else
+						executeRemoteMRParFor(ec, iterVar, from, to, incr);
 					break;
 				
 				case REMOTE_MR_DP: // create parworkers as MR tasks (one job per parfor)
@@ -610,7 +660,10 @@ public class ParForProgramBlock extends ForProgramBlock
 					break;
 				
 				case REMOTE_SPARK: // create parworkers as Spark tasks (one job per parfor)
-					executeRemoteSparkParFor(ec, iterVar, from, to, incr);
+					if( USE_LOCAL_SPECULATION && InfrastructureAnalyzer.isLocalMode() )
+						executeRemoteLocalParFor(ec, iterVar, from, to, incr);
+					else
+						executeRemoteSparkParFor(ec, iterVar, from, to, incr);
 					break;
 				
 				case REMOTE_SPARK_DP: // create parworkers as Spark tasks (one job per parfor)
@@ -625,6 +678,12 @@ public class ParForProgramBlock extends ForProgramBlock
 		{
 			throw new DMLRuntimeException("PARFOR: Failed to execute loop in parallel.",ex);
 		}
+		finally
+		{
+			//disable dirty range tracking of original result variables
+			for( MatrixObject mo : tracked )
+				mo.disableDirtyRangeTracking();
+		}
 		
 		//reset state of shared input/result variables 
 		ec.unpinVariables(varList, varState);
@@ -709,16 +768,32 @@ public class ParForProgramBlock extends ForProgramBlock
 		if( _enableRuntimePiggybacking )
 			RuntimePiggybacking.start( _numThreads ); //default piggybacking worker
 		
+		ArrayList<MatrixObject> pinned = new ArrayList<MatrixObject>();
+		LocalParWorkerController controller = null;
+		
 		try
 		{
+			//pin loop-invariant read-only inputs (lock-free shared reads)
+			pinReadOnlyInputs( ec, pinned );
+			
 			// Step 1) init parallel workers, task queue and threads
-			LocalTaskQueue<Task> queue = new LocalTaskQueue<Task>();
+			//(per-worker deques for work stealing, shared FIFO queue otherwise)
+			LocalTaskQueue<Task> queue = (_taskPartitioner == PTaskPartitioner.WORK_STEALING) ?
+				new LocalTaskQueueWorkStealing(_numThreads, _taskSize) : new LocalTaskQueue<Task>();
 			Thread[] threads         = new Thread[_numThreads];
 			LocalParWorker[] workers = new LocalParWorker[_numThreads];
+			//(optional dop controller, starts with initial number of active workers, 
+			//backed by threads of the shared thread budget in case of nested parallelism)
+			boolean dynamic = USE_DYNAMIC_PARALLELISM && _numThreadsInit > 0 && _numThreadsInit < _numThreads;
+			if( dynamic || ThreadBudget.USE_SHARED_BUDGET )
+				controller = new LocalParWorkerController(_numThreads, dynamic ? _numThreadsInit : _numThreads, 
+					getMaxDegreeOfParallelismForBudget(), dynamic, ThreadBudget.USE_SHARED_BUDGET);
 			for( int i=0; i<_numThreads; i++ )
 			{
 				//create parallel workers as (lazy) deep copies
 				workers[i] = createParallelWorker( _pwIDs[i], queue, ec ); 
+				workers[i].setTaskQueueIndex( i );
+				workers[i].setController( controller );
 				threads[i] = new Thread( workers[i] );
 				threads[i].setPriority(Thread.MAX_PRIORITY); 
 			}
@@ -726,6 +801,8 @@ public class ParForProgramBlock extends ForProgramBlock
 			// start threads (from now on waiting for tasks)
 			for( Thread thread : threads )
 				thread.start();
+			if( controller != null )
+				controller.start();
 			
 			//maintain statistics
 			long tinit = (long) time.stop();
@@ -764,7 +841,22 @@ public class ParForProgramBlock extends ForProgramBlock
 			
 			if( _monitor ) 
 				StatisticMonitor.putPFStat(_ID, Stat.PARFOR_WAIT_EXEC_T, time.stop());
-				
+			if( DMLScript.STATISTICS && dynamic )
+				Statistics.maintainParForDynamicDOP(controller.getMinDegreeOfParallelism(), 
+					controller.getMaxDegreeOfParallelism());
+			if( _monitor && controller != null ) {
+				StatisticMonitor.putPFStat(_ID, Stat.PARFOR_DOP_MIN, controller.getMinDegreeOfParallelism());
+				StatisticMonitor.putPFStat(_ID, Stat.PARFOR_DOP_MAX, controller.getMaxDegreeOfParallelism());
+				StatisticMonitor.putPFStat(_ID, Stat.PARFOR_DOP_ADJUSTMENTS, controller.getNumAdjustments());
+			}
+			
+			//account for tasks created by splitting ranges at runtime
+			if( queue instanceof LocalTaskQueueWorkStealing ) {
+				LocalTaskQueueWorkStealing wsqueue = (LocalTaskQueueWorkStealing)queue;
+				numCreatedTasks += wsqueue.getNumSplits();
+				if( DMLScript.STATISTICS )
+					Statistics.incrementParForWorkStealing(wsqueue.getNumSteals(), wsqueue.getNumSplits());
+			}
 				
 			// Step 4) collecting results from each parallel worker
 			//obtain results
@@ -800,6 +892,16 @@ public class ParForProgramBlock extends ForProgramBlock
 			if( _enableRuntimePiggybacking )
 				RuntimePiggybacking.stop();
 			
+			//unpin read-only inputs
+			for( MatrixObject mo : pinned )
+				mo.unpinReadOnly();
+			
+			//stop dop controller and release threads (robustness for errors)
+			if( controller != null ) {
+				controller.close();
+				controller.releaseThreads();
+			}
+			
 			if( _monitor )  {
 				StatisticMonitor.putPFStat(_ID, Stat.PARFOR_WAIT_RESULTS_T, time.stop());
 				StatisticMonitor.putPFStat(_ID, Stat.PARFOR_NUMTASKS, numExecutedTasks);
@@ -1041,8 +1143,11 @@ public class ParForProgramBlock extends ForProgramBlock
 		//MatrixObject colocatedDPMatrixObj = (_colocatedDPMatrix!=null)? (MatrixObject)ec.getVariable(_colocatedDPMatrix) : null;
 		RemoteParForJobReturn ret = RemoteParForSpark.runJob(_ID, program, tasks, ec, _enableCPCaching, _numThreads);
 		
-		if( _monitor ) 
+		if( _monitor ) {
 			StatisticMonitor.putPFStat(_ID, Stat.PARFOR_WAIT_EXEC_T, time.stop());
+			StatisticMonitor.putPFStat(_ID, Stat.PARFOR_REMOTE_PARSE_T, ret.getTaskParseTime());
+			StatisticMonitor.putPFStat(_ID, Stat.PARFOR_REMOTE_EXEC_T, ret.getTaskExecTime());
+		}
 			
 			
 		// Step 4) collecting results from each parallel worker
@@ -1063,6 +1168,78 @@ public class ParForProgramBlock extends ForProgramBlock
 		}			
 	}
 	
+	/**
+	 * Executes a remote parfor job via the local stand-in of remote workers, i.e., independent
+	 * task attempts with serialized parfor bodies on local threads, incl speculative execution
+	 * of straggler tasks. This allows to test remote parfor runtime characteristics (e.g., 
+	 * tail latency mitigation, result merge) on a single machine.
+	 * 
+	 * @param ec
+	 * @param itervar
+	 * @param from
+	 * @param to
+	 * @param incr
+	 * @throws DMLRuntimeException 
+	 * @throws DMLUnsupportedOperationException 
+	 */
+	private void executeRemoteLocalParFor(ExecutionContext ec, IntObject itervar, IntObject from, IntObject to, IntObject incr) 
+		throws DMLRuntimeException, DMLUnsupportedOperationException
+	{
+		Timing time = ( _monitor ? new Timing(true) : null );
+		
+		// Step 0) check and compile to CP (if forced remote parfor)
+		boolean flagForced = false;
+		if( FORCE_CP_ON_REMOTE_MR && (_optMode == POptMode.NONE || _optMode == POptMode.CONSTRAINED) )
+		{
+			//tid = 0  because replaced in remote parworker
+			flagForced = checkMRAndRecompileToCP(0); 
+		}
+		
+		// Step 1) init parallel workers (serialize PBs)
+		ParForBody body = new ParForBody( _childBlocks, _resultVars, ec );
+		String program = ProgramConverter.serializeParForBody( body );
+		
+		if( _monitor ) 
+			StatisticMonitor.putPFStat(_ID, Stat.PARFOR_INIT_PARWRK_T, time.stop());
+		
+		// Step 2) create tasks 
+		TaskPartitioner partitioner = createTaskPartitioner(from, to, incr);
+		long numIterations = partitioner.getNumIterations();
+		List<Task> tasks = partitioner.createTasks();
+		long numCreatedTasks = tasks.size();
+		
+		if( _monitor )
+			StatisticMonitor.putPFStat(_ID, Stat.PARFOR_INIT_TASKS_T, time.stop());
+		
+		//write matrices to HDFS 
+		exportMatricesToHDFS(ec);
+		
+		// Step 3) run local stand-in of remote job (unique worker ids per task attempt)
+		RemoteParForJobReturn ret = RemoteParForLocal.runJob(_ID, program, tasks, _numThreads, _pwIDSeq, MAX_RETRYS_ON_ERROR);
+		
+		if( _monitor ) {
+			StatisticMonitor.putPFStat(_ID, Stat.PARFOR_WAIT_EXEC_T, time.stop());
+			StatisticMonitor.putPFStat(_ID, Stat.PARFOR_NUMSPECULATIVE, ret.getNumSpeculativeTasks());
+		}
+		
+		// Step 4) collecting results from each parallel worker
+		int numExecutedTasks = ret.getNumExecutedTasks();
+		int numExecutedIterations = ret.getNumExecutedIterations();
+		
+		//consolidate results into global symbol table
+		consolidateAndCheckResults( ec, numIterations, numCreatedTasks, numExecutedIterations , numExecutedTasks, 
+				                    ret.getVariables() );
+		if( flagForced ) //see step 0
+			releaseForcedRecompile(0);
+		
+		if( _monitor ) 
+		{
+			StatisticMonitor.putPFStat(_ID, Stat.PARFOR_WAIT_RESULTS_T, time.stop());
+			StatisticMonitor.putPFStat(_ID, Stat.PARFOR_NUMTASKS, numExecutedTasks);
+			StatisticMonitor.putPFStat(_ID, Stat.PARFOR_NUMITERS, numExecutedIterations);
+		}
+	}
+	
 	private void executeRemoteSparkParForDP( ExecutionContext ec, IntObject itervar, IntObject from, IntObject to, IntObject incr ) 
 		throws DMLUnsupportedOperationException, DMLRuntimeException, IOException
 	{
@@ -1235,6 +1412,67 @@ public class ParForProgramBlock extends ForProgramBlock
 		}
 	}
 	
+	/**
+	 * Pins all read-only input variables selected by the optimizer in memory, which
+	 * allows lock-free reads by all local workers and prevents eviction for the 
+	 * duration of the parfor loop.
+	 * 
+	 * @param ec
+	 * @param pinned
+	 * @throws DMLRuntimeException
+	 */
+	private void pinReadOnlyInputs( ExecutionContext ec, ArrayList<MatrixObject> pinned ) 
+		throws DMLRuntimeException
+	{
+		long size = 0;
+		
+		if( USE_READONLY_INPUT_PINNING && _variablesROPin != null )
+		{
+			for( String var : _variablesROPin )
+			{
+				Data dat = ec.getVariable(var);
+				if( dat instanceof MatrixObject ) {
+					MatrixObject mo = (MatrixObject) dat;
+					if( !mo.isPartitioned() ) { //reference-counted pins (e.g., nested parfor)
+						size += mo.pinReadOnly();
+						pinned.add(mo);
+					}
+				}
+			}
+			
+			LOG.trace("PARFOR ID = "+_ID+", pinned read-only inputs: "+pinned.size()+" ("+size+" bytes)");
+		}
+		
+		if( _monitor )
+			StatisticMonitor.putPFStat(_ID, Stat.PARFOR_PINNED_BYTES, size);
+	}
+	
+	/**
+	 * Enables dirty range tracking for all matrix result variables. Left indexing propagates 
+	 * the tracking state to the worker results, which allows result merge to only compare and 
+	 * merge dirty ranges. Unmodified originals that are already tracked by a surrounding parfor 
+	 * are left untouched because they might be shared across its workers.
+	 * 
+	 * @param ec
+	 * @param tracked list of result variables with enabled tracking
+	 */
+	private void enableDirtyRangeTracking( ExecutionContext ec, ArrayList<MatrixObject> tracked )
+	{
+		for( String var : _resultVars )
+		{
+			Data dat = ec.getVariable(var);
+			if( dat instanceof MatrixObject ) 
+			{
+				MatrixObject mo = (MatrixObject)dat;
+				if( mo.isDirtyRangeTracked() && mo.getDirtyRange()==null 
+					&& mo.getDirtyRangeBase().equals(mo.getFileName()) )
+					continue; //tracked by surrounding parfor
+				mo.enableDirtyRangeTracking();
+				tracked.add( mo );
+			}
+		}
+	}
+	
 	/**
 	 * Cleanup result variables of parallel workers after result merge.
 	 * @param in 
@@ -1483,6 +1721,11 @@ public class ParForProgramBlock extends ForProgramBlock
 				tp = new TaskPartitionerFactoringCmax( _taskSize,_numThreads, _taskSize, _iterablePredicateVars[0],
 							                       from, to, incr );
 				break;	
+			case WORK_STEALING:
+				//for work stealing the tasksize is used as the minimum chunk size
+				tp = new TaskPartitionerWorkStealing( _taskSize, _numThreads, _iterablePredicateVars[0],
+							                       from, to, incr );
+				break;
 			default:
 				throw new DMLRuntimeException("Undefined task partitioner: '"+_taskPartitioner+"'.");
 		}
@@ -1518,6 +1761,13 @@ public class ParForProgramBlock extends ForProgramBlock
 			case LOCAL:
 				dp = new DataPartitionerLocal(dpf, -1, _numThreads);
 				break;
+			case LOCAL_MEM:
+				//in-memory partitions are only accessible by local workers
+				if( _execMode == PExecMode.LOCAL )
+					dp = new DataPartitionerLocalMemory(dpf, -1);
+				else
+					dp = new DataPartitionerLocal(dpf, -1, _numThreads);
+				break;
 			case REMOTE_MR:
 				dp = new DataPartitionerRemoteMR( dpf, -1, _ID, numRed,
 						                          _replicationDP, 
@@ -2035,6 +2285,23 @@ public class ParForProgramBlock extends ForProgramBlock
 		}
 	}
 	
+	/**
+	 * Returns the max number of concurrently active workers w.r.t. the local recompile
+	 * memory budget (i.e., workers that can use their entire budget without exceeding 
+	 * the local memory), which bounds the runtime growth of the degree of parallelism.
+	 * 
+	 * @return
+	 */
+	private int getMaxDegreeOfParallelismForBudget()
+	{
+		if( _recompileMemoryBudget <= 0 )
+			return _numThreads;
+		
+		double localMem = _oldMemoryBudget * OptimizerUtils.MEM_UTIL_FACTOR;
+		int capK = (int) Math.floor( localMem / _recompileMemoryBudget );
+		return Math.max( Math.min(capK, _numThreads), 1 );
+	}
+	
 	private void resetMemoryBudget()
 	{
 		if( _recompileMemoryBudget > 0 )
@@ -2056,6 +2323,8 @@ public class ParForProgramBlock extends ForProgramBlock
 		_enableRuntimePiggybacking = false;
 		_variablesRP           = null;
 		_variablesECache       = null;
+		_variablesROPin        = null;
+		_numThreadsInit        = -1;
 	}
 	
 	
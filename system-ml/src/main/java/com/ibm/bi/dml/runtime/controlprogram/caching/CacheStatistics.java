@@ -54,6 +54,7 @@ public class CacheStatistics
 	private static AtomicLong _numHitsFSBuff = null;
 	private static AtomicLong _numHitsFS     = null;
 	private static AtomicLong _numHitsHDFS   = null;
+	private static AtomicLong _numHitsPinned = null; //lock-free reads of pinned data
 	
 	//write statistics caching
 	private static AtomicLong _numWritesFSBuff = null;
@@ -78,6 +79,7 @@ public class CacheStatistics
 		_numHitsFSBuff = new AtomicLong(0);
 		_numHitsFS = new AtomicLong(0);
 		_numHitsHDFS = new AtomicLong(0);
+		_numHitsPinned = new AtomicLong(0);
 		
 		_numWritesFSBuff = new AtomicLong(0);
 		_numWritesFS = new AtomicLong(0);
@@ -119,6 +121,16 @@ public class CacheStatistics
 		return _numHitsMem.get();
 	}
 
+	public static void incrementPinnedHits()
+	{
+		_numHitsPinned.incrementAndGet();
+	}
+	
+	public static long getPinnedHits()
+	{
+		return _numHitsPinned.get();
+	}
+
 	public static void incrementFSBuffHits()
 	{
 		_numHitsFSBuff.incrementAndGet();
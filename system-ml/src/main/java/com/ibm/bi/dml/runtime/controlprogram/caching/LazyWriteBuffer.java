@@ -24,6 +24,7 @@ import java.util.Map.Entry;
 
 import com.ibm.bi.dml.api.DMLScript;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.stat.InfrastructureAnalyzer;
+import com.ibm.bi.dml.runtime.lineage.LineageCache;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
 import com.ibm.bi.dml.runtime.util.LocalFileUtils;
 
@@ -73,6 +74,11 @@ public class LazyWriteBuffer
 		{			
 			ByteBuffer bbuff = null;
 			
+			//drop entries of the lineage reuse cache first, which shares the buffer
+			//budget but requires no writes (outside synchronized to prevent deadlocks)
+			if( LineageCache.getSize() > 0 )
+				LineageCache.reduceSize(_limit - _size - lSize);
+			
 			//modify buffer pool
 			synchronized( _mQueue )
 			{
@@ -198,6 +204,7 @@ public class LazyWriteBuffer
 	{
 		_mQueue = new EvictionQueue();		
 		_size = 0;
+		LineageCache.clear();
 		if( CacheableData.CACHING_BUFFER_PAGECACHE )
 			PageCache.init();
 	}
@@ -209,6 +216,7 @@ public class LazyWriteBuffer
 	{
 		if( _mQueue!=null )
 			_mQueue.clear();
+		LineageCache.clear();
 		if( CacheableData.CACHING_BUFFER_PAGECACHE )
 			PageCache.clear();
 	}
@@ -223,6 +231,18 @@ public class LazyWriteBuffer
 		return (long)(CacheableData.CACHING_BUFFER_SIZE * maxMem);
 	}
 	
+	/**
+	 * Obtains the currently free memory of the write buffer in bytes, which is used
+	 * as the budget of the lineage reuse cache. Note that this is an approximation 
+	 * because it is read without synchronization.
+	 * 
+	 * @return
+	 */
+	public static long getFreeBufferSize()
+	{
+		return Math.max(_limit - _size, 0);
+	}
+	
 	/**
 	 * 
 	 */
@@ -19,12 +19,14 @@ package com.ibm.bi.dml.runtime.controlprogram.caching;
 
 import java.io.IOException;
 import java.lang.ref.SoftReference;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.mutable.MutableBoolean;
 
 import com.ibm.bi.dml.api.DMLScript;
 import com.ibm.bi.dml.api.DMLScript.RUNTIME_PLATFORM;
 import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.hops.estim.DensityMap;
 import com.ibm.bi.dml.lops.Lop;
 import com.ibm.bi.dml.parser.DMLTranslator;
 import com.ibm.bi.dml.parser.Expression.DataType;
@@ -35,12 +37,14 @@ import com.ibm.bi.dml.runtime.controlprogram.context.SparkExecutionContext;
 import com.ibm.bi.dml.runtime.instructions.spark.data.BroadcastObject;
 import com.ibm.bi.dml.runtime.instructions.spark.data.RDDObject;
 import com.ibm.bi.dml.runtime.instructions.spark.data.RDDProperties;
+import com.ibm.bi.dml.runtime.lineage.LineageItem;
 import com.ibm.bi.dml.runtime.matrix.MatrixCharacteristics;
 import com.ibm.bi.dml.runtime.matrix.MatrixDimensionsMetaData;
 import com.ibm.bi.dml.runtime.matrix.MatrixFormatMetaData;
 import com.ibm.bi.dml.runtime.matrix.MetaData;
 import com.ibm.bi.dml.runtime.matrix.data.FileFormatProperties;
 import com.ibm.bi.dml.runtime.matrix.data.InputInfo;
+import com.ibm.bi.dml.runtime.matrix.data.LibMatrixReorg;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
 import com.ibm.bi.dml.runtime.matrix.data.NumItemsByEachReducerMetaData;
 import com.ibm.bi.dml.runtime.matrix.data.OutputInfo;
@@ -135,6 +139,36 @@ public class MatrixObject extends CacheableData
 	private int _partitionSize = -1; //indicates n for BLOCKWISE_N
 	private String _partitionCacheName = null; //name of cache block
 	private MatrixBlock _partitionInMemory = null;
+	private volatile MatrixBlock _partitionSource = null;  //in-memory source of all partitions
+	private volatile MatrixBlock _partitionSourceT = null; //transposed in-memory source (column access)
+	
+	/**
+	 * Information relevant to read-only pinned matrices (lock-free reads). The readers
+	 * counter is -1 if not pinned, and otherwise the number of outstanding lock-free
+	 * reads, where the closing flag marks an unpinned matrix with outstanding reads
+	 * (whose last release also releases the read lock of the pin); it also serves as
+	 * lock for pin/unpin (number of pins).
+	 */
+	private static final int RO_CLOSING = 1 << 30;
+	private volatile MatrixBlock _roPinnedData = null;
+	private final AtomicInteger _roReaders = new AtomicInteger(-1);
+	private int _roPins = 0;
+	
+	/**
+	 * Information relevant to parfor result variables (dirty range tracking of left indexing).
+	 */
+	private String _dirtyBase = null;      //file name of original result variable, null if not tracked
+	private IndexRange _dirtyRange = null; //bounding box of modified cells (1-based), null if unmodified
+	
+	/**
+	 * Information relevant to lineage-based reuse (lineage of the current data, null if not created yet).
+	 */
+	private LineageItem _lineage = null;
+	
+	/**
+	 * Information relevant to sparsity estimation (density map of the current data, null if not created yet).
+	 */
+	private DensityMap _densityMap = null;
 	
 	/**
 	 * Information relevant to specific external file formats
@@ -193,6 +227,10 @@ public class MatrixObject extends CacheableData
 		_partitionFormat = mo._partitionFormat;
 		_partitionSize = mo._partitionSize;
 		_partitionCacheName = mo._partitionCacheName;
+		_partitionSource = mo._partitionSource;
+		_partitionSourceT = mo._partitionSourceT;
+		_dirtyBase = mo._dirtyBase;
+		_dirtyRange = mo._dirtyRange;
 	}
 
 	public void setVarName(String s) 
@@ -463,7 +501,29 @@ public class MatrixObject extends CacheableData
 	 * @return the matrix data reference
 	 * @throws CacheException 
 	 */
-	public synchronized MatrixBlock acquireRead()
+	public MatrixBlock acquireRead()
+		throws CacheException
+	{
+		//lock-free read of read-only pinned data (no cache status maintenance,
+		//the pin holds a read lock until all lock-free reads are released)
+		MatrixBlock roData = _roPinnedData;
+		if( roData != null && tryAcquireReadOnlyPinned() ) {
+			if( DMLScript.STATISTICS ) {
+				CacheStatistics.incrementMemHits();
+				CacheStatistics.incrementPinnedHits();
+			}
+			return roData;
+		}
+		
+		return acquireReadIntern();
+	}
+	
+	/**
+	 * 
+	 * @return
+	 * @throws CacheException
+	 */
+	private synchronized MatrixBlock acquireReadIntern()
 		throws CacheException
 	{
 		if( LOG.isTraceEnabled() )
@@ -586,6 +646,9 @@ public class MatrixObject extends CacheableData
 		updateStatusPinned(true);
 		_dirtyFlag = true;
 		_isAcquireFromEmpty = false;
+		disableDirtyRangeTracking(); //unknown modifications
+		_lineage = null; //unknown modifications
+		_densityMap = null; //unknown modifications
 		
 		if( DMLScript.STATISTICS ){
 			long t1 = System.nanoTime();
@@ -624,6 +687,9 @@ public class MatrixObject extends CacheableData
 		super.acquire (true, false); //no need to load evicted matrix
 		_dirtyFlag = true;
 		_isAcquireFromEmpty = false;
+		disableDirtyRangeTracking(); //unknown modifications
+		_lineage = null; //unknown modifications
+		_densityMap = null; //unknown modifications
 		
 		//set references to new data
 		if (newData == null)
@@ -651,7 +717,23 @@ public class MatrixObject extends CacheableData
 	 * 
 	 * @throws CacheStatusException
 	 */
-	public synchronized void release() 
+	public void release() 
+		throws CacheException
+	{
+		//release of lock-free read (see acquireRead), where reads are interchangeable,
+		//i.e., any release consumes an outstanding lock-free read if one exists, and
+		//otherwise releases a read lock (which keeps the total number of reads consistent)
+		if( tryReleaseReadOnlyPinned() )
+			return;
+		
+		releaseIntern();
+	}
+	
+	/**
+	 * 
+	 * @throws CacheException
+	 */
+	private synchronized void releaseIntern() 
 		throws CacheException
 	{
 		if( LOG.isTraceEnabled() )
@@ -990,6 +1072,130 @@ public class MatrixObject extends CacheableData
 		_partitioned = false;
 		_partitionFormat = null;
 		_partitionSize = -1;
+		_partitionSource = null;
+		_partitionSourceT = null;
+	}
+	
+	/**
+	 * Pins the matrix data in memory for read-only access by multiple threads 
+	 * (e.g., loop-invariant inputs of local parfor workers). The pin holds a single 
+	 * read lock, which prevents eviction; subsequent acquireRead/release calls return 
+	 * the pinned data without synchronization and cache status maintenance until 
+	 * unpinReadOnly is called. Pins are reference-counted (e.g., for nested parfor),
+	 * and the caller has to ensure that the data is not modified while pinned.
+	 * 
+	 * @return size of pinned data in bytes
+	 * @throws CacheException
+	 */
+	public long pinReadOnly()
+		throws CacheException
+	{
+		synchronized( _roReaders )
+		{
+			if( _roPins == 0 ) {
+				MatrixBlock mb = acquireReadIntern();
+				
+				//enable lock-free reads, where a previous pin with outstanding lock-free
+				//reads is reopened (i.e., it keeps its read lock and the new one is released)
+				boolean reopened = false;
+				while( true ) {
+					int cnt = _roReaders.get();
+					if( cnt < 0 && _roReaders.compareAndSet(cnt, 0) )
+						break;
+					if( cnt >= 0 && _roReaders.compareAndSet(cnt, cnt & ~RO_CLOSING) ) {
+						reopened = true;
+						break;
+					}
+				}
+				if( reopened )
+					releaseIntern();
+				_roPinnedData = mb;
+			}
+			_roPins++;
+			
+			return _roPinnedData.estimateSizeInMemory();
+		}
+	}
+	
+	/**
+	 * Releases a previous read-only pin. The read lock of the pin is released 
+	 * with the last unpin, or by the last outstanding lock-free read if there
+	 * are any (without waiting for these reads).
+	 * 
+	 * @throws CacheException
+	 */
+	public void unpinReadOnly()
+		throws CacheException
+	{
+		boolean release = false;
+		synchronized( _roReaders )
+		{
+			if( _roPins == 0 || --_roPins > 0 )
+				return;
+			
+			//disable new lock-free reads and hand over the read lock of the pin
+			//to outstanding lock-free reads (if any)
+			_roPinnedData = null;
+			while( true ) {
+				int cnt = _roReaders.get();
+				if( cnt == 0 && _roReaders.compareAndSet(0, -1) ) {
+					release = true;
+					break;
+				}
+				if( cnt > 0 && _roReaders.compareAndSet(cnt, cnt | RO_CLOSING) )
+					break;
+			}
+		}
+		
+		if( release )
+			releaseIntern();
+	}
+	
+	/**
+	 * 
+	 * @return
+	 */
+	private boolean tryAcquireReadOnlyPinned()
+	{
+		while( true ) {
+			int cnt = _roReaders.get();
+			if( cnt < 0 || (cnt & RO_CLOSING) != 0 )
+				return false;
+			if( _roReaders.compareAndSet(cnt, cnt+1) )
+				return true;
+		}
+	}
+	
+	/**
+	 * Releases an outstanding lock-free read if one exists, where the last lock-free
+	 * read of an unpinned matrix also releases the read lock of the pin.
+	 * 
+	 * @return true if a lock-free read was released
+	 * @throws CacheException
+	 */
+	private boolean tryReleaseReadOnlyPinned()
+		throws CacheException
+	{
+		while( true ) {
+			int cnt = _roReaders.get();
+			if( cnt <= 0 || cnt == RO_CLOSING )
+				return false;
+			int newcnt = (cnt-1 == RO_CLOSING) ? -1 : cnt-1;
+			if( _roReaders.compareAndSet(cnt, newcnt) ) {
+				if( newcnt < 0 )
+					releaseIntern();
+				return true;
+			}
+		}
+	}
+	
+	/**
+	 * 
+	 * @return
+	 */
+	public boolean isPinnedReadOnly()
+	{
+		return (_roPinnedData != null);
 	}
 	
 	/**
@@ -1016,6 +1222,30 @@ public class MatrixObject extends CacheableData
 		_partitionInMemory = block;
 	}
 	
+	/**
+	 * Sets the in-memory source of all partitions, i.e., partitions are obtained by slicing
+	 * the given block instead of reading physical partitions from files. The optional 
+	 * transposed copy is used for column-wise access, where a column of the source is a 
+	 * contiguous row of the transposed copy.
+	 * 
+	 * @param block
+	 * @param tblock transposed block, or null if not available
+	 */
+	public synchronized void setInMemoryPartitionSource(MatrixBlock block, MatrixBlock tblock)
+	{
+		_partitionSource = block;
+		_partitionSourceT = tblock;
+	}
+	
+	/**
+	 * 
+	 * @return
+	 */
+	public boolean isInMemoryPartitioned()
+	{
+		return (_partitionSource != null);
+	}
+	
 	/**
 	 * NOTE: for reading matrix partitions, we could cache (in its real sense) the read block
 	 * with soft references (no need for eviction, as partitioning only applied for read-only matrices).
@@ -1028,7 +1258,23 @@ public class MatrixObject extends CacheableData
 	 * @return
 	 * @throws CacheException
 	 */
-	public synchronized MatrixBlock readMatrixPartition( IndexRange pred ) 
+	public MatrixBlock readMatrixPartition( IndexRange pred ) 
+		throws CacheException
+	{
+		//lock-free slicing of in-memory partitions (read-only source)
+		if( _partitionSource != null )
+			return readMatrixPartitionFromMemory( pred );
+		
+		return readMatrixPartitionIntern( pred );
+	}
+	
+	/**
+	 * 
+	 * @param pred
+	 * @return
+	 * @throws CacheException
+	 */
+	private synchronized MatrixBlock readMatrixPartitionIntern( IndexRange pred ) 
 		throws CacheException
 	{
 		if( LOG.isTraceEnabled() )
@@ -1137,6 +1383,63 @@ public class MatrixObject extends CacheableData
 	}
 	
 	
+	/**
+	 * Obtains the requested partition by slicing the in-memory partition source. Row
+	 * slices of dense or sparse sources, and column slices of the transposed source are
+	 * contiguous copies; dense column vectors are returned via shallow vector transpose.
+	 * 
+	 * @param pred
+	 * @return
+	 * @throws CacheException
+	 */
+	private MatrixBlock readMatrixPartitionFromMemory( IndexRange pred ) 
+		throws CacheException
+	{
+		if( LOG.isTraceEnabled() )
+			LOG.trace("Acquire in-memory partition "+_varName+" "+pred);
+		long t0 = DMLScript.STATISTICS ? System.nanoTime() : 0;
+		
+		if ( !_partitioned )
+			throw new CacheStatusException ("MatrixObject not available to indexed read.");
+		
+		MatrixBlock mb = null;
+		
+		try
+		{
+			int rl = (int)(pred.rowStart-1);
+			int ru = (int)(pred.rowEnd-1);
+			int cl = (int)(pred.colStart-1);
+			int cu = (int)(pred.colEnd-1);
+			
+			MatrixBlock tsrc = _partitionSourceT;
+			if( tsrc != null && rl==0 && ru==_partitionSource.getNumRows()-1 ) 
+			{
+				//column access via row slice of transposed source
+				MatrixBlock tmp = tsrc.sliceOperations(cl, cu, rl, ru, new MatrixBlock());
+				mb = LibMatrixReorg.transpose(tmp, new MatrixBlock(ru-rl+1, cu-cl+1, tmp.isInSparseFormat()));
+			}
+			else 
+			{
+				//row access (or arbitrary ranges) via slice of source
+				mb = _partitionSource.sliceOperations(rl, ru, cl, cu, new MatrixBlock());
+			}
+			
+			//ensure correct sparse/dense output representation
+			mb.examSparsity();
+		}
+		catch(Exception ex)
+		{
+			throw new CacheException(ex);
+		}
+		
+		if( DMLScript.STATISTICS ){
+			long t1 = System.nanoTime();
+			CacheStatistics.incrementAcquireRTime(t1-t0);
+		}
+		
+		return mb;
+	}
+	
 	/**
 	 * 
 	 * @param pred
@@ -1674,6 +1977,110 @@ public class MatrixObject extends CacheableData
 		return _updateInPlaceFlag;
 	}
 	
+	/**
+	 * Enables the tracking of modified cell ranges relative to the current state of this
+	 * matrix (identified by its file name). Left indexing propagates the tracking state 
+	 * to its outputs, which allows parfor result merge to only compare and merge dirty
+	 * ranges of worker results. 
+	 */
+	public void enableDirtyRangeTracking()
+	{
+		_dirtyBase = _hdfsFileName;
+		_dirtyRange = null;
+	}
+	
+	/**
+	 * 
+	 */
+	public void disableDirtyRangeTracking()
+	{
+		_dirtyBase = null;
+		_dirtyRange = null;
+	}
+	
+	/**
+	 * 
+	 * @return
+	 */
+	public boolean isDirtyRangeTracked()
+	{
+		return (_dirtyBase != null);
+	}
+	
+	/**
+	 * 
+	 * @return file name of the original matrix, or null if not tracked
+	 */
+	public String getDirtyRangeBase()
+	{
+		return _dirtyBase;
+	}
+	
+	/**
+	 * 
+	 * @return bounding box of modified cells (1-based, inclusive), or null if unmodified
+	 */
+	public IndexRange getDirtyRange()
+	{
+		return _dirtyRange;
+	}
+	
+	/**
+	 * Sets the tracking state, i.e., this matrix is equivalent to the original matrix
+	 * of the given file name except for the given range of cells.
+	 * 
+	 * @param base
+	 * @param range
+	 */
+	public void setDirtyRange( String base, IndexRange range )
+	{
+		_dirtyBase = base;
+		_dirtyRange = range;
+	}
+	
+	/**
+	 * Obtains the lineage of the current data, where matrices of unknown origin are
+	 * represented by a unique leaf. Returns null for matrices with update-in-place
+	 * because their data might be modified without acquire modify.
+	 * 
+	 * @return
+	 */
+	public synchronized LineageItem getLineage()
+	{
+		if( _updateInPlaceFlag )
+			return null;
+		if( _lineage == null )
+			_lineage = LineageItem.createLeaf();
+		return _lineage;
+	}
+	
+	/**
+	 * Sets the lineage of the current data (after acquire modify and release).
+	 * 
+	 * @param lineage
+	 */
+	public synchronized void setLineage( LineageItem lineage )
+	{
+		_lineage = lineage;
+	}
+	
+	/**
+	 * Obtains the density map of the current in-memory data, which is created on
+	 * first access and reused until the next modification. Returns null if the data
+	 * is not in memory (we never read evicted or persistent data for estimation), 
+	 * currently modified, or subject to update-in-place.
+	 * 
+	 * @return
+	 */
+	public synchronized DensityMap getDensityMap()
+	{
+		if( _data == null || _updateInPlaceFlag || isModify() )
+			return null;
+		if( _densityMap == null )
+			_densityMap = DensityMap.create(_data);
+		return _densityMap;
+	}
+	
 	
 
 	/**
@@ -37,12 +37,22 @@ public class ExecutionContextFactory
 		return createContext(true, prog);
 	}
 	
+	public static ExecutionContext createContext( boolean allocateVars, Program prog )
+	{
+		return createContext(allocateVars, prog, false);
+	}
+	
 	/**
+	 * Creates an execution context for the given program, where the asynchronous 
+	 * spark context creation should only be requested by the top-level context 
+	 * of a program execution (not by nested or temporary contexts).
 	 * 
-	 * @param platform
+	 * @param allocateVars
+	 * @param prog
+	 * @param asyncInit
 	 * @return
 	 */
-	public static ExecutionContext createContext( boolean allocateVars, Program prog )
+	public static ExecutionContext createContext( boolean allocateVars, Program prog, boolean asyncInit )
 	{
 		ExecutionContext ec = null;
 		
@@ -56,7 +66,7 @@ public class ExecutionContextFactory
 				
 			case SPARK:
 			case HYBRID_SPARK:
-				ec = new SparkExecutionContext(allocateVars, prog);
+				ec = new SparkExecutionContext(allocateVars, prog, asyncInit);
 				break;
 		}
 		
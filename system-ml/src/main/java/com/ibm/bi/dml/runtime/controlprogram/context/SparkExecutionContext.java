@@ -51,6 +51,7 @@ import com.ibm.bi.dml.runtime.instructions.spark.data.RDDObject;
 import com.ibm.bi.dml.runtime.instructions.spark.functions.CopyBinaryCellFunction;
 import com.ibm.bi.dml.runtime.instructions.spark.functions.CopyBlockPairFunction;
 import com.ibm.bi.dml.runtime.instructions.spark.functions.CopyTextInputFunction;
+import com.ibm.bi.dml.runtime.instructions.spark.functions.SparkListener;
 import com.ibm.bi.dml.runtime.instructions.spark.utils.RDDAggregateUtils;
 import com.ibm.bi.dml.runtime.instructions.spark.utils.SparkUtils;
 import com.ibm.bi.dml.runtime.matrix.data.InputInfo;
@@ -60,6 +61,8 @@ import com.ibm.bi.dml.runtime.matrix.data.MatrixIndexes;
 import com.ibm.bi.dml.runtime.matrix.data.OutputInfo;
 import com.ibm.bi.dml.runtime.matrix.mapred.MRJobConfiguration;
 import com.ibm.bi.dml.runtime.util.MapReduceTool;
+import com.ibm.bi.dml.utils.Explain;
+import com.ibm.bi.dml.utils.Explain.ExplainCounts;
 import com.ibm.bi.dml.utils.Statistics;
 
 
@@ -70,6 +73,7 @@ public class SparkExecutionContext extends ExecutionContext
 
 	//internal configurations 
 	private static boolean LAZY_SPARKCTX_CREATION = true;
+	private static boolean ASYNC_SPARKCTX_CREATION = true;
 	private static boolean ASYNCHRONOUS_VAR_DESTROY = true;
 	private static boolean FAIR_SCHEDULER_MODE = true;
 	
@@ -83,21 +87,44 @@ public class SparkExecutionContext extends ExecutionContext
 	
 	// Only one SparkContext may be active per JVM. You must stop() the active SparkContext before creating a new one. 
 	// This limitation may eventually be removed; see SPARK-2243 for more details.
-	private static JavaSparkContext _spctx = null; 
+	private static volatile JavaSparkContext _spctx = null; 
+	
+	//background thread of asynchronous spark context creation (if any), where pending
+	//and close requests of asynchronous creations are guarded by the async lock
+	private static volatile Thread _asyncCtxInit = null;
+	private static volatile boolean _asyncCtxPending = false;
+	private static boolean _asyncCtxClose = false;
+	private static final Object _asyncLock = new Object();
 	
 	protected SparkExecutionContext(Program prog) 
 	{
 		//protected constructor to force use of ExecutionContextFactory
-		this( true, prog );
+		this( true, prog, false );
 	}
 
 	protected SparkExecutionContext(boolean allocateVars, Program prog) 
+	{
+		//protected constructor to force use of ExecutionContextFactory
+		this( allocateVars, prog, false );
+	}
+	
+	protected SparkExecutionContext(boolean allocateVars, Program prog, boolean asyncInit) 
 	{
 		//protected constructor to force use of ExecutionContextFactory
 		super( allocateVars, prog );
-				
+		
+		//reuse a pending asynchronous spark context creation of a closed context
+		cancelAsyncSparkContextClose();
+		
+		//asynchronous spark context creation for top-level programs with spark instructions,
+		//which allows to overlap the context startup with preceding cp instructions
+		if( ASYNC_SPARKCTX_CREATION && asyncInit && prog != null ) {
+			if( !OptimizerUtils.isHybridExecutionMode() || requiresSparkContext(prog) )
+				initSparkContextAsync();
+		}
 		//spark context creation via internal initializer
-		if( !(LAZY_SPARKCTX_CREATION && OptimizerUtils.isHybridExecutionMode()) ) {
+		else if( !(LAZY_SPARKCTX_CREATION && OptimizerUtils.isHybridExecutionMode()) 
+			&& !_asyncCtxPending ) {
 			initSparkContext();
 		}
 	}
@@ -110,10 +137,13 @@ public class SparkExecutionContext extends ExecutionContext
 	 */
 	public JavaSparkContext getSparkContext()
 	{
-		//lazy spark context creation on demand (lazy instead of asynchronous 
-		//to avoid wait for uninitialized spark context on close)
-		if( LAZY_SPARKCTX_CREATION ) {
+		//lazy spark context creation on demand or wait for pending 
+		//asynchronous spark context creation (no-op if already created)
+		if( _spctx == null && (LAZY_SPARKCTX_CREATION || ASYNC_SPARKCTX_CREATION) ) {
+			long t0 = DMLScript.STATISTICS ? System.nanoTime() : 0;
 			initSparkContext();
+			if( DMLScript.STATISTICS )
+				Statistics.incrementSparkCtxWaitTime(System.nanoTime()-t0);
 		}
 		
 		//return the created spark context
@@ -135,16 +165,30 @@ public class SparkExecutionContext extends ExecutionContext
 	 */
 	public void close() 
 	{
-		synchronized( SparkExecutionContext.class ) {
-			if( _spctx != null ) 
-			{
-				//stop the spark context if existing
-				_spctx.stop();
-				
-				//make sure stopped context is never used again
-				_spctx = null; 
+		//pending asynchronous spark context creation: the context is
+		//stopped once created (without blocking until its creation)
+		synchronized( _asyncLock ) {
+			if( _asyncCtxPending ) {
+				_asyncCtxClose = true;
+				return;
 			}
-				
+		}
+		
+		stopSparkContext();
+	}
+	
+	/**
+	 * 
+	 */
+	private synchronized static void stopSparkContext()
+	{
+		if( _spctx != null ) 
+		{
+			//stop the spark context if existing
+			_spctx.stop();
+			
+			//make sure stopped context is never used again
+			_spctx = null; 
 		}
 	}
 	
@@ -152,6 +196,79 @@ public class SparkExecutionContext extends ExecutionContext
 		return LAZY_SPARKCTX_CREATION;
 	}
 	
+	/**
+	 * Indicates if the spark context is (or has been) created asynchronously.
+	 * 
+	 * @return
+	 */
+	public static boolean isAsyncSparkContextCreation(){
+		return (_asyncCtxInit != null);
+	}
+	
+	/**
+	 * Indicates if the given program contains spark instructions that cannot be 
+	 * executed in CP after recompilation (i.e., w/o persistent reblocks), which 
+	 * requires a spark context. 
+	 * 
+	 * @param prog
+	 * @return
+	 */
+	private static boolean requiresSparkContext( Program prog )
+	{
+		ExplainCounts counts = Explain.countDistributedOperations(prog);
+		return (counts.numJobs - counts.numReblocks > 0);
+	}
+	
+	/**
+	 * Starts the spark context creation in a background thread, if not already 
+	 * created or in progress. Callers of getSparkContext block until the context 
+	 * is available, while cp instructions can be executed concurrently.
+	 */
+	private static void initSparkContextAsync()
+	{
+		synchronized( _asyncLock )
+		{
+			//check for redundant spark context init
+			if( _spctx != null || _asyncCtxPending )
+				return;
+			
+			_asyncCtxPending = true;
+			_asyncCtxInit = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						initSparkContext();
+					}
+					catch(Exception ex) {
+						//errors are raised on the next synchronous init
+						LOG.warn("Failed asynchronous spark context creation.", ex);
+					}
+					finally {
+						//stop the created context if closed in the meantime
+						synchronized( _asyncLock ) {
+							if( _asyncCtxClose )
+								stopSparkContext();
+							_asyncCtxClose = false;
+							_asyncCtxPending = false;
+						}
+					}
+				}
+			}, "SparkContextInit");
+			_asyncCtxInit.setDaemon(true);
+			_asyncCtxInit.start();
+		}
+	}
+	
+	/**
+	 * 
+	 */
+	private static void cancelAsyncSparkContextClose()
+	{
+		synchronized( _asyncLock ) {
+			_asyncCtxClose = false;
+		}
+	}
+	
 	/**
 	 * 
 	 */
@@ -207,8 +324,11 @@ public class SparkExecutionContext extends ExecutionContext
 		if( MRJobConfiguration.USE_BINARYBLOCK_SERIALIZATION )
 			MRJobConfiguration.addBinaryBlockSerializationFramework( _spctx.hadoopConfiguration() );
 		
-		//statistics maintenance
+		//statistics maintenance (incl listener for measured stage metrics, which 
+		//is only registered for own spark contexts that are stopped on close)
 		if( DMLScript.STATISTICS ){
+			if( mlCtx == null )
+				_spctx.sc().addSparkListener(new SparkListener(_spctx.sc(), false));
 			Statistics.setSparkCtxCreateTime(System.nanoTime()-t0);
 		}
 	}	
@@ -911,6 +1031,30 @@ public class SparkExecutionContext extends ExecutionContext
 		outro.setCheckpointRDD(true);              //mark as checkpointed
 		outro.addLineageChild(inro);               //keep lineage to prevent cycles on cleanup
 		mo.setRDDHandle(outro);				       
+		
+		//prompt cleanup of materialized input checkpoints (not required anymore)
+		cleanupDeadCheckpointChilds(outro);
+	}
+	
+	/**
+	 * Unpersists checkpointed lineage children of the given (materialized and persisted)
+	 * rdd object, which are neither referenced by other lineage objects nor reachable 
+	 * through a matrix object. These children are dead because all subsequent reads are
+	 * served by the given rdd, but would otherwise only be cleaned up on rmvar of the
+	 * given rdd's matrix object.
+	 * 
+	 * @param lob
+	 */
+	private void cleanupDeadCheckpointChilds( RDDObject lob )
+	{
+		for( LineageObject c : lob.getLineageChilds() ) 
+		{
+			if( c instanceof RDDObject && ((RDDObject)c).isCheckpointRDD()
+				&& c.getNumReferences() == 1 && !c.hasBackReference() ) 
+			{
+				cleanupRDDVariable(((RDDObject)c).getRDD());
+			}
+		}
 	}
 	
 	/**
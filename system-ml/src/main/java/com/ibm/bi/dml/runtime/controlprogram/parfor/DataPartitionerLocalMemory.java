@@ -0,0 +1,113 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.runtime.controlprogram.parfor;
+
+import com.ibm.bi.dml.hops.Hop;
+import com.ibm.bi.dml.runtime.DMLRuntimeException;
+import com.ibm.bi.dml.runtime.controlprogram.ParForProgramBlock.PDataPartitionFormat;
+import com.ibm.bi.dml.runtime.controlprogram.caching.MatrixObject;
+import com.ibm.bi.dml.runtime.matrix.MatrixCharacteristics;
+import com.ibm.bi.dml.runtime.matrix.MatrixFormatMetaData;
+import com.ibm.bi.dml.runtime.matrix.data.InputInfo;
+import com.ibm.bi.dml.runtime.matrix.data.LibMatrixReorg;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
+import com.ibm.bi.dml.runtime.matrix.data.OutputInfo;
+
+/**
+ * In-memory data partitioner for local parfor, which creates a partitioned matrix object
+ * without physical data partitions. Instead of writing each row or column partition to 
+ * a separate file, the partitioned matrix object references the in-memory input block and 
+ * parfor workers slice their partitions directly from memory (lock-free). For column-wise 
+ * formats, we additionally keep a transposed copy of the input, such that each column 
+ * partition is a contiguous row slice of the transposed block.
+ * 
+ * NOTE: This partitioner requires that the input matrix fits into the local memory budget 
+ * (ensured by the parfor optimizer) and that the partitioned matrix is only consumed by 
+ * local parfor workers that share the partitioned matrix object.
+ * 
+ */
+public class DataPartitionerLocalMemory extends DataPartitioner
+{
+	
+	public DataPartitionerLocalMemory(PDataPartitionFormat dpf, int n) 
+	{
+		super(dpf, n);
+	}
+	
+	@Override
+	public MatrixObject createPartitionedMatrixObject( MatrixObject in, MatrixObject out, boolean force )
+		throws DMLRuntimeException
+	{
+		//check for naive partitioning
+		if( _format == PDataPartitionFormat.NONE )
+			return in;
+		
+		//analyze input matrix object
+		MatrixFormatMetaData meta = (MatrixFormatMetaData)in.getMetaData();
+		MatrixCharacteristics mc = meta.getMatrixCharacteristics();
+		
+		//check lower bound of useful data partitioning
+		if( !force && mc.getRows() < Hop.CPThreshold && mc.getCols() < Hop.CPThreshold )
+			return in;
+		
+		//get in-memory input block (read into memory if necessary)
+		//note: the partitioned matrix object holds a strong reference to the 
+		//input block, hence we do not need to keep the read lock of the input
+		MatrixBlock mb = in.acquireRead();
+		in.release();
+		
+		//create transposed copy for column-wise access (contiguous columns)
+		MatrixBlock tmb = null;
+		if( isColumnWiseFormat(_format) && mb.getNumRows() > 1 && mb.getNumColumns() > 1 ) 
+		{
+			tmb = new MatrixBlock(mb.getNumColumns(), mb.getNumRows(), mb.isInSparseFormat());
+			tmb = LibMatrixReorg.transpose(mb, tmb);
+		}
+		
+		//create output matrix object
+		out.setPartitioned( _format, _n ); 
+		out.setInMemoryPartitionSource( mb, tmb );
+		
+		MatrixCharacteristics mcNew = new MatrixCharacteristics( mc.getRows(), mc.getCols(), 
+				mc.getRowsPerBlock(), mc.getColsPerBlock(), mc.getNonZeros() ); 
+		MatrixFormatMetaData metaNew = new MatrixFormatMetaData(mcNew, meta.getOutputInfo(), meta.getInputInfo());
+		out.setMetaData(metaNew);	 
+		
+		return out;
+	}
+	
+	@Override
+	protected void partitionMatrix(MatrixObject in, String fnameNew, InputInfo ii, OutputInfo oi, long rlen, long clen, int brlen, int bclen)
+		throws DMLRuntimeException 
+	{
+		//note: never called because no physical partitions are created
+		throw new DMLRuntimeException("Physical data partitioning not supported by DataPartitionerLocalMemory.");
+	}
+	
+	/**
+	 * 
+	 * @param dpf
+	 * @return
+	 */
+	private static boolean isColumnWiseFormat( PDataPartitionFormat dpf )
+	{
+		return (   dpf == PDataPartitionFormat.COLUMN_WISE 
+				|| dpf == PDataPartitionFormat.COLUMN_BLOCK_WISE
+				|| dpf == PDataPartitionFormat.COLUMN_BLOCK_WISE_N );
+	}
+}
@@ -36,6 +36,8 @@ import com.ibm.bi.dml.runtime.controlprogram.parfor.stat.Timing;
 public class LocalParWorker extends ParWorker implements Runnable
 {
 	protected LocalTaskQueue<Task> _taskQueue   = null;
+	protected int                  _taskQueueIx = 0; //worker index for per-worker task deques
+	protected LocalParWorkerController _controller = null; //optional dynamic dop controller
 	
 	protected Collection<String> _fnNames = null;
 	
@@ -60,6 +62,26 @@ public class LocalParWorker extends ParWorker implements Runnable
 		_stopped = true;
 	}
 	
+	/**
+	 * Sets the index of this worker in the task queue, which is used
+	 * for worker affinity of tasks (e.g., in work-stealing queues).
+	 * 
+	 * @param ix
+	 */
+	public void setTaskQueueIndex(int ix) {
+		_taskQueueIx = ix;
+	}
+	
+	/**
+	 * Sets the controller of the dynamic degree of parallelism, which 
+	 * blocks this worker before dequeuing tasks while it is inactive.
+	 * 
+	 * @param controller
+	 */
+	public void setController(LocalParWorkerController controller) {
+		_controller = controller;
+	}
+	
 	public void setFunctionNames(Collection<String> fnNames) {
 		_fnNames = fnNames;
 	}
@@ -88,7 +110,11 @@ public class LocalParWorker extends ParWorker implements Runnable
 			//dequeue the next task (abort on NO_MORE_TASKS or error)
 			try
 			{
-				lTask = _taskQueue.dequeueTask();
+				//wait while inactive (dynamic degree of parallelism)
+				if( _controller != null )
+					_controller.awaitActive( _taskQueueIx );
+				
+				lTask = _taskQueue.dequeueTask( _taskQueueIx );
 				
 				if( lTask == LocalTaskQueue.NO_MORE_TASKS ) // task queue closed (no more tasks)
 					break; //normal end of parallel worker
@@ -131,6 +157,13 @@ public class LocalParWorker extends ParWorker implements Runnable
 			}
 		}	
 
+		//release inactive workers (end of tasks, all workers terminate)
+		//and return thread of this worker to the shared thread budget
+		if( _controller != null ) {
+			_controller.close();
+			_controller.releaseWorker();
+		}
+		
 		//setup fair scheduler pool for worker thread
 		if( OptimizerUtils.isSparkExecutionMode() ) {
 			SparkExecutionContext sec = (SparkExecutionContext)_ec;
@@ -141,6 +174,11 @@ public class LocalParWorker extends ParWorker implements Runnable
 			StatisticMonitor.putPWStat(_workerID, Stat.PARWRK_NUMTASKS, _numTasks);
 			StatisticMonitor.putPWStat(_workerID, Stat.PARWRK_NUMITERS, _numIters);
 			StatisticMonitor.putPWStat(_workerID, Stat.PARWRK_EXEC_T, time1.stop());
+			if( _taskQueue instanceof LocalTaskQueueWorkStealing ) {
+				LocalTaskQueueWorkStealing wsqueue = (LocalTaskQueueWorkStealing) _taskQueue;
+				StatisticMonitor.putPWStat(_workerID, Stat.PARWRK_NUMSTEALS, wsqueue.getNumSteals(_taskQueueIx));
+				StatisticMonitor.putPWStat(_workerID, Stat.PARWRK_NUMSPLITS, wsqueue.getNumSplits(_taskQueueIx));
+			}
 		}
 	}
 }
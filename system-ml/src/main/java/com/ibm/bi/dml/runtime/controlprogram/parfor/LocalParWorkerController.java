@@ -0,0 +1,261 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.runtime.controlprogram.parfor;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.ibm.bi.dml.runtime.controlprogram.parfor.stat.InfrastructureAnalyzer;
+import com.ibm.bi.dml.runtime.util.ThreadBudget;
+
+/**
+ * Runtime controller of the degree of parallelism of local parfor. All parallel workers are 
+ * created upfront, but only workers with an index below the current degree of parallelism 
+ * (DOP) take new tasks, while the remaining workers wait. The DOP is the minimum of two limits:
+ * 
+ * (1) Memory: the controller starts with the given initial DOP and (if dynamic) periodically 
+ * samples the heap utilization and the fraction of GC time in order to gradually grow (no memory
+ * pressure) or shrink (memory pressure) the number of active workers during execution. 
+ * 
+ * (2) Threads: if enabled, active workers are backed by threads of the shared thread budget, 
+ * where the calling thread's slot is passed to the first worker. Threads that are not available
+ * at startup (e.g., for nested parfor) are acquired during execution as soon as they are released
+ * by other parfor workers or operations. Finished workers return their threads immediately, 
+ * which makes them available to operations of the remaining workers. 
+ * 
+ * Growing is bounded by the given max DOP w.r.t. the compiled memory budget, i.e., the number 
+ * of workers that can concurrently use their entire recompile memory budget. Shrinking takes 
+ * effect as soon as a worker finished its current task. The DOP never drops below one, which 
+ * guarantees progress.
+ * 
+ */
+public class LocalParWorkerController implements Runnable
+{
+	
+	protected static final Log LOG = LogFactory.getLog(LocalParWorkerController.class.getName());
+	
+	private static final long   INTERVAL      = 200;  //in ms, sampling interval
+	private static final double MEM_UTIL_HIGH = 0.85; //heap utilization for pressure (if gc active)
+	private static final double MEM_UTIL_LOW  = 0.6;  //heap utilization for growing
+	private static final double GC_FRAC_HIGH  = 0.25; //fraction of gc time for pressure
+	private static final double GC_FRAC_LOW   = 0.05; //fraction of gc time for growing
+	
+	private int     _maxK     = -1;    //max degree of parallelism (number of workers)
+	private int     _capK     = -1;    //max degree of parallelism w.r.t. compiled memory budget
+	private int     _memK     = -1;    //degree of parallelism w.r.t. memory
+	private int     _k        = -1;    //current degree of parallelism
+	private boolean _dynamic  = false; //memory-based adjustments
+	private boolean _budget   = false; //threads from shared thread budget
+	private int     _threads  = 0;     //acquired threads (in addition to calling thread)
+	private int     _running  = -1;    //number of running workers
+	private boolean _closed   = false; //no more throttling (e.g., end of tasks)
+	
+	//statistics of dop decisions
+	private int     _minActiveK  = -1;
+	private int     _maxActiveK  = -1;
+	private int     _numIncrease = 0;
+	private int     _numDecrease = 0;
+	
+	/**
+	 * 
+	 * @param maxK number of workers
+	 * @param initK initial degree of parallelism w.r.t. memory
+	 * @param capK max degree of parallelism w.r.t. compiled memory budget
+	 * @param dynamic memory-based adjustments according to heap utilization and gc time
+	 * @param budget acquire threads of active workers from shared thread budget
+	 */
+	public LocalParWorkerController( int maxK, int initK, int capK, boolean dynamic, boolean budget )
+	{
+		_maxK = maxK;
+		_capK = Math.max(Math.min(capK, maxK), 1);
+		_memK = Math.max(Math.min(initK, _capK), 1);
+		_dynamic = dynamic;
+		_budget = budget;
+		_running = maxK;
+		
+		//acquire threads for initial degree of parallelism
+		_threads = budget ? ThreadBudget.acquireAdditional(_memK-1) : 0;
+		_k = budget ? 1 + _threads : _memK;
+		_minActiveK = _k;
+		_maxActiveK = _k;
+	}
+	
+	/**
+	 * Starts the sampling thread of this controller (daemon thread 
+	 * in order to never block the termination of the JVM). Sampling 
+	 * is only required for memory-based adjustments or if not all 
+	 * threads could be acquired initially.
+	 */
+	public void start()
+	{
+		if( !_dynamic && _k >= _memK )
+			return;
+		
+		Thread thread = new Thread(this, "ParForDOPController");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Blocks the calling worker as long as its index is not below the current 
+	 * degree of parallelism and the controller is not closed.
+	 * 
+	 * @param workerIx
+	 * @throws InterruptedException
+	 */
+	public synchronized void awaitActive( int workerIx )
+		throws InterruptedException
+	{
+		while( !_closed && workerIx >= _k )
+			wait();
+	}
+	
+	/**
+	 * Closes the controller, i.e., stops sampling and releases all waiting workers. 
+	 * This is called by the first worker that observed the end of the task queue 
+	 * (all remaining workers then terminate as well) and after execution.
+	 */
+	public synchronized void close()
+	{
+		_closed = true;
+		notifyAll();
+	}
+	
+	/**
+	 * Notifies the controller about a terminated worker, which returns its thread
+	 * to the shared thread budget (except for the calling thread's slot).
+	 */
+	public synchronized void releaseWorker()
+	{
+		_running--;
+		if( _budget && _threads > Math.max(_running-1, 0) ) {
+			ThreadBudget.releaseAdditional(1);
+			_threads--;
+		}
+	}
+	
+	/**
+	 * Returns all remaining threads to the shared thread budget, which is called 
+	 * after execution (robustness for errors).
+	 */
+	public synchronized void releaseThreads()
+	{
+		if( _budget )
+			ThreadBudget.releaseAdditional(_threads);
+		_threads = 0;
+	}
+	
+	public synchronized int getDegreeOfParallelism() {
+		return _k;
+	}
+	
+	public synchronized int getMinDegreeOfParallelism() {
+		return _minActiveK;
+	}
+	
+	public synchronized int getMaxDegreeOfParallelism() {
+		return _maxActiveK;
+	}
+	
+	public synchronized int getNumAdjustments() {
+		return _numIncrease + _numDecrease;
+	}
+	
+	@Override
+	public void run()
+	{
+		long lastTime = System.currentTimeMillis();
+		long lastGCTime = InfrastructureAnalyzer.getLocalGCTime();
+		
+		try
+		{
+			while( true )
+			{
+				synchronized( this ) {
+					if( !_closed )
+						wait( INTERVAL );
+					if( _closed )
+						break;
+				}
+				
+				//sample heap utilization and fraction of gc time since last sample
+				long time = System.currentTimeMillis();
+				long gcTime = InfrastructureAnalyzer.getLocalGCTime();
+				double memUtil = InfrastructureAnalyzer.getLocalHeapUtilization();
+				double gcFrac = (time > lastTime) ? ((double)(gcTime-lastGCTime))/(time-lastTime) : 0;
+				lastTime = time;
+				lastGCTime = gcTime;
+				
+				adjustDegreeOfParallelism( memUtil, gcFrac );
+			}
+		}
+		catch(InterruptedException ex) {
+			//stop sampling, keep current degree of parallelism
+		}
+	}
+	
+	/**
+	 * 
+	 * @param memUtil
+	 * @param gcFrac
+	 */
+	private synchronized void adjustDegreeOfParallelism( double memUtil, double gcFrac )
+	{
+		//adjust memory-based degree of parallelism
+		if( _dynamic )
+		{
+			boolean pressure = (gcFrac > GC_FRAC_HIGH) || (memUtil > MEM_UTIL_HIGH && gcFrac > GC_FRAC_LOW);
+			boolean relaxed  = (gcFrac <= GC_FRAC_LOW) && (memUtil < MEM_UTIL_LOW);
+			if( pressure && _memK > 1 )
+				_memK--; //shrink (after current task of last active worker)
+			else if( relaxed && _memK < _capK )
+				_memK++; //grow (never beyond compiled memory budget)
+		}
+		
+		//acquire or release threads according to memory-based degree of parallelism
+		//(never more threads than running workers, in order to yield to other operations)
+		int k = _memK;
+		if( _budget ) {
+			int target = Math.max(Math.min(_memK, _running), 1);
+			if( 1 + _threads > target ) {
+				ThreadBudget.releaseAdditional(1 + _threads - target);
+				_threads = target - 1;
+			}
+			else if( 1 + _threads < target )
+				_threads += ThreadBudget.acquireAdditional(target - 1 - _threads);
+			k = Math.min(1 + _threads, _memK);
+		}
+		
+		if( k < _k ) {
+			_numDecrease++;
+			_minActiveK = Math.min(_minActiveK, k);
+		}
+		else if( k > _k ) {
+			_numIncrease++;
+			_maxActiveK = Math.max(_maxActiveK, k);
+			notifyAll(); //wake up next workers
+		}
+		else {
+			return; //no change
+		}
+		_k = k;
+		
+		if( LOG.isDebugEnabled() )
+			LOG.debug("Adjusted parfor degree of parallelism to "+_k+" (heap="+memUtil+", gc="+gcFrac+", threads="+(1+_threads)+").");
+	}
+}
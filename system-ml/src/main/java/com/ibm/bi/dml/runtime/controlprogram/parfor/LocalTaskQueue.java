@@ -95,6 +95,20 @@ public class LocalTaskQueue<T>
 		return t;
 	}
 	
+	/**
+	 * Read and delete of the next task for the worker with the given index. The
+	 * default FIFO queue is shared by all workers and hence ignores the index.
+	 * 
+	 * @param workerIx
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public T dequeueTask( int workerIx ) 
+		throws InterruptedException
+	{
+		return dequeueTask();
+	}
+	
 	/**
 	 * Synchronized (logical) insert of a NO_MORE_TASKS symbol at the end of the FIFO queue in order to
 	 * mark that no more tasks will be inserted into the queue.
@@ -0,0 +1,369 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.runtime.controlprogram.parfor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ibm.bi.dml.runtime.controlprogram.parfor.Task.TaskType;
+import com.ibm.bi.dml.runtime.instructions.cp.IntObject;
+
+/**
+ * This task queue provides dynamic task distribution via work stealing. In contrast to
+ * the shared FIFO queue, every worker owns a deque of tasks and takes tasks from the front
+ * of its own deque. Idle workers steal tasks from the back of other workers' deques, which
+ * avoids a global lock on the common path and the idle tail of fixed task sizes.
+ * 
+ * Range tasks are split adaptively: a worker takes only a chunk of its current range
+ * (proportional to the remaining range size, but at least the minimum task size), while
+ * thieves take the upper half of a victim's last range. Hence, task sizes decrease
+ * towards the end of the parfor loop, which gives a good load balance even for iterations
+ * of highly variable costs.
+ * 
+ * Each deque is guarded by its own lock; the queue monitor is only used for blocking
+ * workers that wait for new tasks (streaming task creation) or the end of the input.
+ * 
+ */
+public class LocalTaskQueueWorkStealing extends LocalTaskQueue<Task>
+{
+
+	private static final long WAIT_TIMEOUT = 100; //in ms, robustness against missed notifies
+
+	private ArrayList<ArrayDeque<Task>> _deques = null;
+	private AtomicInteger _numTasks  = null; //number of tasks in all deques
+	private long          _minSize   = -1;   //minimum chunk size of range tasks
+	private int           _nextDeque = 0;    //round robin enqueue position
+	private boolean       _closed    = false;
+
+	//statistics per worker (only modified by the worker itself)
+	private long[] _numSteals = null;
+	private long[] _numSplits = null;
+
+	public LocalTaskQueueWorkStealing( int numWorkers, long minTaskSize )
+	{
+		_deques = new ArrayList<ArrayDeque<Task>>(numWorkers);
+		for( int i=0; i<numWorkers; i++ )
+			_deques.add(new ArrayDeque<Task>());
+		_numTasks = new AtomicInteger(0);
+		_minSize = Math.max(minTaskSize, 1);
+
+		_numSteals = new long[numWorkers];
+		_numSplits = new long[numWorkers];
+	}
+
+	/**
+	 * Insert of a new task at the end of a worker deque (round robin
+	 * assignment of tasks to workers).
+	 * 
+	 * @param t
+	 * @throws InterruptedException
+	 */
+	@Override
+	public void enqueueTask( Task t )
+		throws InterruptedException
+	{
+		int ix = -1;
+		synchronized( this ) {
+			ix = _nextDeque;
+			_nextDeque = (_nextDeque + 1) % _deques.size();
+		}
+
+		ArrayDeque<Task> dq = _deques.get(ix);
+		synchronized( dq ) {
+			dq.addLast(t);
+		}
+		_numTasks.incrementAndGet();
+
+		synchronized( this ) {
+			notifyAll(); //notify waiting workers
+		}
+	}
+
+	/**
+	 * Read of the next task without worker affinity, which is only used by
+	 * consumers other than local parfor workers (e.g., task serialization).
+	 * 
+	 * @return
+	 * @throws InterruptedException
+	 */
+	@Override
+	public Task dequeueTask()
+		throws InterruptedException
+	{
+		return dequeueTask(0);
+	}
+
+	/**
+	 * Read of the next task for the given worker: (1) a chunk from the front of the
+	 * worker's own deque, (2) a stolen task from the back of another worker's deque,
+	 * or (3) NO_MORE_TASKS if all deques are empty and the input is closed.
+	 * 
+	 * @param workerIx
+	 * @return
+	 * @throws InterruptedException
+	 */
+	@Override
+	public Task dequeueTask( int workerIx )
+		throws InterruptedException
+	{
+		int ix = workerIx % _deques.size();
+
+		while( true )
+		{
+			//take chunk from own deque
+			Task t = pollLocal( ix );
+			if( t != null )
+				return t;
+
+			//steal from other workers
+			t = steal( ix );
+			if( t != null )
+				return t;
+
+			//wait for new tasks or end of input
+			synchronized( this ) {
+				if( _numTasks.get() == 0 ) {
+					if( _closed )
+						return (Task)NO_MORE_TASKS;
+					wait( WAIT_TIMEOUT );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks that no more tasks will be inserted into the queue.
+	 */
+	@Override
+	public synchronized void closeInput()
+	{
+		_closed = true;
+		notifyAll(); //notify all waiting workers
+	}
+
+	/**
+	 * Read of the current number of tasks in all deques.
+	 * 
+	 * @return
+	 */
+	@Override
+	public int size()
+	{
+		return _numTasks.get();
+	}
+
+	/**
+	 * 
+	 * @param workerIx
+	 * @return
+	 */
+	public long getNumSteals( int workerIx ) {
+		return _numSteals[workerIx % _deques.size()];
+	}
+
+	/**
+	 * 
+	 * @param workerIx
+	 * @return
+	 */
+	public long getNumSplits( int workerIx ) {
+		return _numSplits[workerIx % _deques.size()];
+	}
+
+	/**
+	 * Returns the total number of stolen tasks of all workers.
+	 * 
+	 * @return
+	 */
+	public long getNumSteals() {
+		long ret = 0;
+		for( int i=0; i<_deques.size(); i++ )
+			ret += _numSteals[i];
+		return ret;
+	}
+
+	/**
+	 * Returns the total number of range splits, i.e., the number of tasks
+	 * created in addition to the originally enqueued tasks.
+	 * 
+	 * @return
+	 */
+	public long getNumSplits() {
+		long ret = 0;
+		for( int i=0; i<_deques.size(); i++ )
+			ret += _numSplits[i];
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param ix
+	 * @return
+	 */
+	private Task pollLocal( int ix )
+	{
+		ArrayDeque<Task> dq = _deques.get(ix);
+		Task ret = null;
+
+		synchronized( dq )
+		{
+			Task t = dq.peekFirst();
+			if( t == null )
+				return null;
+
+			//adaptive splitting: take chunk proportional to the remaining range
+			long len = getRangeLength(t);
+			long chunk = Math.max(_minSize, (long)Math.ceil((double)len/(2*_deques.size())));
+			if( len > chunk ) {
+				ret = splitRangeTask(t, chunk, true);
+				_numSplits[ix]++;
+			}
+			else {
+				ret = dq.pollFirst();
+				_numTasks.decrementAndGet();
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param ix
+	 * @return
+	 */
+	private Task steal( int ix )
+	{
+		int k = _deques.size();
+		Task ret = null;
+
+		//probe victims starting at right neighbor
+		for( int i=1; i<k && ret==null; i++ )
+		{
+			ArrayDeque<Task> dq = _deques.get((ix + i) % k);
+			synchronized( dq )
+			{
+				Task t = dq.peekLast();
+				if( t != null ) {
+					//steal upper half of large ranges, otherwise the entire task
+					long len = getRangeLength(t);
+					if( len >= 2*_minSize ) {
+						ret = splitRangeTask(t, len - len/2, false);
+						_numSplits[ix]++;
+					}
+					else {
+						ret = dq.pollLast();
+						_numTasks.decrementAndGet();
+					}
+				}
+			}
+		}
+
+		if( ret != null )
+			_numSteals[ix]++;
+
+		return ret;
+	}
+
+	/**
+	 * Returns the number of iterations of a range task, and -1 for set tasks
+	 * (which are never split).
+	 * 
+	 * @param t
+	 * @return
+	 */
+	private static long getRangeLength( Task t )
+	{
+		if( t.getType() != TaskType.RANGE )
+			return -1;
+
+		List<IntObject> it = t.getIterations();
+		long from = it.get(0).getLongValue();
+		long to   = it.get(1).getLongValue();
+		long incr = it.get(2).getLongValue();
+		return (to - from) / incr + 1;
+	}
+
+	/**
+	 * Splits the given range task in-place and returns a new range task of the given
+	 * number of iterations, either from the beginning (head) or the end of the range.
+	 * 
+	 * @param t
+	 * @param len
+	 * @param head
+	 * @return
+	 */
+	private static Task splitRangeTask( Task t, long len, boolean head )
+	{
+		List<IntObject> it = t.getIterations();
+		String name = it.get(0).getName();
+		long from = it.get(0).getLongValue();
+		long to   = it.get(1).getLongValue();
+		long incr = it.get(2).getLongValue();
+
+		//split point (first iteration of upper part)
+		long split = head ? from + len*incr : from + ((to-from)/incr + 1 - len)*incr;
+
+		Task ret = new Task(TaskType.RANGE);
+		if( head ) {
+			ret.addIteration(new IntObject(name, from));
+			ret.addIteration(new IntObject(name, split-incr));
+			it.set(0, new IntObject(name, split));
+		}
+		else {
+			ret.addIteration(new IntObject(name, split));
+			ret.addIteration(new IntObject(name, to));
+			it.set(1, new IntObject(name, split-incr));
+		}
+		ret.addIteration(new IntObject(name, incr));
+
+		return ret;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("WORK-STEALING TASK QUEUE (size=");
+		sb.append(_numTasks.get());
+		sb.append(",close=");
+		sb.append(_closed);
+		sb.append(")\n");
+
+		for( int i=0; i<_deques.size(); i++ )
+		{
+			ArrayDeque<Task> dq = _deques.get(i);
+			synchronized( dq ) {
+				int count = 1;
+				for( Task t : dq ) {
+					sb.append("  WORKER #");
+					sb.append(i);
+					sb.append(" TASK #");
+					sb.append(count++);
+					sb.append(": ");
+					sb.append(t.toString());
+					sb.append("\n");
+				}
+			}
+		}
+
+		return sb.toString();
+	}
+}
@@ -17,12 +17,20 @@
 
 package com.ibm.bi.dml.runtime.controlprogram.parfor;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.StringTokenizer;
 import java.util.Map.Entry;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.xml.bind.DatatypeConverter;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -72,6 +80,7 @@ import com.ibm.bi.dml.runtime.instructions.cp.DoubleObject;
 import com.ibm.bi.dml.runtime.instructions.cp.FunctionCallCPInstruction;
 import com.ibm.bi.dml.runtime.instructions.cp.IntObject;
 import com.ibm.bi.dml.runtime.instructions.cp.ScalarObject;
+import com.ibm.bi.dml.runtime.instructions.cp.SpoofCPInstruction;
 import com.ibm.bi.dml.runtime.instructions.cp.StringObject;
 import com.ibm.bi.dml.runtime.instructions.cp.VariableCPInstruction;
 import com.ibm.bi.dml.runtime.instructions.mr.MRInstruction;
@@ -81,6 +90,7 @@ import com.ibm.bi.dml.runtime.matrix.MatrixFormatMetaData;
 import com.ibm.bi.dml.runtime.matrix.data.InputInfo;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
 import com.ibm.bi.dml.runtime.matrix.data.OutputInfo;
+import com.ibm.bi.dml.runtime.util.IndexRange;
 import com.ibm.bi.dml.udf.ExternalFunctionInvocationInstruction;
 
 /**
@@ -107,6 +117,7 @@ public class ProgramConverter
 	public static final String LEVELOUT          = "\u23ac"; //variant of right curly bracket; "\u007d"; //"}";	
 	public static final String EMPTY             = "null";
 	public static final String EXT_FUNCTION      = "extfunct";
+	public static final String CHARSET           = "UTF-8";
 	
 	//public static final String CP_ROOT_THREAD_SEPARATOR = "/";//File.separator;
 	public static final String CP_ROOT_THREAD_ID = "_t0";       
@@ -119,6 +130,7 @@ public class ProgramConverter
 	public static final String PARFOR_PROG_END   = LEVELOUT;	
 	public static final String PARFORBODY_BEGIN  = PARFOR_CDATA_BEGIN+"PARFORBODY" + LEVELIN;
 	public static final String PARFORBODY_END    = LEVELOUT+PARFOR_CDATA_END;
+	public static final String PARFORBODY_COMPACT = "PARFORBODY_Z:"; //prefix of compressed parfor bodies
 	public static final String PARFOR_VARS_BEGIN = "VARS: ";
 	public static final String PARFOR_VARS_END   = "";
 	public static final String PARFOR_PBS_BEGIN  = " PBS" + LEVELIN;
@@ -146,6 +158,8 @@ public class ProgramConverter
 	public static final String NOT_SUPPORTED_MR_PARFOR           = "Not supported: Nested ParFOR REMOTE_MR due to possible deadlocks." +
 			                                                       "(LOCAL can be used for innner ParFOR)";
 	public static final String NOT_SUPPORTED_PB                  = "Not supported: type of program block";
+	public static final String NOT_SUPPORTED_SPOOF_INSTRUCTION   = "Not supported: Instructions of generated operators in remote ParFOR " +
+			                                                       "(generated classes only available in local JVM, use local ParFOR)";
 	public static final String NOT_SUPPORTED_EXECUTION_CONTEXT   = "Parsing of external system execution context not supported yet.";
 	
 	
@@ -572,6 +586,13 @@ public class ProgramConverter
 		Instruction inst = null;
 		String tmpString = oInst.toString();
 		
+		//structural cloning: share immutable instructions (no re-parsing)
+		if( ParForProgramBlock.USE_STRUCTURAL_CLONING 
+			&& isShareableInstruction(oInst, tmpString) )
+		{
+			return oInst;
+		}
+		
 		try
 		{
 			if( oInst instanceof CPInstruction || oInst instanceof SPInstruction || oInst instanceof MRInstruction )
@@ -610,6 +631,26 @@ public class ProgramConverter
 		return inst;
 	}
 	
+	/**
+	 * Indicates if the given instruction can be shared across copies of a program block,
+	 * i.e., if it is stateless and independent of the parworker ID. CP and SPARK instructions
+	 * do not modify their own state during execution; hence, we only need to copy variable
+	 * instructions (thread-specific file names, updated in-place), function calls (function name
+	 * replacement, updated by setFunctionName), and instructions that refer to the root thread ID (e.g., scratch space
+	 * directories of rand/seq). MR job instructions are always copied.
+	 * 
+	 * @param inst
+	 * @param instStr
+	 * @return
+	 */
+	private static boolean isShareableInstruction( Instruction inst, String instStr )
+	{
+		return (inst instanceof CPInstruction || inst instanceof SPInstruction)
+			&& !(inst instanceof VariableCPInstruction)
+			&& !(inst instanceof FunctionCallCPInstruction)
+			&& !instStr.contains(CP_ROOT_THREAD_ID);
+	}
+	
 	/**
 	 * 
 	 * @param sb
@@ -891,9 +932,69 @@ public class ProgramConverter
 		
 		sb.append( PARFORBODY_END );
 		
+		//compact serialization (compressed, base64 encoded) for remote workers
+		if( ParForProgramBlock.USE_COMPACT_SERIALIZATION )
+			return compressParForBody( sb.toString() );
+		
 		return sb.toString();		
 	}
 	
+	/**
+	 * Creates a compact representation of a serialized parfor body. The text format is
+	 * highly redundant (multi-byte delimiters, repeated opcodes, variable names and file
+	 * names), which makes deflate very effective. The compressed bytes are base64 encoded
+	 * in order to remain a valid string for job configurations and spark closures.
+	 * 
+	 * @param in
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	public static String compressParForBody( String in ) 
+		throws DMLRuntimeException
+	{
+		try
+		{
+			ByteArrayOutputStream bos = new ByteArrayOutputStream( in.length()/4 );
+			DeflaterOutputStream dos = new DeflaterOutputStream( bos, new Deflater(Deflater.BEST_SPEED) );
+			dos.write( in.getBytes(CHARSET) );
+			dos.close();
+			
+			return PARFORBODY_COMPACT + DatatypeConverter.printBase64Binary( bos.toByteArray() );
+		}
+		catch(IOException ex)
+		{
+			throw new DMLRuntimeException("Failed to compress parfor body.", ex);
+		}
+	}
+	
+	/**
+	 * Reconstructs the text representation of a compact serialized parfor body.
+	 * 
+	 * @param in
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	public static String decompressParForBody( String in ) 
+		throws DMLRuntimeException
+	{
+		try
+		{
+			byte[] data = DatatypeConverter.parseBase64Binary( in.substring(PARFORBODY_COMPACT.length()) );
+			InflaterInputStream iis = new InflaterInputStream( new ByteArrayInputStream(data) );
+			ByteArrayOutputStream bos = new ByteArrayOutputStream( data.length*4 );
+			byte[] buff = new byte[8192];
+			for( int len = iis.read(buff); len > 0; len = iis.read(buff) )
+				bos.write(buff, 0, len);
+			iis.close();
+			
+			return new String( bos.toByteArray(), CHARSET );
+		}
+		catch(IOException ex)
+		{
+			throw new DMLRuntimeException("Failed to decompress parfor body.", ex);
+		}
+	}
+	
 	/**
 	 * 
 	 * @param prog
@@ -1016,7 +1117,8 @@ public class ProgramConverter
 				value = mo.getFileName();
 				PDataPartitionFormat partFormat = (mo.getPartitionFormat()!=null) ? mo.getPartitionFormat() : PDataPartitionFormat.NONE;
 				boolean inplace = mo.isUpdateInPlaceEnabled();
-				matrixMetaData = new String[9];
+				boolean tracked = mo.isDirtyRangeTracked();
+				matrixMetaData = new String[tracked ? 14 : 9];
 				matrixMetaData[0] = String.valueOf( mc.getRows() );
 				matrixMetaData[1] = String.valueOf( mc.getCols() );
 				matrixMetaData[2] = String.valueOf( mc.getRowsPerBlock() );
@@ -1026,6 +1128,14 @@ public class ProgramConverter
 				matrixMetaData[6] = OutputInfo.outputInfoToString( md.getOutputInfo() );
 				matrixMetaData[7] = String.valueOf( partFormat );
 				matrixMetaData[8] = String.valueOf( inplace );
+				if( tracked ) { //optional dirty range (see delta result merge)
+					IndexRange dirty = mo.getDirtyRange();
+					matrixMetaData[9]  = mo.getDirtyRangeBase();
+					matrixMetaData[10] = String.valueOf( (dirty!=null) ? dirty.rowStart : -1 );
+					matrixMetaData[11] = String.valueOf( (dirty!=null) ? dirty.rowEnd : -1 );
+					matrixMetaData[12] = String.valueOf( (dirty!=null) ? dirty.colStart : -1 );
+					matrixMetaData[13] = String.valueOf( (dirty!=null) ? dirty.colEnd : -1 );
+				}
 				break;
 			default:
 				throw new DMLRuntimeException("Unable to serialize datatype "+datatype);
@@ -1095,6 +1205,10 @@ public class ProgramConverter
 				throw new DMLRuntimeException( NOT_SUPPORTED_MR_INSTRUCTION + " " +linst.getClass().getName()+"\n"+linst );
 			}
 			
+			//check for generated operators (classes not available in remote JVMs)
+			if( linst instanceof SpoofCPInstruction )
+				throw new DMLRuntimeException( NOT_SUPPORTED_SPOOF_INSTRUCTION + "\n" + linst );
+			
 			if( count > 0 )
 				sb.append( ELEMENT_DELIM );
 			
@@ -1542,6 +1656,10 @@ public class ProgramConverter
 	{
 		ParForBody body = new ParForBody();
 		
+		//decompress compact serialized parfor body
+		if( in.startsWith(PARFORBODY_COMPACT) )
+			in = decompressParForBody( in );
+		
 		//header elimination
 		String tmpin = in.replaceAll(NEWLINE, ""); //normalization
 		tmpin = tmpin.substring(PARFORBODY_BEGIN.length(),tmpin.length()-PARFORBODY_END.length()); //remove start/end
@@ -2194,6 +2312,14 @@ public class ProgramConverter
 				if( partFormat!=PDataPartitionFormat.NONE )
 					mo.setPartitioned( partFormat, -1 ); //TODO once we support BLOCKWISE_N we should support it here as well
 				mo.enableUpdateInPlace(inplace);
+				if( st.hasMoreTokens() ) { //optional dirty range
+					String base = st.nextToken();
+					long rl = Long.parseLong( st.nextToken() );
+					long ru = Long.parseLong( st.nextToken() );
+					long cl = Long.parseLong( st.nextToken() );
+					long cu = Long.parseLong( st.nextToken() );
+					mo.setDirtyRange( base, (rl>0) ? new IndexRange(rl, ru, cl, cu) : null );
+				}
 				dat = mo;
 				break;
 			}
@@ -31,6 +31,13 @@ public class RemoteParForJobReturn
 	private int     _numTasks    = -1;
 	private int     _numIters    = -1;
 	private LocalVariableMap [] _variables = null;
+	
+	//optional aggregated task times (in ms)
+	private double  _parseTime   = -1;
+	private double  _execTime    = -1;
+	
+	//optional number of speculative task attempts
+	private int     _numSpecTasks = 0;
 		
 	public RemoteParForJobReturn( boolean successful, int numTasks, int numIters, LocalVariableMap [] variables )
 	{
@@ -67,6 +74,57 @@ public class RemoteParForJobReturn
 		return _numIters;
 	}
 	
+	/**
+	 * Sets the aggregated times of all tasks for obtaining parsed parfor 
+	 * bodies (parsing or cache lookup) and executing tasks.
+	 * 
+	 * @param parseTime
+	 * @param execTime
+	 */
+	public void setTaskTimes( double parseTime, double execTime )
+	{
+		_parseTime = parseTime;
+		_execTime  = execTime;
+	}
+	
+	/**
+	 * 
+	 * @return aggregated parse time in ms, -1 if unknown
+	 */
+	public double getTaskParseTime()
+	{
+		return _parseTime;
+	}
+	
+	/**
+	 * 
+	 * @return aggregated execute time in ms, -1 if unknown
+	 */
+	public double getTaskExecTime()
+	{
+		return _execTime;
+	}
+	
+	/**
+	 * Sets the number of speculative task attempts, i.e., duplicates 
+	 * of straggler tasks in addition to the regular task attempts.
+	 * 
+	 * @param numSpecTasks
+	 */
+	public void setNumSpeculativeTasks( int numSpecTasks )
+	{
+		_numSpecTasks = numSpecTasks;
+	}
+	
+	/**
+	 * 
+	 * @return number of speculative task attempts
+	 */
+	public int getNumSpeculativeTasks()
+	{
+		return _numSpecTasks;
+	}
+	
 	/**
 	 * 
 	 * @return
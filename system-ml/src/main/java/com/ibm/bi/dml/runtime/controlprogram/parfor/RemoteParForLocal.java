@@ -0,0 +1,328 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.runtime.controlprogram.parfor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.ibm.bi.dml.api.DMLScript;
+import com.ibm.bi.dml.runtime.DMLRuntimeException;
+import com.ibm.bi.dml.runtime.controlprogram.LocalVariableMap;
+import com.ibm.bi.dml.runtime.controlprogram.ParForProgramBlock;
+import com.ibm.bi.dml.runtime.controlprogram.caching.MatrixObject;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.util.IDSequence;
+import com.ibm.bi.dml.runtime.instructions.cp.Data;
+import com.ibm.bi.dml.runtime.util.MapReduceTool;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Local stand-in for remote parfor jobs, which follows the same structure as the remote_spark 
+ * job submission but executes task attempts on a local thread pool of numMappers slots. Every
+ * attempt is an independent remote worker (serialized parfor body, exported result files), 
+ * which allows to test remote runtime characteristics on a single machine.
+ * 
+ * Tail latency mitigation: once the queue of pending tasks is empty and most tasks completed, 
+ * free slots are used for duplicate attempts of straggler tasks, i.e., the running attempt with
+ * the longest runtime if it exceeds a multiple of the median task time (at most one duplicate 
+ * per task). The first successful attempt of a task wins; the other attempt is cancelled and 
+ * the results of late attempts are discarded. Since attempts use unique worker IDs and hence
+ * attempt-specific result files, exactly one result per task is passed to the result merge, 
+ * which makes the result merge independent of the number of attempts.
+ * 
+ */
+public class RemoteParForLocal 
+{
+	
+	protected static final Log LOG = LogFactory.getLog(RemoteParForLocal.class.getName());
+	
+	private static final long   INTERVAL                = 50;   //in ms, scheduling interval
+	private static final double SPECULATION_QUANTILE    = 0.75; //fraction of completed tasks before speculation
+	private static final double SPECULATION_MULTIPLIER  = 1.5;  //straggler threshold relative to median task time
+	private static final long   SPECULATION_MIN_TIME    = 100;  //in ms, min runtime of straggler tasks
+	
+	/**
+	 * 
+	 * @param pfid
+	 * @param program
+	 * @param tasks
+	 * @param numMappers
+	 * @param idSeq
+	 * @param maxRetry
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	public static RemoteParForJobReturn runJob(long pfid, String program, List<Task> tasks, int numMappers, IDSequence idSeq, int maxRetry) 
+		throws DMLRuntimeException
+	{
+		String jobname = "ParFor-ELOCAL";
+		long t0 = DMLScript.STATISTICS ? System.nanoTime() : 0;
+		
+		int numTasks = tasks.size();
+		int k = Math.max(Math.min(numMappers, numTasks), 1);
+		
+		//state of tasks and running attempts
+		LinkedList<Integer> pending = new LinkedList<Integer>();
+		for( int i=0; i<numTasks; i++ )
+			pending.add(i);
+		boolean[] done = new boolean[numTasks];
+		boolean[] speculated = new boolean[numTasks];
+		int[] numFailures = new int[numTasks];
+		HashMap<Future<ArrayList<String>>, Attempt> running = new HashMap<Future<ArrayList<String>>, Attempt>();
+		ArrayList<Long> times = new ArrayList<Long>();
+		
+		//results of winning attempts
+		ArrayList<LocalVariableMap> results = new ArrayList<LocalVariableMap>();
+		int numDone = 0, numIters = 0, numSpec = 0, numSpecWins = 0;
+		
+		ExecutorService pool = Executors.newFixedThreadPool( k );
+		ExecutorCompletionService<ArrayList<String>> cs = new ExecutorCompletionService<ArrayList<String>>(pool);
+		
+		try
+		{
+			while( numDone < numTasks )
+			{
+				//launch pending tasks on free slots
+				while( !pending.isEmpty() && running.size() < k )
+					launchAttempt(cs, running, pending.removeFirst(), tasks, program, idSeq, false);
+				
+				//launch duplicate attempt of straggler task on free slot
+				if( ParForProgramBlock.USE_SPECULATIVE_EXECUTION && pending.isEmpty() 
+					&& running.size() < k && numDone >= SPECULATION_QUANTILE * numTasks ) 
+				{
+					Attempt straggler = getStraggler(running, speculated, times);
+					if( straggler != null ) {
+						speculated[straggler.taskIx] = true;
+						launchAttempt(cs, running, straggler.taskIx, tasks, program, idSeq, true);
+						numSpec++;
+					}
+				}
+				
+				//wait for next finished attempt
+				Future<ArrayList<String>> f = cs.poll(INTERVAL, TimeUnit.MILLISECONDS);
+				if( f == null )
+					continue;
+				Attempt a = running.remove(f);
+				
+				try
+				{
+					ArrayList<String> out = f.get();
+					if( !done[a.taskIx] ) {
+						//accept first result of task, and cancel other attempts
+						done[a.taskIx] = true;
+						numDone++;
+						numIters += (int)a.worker.getExecutedIterations();
+						numSpecWins += a.speculative ? 1 : 0;
+						times.add(System.currentTimeMillis() - a.startTime);
+						results.add(parseResults(out));
+						cancelAttempts(running, a.taskIx);
+					}
+					else {
+						//discard results of late attempts
+						cleanupResults(out);
+					}
+				}
+				catch(CancellationException ex) {
+					//cancelled attempt of already finished task
+				}
+				catch(ExecutionException ex) 
+				{
+					//re-try failed task (if no other running attempt)
+					if( !done[a.taskIx] && !hasRunningAttempt(running, a.taskIx) ) {
+						if( numFailures[a.taskIx]++ < maxRetry ) {
+							LOG.error("Failed to execute "+a.worker.getTask().toString()+", retry.", ex.getCause());
+							pending.addFirst(a.taskIx);
+						}
+						else
+							throw new DMLRuntimeException("ParFOR: Failed to execute task.", ex);
+					}
+				}
+			}
+		}
+		catch(DMLRuntimeException ex) {
+			throw ex;
+		}
+		catch(Exception ex) {
+			throw new DMLRuntimeException(ex);
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		
+		//create output symbol table entries
+		RemoteParForJobReturn ret = new RemoteParForJobReturn(true, numDone, numIters, 
+				results.toArray(new LocalVariableMap[0]));
+		ret.setNumSpeculativeTasks(numSpec);
+		if( LOG.isDebugEnabled() )
+			LOG.debug(jobname+": "+numDone+" tasks with "+numSpec+" speculative attempts ("+numSpecWins+" successful).");
+		
+		//maintain statistics
+		if( DMLScript.STATISTICS ){
+			Statistics.incrementParForSpeculativeTasks(numSpec);
+			Statistics.maintainCPHeavyHitters(jobname, System.nanoTime()-t0);
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * 
+	 * @param cs
+	 * @param running
+	 * @param taskIx
+	 * @param tasks
+	 * @param program
+	 * @param idSeq
+	 * @param speculative
+	 */
+	private static void launchAttempt( ExecutorCompletionService<ArrayList<String>> cs, HashMap<Future<ArrayList<String>>, Attempt> running, 
+			int taskIx, List<Task> tasks, String program, IDSequence idSeq, boolean speculative )
+	{
+		//create worker with unique id (attempt-specific result files)
+		RemoteParForLocalWorker worker = new RemoteParForLocalWorker(idSeq.getNextID(), program, tasks.get(taskIx));
+		Future<ArrayList<String>> f = cs.submit(worker);
+		running.put(f, new Attempt(taskIx, worker, speculative));
+	}
+	
+	/**
+	 * Returns the running attempt with the longest runtime, if it is a straggler
+	 * (runtime above the threshold) and no duplicate attempt exists yet.
+	 * 
+	 * @param running
+	 * @param speculated
+	 * @param times
+	 * @return
+	 */
+	private static Attempt getStraggler( HashMap<Future<ArrayList<String>>, Attempt> running, boolean[] speculated, ArrayList<Long> times )
+	{
+		if( times.isEmpty() )
+			return null;
+		
+		//determine straggler threshold
+		ArrayList<Long> tmp = new ArrayList<Long>(times);
+		Collections.sort(tmp);
+		long median = tmp.get(tmp.size()/2);
+		long threshold = Math.max((long)(SPECULATION_MULTIPLIER * median), SPECULATION_MIN_TIME);
+		
+		//probe running attempts
+		long now = System.currentTimeMillis();
+		Attempt ret = null;
+		for( Attempt a : running.values() )
+			if( !speculated[a.taskIx] && now - a.startTime > threshold
+				&& (ret == null || a.startTime < ret.startTime) )
+				ret = a;
+		
+		return ret;
+	}
+	
+	/**
+	 * 
+	 * @param running
+	 * @param taskIx
+	 * @return
+	 */
+	private static boolean hasRunningAttempt( HashMap<Future<ArrayList<String>>, Attempt> running, int taskIx )
+	{
+		for( Attempt a : running.values() )
+			if( a.taskIx == taskIx )
+				return true;
+		return false;
+	}
+	
+	/**
+	 * 
+	 * @param running
+	 * @param taskIx
+	 */
+	private static void cancelAttempts( HashMap<Future<ArrayList<String>>, Attempt> running, int taskIx )
+	{
+		for( Entry<Future<ArrayList<String>>, Attempt> e : running.entrySet() )
+			if( e.getValue().taskIx == taskIx )
+				e.getKey().cancel(true);
+	}
+	
+	/**
+	 * 
+	 * @param out
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	private static LocalVariableMap parseResults( ArrayList<String> out ) 
+		throws DMLRuntimeException
+	{
+		LocalVariableMap ret = new LocalVariableMap();
+		for( String val : out ) {
+			Object[] dat = ProgramConverter.parseDataObject( val );
+			ret.put((String)dat[0], (Data)dat[1]);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Removes the exported result files of a discarded task attempt.
+	 * 
+	 * @param out
+	 * @throws DMLRuntimeException
+	 */
+	private static void cleanupResults( ArrayList<String> out ) 
+		throws DMLRuntimeException
+	{
+		try {
+			for( String val : out ) {
+				Object[] dat = ProgramConverter.parseDataObject( val );
+				if( dat[1] instanceof MatrixObject )
+					MapReduceTool.deleteFileIfExistOnHDFS(((MatrixObject)dat[1]).getFileName());
+			}
+		}
+		catch(Exception ex) {
+			throw new DMLRuntimeException(ex);
+		}
+	}
+	
+	/**
+	 * Meta data of a running task attempt.
+	 */
+	private static class Attempt
+	{
+		private int taskIx = -1;
+		private RemoteParForLocalWorker worker = null;
+		private boolean speculative = false;
+		private long startTime = -1;
+		
+		public Attempt( int ix, RemoteParForLocalWorker pw, boolean spec ) 
+		{
+			taskIx = ix;
+			worker = pw;
+			speculative = spec;
+			startTime = System.currentTimeMillis();
+		}
+	}
+}
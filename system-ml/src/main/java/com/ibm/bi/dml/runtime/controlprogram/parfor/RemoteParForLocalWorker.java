@@ -0,0 +1,73 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.runtime.controlprogram.parfor;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+
+/**
+ * Remote parfor worker of the local stand-in for remote parfor jobs (see RemoteParForLocal).
+ * Each task attempt is executed by its own worker with a freshly parsed parfor body (like a 
+ * remote task), where the unique worker ID of the attempt ensures attempt-specific result 
+ * files. Hence, duplicate attempts of the same task never overwrite each other's results.
+ * 
+ */
+public class RemoteParForLocalWorker extends ParWorker implements Callable<ArrayList<String>>
+{
+	
+	private String _program = null;
+	private Task   _task    = null;
+	
+	public RemoteParForLocalWorker( long ID, String program, Task task )
+	{
+		_workerID = ID;
+		_program = program;
+		_task = task;
+	}
+	
+	/**
+	 * 
+	 * @return
+	 */
+	public Task getTask()
+	{
+		return _task;
+	}
+	
+	@Override
+	public ArrayList<String> call() 
+		throws Exception 
+	{
+		//parse and setup parfor body program
+		ParForBody body = ProgramConverter.parseParForBody(_program, (int)_workerID);
+		_childBlocks = body.getChildBlocks();
+		_ec          = body.getEc();				
+		_resultVars  = body.getResultVarNames();
+		_numTasks    = 0;
+		_numIters    = 0;
+		
+		//ensure that resultvar files are not removed
+		super.pinResultVariables();
+		
+		//execute a single task
+		super.executeTask( _task );
+		
+		//write output if required (matrix indexed write) 
+		return RemoteParForUtils.exportResultVariables( _workerID, _ec.getVariables(), _resultVars );
+	}
+}
@@ -167,9 +167,12 @@ public class RemoteParForMR
 				LOG.warn("Forcing '"+memKey+"' to -Xmx"+minMem/(1024*1024)+"M." );
 			}
 			
-			//disable automatic tasks timeouts and speculative task exec
+			//disable automatic tasks timeouts, and enable speculative task exec of straggler tasks if
+			//configured (only committed task outputs and thus result files of first attempts are merged, 
+			//w/o jvm reuse because reused workers overwrite result files of previous tasks; result files
+			//of losing attempts are not deleted before the scratch space cleanup)
 			job.setInt("mapred.task.timeout", 0);			
-			job.setMapSpeculativeExecution(false);
+			job.setMapSpeculativeExecution(ParForProgramBlock.USE_SPECULATIVE_EXECUTION && !jvmReuse);
 			
 			//set up map/reduce memory configurations (if in AM context)
 			DMLConfig config = ConfigurationManager.getConfig();
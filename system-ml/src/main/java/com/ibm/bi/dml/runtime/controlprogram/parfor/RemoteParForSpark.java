@@ -17,12 +17,14 @@
 
 package com.ibm.bi.dml.runtime.controlprogram.parfor;
 
+import java.util.HashSet;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.spark.Accumulator;
 import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
 
 import scala.Tuple2;
 
@@ -30,8 +32,10 @@ import com.ibm.bi.dml.api.DMLScript;
 import com.ibm.bi.dml.runtime.DMLRuntimeException;
 import com.ibm.bi.dml.runtime.DMLUnsupportedOperationException;
 import com.ibm.bi.dml.runtime.controlprogram.LocalVariableMap;
+import com.ibm.bi.dml.runtime.controlprogram.ParForProgramBlock;
 import com.ibm.bi.dml.runtime.controlprogram.context.ExecutionContext;
 import com.ibm.bi.dml.runtime.controlprogram.context.SparkExecutionContext;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.util.IDSequence;
 import com.ibm.bi.dml.utils.Statistics;
 
 /**
@@ -52,6 +56,12 @@ public class RemoteParForSpark
 	
 	protected static final Log LOG = LogFactory.getLog(RemoteParForSpark.class.getName());
 	
+	//sequence for unique program keys of parfor jobs (executor-side caching of parsed bodies)
+	private static final IDSequence _jobID = new IDSequence();
+	
+	//program keys of running parfor jobs (executor-side removal of cached bodies of finished jobs)
+	private static final HashSet<String> _activeKeys = new HashSet<String>();
+	
 	/**
 	 * 
 	 * @param pfid
@@ -74,17 +84,49 @@ public class RemoteParForSpark
 		SparkExecutionContext sec = (SparkExecutionContext)ec;
 		JavaSparkContext sc = sec.getSparkContext();
 		
-		//initialize accumulators for tasks/iterations
+		//initialize accumulators for tasks/iterations and parse/execute times
 		Accumulator<Integer> aTasks = sc.accumulator(0);
 		Accumulator<Integer> aIters = sc.accumulator(0);
+		Accumulator<Double> aParseTime = sc.accumulator(0d);
+		Accumulator<Double> aExecTime = sc.accumulator(0d);
+		Accumulator<Integer> aReused = sc.accumulator(0);
+		
+		//broadcast program once per executor, and create unique program key 
+		//(program hash and job id, to prevent reuse of result state across jobs)
+		Broadcast<String> bProgram = sc.broadcast(program);
+		String progKey = pfid + "_" + _jobID.getNextID() + "_" + Integer.toHexString(program.hashCode());
+		
+		//probe speculative execution of straggler tasks (configured per spark context), 
+		//which requires attempt-specific workers and hence result files
+		boolean speculative = ParForProgramBlock.USE_SPECULATIVE_EXECUTION
+				&& sc.getConf().getBoolean("spark.speculation", false);
+		
+		HashSet<String> activeKeys = null;
+		synchronized( _activeKeys ) {
+			_activeKeys.add(progKey);
+			activeKeys = new HashSet<String>(_activeKeys);
+		}
 		
 		//run remote_spark parfor job 
 		//(w/o lazy evaluation to fit existing parfor framework, e.g., result merge)
-		RemoteParForSparkWorker func = new RemoteParForSparkWorker(program, cpCaching, aTasks, aIters);
-		List<Tuple2<Long,String>> out = 
-				sc.parallelize( tasks, numMappers )  //create rdd of parfor tasks
-		          .flatMapToPair( func )             //execute parfor tasks 
-		          .collect();                        //get output handles
+		List<Tuple2<Long,String>> out = null;
+		try
+		{
+			RemoteParForSparkWorker func = new RemoteParForSparkWorker(progKey, activeKeys, bProgram, 
+					cpCaching, speculative, aTasks, aIters, aParseTime, aExecTime, aReused);
+			out = sc.parallelize( tasks, numMappers )  //create rdd of parfor tasks
+			        .flatMapToPair( func )             //execute parfor tasks 
+			        .collect();                        //get output handles
+		}
+		finally
+		{
+			//remove cached bodies of this job (executors in the driver jvm, 
+			//remaining executors on the next task of any other job)
+			synchronized( _activeKeys ) {
+				_activeKeys.remove(progKey);
+			}
+			RemoteParForSparkWorker.cleanupCachedBodies(progKey);
+		}
 		
 		//de-serialize results
 		LocalVariableMap[] results = RemoteParForUtils.getResults(out, LOG);
@@ -93,11 +135,19 @@ public class RemoteParForSpark
 		
 		//create output symbol table entries
 		RemoteParForJobReturn ret = new RemoteParForJobReturn(true, numTasks, numIters, results);
+		ret.setTaskTimes(aParseTime.value(), aExecTime.value());
+		if( LOG.isDebugEnabled() )
+			LOG.debug("ParFor-ESP: "+numTasks+" tasks with total parse time "+aParseTime.value()+"ms "
+					+ "and total execute time "+aExecTime.value()+"ms ("+aReused.value()+" reused bodies).");
+		
+		//cleanup broadcast of program
+		bProgram.unpersist();
 		
 		//maintain statistics
 	    Statistics.incrementNoOfCompiledSPInst();
 	    Statistics.incrementNoOfExecutedSPInst();
 	    if( DMLScript.STATISTICS ){
+			Statistics.incrementSparkParForBodyReuse(aReused.value());
 			Statistics.maintainCPHeavyHitters(jobname, System.nanoTime()-t0);
 		}
 		
@@ -19,56 +19,112 @@ package com.ibm.bi.dml.runtime.controlprogram.parfor;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map.Entry;
 
 import org.apache.spark.Accumulator;
 import org.apache.spark.TaskContext;
 import org.apache.spark.api.java.function.PairFlatMapFunction;
+import org.apache.spark.broadcast.Broadcast;
 
 import com.ibm.bi.dml.runtime.DMLRuntimeException;
 import com.ibm.bi.dml.runtime.DMLUnsupportedOperationException;
 import com.ibm.bi.dml.runtime.controlprogram.caching.CacheableData;
+import com.ibm.bi.dml.runtime.controlprogram.caching.MatrixObject;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.util.IDHandler;
+import com.ibm.bi.dml.runtime.instructions.cp.Data;
 import com.ibm.bi.dml.runtime.util.LocalFileUtils;
 
 import scala.Tuple2;
 
 /**
+ * Remote parfor worker for Spark, which executes parfor tasks on executors.
  * 
+ * Since Spark deserializes the worker function per task, parsed parfor bodies are cached
+ * per executor JVM (keyed by the program key of the parfor job). Each cached body includes 
+ * its execution context and is used by at most one task at a time; after task execution, 
+ * the body is returned to the cache and reused by subsequent tasks of the same job. 
+ * Modified result variables are exported after each task into task-specific files (keyed by
+ * the task attempt ID), i.e., the results of a reused body are cumulative but never overwrite 
+ * the files of previously committed tasks (e.g., on retries of failed tasks). Cached bodies
+ * of a job are removed at job end (driver) and on the next task of any other job (executors).
+ * 
+ * With speculative execution of straggler tasks, duplicate attempts of a task would leave their
+ * results in reused bodies (and overwrite files of already committed tasks). Hence, cached bodies 
+ * are not used in this case, i.e., every task attempt parses its own body with the attempt ID as
+ * worker ID, which gives attempt-specific result files and only the results of the committed 
+ * attempt are passed to the result merge.
  * 
  */
 public class RemoteParForSparkWorker extends ParWorker implements PairFlatMapFunction<Task, Long, String> 
 {
 	
 	private static final long serialVersionUID = -3254950138084272296L;
-
-	private boolean _initialized = false;
-	private String  _prog = null;
+	
+	//max number of parfor jobs with cached bodies per executor (lru replacement)
+	private static final int MAX_CACHED_JOBS = 4;
+	
+	//executor-wide cache of parsed parfor bodies (worker id, body, stats, and result
+	//file names), per program key
+	private static LinkedHashMap<String, LinkedList<Object[]>> _sCache = null;
+	
+	static
+	{
+		_sCache = new LinkedHashMap<String, LinkedList<Object[]>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 5467862397468935816L;
+			@Override
+			protected boolean removeEldestEntry(Entry<String, LinkedList<Object[]>> eldest) {
+				return size() > MAX_CACHED_JOBS;
+			}
+		};
+	}
+	
+	private String  _progKey = null;
+	private HashSet<String> _activeKeys = null;
+	private Broadcast<String> _prog = null;
 	private boolean _caching = true;
+	private boolean _speculative = false;
+	
+	//base file names of result variables (for task-specific result files)
+	private HashMap<String,String> _rvarFnames = null;
 	
 	private Accumulator<Integer> _aTasks = null;
 	private Accumulator<Integer> _aIters = null;
+	private Accumulator<Double>  _aParseTime = null;
+	private Accumulator<Double>  _aExecTime = null;
+	private Accumulator<Integer> _aReused = null;
 	
-	public RemoteParForSparkWorker(String program, boolean cpCaching, Accumulator<Integer> atasks, Accumulator<Integer> aiters) 
+	public RemoteParForSparkWorker(String progKey, HashSet<String> activeKeys, Broadcast<String> program, boolean cpCaching, boolean speculative, Accumulator<Integer> atasks, Accumulator<Integer> aiters, Accumulator<Double> aparse, Accumulator<Double> aexec, Accumulator<Integer> areused) 
 		throws DMLRuntimeException, DMLUnsupportedOperationException
 	{
 		//keep inputs (unfortunately, spark does not expose task ids and it would be implementation-dependent
 		//when this constructor is actually called; hence, we do lazy initialization on task execution)
-		_initialized = false;
+		_progKey = progKey;
+		_activeKeys = activeKeys;
 		_prog = program;
 		_caching = cpCaching;
+		_speculative = speculative;
 		
 		//setup spark accumulators
 		_aTasks = atasks;
 		_aIters = aiters;
+		_aParseTime = aparse;
+		_aExecTime = aexec;
+		_aReused = areused;
 	}
 	
 	@Override 
 	public Iterable<Tuple2<Long, String>> call(Task arg0)
 		throws Exception 
 	{
-		//lazy parworker initialization
-		if( !_initialized )
-			configureWorker( TaskContext.get().taskAttemptId() ); //requires Spark 1.3
+		//obtain cached or newly parsed parfor body (exclusive use by this task)
+		long t0 = System.nanoTime();
+		long attemptID = TaskContext.get().taskAttemptId(); //requires Spark 1.3
+		configureWorker( attemptID );
+		long t1 = System.nanoTime();
 		
 		//execute a single task
 		long numIter = getExecutedIterations();
@@ -78,13 +134,24 @@ public class RemoteParForSparkWorker extends ParWorker implements PairFlatMapFun
 		_aTasks.add( 1 );
 		_aIters.add( (int)(getExecutedIterations()-numIter) );
 		
-		//write output if required (matrix indexed write) 
+		//write output if required (matrix indexed write), into task-specific files
+		//and with the attempt id as key (results of reused bodies are not deduplicated)
 		//note: this copy is necessary for environments without spark libraries
+		setTaskResultFileNames( attemptID );
 		ArrayList<Tuple2<Long,String>> ret = new ArrayList<Tuple2<Long,String>>();
 		ArrayList<String> tmp = RemoteParForUtils.exportResultVariables( _workerID, _ec.getVariables(), _resultVars );
 		for( String val : tmp )
-			ret.add(new Tuple2<Long,String>(_workerID, val));
-			
+			ret.add(new Tuple2<Long,String>(attemptID, val));
+		
+		//return parfor body to executor cache 
+		//(only on success, bodies of failed tasks are discarded)
+		if( !_speculative )
+			releaseWorker();
+		
+		//maintain timing accumulators (in ms)
+		_aParseTime.add( ((double)(t1-t0))/1000000 );
+		_aExecTime.add( ((double)(System.nanoTime()-t1))/1000000 );
+		
 		return ret;
 	}
 	
@@ -95,27 +162,57 @@ public class RemoteParForSparkWorker extends ParWorker implements PairFlatMapFun
 	 * @throws DMLRuntimeException 
 	 * @throws IOException 
 	 */
+	@SuppressWarnings("unchecked")
 	private void configureWorker( long ID ) 
 		throws DMLRuntimeException, DMLUnsupportedOperationException, IOException
 	{
+		//probe executor cache of parsed parfor bodies (if no speculative exec)
+		Object[] entry = null;
+		if( !_speculative ) {
+			synchronized( _sCache ) {
+				//remove cached bodies of finished jobs
+				_sCache.keySet().retainAll(_activeKeys);
+				LinkedList<Object[]> bodies = _sCache.get(_progKey);
+				if( bodies != null && !bodies.isEmpty() )
+					entry = bodies.removeFirst();
+			}
+		}
+		
+		if( entry != null ) //reuse cached body
+		{
+			_workerID = (Long) entry[0];
+			ParForBody body = (ParForBody) entry[1];
+			_childBlocks = body.getChildBlocks();
+			_ec          = body.getEc();				
+			_resultVars  = body.getResultVarNames();
+			_numTasks    = (Long) entry[2];
+			_numIters    = (Long) entry[3];
+			_rvarFnames  = (HashMap<String,String>) entry[4];
+			_aReused.add( 1 );
+			return;
+		}
+		
 		_workerID = ID;
 		
 		//parse and setup parfor body program
-		ParForBody body = ProgramConverter.parseParForBody(_prog, (int)_workerID);
+		ParForBody body = ProgramConverter.parseParForBody(_prog.value(), (int)_workerID);
 		_childBlocks = body.getChildBlocks();
 		_ec          = body.getEc();				
 		_resultVars  = body.getResultVarNames();
 		_numTasks    = 0;
 		_numIters    = 0;
+		_rvarFnames  = new HashMap<String,String>();
 
 		//init local cache manager 
-		if( !CacheableData.isCachingActive() ) {
-			String uuid = IDHandler.createDistributedUniqueID();
-			LocalFileUtils.createWorkingDirectoryWithUUID( uuid );
-			CacheableData.initCaching( uuid ); //incl activation, cache dir creation (each map task gets its own dir for simplified cleanup)
-		}		
-		if( !CacheableData.cacheEvictionLocalFilePrefix.contains("_") ){ //account for local mode
-			CacheableData.cacheEvictionLocalFilePrefix = CacheableData.cacheEvictionLocalFilePrefix +"_" + _workerID; 
+		synchronized( _sCache ) { //for concurrent tasks per executor
+			if( !CacheableData.isCachingActive() ) {
+				String uuid = IDHandler.createDistributedUniqueID();
+				LocalFileUtils.createWorkingDirectoryWithUUID( uuid );
+				CacheableData.initCaching( uuid ); //incl activation, cache dir creation (each map task gets its own dir for simplified cleanup)
+			}		
+			if( !CacheableData.cacheEvictionLocalFilePrefix.contains("_") ){ //account for local mode
+				CacheableData.cacheEvictionLocalFilePrefix = CacheableData.cacheEvictionLocalFilePrefix +"_" + _workerID; 
+			}
 		}
 		
 		//ensure that resultvar files are not removed
@@ -124,8 +221,58 @@ public class RemoteParForSparkWorker extends ParWorker implements PairFlatMapFun
 		//enable/disable caching (if required)
 		if( !_caching )
 			CacheableData.disableCaching();
+	}
+	
+	/**
+	 * Sets task-specific file names for all modified result variables, in order to 
+	 * never overwrite result files of previously committed tasks of a reused body.
+	 * 
+	 * @param attemptID
+	 */
+	private void setTaskResultFileNames( long attemptID )
+	{
+		for( String rvar : _resultVars )
+		{
+			Data dat = _ec.getVariable( rvar );
+			if( dat instanceof MatrixObject && ((MatrixObject)dat).isDirty() )
+			{
+				MatrixObject mo = (MatrixObject) dat;
+				if( !_rvarFnames.containsKey(rvar) )
+					_rvarFnames.put(rvar, mo.getFileName());
+				mo.setFileName( _rvarFnames.get(rvar) + "_" + attemptID );
+			}
+		}
+	}
+	
+	/**
+	 * Returns the current parfor body (incl execution context and statistics) 
+	 * to the executor cache for reuse by subsequent tasks of the same job.
+	 */
+	private void releaseWorker()
+	{
+		ParForBody body = new ParForBody(_childBlocks, _resultVars, _ec);
+		Object[] entry = new Object[]{_workerID, body, _numTasks, _numIters, _rvarFnames};
 		
-		//make as lazily intialized
-		_initialized = true;
+		synchronized( _sCache ) {
+			LinkedList<Object[]> bodies = _sCache.get(_progKey);
+			if( bodies == null ) {
+				bodies = new LinkedList<Object[]>();
+				_sCache.put(_progKey, bodies);
+			}
+			bodies.addLast(entry);
+		}
+	}
+	
+	/**
+	 * Removes all cached parfor bodies of the given job from the executor cache 
+	 * of the current JVM (e.g., driver in local mode) at the end of the job. 
+	 * 
+	 * @param progKey
+	 */
+	public static void cleanupCachedBodies( String progKey )
+	{
+		synchronized( _sCache ) {
+			_sCache.remove(progKey);
+		}
 	}
 }
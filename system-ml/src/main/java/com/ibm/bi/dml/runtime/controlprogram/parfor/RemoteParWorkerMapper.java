@@ -155,7 +155,8 @@ public class RemoteParWorkerMapper extends ParWorker  //MapReduceBase not requir
 			
 			try
 			{
-				_stringID = job.get("mapred.tip.id"); //task ID
+				//task ID, or task attempt ID for speculative task exec (attempt-specific result files)
+				_stringID = job.getMapSpeculativeExecution() ? job.get("mapred.task.id") : job.get("mapred.tip.id");
 				_workerID = IDHandler.extractIntID(_stringID); //int task ID
 
 				//use the given job configuration as source for all new job confs 
@@ -23,9 +23,11 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.ibm.bi.dml.runtime.DMLRuntimeException;
+import com.ibm.bi.dml.runtime.controlprogram.ParForProgramBlock;
 import com.ibm.bi.dml.runtime.controlprogram.caching.MatrixObject;
 import com.ibm.bi.dml.runtime.matrix.MatrixCharacteristics;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
+import com.ibm.bi.dml.runtime.util.IndexRange;
 
 /**
  * Due to independence of all iterations, any result has the following properties:
@@ -145,6 +147,66 @@ public abstract class ResultMerge
 		}	
 	}
 
+	/**
+	 * Merges only the given dirty range (1-based, inclusive) of <code>in</code> into 
+	 * <code>out</code>, where all values outside this range are known to be equivalent 
+	 * to the original output. Values are compared against the given compare block 
+	 * (in its own dense or sparse representation), or against zero if no compare
+	 * block is given (empty original output).
+	 * 
+	 * @param out
+	 * @param in
+	 * @param compare
+	 * @param ix
+	 */
+	protected void mergeWithComp( MatrixBlock out, MatrixBlock in, MatrixBlock compare, IndexRange ix )
+	{
+		int rl = (int)ix.rowStart-1, ru = (int)ix.rowEnd-1;
+		int cl = (int)ix.colStart-1, cu = (int)ix.colEnd-1;
+		
+		for( int i=rl; i<=ru; i++ )
+			for( int j=cl; j<=cu; j++ )
+			{
+				double value = in.quickGetValue(i, j);                          //input value
+				double cvalue = (compare!=null) ? compare.quickGetValue(i, j) : 0; //original value
+				if(   (value != cvalue && !Double.isNaN(value) )     //for new values only (div)
+					|| Double.isNaN(value) != Double.isNaN(cvalue) ) //NaN awareness 
+				{
+					out.quickSetValue( i, j, value );
+				}
+			}
+	}
+	
+	/**
+	 * Indicates if the given input is a delta of the output, i.e., a tracked result variable
+	 * that has been derived from the original output by left indexing only. For such inputs, 
+	 * the dirty range (null if unmodified) covers all potential changes.  
+	 * 
+	 * @param in
+	 * @return
+	 */
+	protected boolean isDeltaInput( MatrixObject in )
+	{
+		return ParForProgramBlock.USE_DELTA_RESULT_MERGE
+			&& in.isDirtyRangeTracked() 
+			&& in.getDirtyRangeBase().equals(_output.getFileName());
+	}
+	
+	/**
+	 * Indicates if all non-empty inputs are deltas of the output.
+	 * 
+	 * @return
+	 */
+	protected boolean isDeltaMerge()
+	{
+		boolean ret = (_inputs != null);
+		for( int i=0; ret && i<_inputs.length; i++ ) 
+			if( _inputs[i] != null && _inputs[i] != _output )
+				ret &= isDeltaInput( _inputs[i] );
+		
+		return ret;
+	}
+	
 	protected long computeNonZeros( MatrixObject out, ArrayList<MatrixObject> in )
 	{
 		MatrixCharacteristics mc = out.getMatrixCharacteristics();
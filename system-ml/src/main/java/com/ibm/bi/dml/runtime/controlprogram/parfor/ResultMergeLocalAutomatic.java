@@ -68,7 +68,8 @@ public class ResultMergeLocalAutomatic extends ResultMerge
 		long rows = mc.getRows();
 		long cols = mc.getCols();
 		
-		if( OptimizerRuleBased.isInMemoryResultMerge(par * rows, cols, OptimizerUtils.getLocalMemBudget()) )
+		//note: the in-memory parallel merge internally falls back to the serial merge
+		if( OptimizerRuleBased.isInMemoryResultMerge(rows, cols, OptimizerUtils.getLocalMemBudget()) )
 			_rm = new ResultMergeLocalMemory( _output, _inputs, _outputFName );
 		else
 			_rm = new ResultMergeLocalFile( _output, _inputs, _outputFName );
@@ -18,29 +18,50 @@
 package com.ibm.bi.dml.runtime.controlprogram.parfor;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import com.ibm.bi.dml.api.DMLScript;
+import com.ibm.bi.dml.hops.OptimizerUtils;
 import com.ibm.bi.dml.parser.Expression.DataType;
 import com.ibm.bi.dml.parser.Expression.ValueType;
 import com.ibm.bi.dml.runtime.DMLRuntimeException;
 import com.ibm.bi.dml.runtime.controlprogram.caching.MatrixObject;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.opt.OptimizerRuleBased;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.stat.InfrastructureAnalyzer;
 import com.ibm.bi.dml.runtime.matrix.MatrixCharacteristics;
 import com.ibm.bi.dml.runtime.matrix.MatrixFormatMetaData;
 import com.ibm.bi.dml.runtime.matrix.data.InputInfo;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
 import com.ibm.bi.dml.runtime.matrix.data.OutputInfo;
+import com.ibm.bi.dml.runtime.matrix.data.SparseRow;
 import com.ibm.bi.dml.runtime.util.DataConverter;
+import com.ibm.bi.dml.runtime.util.IndexRange;
+import com.ibm.bi.dml.utils.Statistics;
 
 /**
  * Local in-memory realization of result merge. If the resulting matrix is
  * small enough to fit into the JVM memory, this class can be used for efficient 
- * serial or multi-threaded merge.
+ * serial or multi-threaded merge. The multi-threaded merge partitions the output
+ * into row ranges and merges all inputs per row range, which keeps sparse outputs
+ * in sparse representation. Since this pins all inputs at once, it falls back to 
+ * the serial merge if the inputs do not fit into the memory budget. If all inputs are deltas of the output (i.e., derived via
+ * left indexing only), both merge variants restrict the comparison to the dirty ranges 
+ * of the inputs. All multi-threaded merges share a single pool of daemon threads
+ * in order to avoid thread creation per merge.
  * 
  * 
  */
 public class ResultMergeLocalMemory extends ResultMerge
 {	
 	
+	//shared thread pool of multi-threaded merges (lazily created)
+	private static ExecutorService _pool = null;
+	
 	//internal comparison matrix
 	private double[][]        _compare     = null;
 	
@@ -66,19 +87,22 @@ public class ResultMergeLocalMemory extends ResultMerge
 			int estnnz = outMB.getNumRows()*outMB.getNumColumns();
 			MatrixBlock outMBNew = new MatrixBlock(outMB.getNumRows(), outMB.getNumColumns(), 
 					                               outMB.isInSparseFormat(), estnnz);
-			boolean appendOnly = outMBNew.isInSparseFormat();
+			//delta merge of dirty ranges if all inputs are derived via left indexing
+			boolean delta = isDeltaMerge();
+			boolean appendOnly = outMBNew.isInSparseFormat() && !delta;
 			
 			//create compare matrix if required (existing data in result)
-			_compare = createCompareMatrix(outMB);
-			if( _compare != null )
+			//(for delta merge, the original output is used as compare block, no dense copy)
+			_compare = delta ? null : createCompareMatrix(outMB);
+			if( _compare != null || (delta && outMB.getNonZeros() > 0) )
 				outMBNew.copy(outMB);
 			
 			//serial merge all inputs
 			boolean flagMerged = false;
 			for( MatrixObject in : _inputs )
 			{
-				//check for empty inputs (no iterations executed)
-				if( in !=null && in != _output ) 
+				//check for empty inputs (no iterations executed) and unmodified deltas
+				if( in !=null && in != _output && !(delta && in.getDirtyRange()==null) ) 
 				{
 					LOG.trace("ResultMerge (local, in-memory): Merge input "+in.getVarName()+" (fname="+in.getFileName()+")");
 					
@@ -86,7 +110,10 @@ public class ResultMergeLocalMemory extends ResultMerge
 					MatrixBlock inMB = in.acquireRead();	
 					
 					//core merge 
-					merge( outMBNew, inMB, appendOnly );
+					if( delta )
+						mergeWithComp( outMBNew, inMB, (outMB.getNonZeros()>0)?outMB:null, in.getDirtyRange() );
+					else
+						merge( outMBNew, inMB, appendOnly );
 					
 					//unpin and clear in-memory input_i
 					in.release();
@@ -114,6 +141,9 @@ public class ResultMergeLocalMemory extends ResultMerge
 			//create output
 			if( flagMerged )
 			{		
+				if( DMLScript.STATISTICS )
+					Statistics.incrementParForMergeCount(delta);
+				
 				//create new output matrix 
 				//(e.g., to prevent potential export<->read file access conflict in specific cases of 
 				// local-remote nested parfor))
@@ -143,58 +173,80 @@ public class ResultMergeLocalMemory extends ResultMerge
 	{		
 		MatrixObject moNew = null; //always create new matrix object (required for nested parallelism)
 	
-		//Timing time = null;
 		LOG.trace("ResultMerge (local, in-memory): Execute parallel (par="+par+") merge for output "+_output.getVarName()+" (fname="+_output.getFileName()+")");
-		//	time = new Timing();
-		//	time.start();
-		
 
 		try
 		{
 			//get matrix blocks through caching 
 			MatrixBlock outMB = _output.acquireRead();
 			ArrayList<MatrixObject> inMO = new ArrayList<MatrixObject>();
+			ArrayList<IndexRange> inIx = new ArrayList<IndexRange>();
+			boolean delta = isDeltaMerge();
 			for( MatrixObject in : _inputs )
 			{
-				//check for empty inputs (no iterations executed)
-				if( in !=null && in != _output ) 
+				//check for empty inputs (no iterations executed) and unmodified deltas
+				//(for delta merge, only the dirty ranges of all inputs are merged)
+				if( in !=null && in != _output && !(delta && in.getDirtyRange()==null) ) {
 					inMO.add( in );
+					inIx.add( delta ? in.getDirtyRange() : null );
+				}
+			}
+			
+			//fall back to serial merge (streaming of inputs) if not all inputs fit into memory
+			if( !inMO.isEmpty() && !OptimizerRuleBased.isInMemoryParallelResultMerge(outMB.getNumRows(), 
+					outMB.getNumColumns(), inMO.size(), OptimizerUtils.getLocalMemBudget()) ) 
+			{
+				LOG.trace("ResultMerge (local, in-memory): Fall back to serial merge for output "+_output.getVarName()+".");
+				_output.release();
+				return executeSerialMerge();
 			}
 			
 			if( !inMO.isEmpty() ) //if there exist something to merge
 			{
-				//get old output matrix from cache for compare
-				//NOTE: always in dense representation in order to allow for parallel unsynchronized access 
-				long rows = outMB.getNumRows();
-				long cols = outMB.getNumColumns();
-				MatrixBlock outMBNew = new MatrixBlock((int)rows, (int)cols, false);
-				outMBNew.allocateDenseBlockUnsafe((int)rows, (int)cols);
+				if( DMLScript.STATISTICS )
+					Statistics.incrementParForMergeCount(delta);
+				
+				//read/pin all inputs (incl. implicit read from HDFS)
+				ArrayList<MatrixBlock> inMB = new ArrayList<MatrixBlock>();
+				for( MatrixObject in : inMO ) {
+					LOG.trace("ResultMerge (local, in-memory): Merge input "+in.getVarName()+" (fname="+in.getFileName()+")");
+					inMB.add( in.acquireRead() );
+				}
 				
-				//create compare matrix if required (existing data in result)
-				_compare = createCompareMatrix(outMB);
-				if( _compare != null )
-					outMBNew.copy(outMB);
+				//create output in sparse or dense representation according to the estimated nnz
+				//NOTE: the output is partitioned into disjoint row ranges, which allows for parallel 
+				//unsynchronized access to dense and sparse blocks (pre-allocated sparse rows array)
+				int rows = outMB.getNumRows();
+				int cols = outMB.getNumColumns();
+				long estnnz = estimateNonZeros( outMB, inMB );
+				boolean sparse = MatrixBlock.evalSparseFormatInMemory(rows, cols, estnnz);
+				MatrixBlock outMBNew = new MatrixBlock(rows, cols, sparse, estnnz);
 				
-				//parallel merge of all inputs
-
-				int numThreads = Math.min(par, inMO.size()); //number of inputs can be lower than par
+				//use existing data in result as compare block if required (sparse-aware, no dense copy)
+				MatrixBlock compare = (outMB.getNonZeros() > 0) ? outMB : null;
+				if( compare != null )
+					outMBNew.copy(outMB, sparse);
+				outMBNew.allocateDenseOrSparseBlock(); //nnz maintained after merge
+				
+				//parallel merge of all inputs per row range
+				int numThreads = Math.min(par, rows); 
 				numThreads = Math.min(numThreads, InfrastructureAnalyzer.getLocalParallelism()); //ensure robustness for remote exec
-				Thread[] threads = new Thread[ numThreads ];
-				for( int k=0; k<inMO.size(); k+=numThreads ) //multiple waves if necessary
-				{
-					//create and start threads
-					for( int i=0; i<threads.length; i++ )
-					{
-						ResultMergeWorker rmw = new ResultMergeWorker(inMO.get(k+i), outMBNew);
-						threads[i] = new Thread(rmw);
-						threads[i].setPriority(Thread.MAX_PRIORITY);
-						threads[i].start(); // start execution
-					}	
-					//wait for all workers to finish
-					for( int i=0; i<threads.length; i++ )
-					{
-						threads[i].join();
-					}
+				ExecutorService pool = getMergePool();
+				ArrayList<ResultMergeTask> tasks = new ArrayList<ResultMergeTask>();
+				int blklen = (int)(Math.ceil((double)rows/numThreads));
+				for( int i=0; i<numThreads && i*blklen<rows; i++ )
+					tasks.add(new ResultMergeTask(inMB, inIx, outMBNew, compare, i*blklen, Math.min((i+1)*blklen, rows)));
+				List<Future<Object>> taskret = pool.invokeAll(tasks);	
+				for( Future<Object> rt : taskret )
+					rt.get(); //error handling
+				
+				//maintain number of non-zeros
+				outMBNew.recomputeNonZeros();
+				
+				//unpin and clear in-memory inputs
+				for( MatrixObject in : inMO ) {
+					in.release();
+					in.clearData();
 				}
 				
 				//create new output matrix 
@@ -216,11 +268,50 @@ public class ResultMergeLocalMemory extends ResultMerge
 			throw new DMLRuntimeException(ex);
 		}
 		
-		//LOG.trace("ResultMerge (local, in-memory): Executed parallel (par="+par+") merge for output "+_output.getVarName()+" (fname="+_output.getFileName()+") in "+time.stop()+"ms");
-
 		return moNew;		
 	}
 
+	/**
+	 * Obtains the shared thread pool of multi-threaded merges, which is sized by the
+	 * local parallelism. Since pool threads never wait for other merge tasks, concurrent
+	 * merges (e.g., of nested parfor) can share the pool without deadlocks.
+	 * 
+	 * @return
+	 */
+	private static synchronized ExecutorService getMergePool()
+	{
+		if( _pool == null ) {
+			_pool = Executors.newFixedThreadPool( InfrastructureAnalyzer.getLocalParallelism(), 
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "ResultMerge");
+						t.setDaemon(true); //no shutdown required
+						return t;
+					}
+				});
+		}
+		return _pool;
+	}
+	
+	/**
+	 * Estimates the number of non-zeros of the merged output as the number of non-zeros 
+	 * of the original output plus the number of new non-zeros of all inputs.
+	 * 
+	 * @param out
+	 * @param in
+	 * @return
+	 */
+	private static long estimateNonZeros( MatrixBlock out, ArrayList<MatrixBlock> in )
+	{
+		long outNNZ = out.getNonZeros();
+		long ret = outNNZ;
+		for( MatrixBlock mb : in )
+			ret += Math.max(mb.getNonZeros() - outNNZ, 0);
+		
+		return Math.min(ret, (long)out.getNumRows() * out.getNumColumns());
+	}
+	
 	/**
 	 * 
 	 * @param output
@@ -302,37 +393,172 @@ public class ResultMergeLocalMemory extends ResultMerge
 	
 	
 	/**
-	 * NOTE: only used if matrix in dense
+	 * Merges all non-zeros of the given inputs into the output, restricted to the row range [rl,ru)
+	 * and column range [cl,cu). If a compare block is given, only values that differ from the original 
+	 * output are merged (incl. zeros that overwrite non-zeros and NaN awareness, see mergeWithComp). 
+	 * In contrast to the serial merge, the compare block is accessed in its own (dense or sparse) 
+	 * representation.
+	 * 
+	 * @param out
+	 * @param in
+	 * @param compare
+	 * @param rl
+	 * @param ru
+	 * @param cl
+	 * @param cu
 	 */
-	private class ResultMergeWorker implements Runnable
+	private static void mergeRowRange( MatrixBlock out, MatrixBlock in, MatrixBlock compare, int rl, int ru, int cl, int cu )
 	{
-		private MatrixObject _inMO  = null;
-		private MatrixBlock  _outMB = null;
+		int n = in.getNumColumns();
 		
-		public ResultMergeWorker(MatrixObject inMO, MatrixBlock outMB)
+		//merge non-zero values of input (new values)
+		if( !in.isEmptyBlock(false) )
 		{
-			_inMO  = inMO;
-			_outMB = outMB;
+			if( in.isInSparseFormat() ) //sparse input format
+			{
+				SparseRow[] b = in.getSparseRows();
+				for( int i=rl; i<ru; i++ )
+					if( b[i] != null && !b[i].isEmpty() )
+					{
+						SparseRow brow = b[i];
+						int blen = brow.size();
+						int[] bix = brow.getIndexContainer();
+						double[] bval = brow.getValueContainer();
+						for( int j=0; j<blen; j++ )
+							if( bix[j] >= cl && bix[j] < cu )
+								mergeValue(out, compare, i, bix[j], bval[j]);
+					}
+			}
+			else //dense input format
+			{
+				double[] b = in.getDenseArray();
+				for( int i=rl, bix=rl*n; i<ru; i++, bix+=n )
+					for( int j=cl; j<cu; j++ )
+						if( b[bix+j] != 0 )
+							mergeValue(out, compare, i, j, b[bix+j]);
+			}
 		}
-
-		@Override
-		public void run() 
+		
+		//merge zero values of input that overwrite existing non-zeros
+		if( compare != null )
 		{
-			//read each input if required
-			try
+			if( compare.isInSparseFormat() ) //sparse compare format
 			{
-				LOG.trace("ResultMerge (local, in-memory): Merge input "+_inMO.getVarName()+" (fname="+_inMO.getFileName()+")");
-				
-				MatrixBlock inMB = _inMO.acquireRead(); //incl. implicit read from HDFS
-				merge( _outMB, inMB, false );
-				_inMO.release();
-				_inMO.clearData();
+				SparseRow[] c = compare.getSparseRows();
+				for( int i=rl; i<ru; i++ )
+					if( c[i] != null && !c[i].isEmpty() )
+					{
+						SparseRow crow = c[i];
+						int clen = crow.size();
+						int[] cix = crow.getIndexContainer();
+						double[] cval = crow.getValueContainer();
+						for( int j=0; j<clen; j++ )
+							if( cix[j] >= cl && cix[j] < cu && cval[j] != 0 && in.quickGetValue(i, cix[j]) == 0 )
+								setValue(out, i, cix[j], 0);
+					}
 			}
-			catch(Exception ex)
+			else //dense compare format
 			{
-				throw new RuntimeException("Failed to parallel merge result.", ex);
+				double[] c = compare.getDenseArray();
+				for( int i=rl, cix=rl*n; i<ru; i++, cix+=n )
+					for( int j=cl; j<cu; j++ )
+						if( c[cix+j] != 0 && in.quickGetValue(i, j) == 0 )
+							setValue(out, i, j, 0);
+			}
+		}
+	}
+	
+	/**
+	 * 
+	 * @param out
+	 * @param compare
+	 * @param i
+	 * @param j
+	 * @param value
+	 */
+	private static void mergeValue( MatrixBlock out, MatrixBlock compare, int i, int j, double value )
+	{
+		if( compare == null ) {
+			setValue(out, i, j, value);
+		}
+		else {
+			double cvalue = compare.quickGetValue(i, j);
+			if(   (value != cvalue && !Double.isNaN(value) )     //for new values only (div)
+				|| Double.isNaN(value) != Double.isNaN(cvalue) ) //NaN awareness 
+			{
+				setValue(out, i, j, value);
+			}
+		}
+	}
+	
+	/**
+	 * Sets a single value without maintaining the number of non-zeros, which is
+	 * safe for concurrent writes to disjoint rows of a pre-allocated block.
+	 * 
+	 * @param out
+	 * @param i
+	 * @param j
+	 * @param value
+	 */
+	private static void setValue( MatrixBlock out, int i, int j, double value )
+	{
+		if( out.isInSparseFormat() ) {
+			SparseRow[] a = out.getSparseRows();
+			if( a[i] == null ) {
+				if( value == 0 )
+					return;
+				a[i] = new SparseRow(SparseRow.initialCapacity, out.getNumColumns());
 			}
+			a[i].set(j, value);
 		}
+		else {
+			out.getDenseArray()[i*out.getNumColumns()+j] = value;
+		}
+	}
+	
+	/**
+	 * Merge task for a row range of the output over all inputs. For delta inputs, the
+	 * row range is further restricted to the dirty range of the individual input. 
+	 */
+	private static class ResultMergeTask implements Callable<Object>
+	{
+		private ArrayList<MatrixBlock> _inMB = null;
+		private ArrayList<IndexRange> _inIx = null;
+		private MatrixBlock _outMB = null;
+		private MatrixBlock _compare = null;
+		private int _rl = -1;
+		private int _ru = -1;
 		
+		protected ResultMergeTask( ArrayList<MatrixBlock> inMB, ArrayList<IndexRange> inIx, MatrixBlock outMB, MatrixBlock compare, int rl, int ru )
+		{
+			_inMB  = inMB;
+			_inIx  = inIx;
+			_outMB = outMB;
+			_compare = compare;
+			_rl = rl;
+			_ru = ru;
+		}
+
+		@Override
+		public Object call() 
+			throws DMLRuntimeException
+		{
+			//merge all inputs for the given row range
+			for( int k=0; k<_inMB.size(); k++ )
+			{
+				MatrixBlock in = _inMB.get(k);
+				IndexRange ix = _inIx.get(k);
+				if( ix == null ) //full input
+					mergeRowRange(_outMB, in, _compare, _rl, _ru, 0, in.getNumColumns());
+				else { //dirty range of delta input
+					int rl = Math.max(_rl, (int)ix.rowStart-1);
+					int ru = Math.min(_ru, (int)ix.rowEnd);
+					if( rl < ru )
+						mergeRowRange(_outMB, in, _compare, rl, ru, (int)ix.colStart-1, (int)ix.colEnd);
+				}
+			}
+			
+			return null;
+		}
 	}
 }
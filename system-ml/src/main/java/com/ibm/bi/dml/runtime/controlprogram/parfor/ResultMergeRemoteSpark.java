@@ -17,6 +17,7 @@
 
 package com.ibm.bi.dml.runtime.controlprogram.parfor;
 
+import java.util.ArrayList;
 
 import org.apache.spark.api.java.JavaPairRDD;
 
@@ -28,6 +29,7 @@ import com.ibm.bi.dml.runtime.controlprogram.caching.MatrixObject;
 import com.ibm.bi.dml.runtime.controlprogram.context.ExecutionContext;
 import com.ibm.bi.dml.runtime.controlprogram.context.SparkExecutionContext;
 import com.ibm.bi.dml.runtime.instructions.spark.data.RDDObject;
+import com.ibm.bi.dml.runtime.instructions.spark.functions.IsBlockInRange;
 import com.ibm.bi.dml.runtime.instructions.spark.utils.RDDAggregateUtils;
 import com.ibm.bi.dml.runtime.matrix.MatrixCharacteristics;
 import com.ibm.bi.dml.runtime.matrix.MatrixFormatMetaData;
@@ -35,6 +37,7 @@ import com.ibm.bi.dml.runtime.matrix.data.InputInfo;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixIndexes;
 import com.ibm.bi.dml.runtime.matrix.data.OutputInfo;
+import com.ibm.bi.dml.runtime.util.IndexRange;
 import com.ibm.bi.dml.utils.Statistics;
 
 /**
@@ -82,8 +85,21 @@ public class ResultMergeRemoteSpark extends ResultMerge
 				MatrixCharacteristics mcOld = metadata.getMatrixCharacteristics();
 				MatrixObject compare = (mcOld.getNonZeros()==0) ? null : _output;
 				
+				//prepare delta merge (only dirty blocks of modified inputs)
+				boolean delta = (compare != null) && isDeltaMerge();
+				MatrixObject[] inputs = _inputs;
+				if( delta ) {
+					ArrayList<MatrixObject> tmp = new ArrayList<MatrixObject>();
+					for( MatrixObject in : _inputs )
+						if( in != null && in != _output && in.getDirtyRange() != null )
+							tmp.add( in );
+					if( tmp.isEmpty() ) //no modifications
+						return _output;
+					inputs = tmp.toArray(new MatrixObject[0]);
+				}
+				
 				//actual merge
-				RDDObject ro = executeMerge(compare, _inputs, _output.getVarName(), mcOld.getRows(), mcOld.getCols(), mcOld.getRowsPerBlock(), mcOld.getColsPerBlock());
+				RDDObject ro = executeMerge(compare, inputs, delta, _output.getVarName(), mcOld.getRows(), mcOld.getCols(), mcOld.getRowsPerBlock(), mcOld.getColsPerBlock());
 				
 				//create new output matrix (e.g., to prevent potential export<->read file access conflict
 				String varName = _output.getVarName();
@@ -95,7 +111,7 @@ public class ResultMergeRemoteSpark extends ResultMerge
 				InputInfo iiOld = metadata.getInputInfo();
 				MatrixCharacteristics mc = new MatrixCharacteristics(mcOld.getRows(),mcOld.getCols(),
 						                                             mcOld.getRowsPerBlock(),mcOld.getColsPerBlock());
-				mc.setNonZeros( computeNonZeros(_output, convertToList(_inputs)) );
+				mc.setNonZeros( computeNonZeros(_output, convertToList(inputs)) );
 				MatrixFormatMetaData meta = new MatrixFormatMetaData(mc,oiOld,iiOld);
 				moNew.setMetaData( meta );
 				moNew.setRDDHandle( ro );
@@ -118,6 +134,7 @@ public class ResultMergeRemoteSpark extends ResultMerge
 	 * @param fname 	null if no comparison required
 	 * @param fnameNew
 	 * @param srcFnames
+	 * @param delta 	true if all inputs are deltas of the compare matrix
 	 * @param ii
 	 * @param oi
 	 * @param rlen
@@ -127,7 +144,7 @@ public class ResultMergeRemoteSpark extends ResultMerge
 	 * @throws DMLRuntimeException
 	 */
 	@SuppressWarnings("unchecked")
-	protected RDDObject executeMerge(MatrixObject compare, MatrixObject[] inputs, String varname, long rlen, long clen, int brlen, int bclen)
+	protected RDDObject executeMerge(MatrixObject compare, MatrixObject[] inputs, boolean delta, String varname, long rlen, long clen, int brlen, int bclen)
 		throws DMLRuntimeException 
 	{
 		String jobname = "ParFor-RMSP";
@@ -147,18 +164,32 @@ public class ResultMergeRemoteSpark extends ResultMerge
 		
 		try
 		{
-		    //Step 1: union over all results
-		    JavaPairRDD<MatrixIndexes, MatrixBlock> rdd = (JavaPairRDD<MatrixIndexes, MatrixBlock>) 
-		    		sec.getRDDHandleForMatrixObject(_inputs[0], InputInfo.BinaryBlockInputInfo);
-		    for( int i=1; i<_inputs.length; i++ ) {
+		    //Step 1: union over all results (for delta merge, only blocks of dirty ranges)
+		    JavaPairRDD<MatrixIndexes, MatrixBlock> rdd = null;
+		    for( int i=0; i<inputs.length; i++ ) {
 			    JavaPairRDD<MatrixIndexes, MatrixBlock> rdd2 = (JavaPairRDD<MatrixIndexes, MatrixBlock>) 
-			    		sec.getRDDHandleForMatrixObject(_inputs[i], InputInfo.BinaryBlockInputInfo);
-			    rdd = rdd.union(rdd2);
+			    		sec.getRDDHandleForMatrixObject(inputs[i], InputInfo.BinaryBlockInputInfo);
+			    if( delta ) {
+			    	IndexRange ix = inputs[i].getDirtyRange();
+			    	rdd2 = rdd2.filter(new IsBlockInRange(ix.rowStart, ix.rowEnd, ix.colStart, ix.colEnd, 
+			    			compare.getMatrixCharacteristics()));
+			    }
+			    rdd = (rdd == null) ? rdd2 : rdd.union(rdd2);
 		    }
 		
 		    //Step 2a: merge with compare
 		    JavaPairRDD<MatrixIndexes, MatrixBlock> out = null;
-		    if( withCompare )
+		    if( withCompare && delta )
+		    {
+		    	JavaPairRDD<MatrixIndexes, MatrixBlock> compareRdd = (JavaPairRDD<MatrixIndexes, MatrixBlock>) 
+			    		sec.getRDDHandleForMatrixObject(compare, InputInfo.BinaryBlockInputInfo);
+		    	
+		    	//merge dirty blocks which differ from compare values, pass through all other blocks
+		    	ResultMergeRemoteSparkWDelta dfun = new ResultMergeRemoteSparkWDelta();
+		    	out = compareRdd.cogroup(rdd, numRed) //group compare block and dirty result blocks
+		    	                .mapToPair(dfun);     //merge dirty result blocks w/ compare
+		    }
+		    else if( withCompare )
 		    {
 		    	JavaPairRDD<MatrixIndexes, MatrixBlock> compareRdd = (JavaPairRDD<MatrixIndexes, MatrixBlock>) 
 			    		sec.getRDDHandleForMatrixObject(compare, InputInfo.BinaryBlockInputInfo);
@@ -178,9 +209,9 @@ public class ResultMergeRemoteSpark extends ResultMerge
 		    
 		    //Step 3: create output rdd handle w/ lineage
 		    ret = new RDDObject(out, varname);
-		    for( int i=0; i<_inputs.length; i++ ) {
+		    for( int i=0; i<inputs.length; i++ ) {
 		    	//child rdd handles guaranteed to exist
-		    	RDDObject child = _inputs[i].getRDDHandle();
+		    	RDDObject child = inputs[i].getRDDHandle();
 				ret.addLineageChild(child);
 		    }
 		}
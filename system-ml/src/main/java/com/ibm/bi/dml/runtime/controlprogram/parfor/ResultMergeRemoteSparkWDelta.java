@@ -0,0 +1,90 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.runtime.controlprogram.parfor;
+
+import java.util.Iterator;
+
+import org.apache.spark.api.java.function.PairFunction;
+
+import scala.Tuple2;
+
+import com.ibm.bi.dml.runtime.DMLRuntimeException;
+import com.ibm.bi.dml.runtime.controlprogram.caching.MatrixObject;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixIndexes;
+import com.ibm.bi.dml.runtime.util.DataConverter;
+
+/**
+ * Merge function for delta result merge, i.e., the cogroup of all compare blocks with
+ * the dirty result blocks. Compare blocks without dirty result blocks are passed through.
+ * 
+ */
+public class ResultMergeRemoteSparkWDelta extends ResultMerge implements PairFunction<Tuple2<MatrixIndexes,Tuple2<Iterable<MatrixBlock>,Iterable<MatrixBlock>>>, MatrixIndexes, MatrixBlock>
+{
+	
+	private static final long serialVersionUID = 2745817235609318604L;
+
+	@Override
+	public Tuple2<MatrixIndexes, MatrixBlock> call(Tuple2<MatrixIndexes, Tuple2<Iterable<MatrixBlock>, Iterable<MatrixBlock>>> arg)
+		throws Exception 
+	{
+		MatrixIndexes ixin = arg._1();
+		Iterator<MatrixBlock> cin = arg._2()._1().iterator();
+		Iterator<MatrixBlock> din = arg._2()._2().iterator();
+		
+		//pass through unmodified blocks
+		if( !din.hasNext() )
+			return new Tuple2<MatrixIndexes,MatrixBlock>(ixin, cin.next());
+		
+		//create compare array (robustness for non-existing empty compare blocks)
+		MatrixBlock out = null;
+		double[][] compare = null;
+		if( cin.hasNext() ) {
+			MatrixBlock cblk = cin.next();
+			compare = DataConverter.convertToDoubleMatrix(cblk);
+			out = new MatrixBlock(cblk);
+		}
+		
+		//merge all dirty blocks into compare block
+		while( din.hasNext() ) {
+			MatrixBlock dblk = din.next();
+			if( out == null ) {
+				compare = new double[dblk.getNumRows()][dblk.getNumColumns()];
+				out = new MatrixBlock(dblk.getNumRows(), dblk.getNumColumns(), dblk.isInSparseFormat());
+			}
+			mergeWithComp(out, dblk, compare);
+		}
+		
+		//create output tuple
+		return new Tuple2<MatrixIndexes,MatrixBlock>(new MatrixIndexes(ixin), out);
+	}
+
+	@Override
+	public MatrixObject executeSerialMerge() 
+			throws DMLRuntimeException 
+	{
+		throw new DMLRuntimeException("Unsupported operation.");
+	}
+
+	@Override
+	public MatrixObject executeParallelMerge(int par)
+			throws DMLRuntimeException 
+	{
+		throw new DMLRuntimeException("Unsupported operation.");
+	}
+}
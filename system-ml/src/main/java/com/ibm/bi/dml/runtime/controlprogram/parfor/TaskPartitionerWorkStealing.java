@@ -0,0 +1,101 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.runtime.controlprogram.parfor;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import com.ibm.bi.dml.runtime.DMLRuntimeException;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.Task.TaskType;
+import com.ibm.bi.dml.runtime.instructions.cp.IntObject;
+
+/**
+ * This work-stealing task partitioner virtually iterates over the given FOR loop (from, to, incr)
+ * and creates one range task of numIterations/numWorkers iterations per worker. The actual task
+ * sizes are determined at runtime by adaptive splitting and stealing of these ranges (see
+ * LocalTaskQueueWorkStealing), while the task size is used as the minimum chunk size.
+ * 
+ */
+public class TaskPartitionerWorkStealing extends TaskPartitioner
+{
+
+	private int _numThreads = -1;
+
+	public TaskPartitionerWorkStealing( long taskSize, int numThreads, String iterVarName, IntObject fromVal, IntObject toVal, IntObject incrVal )
+	{
+		super(taskSize, iterVarName, fromVal, toVal, incrVal);
+
+		_numThreads = numThreads;
+	}
+
+	@Override
+	public List<Task> createTasks()
+		throws DMLRuntimeException
+	{
+		LinkedList<Task> tasks = new LinkedList<Task>();
+
+		long lFrom  = _fromVal.getLongValue();
+		long lTo    = _toVal.getLongValue();
+		long lIncr  = _incrVal.getLongValue();
+		long lsize  = _numIter / _numThreads;
+		long lfnp1  = _numIter % _numThreads;
+
+		for( long i = lFrom; i<=lTo; )
+		{
+			//determine end of range task (first n tasks get one additional iteration)
+			long len = lsize + ((lfnp1-- > 0) ? 1 : 0);
+			long to = Math.min( i+(len-1)*lIncr, lTo );
+
+			//create new range task and add to list of tasks
+			Task lTask = new Task( TaskType.RANGE );
+			lTask.addIteration(new IntObject(_iterVarName, i));	    //from
+			lTask.addIteration(new IntObject(_iterVarName, to));    //to
+			lTask.addIteration(new IntObject(_iterVarName, lIncr));	//increment
+			tasks.addLast(lTask);
+
+			i = to + lIncr;
+		}
+
+		return tasks;
+	}
+
+	@Override
+	public long createTasks(LocalTaskQueue<Task> queue)
+		throws DMLRuntimeException
+	{
+		long numCreatedTasks = 0;
+
+		try
+		{
+			//add tasks to queue (one range per worker, round robin assignment)
+			for( Task lTask : createTasks() ) {
+				queue.enqueueTask( lTask );
+				numCreatedTasks++;
+			}
+
+			// mark end of task input stream
+			queue.closeInput();
+		}
+		catch(Exception ex)
+		{
+			throw new DMLRuntimeException(ex);
+		}
+
+		return numCreatedTasks;
+	}
+}
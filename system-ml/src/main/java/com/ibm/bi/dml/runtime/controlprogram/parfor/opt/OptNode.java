@@ -84,7 +84,9 @@ public class OptNode
 		DATA_PARTITION_FORMAT,
 		RESULT_MERGE,
 		NUM_ITERATIONS,
-		RECURSIVE_CALL
+		RECURSIVE_CALL,
+		PINNED_INPUTS,
+		DYNAMIC_DOP
 	}
 
 	//child nodes
@@ -647,6 +649,14 @@ public class OptNode
 				sb.append(_params.get(ParamType.TASK_PARTITIONER));
 				sb.append(", rm="); //result merge
 				sb.append(_params.get(ParamType.RESULT_MERGE));
+				if( _params.containsKey(ParamType.PINNED_INPUTS) ) {
+					sb.append(", pin="); //pinned read-only inputs
+					sb.append(_params.get(ParamType.PINNED_INPUTS));
+				}
+				if( _params.containsKey(ParamType.DYNAMIC_DOP) ) {
+					sb.append(", dynk="); //dynamic degree of parallelism (init-max)
+					sb.append(_params.get(ParamType.DYNAMIC_DOP));
+				}
 				break;
 			}
 			case FUNCCALL: {
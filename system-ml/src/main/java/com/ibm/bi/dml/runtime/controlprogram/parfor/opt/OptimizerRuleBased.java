@@ -43,6 +43,7 @@ import com.ibm.bi.dml.hops.LeftIndexingOp;
 import com.ibm.bi.dml.hops.LiteralOp;
 import com.ibm.bi.dml.hops.OptimizerUtils;
 import com.ibm.bi.dml.hops.ReorgOp;
+import com.ibm.bi.dml.hops.codegen.SpoofFusedOp;
 import com.ibm.bi.dml.hops.rewrite.HopRewriteUtils;
 import com.ibm.bi.dml.hops.rewrite.ProgramRewriteStatus;
 import com.ibm.bi.dml.hops.rewrite.ProgramRewriter;
@@ -107,6 +108,7 @@ import com.ibm.bi.dml.yarn.ropt.YarnClusterAnalyzer;
  * - 9) rewrite use nested parallelism 
  * - 10) rewrite set degree of parallelism
  * - 11) rewrite set task partitioner
+ * - 11b) rewrite set in-memory data partitioning
  * - 12) rewrite set fused data partitioning and execution
  * - 13) rewrite transpose vector operations (for sparse)
  * - 14) rewrite set in-place result indexing
@@ -115,6 +117,7 @@ import com.ibm.bi.dml.yarn.ropt.YarnClusterAnalyzer;
  * - 17) rewrite inject spark loop checkpointing 
  * - 18) rewrite inject spark repartition (for zipmm)
  * - 19) rewrite set spark eager rdd caching 
+ * - 19b) rewrite pin loop-invariant read-only inputs
  * - 20) rewrite set result merge 		 		 
  * - 21) rewrite set recompile memory budget
  * - 22) rewrite remove recursive parfor	
@@ -143,6 +146,8 @@ public class OptimizerRuleBased extends Optimizer
 	public static final boolean ALLOW_REMOTE_NESTED_PARALLELISM = false;
 	public static final boolean APPLY_REWRITE_NESTED_PARALLELISM = false;
 	public static final String FUNCTION_UNFOLD_NAMEPREFIX = "__unfold_";
+	public static final double MEM_FRACTION_READONLY_PINNING = 0.5; //wrt local memory budget
+	public static final double MEM_FRACTION_INMEMORY_PARTITIONING = 0.3; //wrt local memory budget
 	
 	public static final double PAR_K_FACTOR        = OptimizationWrapper.PAR_FACTOR_INFRASTRUCTURE; 
 	public static final double PAR_K_MR_FACTOR     = 1.0 * OptimizationWrapper.PAR_FACTOR_INFRASTRUCTURE; 
@@ -287,6 +292,9 @@ public class OptimizerRuleBased extends Optimizer
 			// rewrite 11: task partitioning
 			rewriteSetTaskPartitioner( pn, false, false ); //flagLIX always false 
 			
+			// rewrite 11b: in-memory data partitioning
+			rewriteSetInMemoryDataPartitioning( pn, ec.getVariables(), partitionedMatrices );
+			
 			// rewrite 14: set in-place result indexing
 			HashSet<String> inplaceResultVars = new HashSet<String>();
 			rewriteSetInPlaceResultIndexing(pn, M1, ec.getVariables(), inplaceResultVars);
@@ -305,6 +313,9 @@ public class OptimizerRuleBased extends Optimizer
 				//rewrite 19: eager caching for checkpoint rdds
 				rewriteSetSparkEagerRDDCaching( pn, ec.getVariables() );
 			}
+			
+			//rewrite 19b: pin loop-invariant read-only inputs 
+			rewriteSetReadOnlyInputPinning( pn, ec.getVariables(), partitionedMatrices, inplaceResultVars );
 		}	
 	
 		// rewrite 20: set result merge
@@ -939,15 +950,16 @@ public class OptimizerRuleBased extends Optimizer
 	{
 		boolean isCPOnly = n.isCPOnly();
 		boolean isCPOnlyPossible = isCPOnly || isCPOnlyPossible(n, _rm);
-
+		boolean hasSpoofOps = containsSpoofOperators(n);
 
 		String datapartitioner = n.getParam(ParamType.DATA_PARTITIONER);
 		ExecType REMOTE = OptimizerUtils.isSparkExecutionMode() ? ExecType.SPARK : ExecType.MR;
 		PDataPartitioner REMOTE_DP = OptimizerUtils.isSparkExecutionMode() ? PDataPartitioner.REMOTE_SPARK : PDataPartitioner.REMOTE_MR;
 
 		//deciding on the execution strategy
-		if(    (isCPOnly && M <= _rm )   //Required: all instruction can be be executed in CP
-			|| (isCPOnlyPossible && M2 <= _rm) )  //Required: cp inst fit into remote JVM mem 
+		if( !hasSpoofOps   //Required: no generated operators (only available in local JVM)
+			&& ( (isCPOnly && M <= _rm )   //Required: all instruction can be be executed in CP
+			  || (isCPOnlyPossible && M2 <= _rm) ) )  //Required: cp inst fit into remote JVM mem 
 		{
 			//at this point all required conditions for REMOTE_MR given, now its an opt decision
 			int cpk = (int) Math.min( _lk, Math.floor( _lm / M ) ); //estimated local exploited par  
@@ -985,7 +997,7 @@ public class OptimizerRuleBased extends Optimizer
 				n.setExecType( ExecType.CP ); //local parfor	
 			}			
 		}
-		else //mr instructions in body, or rm too small
+		else //mr instructions in body, rm too small, or generated operators in body
 		{
 			n.setExecType( ExecType.CP ); //local parfor
 		}
@@ -1052,6 +1064,29 @@ public class OptimizerRuleBased extends Optimizer
 		return ret;
 	}
 	
+	/**
+	 * Indicates if the given subtree contains fused operators with generated code, whose
+	 * classes are only compiled and registered in the local JVM (see CodegenUtils) and 
+	 * hence cannot be executed by remote parfor workers.
+	 * 
+	 * @param n
+	 * @return
+	 */
+	protected boolean containsSpoofOperators( OptNode n )
+	{
+		if( n.isLeaf() ) {
+			Hop h = OptTreeConverter.getAbstractPlanMapping().getMappedHop( n.getID() );
+			return (h instanceof SpoofFusedOp);
+		}
+		
+		boolean ret = false;
+		for( OptNode c : n.getChilds() ) {
+			ret |= containsSpoofOperators(c);
+			if( ret ) break; //early abort
+		}
+		return ret;
+	}
+	
 	
 	///////
 	//REWRITE set operations exec type
@@ -1427,15 +1462,30 @@ public class OptimizerRuleBased extends Optimizer
 			//ensure local memory constraint (for spark more conservative in order to 
 			//prevent unnecessary guarded collect)
 			double mem = OptimizerUtils.isSparkExecutionMode() ? _lm/2 : _lm;
+			int kMaxCPU = kMax;
 			kMax = Math.min( kMax, (int)Math.floor( mem / M ) );
 			kMax = Math.max( kMax, 1);
 			
+			//use dynamic parallelism if memory-constrained (for cp-only bodies, where
+			//the worst-case estimates are often too conservative): start with the 
+			//memory-constrained dop and grow at runtime up to the cpu-constrained dop
+			int initK = -1;
+			if(    ParForProgramBlock.USE_DYNAMIC_PARALLELISM && n.isCPOnly() 
+				&& kMax < kMaxCPU && kMax < _N ) 
+			{
+				initK = kMax;
+				kMax = kMaxCPU;
+			}
+			
 			//constrain max parfor parallelism by problem size
 			int parforK = (int)((_N<kMax)? _N : kMax);
 			
 			//set parfor degree of parallelism
 			pfpb.setDegreeOfParallelism(parforK);
+			pfpb.setInitialDegreeOfParallelism(initK);
 			n.setK(parforK);	
+			if( initK > 0 )
+				n.addParam(ParamType.DYNAMIC_DOP, String.valueOf(initK)+"-"+parforK);
 			
 			//distribute remaining parallelism 
 			int remainParforK = (int)Math.ceil(((double)(kMax-parforK+1))/parforK);
@@ -2317,6 +2367,164 @@ public class OptimizerRuleBased extends Optimizer
 				" ("+ProgramConverter.serializeStringCollection(ret)+")" );
 	}
 	
+	///////
+	//REWRITE set in-memory data partitioning
+	///
+	
+	/**
+	 * Replaces physical data partitioning by in-memory partitioning for local parfor if all 
+	 * partitioned inputs fit into a fraction of the local memory budget. Workers then slice 
+	 * their row/column partitions directly from the in-memory input instead of reading 
+	 * partition files. For column-wise partitioning, we account for an additional transposed 
+	 * copy of the input (contiguous column access).
+	 * 
+	 * @param n
+	 * @param vars
+	 * @param partitionedMatrices
+	 * @throws DMLRuntimeException
+	 */
+	protected void rewriteSetInMemoryDataPartitioning( OptNode n, LocalVariableMap vars, HashMap<String, PDataPartitionFormat> partitionedMatrices ) 
+		throws DMLRuntimeException 
+	{
+		//get program blocks of root parfor
+		Object[] progobj = OptTreeConverter.getAbstractPlanMapping().getMappedProg(n.getID());
+		ParForProgramBlock pfpb = (ParForProgramBlock)progobj[1];
+		
+		boolean apply = false;
+		double size = 0;
+		
+		if(    ParForProgramBlock.USE_INMEMORY_PARTITIONING
+			&& n.getExecType() == ExecType.CP //local parfor 
+			&& !partitionedMatrices.isEmpty() ) //data partitioning applied
+		{
+			apply = true;
+			for( Entry<String, PDataPartitionFormat> e : partitionedMatrices.entrySet() )
+			{
+				Data dat = vars.get(e.getKey());
+				if( dat instanceof MatrixObject ) 
+				{
+					MatrixObject mo = (MatrixObject) dat;
+					double sp = OptimizerUtils.getSparsity(mo.getNumRows(), mo.getNumColumns(), mo.getNnz());
+					double msize = OptimizerUtils.estimateSizeExactSparsity(mo.getNumRows(), mo.getNumColumns(), sp);
+					PDataPartitionFormat dpf = e.getValue();
+					if(    dpf == PDataPartitionFormat.COLUMN_WISE || dpf == PDataPartitionFormat.COLUMN_BLOCK_WISE
+						|| dpf == PDataPartitionFormat.COLUMN_BLOCK_WISE_N ) 
+					{
+						msize *= 2; //transposed copy
+					}
+					apply &= (mo.getNumRows() > 0 && mo.getNumColumns() > 0); //known dims
+					size += msize;
+				}
+			}
+			apply &= (size < MEM_FRACTION_INMEMORY_PARTITIONING * _lm);
+		}
+		
+		//modify rtprog and plan 
+		if( apply ) {
+			pfpb.setDataPartitioner( PDataPartitioner.LOCAL_MEM );
+			n.addParam(ParamType.DATA_PARTITIONER, PDataPartitioner.LOCAL_MEM.toString());
+		}
+		
+		_numEvaluatedPlans++;
+		LOG.debug(getOptMode()+" OPT: rewrite 'set in-memory data partitioning' - result="+apply+
+				" ("+ProgramConverter.serializeStringCollection(partitionedMatrices.keySet())+", "+toMB(size)+"MB)" );
+	}
+	
+	///////
+	//REWRITE pin loop-invariant read-only inputs
+	///
+	
+	/**
+	 * Selects loop-invariant read-only inputs of a local parfor that are accessed by CP operations
+	 * and pins them in memory for the duration of the loop. Workers then read these inputs without 
+	 * synchronization on the shared matrix objects and without potential restores from the buffer 
+	 * pool. The sum of pinned inputs is restricted to a fraction of the local memory budget. 
+	 * 
+	 * @param n
+	 * @param vars
+	 * @param partitionedMatrices
+	 * @param inplaceResultVars
+	 * @throws DMLRuntimeException
+	 */
+	protected void rewriteSetReadOnlyInputPinning( OptNode n, LocalVariableMap vars, HashMap<String, PDataPartitionFormat> partitionedMatrices, HashSet<String> inplaceResultVars ) 
+		throws DMLRuntimeException 
+	{
+		//get program blocks of root parfor
+		Object[] progobj = OptTreeConverter.getAbstractPlanMapping().getMappedProg(n.getID());
+		ParForStatementBlock pfsb = (ParForStatementBlock)progobj[0];
+		ParForProgramBlock pfpb = (ParForProgramBlock)progobj[1];
+		
+		ArrayList<String> ret = new ArrayList<String>();
+		double size = 0;
+		
+		if(    ParForProgramBlock.USE_READONLY_INPUT_PINNING
+			&& n.getExecType() == ExecType.CP //local parfor 
+			&& n.getK() > 1                   //multi-threaded
+			&& _N > 1                      )  //at least 2 iterations
+		{
+			//collect candidates read by cp operations, and prune candidates read by mr/spark operations
+			HashSet<String> cand = new HashSet<String>();
+			HashSet<String> prune = new HashSet<String>();
+			rCollectReadOnlyPinningCandidates(n, cand, prune);
+			
+			for( String var : pfsb.getReadOnlyParentVars() )
+			{
+				Data dat = vars.get(var);
+				if( cand.contains(var) && !prune.contains(var) 
+					&& !partitionedMatrices.containsKey(var) && !inplaceResultVars.contains(var)
+					&& dat instanceof MatrixObject && !((MatrixObject)dat).isPartitioned() )
+				{
+					MatrixObject mo = (MatrixObject) dat;
+					double sp = OptimizerUtils.getSparsity(mo.getNumRows(), mo.getNumColumns(), mo.getNnz());
+					double msize = OptimizerUtils.estimateSizeExactSparsity(mo.getNumRows(), mo.getNumColumns(), sp);
+					if( mo.getNumRows() > 0 && mo.getNumColumns() > 0 //known dims
+						&& size + msize < MEM_FRACTION_READONLY_PINNING * _lm ) 
+					{
+						ret.add( var );
+						size += msize;
+					}
+				}
+			}
+		}
+		
+		//apply rewrite to parfor pb (reset if not applied, for repeated optimization)
+		pfpb.setReadOnlyPinnedVariables( ret.isEmpty() ? null : ret );
+		if( !ret.isEmpty() )
+			n.addParam(ParamType.PINNED_INPUTS, ProgramConverter.serializeStringCollection(ret)+" ("+toMB(size)+"MB)");
+		
+		_numEvaluatedPlans++;
+		LOG.debug(getOptMode()+" OPT: rewrite 'set read-only input pinning' - result="+ret.size()+
+				" ("+ProgramConverter.serializeStringCollection(ret)+", "+toMB(size)+"MB)" );
+	}
+	
+	/**
+	 * 
+	 * @param n
+	 * @param cand
+	 * @param prune
+	 */
+	private void rCollectReadOnlyPinningCandidates( OptNode n, HashSet<String> cand, HashSet<String> prune )
+	{
+		//collect direct data inputs of hops
+		if( n.getNodeType()==NodeType.HOP ) {
+			Hop h = OptTreeConverter.getAbstractPlanMapping().getMappedHop(n.getID());
+			if( h.getInput() != null )
+				for( Hop in : h.getInput() )
+					if( in instanceof DataOp && in.getDataType()==DataType.MATRIX ) {
+						if( h.getExecType() == LopProperties.ExecType.CP )
+							cand.add( in.getName() );
+						else 
+							prune.add( in.getName() );
+					}
+		}
+		
+		//recursively process childs (except function calls, to prevent conflicts with aliases)
+		if( !n.isLeaf() )
+			for( OptNode c : n.getChilds() )
+				if( c.getNodeType() != NodeType.FUNCCALL )
+					rCollectReadOnlyPinningCandidates(c, cand, prune);
+	}
+	
 	///////
 	//REWRITE remove compare matrix (for result merge, needs to be invoked before setting result merge)
 	///
@@ -2758,13 +2966,26 @@ public class OptimizerRuleBased extends Optimizer
 	 */
 	public static boolean isInMemoryResultMerge( long rows, long cols, double memBudget )
 	{
-		if( !ParForProgramBlock.USE_PARALLEL_RESULT_MERGE )
-		{
-			//1/4 mem budget because: 2xout (incl sparse-dense change), 1xin, 1xcompare  
-			return ( rows>=0 && cols>=0 && MatrixBlock.estimateSizeInMemory(rows, cols, 1.0) < memBudget/4 );
-		}
-		else
-			return ( rows>=0 && cols>=0 && rows*cols < Math.pow(Hop.CPThreshold, 2) );
+		//1/4 mem budget because: 2xout (incl sparse-dense change), 1xin, 1xcompare  
+		//(serial merge that streams the inputs, which is also the fallback of the parallel merge)
+		return ( rows>=0 && cols>=0 && MatrixBlock.estimateSizeInMemory(rows, cols, 1.0) < memBudget/4 );
+	}
+	
+	/**
+	 * Indicates if the parallel in-memory result merge fits into the given memory budget,
+	 * which pins all inputs at once, i.e., requires memory for k inputs, the output, 
+	 * and the compare block.
+	 * 
+	 * @param rows
+	 * @param cols
+	 * @param numInputs
+	 * @param memBudget
+	 * @return
+	 */
+	public static boolean isInMemoryParallelResultMerge( long rows, long cols, int numInputs, double memBudget )
+	{
+		return ( rows>=0 && cols>=0 
+			&& (numInputs+2) * MatrixBlock.estimateSizeInMemory(rows, cols, 1.0) < memBudget );
 	}
 
 	
@@ -2784,13 +3005,16 @@ public class OptimizerRuleBased extends Optimizer
 		//check et because recompilation only happens at the master node
 		if( n.getExecType() == ExecType.CP )
 		{
+			ParForProgramBlock pfpb = (ParForProgramBlock) OptTreeConverter
+            							.getAbstractPlanMapping().getMappedProg(n.getID())[1];
+			
 			//compute local recompile memory budget
+			//(for dynamic parallelism w.r.t. the max dop, because the runtime controller
+			//never grows beyond the number of workers that fit into the local memory)
 			int par = n.getTotalK();
 			newLocalMem = _lm / par;
 			
 			//modify runtime plan
-			ParForProgramBlock pfpb = (ParForProgramBlock) OptTreeConverter
-            							.getAbstractPlanMapping().getMappedProg(n.getID())[1];
 			pfpb.setRecompileMemoryBudget( newLocalMem );
 		}
 		
@@ -18,6 +18,8 @@
 package com.ibm.bi.dml.runtime.controlprogram.parfor.stat;
 
 import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
 import java.util.StringTokenizer;
 
 import org.apache.hadoop.mapred.ClusterStatus;
@@ -180,6 +182,33 @@ public class InfrastructureAnalyzer
 		_localJVMMaxMem = localMem;
 	}
 	
+	/**
+	 * Gets the current heap utilization of the local JVM, i.e., the used 
+	 * memory as a fraction of the maximum heap size (not the potentially 
+	 * modified max memory used for compilation).
+	 * 
+	 * @return
+	 */
+	public static double getLocalHeapUtilization()
+	{
+		Runtime rt = Runtime.getRuntime();
+		return ((double)(rt.totalMemory() - rt.freeMemory())) / rt.maxMemory();
+	}
+	
+	/**
+	 * Gets the accumulated garbage collection time [in ms] of the local JVM
+	 * (in contrast to Statistics, without gc times of remote processes).
+	 * 
+	 * @return
+	 */
+	public static long getLocalGCTime()
+	{
+		long ret = 0;
+		for( GarbageCollectorMXBean gcx : ManagementFactory.getGarbageCollectorMXBeans() )
+			ret += Math.max(gcx.getCollectionTime(), 0); //-1 if undefined
+		return ret;
+	}
+	
 	/**
 	 * Gets the maximum memory [in bytes] of a hadoop map task JVM.
 	 * 
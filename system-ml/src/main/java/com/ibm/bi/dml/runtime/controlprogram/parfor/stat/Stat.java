@@ -39,6 +39,10 @@ public enum Stat
 	PARFOR_EXECMODE,	
 	PARFOR_NUMTASKS,
 	PARFOR_NUMITERS,
+	PARFOR_PINNED_BYTES,
+	PARFOR_DOP_MIN,
+	PARFOR_DOP_MAX,
+	PARFOR_DOP_ADJUSTMENTS,
 	PARFOR_JITCOMPILE,
 	PARFOR_JVMGC_COUNT,
 	PARFOR_JVMGC_TIME,
@@ -47,10 +51,15 @@ public enum Stat
 	PARFOR_INIT_TASKS_T,
 	PARFOR_WAIT_EXEC_T,
 	PARFOR_WAIT_RESULTS_T,
+	PARFOR_REMOTE_PARSE_T,
+	PARFOR_REMOTE_EXEC_T,
+	PARFOR_NUMSPECULATIVE,
 	
 	//parallel worker statistics
 	PARWRK_NUMTASKS,
 	PARWRK_NUMITERS,
+	PARWRK_NUMSTEALS,
+	PARWRK_NUMSPLITS,
 	PARWRK_TASKSIZE,
 	PARWRK_ITER_T,
 	PARWRK_TASK_T,
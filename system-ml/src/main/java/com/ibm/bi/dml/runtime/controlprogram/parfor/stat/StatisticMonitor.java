@@ -173,6 +173,14 @@ public class StatisticMonitor
 				sb.append("  Exec Mode        = "+PExecMode.values()[(int)(double)stats.get(Stat.PARFOR_EXECMODE).get(i)]+"\n");
 				sb.append("  Num Tasks        = "+(int)(double)stats.get(Stat.PARFOR_NUMTASKS).get(i)+"\n");
 				sb.append("  Num Iterations   = "+(int)(double)stats.get(Stat.PARFOR_NUMITERS).get(i)+"\n");
+				if( stats.containsKey(Stat.PARFOR_NUMSPECULATIVE) && stats.get(Stat.PARFOR_NUMSPECULATIVE).size()>i )
+					sb.append("  Num Spec Tasks   = "+(int)(double)stats.get(Stat.PARFOR_NUMSPECULATIVE).get(i)+"\n");
+				if( stats.containsKey(Stat.PARFOR_PINNED_BYTES) && stats.get(Stat.PARFOR_PINNED_BYTES).size()>i )
+					sb.append("  Pinned Inputs    = "+(long)(double)stats.get(Stat.PARFOR_PINNED_BYTES).get(i)+" bytes\n");
+				if( stats.containsKey(Stat.PARFOR_DOP_ADJUSTMENTS) && stats.get(Stat.PARFOR_DOP_ADJUSTMENTS).size()>i ) {
+					sb.append("  Dynamic DOP      = "+(int)(double)stats.get(Stat.PARFOR_DOP_MIN).get(i)+"-"+(int)(double)stats.get(Stat.PARFOR_DOP_MAX).get(i)+"\n");
+					sb.append("  DOP Adjustments  = "+(int)(double)stats.get(Stat.PARFOR_DOP_ADJUSTMENTS).get(i)+"\n");
+				}
 				
 				if( stats.containsKey(Stat.OPT_OPTIMIZER) )
 				{
@@ -187,6 +195,10 @@ public class StatisticMonitor
 				sb.append("  Time INIT TASKS   = "+stats.get(Stat.PARFOR_INIT_TASKS_T).get(i)+"ms\n");
 				sb.append("  Time WAIT EXEC    = "+stats.get(Stat.PARFOR_WAIT_EXEC_T).get(i)+"ms\n");
 				sb.append("  Time WAIT RESULT  = "+stats.get(Stat.PARFOR_WAIT_RESULTS_T).get(i)+"ms\n");
+				if( stats.containsKey(Stat.PARFOR_REMOTE_PARSE_T) && stats.get(Stat.PARFOR_REMOTE_PARSE_T).size()>i ) {
+					sb.append("  Time TASK PARSE   = "+stats.get(Stat.PARFOR_REMOTE_PARSE_T).get(i)+"ms (sum over tasks)\n");
+					sb.append("  Time TASK EXEC    = "+stats.get(Stat.PARFOR_REMOTE_EXEC_T).get(i)+"ms (sum over tasks)\n");
+				}
 				
 				//foreach parworker of this parfor
 				
@@ -207,6 +219,10 @@ public class StatisticMonitor
 						sb.append("       Num Tasks = "+ntasks+"\n");
 						sb.append("       Num Iters = "+niters+"\n");
 						sb.append("       Time EXEC = "+stats2.get(Stat.PARWRK_EXEC_T).get(0)+"ms\n");
+						if( stats2.containsKey(Stat.PARWRK_NUMSTEALS) ) {
+							sb.append("       Num Steals = "+(int)(double)stats2.get(Stat.PARWRK_NUMSTEALS).get(0)+"\n");
+							sb.append("       Num Splits = "+(int)(double)stats2.get(Stat.PARWRK_NUMSPLITS).get(0)+"\n");
+						}
 						
 						LinkedList<Double> taskexec = stats2.get(Stat.PARWRK_TASK_T);
 						LinkedList<Double> tasksize = stats2.get(Stat.PARWRK_TASKSIZE);
@@ -34,6 +34,7 @@ import com.ibm.bi.dml.runtime.instructions.cp.BooleanUnaryCPInstruction;
 import com.ibm.bi.dml.runtime.instructions.cp.BuiltinBinaryCPInstruction;
 import com.ibm.bi.dml.runtime.instructions.cp.BuiltinUnaryCPInstruction;
 import com.ibm.bi.dml.runtime.instructions.cp.CPInstruction;
+import com.ibm.bi.dml.runtime.instructions.cp.CPOperand;
 import com.ibm.bi.dml.runtime.instructions.cp.CentralMomentCPInstruction;
 import com.ibm.bi.dml.runtime.instructions.cp.CovarianceCPInstruction;
 import com.ibm.bi.dml.runtime.instructions.cp.DataGenCPInstruction;
@@ -52,6 +53,7 @@ import com.ibm.bi.dml.runtime.instructions.cp.QuantileSortCPInstruction;
 import com.ibm.bi.dml.runtime.instructions.cp.QuaternaryCPInstruction;
 import com.ibm.bi.dml.runtime.instructions.cp.RelationalBinaryCPInstruction;
 import com.ibm.bi.dml.runtime.instructions.cp.ReorgCPInstruction;
+import com.ibm.bi.dml.runtime.instructions.cp.SpoofCPInstruction;
 import com.ibm.bi.dml.runtime.instructions.cp.StringInitCPInstruction;
 import com.ibm.bi.dml.runtime.instructions.cp.TernaryCPInstruction;
 import com.ibm.bi.dml.runtime.instructions.cp.UaggOuterChainCPInstruction;
@@ -204,6 +206,9 @@ public class CPInstructionParser extends InstructionParser
 		String2CPInstructionType.put( "wdivmm"  , CPINSTRUCTION_TYPE.Quaternary);
 		String2CPInstructionType.put( "wcemm"   , CPINSTRUCTION_TYPE.Quaternary);
 		
+		// Fused operators with generated code
+		String2CPInstructionType.put( "spoof"   , CPINSTRUCTION_TYPE.SpoofFused);
+		
 		// User-defined function Opcodes
 		String2CPInstructionType.put( "extfunct"   	, CPINSTRUCTION_TYPE.External);
 
@@ -282,6 +287,9 @@ public class CPInstructionParser extends InstructionParser
 		case Quaternary:
 			return (CPInstruction) QuaternaryCPInstruction.parseInstruction(str);
 		
+		case SpoofFused:
+			return (CPInstruction) SpoofCPInstruction.parseInstruction(str);
+		
 		case BooleanBinary:
 			return (CPInstruction) BooleanBinaryCPInstruction.parseInstruction(str);
 			
@@ -384,6 +392,40 @@ public class CPInstructionParser extends InstructionParser
 		}
 	}
 	
+	/**
+	 * Creates a binary CP instruction (arithmetic, relational, or boolean) directly from
+	 * the given opcode and operands, which avoids the generation and subsequent parsing of
+	 * instruction strings during (re)compilation. Returns null if the opcode does not
+	 * refer to one of these instruction types.
+	 * 
+	 * @param opcode
+	 * @param in1
+	 * @param in2
+	 * @param out
+	 * @param str instruction string (for explain and remote execution)
+	 * @return
+	 * @throws DMLUnsupportedOperationException
+	 * @throws DMLRuntimeException
+	 */
+	public static CPInstruction createBinaryInstruction( String opcode, CPOperand in1, CPOperand in2, CPOperand out, String str ) 
+		throws DMLUnsupportedOperationException, DMLRuntimeException 
+	{
+		CPINSTRUCTION_TYPE cptype = String2CPInstructionType.get(opcode);
+		if( cptype == null )
+			return null;
+		
+		switch(cptype) {
+			case ArithmeticBinary:
+				return (CPInstruction) ArithmeticBinaryCPInstruction.createInstruction(opcode, in1, in2, out, str);
+			case RelationalBinary:
+				return (CPInstruction) RelationalBinaryCPInstruction.createInstruction(opcode, in1, in2, out, str);
+			case BooleanBinary:
+				return (CPInstruction) BooleanBinaryCPInstruction.createInstruction(opcode, in1, in2, out, str);
+			default:
+				return null;
+		}
+	}
+	
 	public static CPInstruction[] parseMixedInstructions ( String str ) throws DMLUnsupportedOperationException, DMLRuntimeException {
 		if ( str == null || str.isEmpty() )
 			return null;
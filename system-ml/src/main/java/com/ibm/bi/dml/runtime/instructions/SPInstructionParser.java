@@ -39,6 +39,7 @@ import com.ibm.bi.dml.runtime.instructions.spark.AppendMSPInstruction;
 import com.ibm.bi.dml.runtime.instructions.spark.AppendRSPInstruction;
 import com.ibm.bi.dml.runtime.instructions.spark.ArithmeticBinarySPInstruction;
 import com.ibm.bi.dml.runtime.instructions.spark.BinUaggChainSPInstruction;
+import com.ibm.bi.dml.runtime.instructions.spark.CellwiseChainSPInstruction;
 import com.ibm.bi.dml.runtime.instructions.spark.BuiltinBinarySPInstruction;
 import com.ibm.bi.dml.runtime.instructions.spark.BuiltinUnarySPInstruction;
 import com.ibm.bi.dml.runtime.instructions.spark.CSVReblockSPInstruction;
@@ -242,6 +243,7 @@ public class SPInstructionParser extends InstructionParser {
 		String2SPInstructionType.put( "qpick"  , SPINSTRUCTION_TYPE.QPick);
 		
 		String2SPInstructionType.put( "binuaggchain", SPINSTRUCTION_TYPE.BinUaggChain);
+		String2SPInstructionType.put( "cellchain"   , SPINSTRUCTION_TYPE.CellwiseChain);
 		
 		String2SPInstructionType.put( "write"   , SPINSTRUCTION_TYPE.Write);
 	}
@@ -384,6 +386,9 @@ public class SPInstructionParser extends InstructionParser {
 			
 			case BinUaggChain:
 				return BinUaggChainSPInstruction.parseInstruction(str);
+			
+			case CellwiseChain:
+				return CellwiseChainSPInstruction.parseInstruction(str);
 				
 			case Checkpoint:
 				return CheckpointSPInstruction.parseInstruction(str);
@@ -25,6 +25,8 @@ import com.ibm.bi.dml.runtime.controlprogram.context.ExecutionContext;
 import com.ibm.bi.dml.runtime.functionobjects.Multiply;
 import com.ibm.bi.dml.runtime.functionobjects.Plus;
 import com.ibm.bi.dml.runtime.instructions.InstructionUtils;
+import com.ibm.bi.dml.runtime.lineage.LineageCache;
+import com.ibm.bi.dml.runtime.lineage.LineageItem;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
 import com.ibm.bi.dml.runtime.matrix.operators.AggregateBinaryOperator;
 import com.ibm.bi.dml.runtime.matrix.operators.AggregateOperator;
@@ -73,6 +75,12 @@ public class AggregateBinaryCPInstruction extends BinaryCPInstruction
 	public void processInstruction(ExecutionContext ec) 
 		throws DMLRuntimeException, DMLUnsupportedOperationException
 	{	
+		//probe lineage reuse cache
+		LineageItem lineage = LineageCache.createLineage(ec, getOpcode(), input1, input2);
+		if( LineageCache.reuse(ec, lineage, output) )
+			return;
+		long t0 = System.nanoTime();
+		
 		//get inputs
 		MatrixBlock matBlock1 = ec.getMatrixInput(input1.getName());
         MatrixBlock matBlock2 = ec.getMatrixInput(input2.getName());
@@ -85,5 +93,8 @@ public class AggregateBinaryCPInstruction extends BinaryCPInstruction
 		ec.releaseMatrixInput(input1.getName());
 		ec.releaseMatrixInput(input2.getName());
 		ec.setMatrixOutput(output.getName(), soresBlock);
+		
+		//keep result for reuse
+		LineageCache.put(ec, lineage, output, soresBlock, System.nanoTime()-t0);
 	}
 }
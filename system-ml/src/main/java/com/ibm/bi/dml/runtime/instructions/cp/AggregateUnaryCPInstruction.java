@@ -27,6 +27,8 @@ import com.ibm.bi.dml.runtime.controlprogram.context.ExecutionContext;
 import com.ibm.bi.dml.runtime.functionobjects.Builtin;
 import com.ibm.bi.dml.runtime.instructions.Instruction;
 import com.ibm.bi.dml.runtime.instructions.InstructionUtils;
+import com.ibm.bi.dml.runtime.lineage.LineageCache;
+import com.ibm.bi.dml.runtime.lineage.LineageItem;
 import com.ibm.bi.dml.runtime.matrix.MatrixCharacteristics;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixIndexes;
@@ -138,6 +140,12 @@ public class AggregateUnaryCPInstruction extends UnaryCPInstruction
 		}
 		else 
 		{
+			//probe lineage reuse cache
+			LineageItem lineage = LineageCache.createLineage(ec, opcode, input1);
+			if( LineageCache.reuse(ec, lineage, output) )
+				return;
+			long t0 = System.nanoTime();
+			
 			/* Default behavior for AggregateUnary Instruction */
 			MatrixBlock matBlock = ec.getMatrixInput(input1.getName());		
 			AggregateUnaryOperator au_op = (AggregateUnaryOperator) _optr;
@@ -153,6 +161,9 @@ public class AggregateUnaryCPInstruction extends UnaryCPInstruction
 				// since the computed value is a scalar, allocate a "temp" output matrix
 				ec.setMatrixOutput(output_name, resultBlock);
 			}
+			
+			//keep result for reuse
+			LineageCache.put(ec, lineage, output, resultBlock, System.nanoTime()-t0);
 		}
 	}
 
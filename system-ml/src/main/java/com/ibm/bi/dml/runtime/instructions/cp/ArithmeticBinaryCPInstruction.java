@@ -46,6 +46,25 @@ public abstract class ArithmeticBinaryCPInstruction extends BinaryCPInstruction
 		CPOperand out = new CPOperand("", ValueType.UNKNOWN, DataType.UNKNOWN);
 		String opcode = parseBinaryInstruction(str, in1, in2, out);
 		
+		return createInstruction(opcode, in1, in2, out, str);
+	}
+	
+	/**
+	 * Creates an arithmetic binary instruction for already constructed operands,
+	 * which allows the direct instruction generation from lops without parsing.
+	 * 
+	 * @param opcode
+	 * @param in1
+	 * @param in2
+	 * @param out
+	 * @param str
+	 * @return
+	 * @throws DMLRuntimeException
+	 * @throws DMLUnsupportedOperationException
+	 */
+	public static Instruction createInstruction( String opcode, CPOperand in1, CPOperand in2, CPOperand out, String str ) 
+		throws DMLRuntimeException, DMLUnsupportedOperationException 
+	{
 		// Arithmetic operations must be performed on DOUBLE or INT
 		ValueType vt1 = in1.getValueType();
 		DataType dt1 = in1.getDataType();
@@ -23,6 +23,8 @@ import com.ibm.bi.dml.runtime.DMLUnsupportedOperationException;
 import com.ibm.bi.dml.runtime.controlprogram.context.ExecutionContext;
 import com.ibm.bi.dml.runtime.instructions.Instruction;
 import com.ibm.bi.dml.runtime.instructions.InstructionUtils;
+import com.ibm.bi.dml.runtime.lineage.LineageCache;
+import com.ibm.bi.dml.runtime.lineage.LineageItem;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
 import com.ibm.bi.dml.runtime.matrix.operators.Operator;
 
@@ -72,6 +74,12 @@ public class MMTSJCPInstruction extends UnaryCPInstruction
 	public void processInstruction(ExecutionContext ec)
 		throws DMLUnsupportedOperationException, DMLRuntimeException 
 	{
+		//probe lineage reuse cache
+		LineageItem lineage = LineageCache.createLineage(ec, getOpcode()+"_"+_type.name(), input1);
+		if( LineageCache.reuse(ec, lineage, output) )
+			return;
+		long t0 = System.nanoTime();
+		
 		//get inputs
 		MatrixBlock matBlock1 = ec.getMatrixInput(input1.getName());
 
@@ -81,6 +89,9 @@ public class MMTSJCPInstruction extends UnaryCPInstruction
 		//set output and release inputs
 		ec.setMatrixOutput(output.getName(), ret);
 		ec.releaseMatrixInput(input1.getName());
+		
+		//keep result for reuse
+		LineageCache.put(ec, lineage, output, ret, System.nanoTime()-t0);
 	}
 	
 	public MMTSJType getMMTSJType()
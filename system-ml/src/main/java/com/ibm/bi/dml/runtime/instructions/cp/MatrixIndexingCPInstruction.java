@@ -164,6 +164,8 @@ public class MatrixIndexingCPInstruction extends UnaryCPInstruction
 		else if ( opcode.equalsIgnoreCase("leftIndex"))
 		{
 			boolean inplace = mo.isUpdateInPlaceEnabled();
+			String dbase = mo.getDirtyRangeBase();   //tracked parfor result variable
+			IndexRange drange = mo.getDirtyRange();
 			MatrixBlock matBlock = ec.getMatrixInput(input1.getName());
 			MatrixBlock resultBlock = null;
 			
@@ -190,6 +192,15 @@ public class MatrixIndexingCPInstruction extends UnaryCPInstruction
 			
 			//unpin output
 			ec.setMatrixOutput(output.getName(), resultBlock, inplace);
+			
+			//maintain dirty range of tracked parfor result variables (delta result merge)
+			if( dbase != null ) {
+				IndexRange ix = new IndexRange(rl+1, ru+1, cl+1, cu+1);
+				if( drange != null )
+					ix.set( Math.min(ix.rowStart, drange.rowStart), Math.max(ix.rowEnd, drange.rowEnd),
+							Math.min(ix.colStart, drange.colStart), Math.max(ix.colEnd, drange.colEnd) );
+				ec.getMatrixObject(output.getName()).setDirtyRange(dbase, ix);
+			}
 		}
 		else
 			throw new DMLRuntimeException("Invalid opcode (" + opcode +") encountered in MatrixIndexingCPInstruction.");		
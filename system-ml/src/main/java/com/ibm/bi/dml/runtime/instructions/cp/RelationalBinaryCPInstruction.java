@@ -41,6 +41,24 @@ public abstract class RelationalBinaryCPInstruction extends BinaryCPInstruction
 		CPOperand out = new CPOperand("", ValueType.UNKNOWN, DataType.UNKNOWN);
 		String opcode = parseBinaryInstruction(str, in1, in2, out);
 		
+		return createInstruction(opcode, in1, in2, out, str);
+	}
+	
+	/**
+	 * Creates a relational binary instruction for already constructed operands,
+	 * which allows the direct instruction generation from lops without parsing.
+	 * 
+	 * @param opcode
+	 * @param in1
+	 * @param in2
+	 * @param out
+	 * @param str
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	public static Instruction createInstruction( String opcode, CPOperand in1, CPOperand in2, CPOperand out, String str ) 
+		throws DMLRuntimeException 
+	{
 		// TODO: Relational operations need not have value type checking
 		ValueType vt1 = in1.getValueType();
 		DataType dt1 = in1.getDataType();
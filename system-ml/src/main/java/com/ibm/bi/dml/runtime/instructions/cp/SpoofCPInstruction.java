@@ -0,0 +1,112 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.runtime.instructions.cp;
+
+import java.util.ArrayList;
+
+import com.ibm.bi.dml.parser.Expression.DataType;
+import com.ibm.bi.dml.runtime.DMLRuntimeException;
+import com.ibm.bi.dml.runtime.DMLUnsupportedOperationException;
+import com.ibm.bi.dml.runtime.codegen.CodegenUtils;
+import com.ibm.bi.dml.runtime.codegen.SpoofOperator;
+import com.ibm.bi.dml.runtime.controlprogram.context.ExecutionContext;
+import com.ibm.bi.dml.runtime.instructions.InstructionUtils;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
+
+/**
+ * CP instruction of a fused operator with generated operator class, where the 
+ * class is obtained from the classes compiled during hop-level fusion.
+ * 
+ */
+public class SpoofCPInstruction extends ComputationCPInstruction
+{
+
+	private SpoofOperator _op = null;
+	private CPOperand[] _in = null;
+	private int _numThreads = -1;
+
+	public SpoofCPInstruction(SpoofOperator op, CPOperand[] in, CPOperand out, int k, String opcode, String istr)
+	{
+		super(null, in[0], null, out, opcode, istr);
+		_cptype = CPINSTRUCTION_TYPE.SpoofFused;
+
+		_op = op;
+		_in = in;
+		_numThreads = k;
+	}
+
+	/**
+	 * 
+	 * @param str
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	public static SpoofCPInstruction parseInstruction(String str)
+		throws DMLRuntimeException
+	{
+		String[] parts = InstructionUtils.getInstructionPartsWithValueType(str);
+		String opcode = parts[0];
+
+		//generated operator (class lookup and instantiation)
+		SpoofOperator op = CodegenUtils.createInstance(parts[1]);
+
+		//inputs, output, and degree of parallelism
+		CPOperand[] in = new CPOperand[parts.length-4];
+		for( int i=0; i<in.length; i++ )
+			in[i] = new CPOperand(parts[i+2]);
+		CPOperand out = new CPOperand(parts[parts.length-2]);
+		int k = Integer.parseInt(parts[parts.length-1]);
+
+		return new SpoofCPInstruction(op, in, out, k, opcode, str);
+	}
+
+	@Override
+	public void processInstruction(ExecutionContext ec)
+		throws DMLRuntimeException, DMLUnsupportedOperationException
+	{
+		//get all matrix and scalar inputs
+		ArrayList<MatrixBlock> inputs = new ArrayList<MatrixBlock>();
+		ArrayList<ScalarObject> scalars = new ArrayList<ScalarObject>();
+		for( CPOperand input : _in ) {
+			if( input.getDataType() == DataType.MATRIX )
+				inputs.add(ec.getMatrixInput(input.getName()));
+			else if( input.getDataType() == DataType.SCALAR )
+				scalars.add(ec.getScalarInput(input.getName(), input.getValueType(), input.isLiteral()));
+		}
+
+		//core execute
+		MatrixBlock mbOut = null;
+		ScalarObject soOut = null;
+		if( output.getDataType() == DataType.MATRIX ) {
+			mbOut = new MatrixBlock();
+			_op.execute(inputs, scalars, mbOut, _numThreads);
+		}
+		else {
+			soOut = _op.execute(inputs, scalars, _numThreads);
+		}
+
+		//release inputs and set output
+		for( CPOperand input : _in )
+			if( input.getDataType() == DataType.MATRIX )
+				ec.releaseMatrixInput(input.getName());
+		if( mbOut != null )
+			ec.setMatrixOutput(output.getName(), mbOut);
+		else
+			ec.setScalarOutput(output.getName(), soOut);
+	}
+}
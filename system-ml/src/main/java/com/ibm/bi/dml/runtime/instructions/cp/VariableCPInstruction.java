@@ -21,6 +21,7 @@ import java.io.IOException;
 
 import org.apache.commons.lang.StringUtils;
 
+import com.ibm.bi.dml.hops.OptimizerUtils;
 import com.ibm.bi.dml.lops.Lop;
 import com.ibm.bi.dml.lops.UnaryCP;
 import com.ibm.bi.dml.parser.Expression.DataType;
@@ -864,7 +865,12 @@ public class VariableCPInstruction extends CPInstruction
 		sb.append(varName);
 		String str = sb.toString();
 
-		return parseInstruction(str);
+		if( !OptimizerUtils.ALLOW_DIRECT_INST_GENERATION )
+			return parseInstruction(str);
+		
+		//direct instruction creation (semantically equivalent to parseInstruction)
+		CPOperand in1 = new CPOperand(varName, ValueType.UNKNOWN, DataType.SCALAR);
+		return new VariableCPInstruction(VariableOperationCode.RemoveVariable, in1, null, null, (CPOperand)null, 1, "rmvar", str);
 	}
 	
 	public static Instruction prepareCopyInstruction(String srcVar, String destVar) throws DMLRuntimeException, DMLUnsupportedOperationException {
@@ -878,7 +884,13 @@ public class VariableCPInstruction extends CPInstruction
 		sb.append(destVar);
 		String str = sb.toString();
 
-		return parseInstruction(str);
+		if( !OptimizerUtils.ALLOW_DIRECT_INST_GENERATION )
+			return parseInstruction(str);
+		
+		//direct instruction creation (semantically equivalent to parseInstruction)
+		CPOperand in1 = new CPOperand(srcVar, ValueType.UNKNOWN, DataType.UNKNOWN);
+		CPOperand in2 = new CPOperand(destVar, ValueType.UNKNOWN, DataType.UNKNOWN);
+		return new VariableCPInstruction(VariableOperationCode.CopyVariable, in1, in2, null, (CPOperand)null, 2, "cpvar", str);
 	}
 	
 	public static Instruction prepareMoveInstruction(String srcVar, String destFileName, String format) throws DMLRuntimeException, DMLUnsupportedOperationException {
@@ -894,7 +906,14 @@ public class VariableCPInstruction extends CPInstruction
 		sb.append(format);
 		String str = sb.toString();
 
-		return parseInstruction(str);
+		if( !OptimizerUtils.ALLOW_DIRECT_INST_GENERATION )
+			return parseInstruction(str);
+		
+		//direct instruction creation (semantically equivalent to parseInstruction)
+		CPOperand in1 = new CPOperand(srcVar, ValueType.UNKNOWN, DataType.UNKNOWN);
+		CPOperand in2 = new CPOperand(destFileName, ValueType.UNKNOWN, DataType.UNKNOWN);
+		CPOperand in3 = new CPOperand(format, ValueType.UNKNOWN, DataType.UNKNOWN);
+		return new VariableCPInstruction(VariableOperationCode.MoveVariable, in1, in2, in3, (CPOperand)null, -1, "mvvar", str);
 	}
 	
 	public static Instruction prepareMoveInstruction(String srcVar, String destVar) throws DMLRuntimeException, DMLUnsupportedOperationException {
@@ -910,7 +929,13 @@ public class VariableCPInstruction extends CPInstruction
 		sb.append(destVar);
 		String str = sb.toString();
 
-		return parseInstruction(str);
+		if( !OptimizerUtils.ALLOW_DIRECT_INST_GENERATION )
+			return parseInstruction(str);
+		
+		//direct instruction creation (semantically equivalent to parseInstruction)
+		CPOperand in1 = new CPOperand(srcVar, ValueType.UNKNOWN, DataType.UNKNOWN);
+		CPOperand in2 = new CPOperand(destVar, ValueType.UNKNOWN, DataType.UNKNOWN);
+		return new VariableCPInstruction(VariableOperationCode.MoveVariable, in1, in2, null, (CPOperand)null, -1, "mvvar", str);
 	}
 	
 	private static String getBasicCreateVarString(String varName, String fileName, boolean fNameOverride, String format) {
@@ -931,7 +956,13 @@ public class VariableCPInstruction extends CPInstruction
 	}
 	
 	public static Instruction prepareCreateVariableInstruction(String varName, String fileName, boolean fNameOverride, String format) throws DMLRuntimeException, DMLUnsupportedOperationException {
-		return parseInstruction(getBasicCreateVarString(varName, fileName, fNameOverride, format));
+		String str = getBasicCreateVarString(varName, fileName, fNameOverride, format);
+		
+		//string-based creation if disabled or csv (format properties only given via the instruction string)
+		if( !OptimizerUtils.ALLOW_DIRECT_INST_GENERATION || format.equalsIgnoreCase("csv") )
+			return parseInstruction(str);
+		
+		return createCreateVariableInstruction(varName, fileName, fNameOverride, format, new MatrixCharacteristics(), 5, str);
 	}
 	
 	public static Instruction prepareCreateVariableInstruction(String varName, String fileName, boolean fNameOverride, String format, MatrixCharacteristics mc) throws DMLRuntimeException, DMLUnsupportedOperationException {
@@ -951,9 +982,40 @@ public class VariableCPInstruction extends CPInstruction
 		
 		String str = sb.toString();
 
-		return parseInstruction(str);
+		//string-based creation if disabled or csv (format properties only given via the instruction string)
+		if( !OptimizerUtils.ALLOW_DIRECT_INST_GENERATION || format.equalsIgnoreCase("csv") )
+			return parseInstruction(str);
+		
+		return createCreateVariableInstruction(varName, fileName, fNameOverride, format, new MatrixCharacteristics(mc), 10, str);
 	}	
 	
+	/**
+	 * Creates a createvar instruction directly from its operands, which is semantically
+	 * equivalent to parsing the given instruction string but avoids the string round-trip.
+	 * 
+	 * @param varName
+	 * @param fileName
+	 * @param fNameOverride
+	 * @param format
+	 * @param mc
+	 * @param arity
+	 * @param str
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	private static Instruction createCreateVariableInstruction(String varName, String fileName, boolean fNameOverride, String format, MatrixCharacteristics mc, int arity, String str) 
+		throws DMLRuntimeException 
+	{
+		CPOperand in1 = new CPOperand(varName, ValueType.DOUBLE, DataType.MATRIX);
+		CPOperand in2 = new CPOperand(fileName, ValueType.STRING, DataType.SCALAR);
+		CPOperand in3 = new CPOperand(String.valueOf(fNameOverride), ValueType.BOOLEAN, DataType.SCALAR);
+		OutputInfo oi = OutputInfo.stringToOutputInfo(format);
+		InputInfo ii = OutputInfo.getMatchingInputInfo(oi);
+		MatrixFormatMetaData iimd = new MatrixFormatMetaData(mc, oi, ii);
+		
+		return new VariableCPInstruction(VariableOperationCode.CreateVariable, in1, in2, in3, iimd, arity, "createvar", str);
+	}
+	
 	@Override
 	public void updateInstructionThreadID(String pattern, String replace)
 		throws DMLRuntimeException
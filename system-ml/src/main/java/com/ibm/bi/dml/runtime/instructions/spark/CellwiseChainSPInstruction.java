@@ -0,0 +1,528 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.runtime.instructions.spark;
+
+import java.util.Arrays;
+
+import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.api.java.function.PairFunction;
+
+import scala.Tuple2;
+
+import com.ibm.bi.dml.hops.AggBinaryOp.SparkAggType;
+import com.ibm.bi.dml.lops.CellwiseChain;
+import com.ibm.bi.dml.lops.PartialAggregate.CorrectionLocationType;
+import com.ibm.bi.dml.runtime.DMLRuntimeException;
+import com.ibm.bi.dml.runtime.DMLUnsupportedOperationException;
+import com.ibm.bi.dml.runtime.controlprogram.context.ExecutionContext;
+import com.ibm.bi.dml.runtime.controlprogram.context.SparkExecutionContext;
+import com.ibm.bi.dml.runtime.functionobjects.Builtin;
+import com.ibm.bi.dml.runtime.functionobjects.KahanPlus;
+import com.ibm.bi.dml.runtime.functionobjects.ReduceAll;
+import com.ibm.bi.dml.runtime.functionobjects.ReduceCol;
+import com.ibm.bi.dml.runtime.functionobjects.ReduceRow;
+import com.ibm.bi.dml.runtime.instructions.Instruction;
+import com.ibm.bi.dml.runtime.instructions.InstructionUtils;
+import com.ibm.bi.dml.runtime.instructions.cp.CPOperand;
+import com.ibm.bi.dml.runtime.instructions.cp.KahanObject;
+import com.ibm.bi.dml.runtime.instructions.cp.ScalarObject;
+import com.ibm.bi.dml.runtime.instructions.spark.functions.AggregateDropCorrectionFunction;
+import com.ibm.bi.dml.runtime.instructions.spark.utils.RDDAggregateUtils;
+import com.ibm.bi.dml.runtime.matrix.MatrixCharacteristics;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixIndexes;
+import com.ibm.bi.dml.runtime.matrix.data.OperationsOnMatrixValues;
+import com.ibm.bi.dml.runtime.matrix.data.SparseRow;
+import com.ibm.bi.dml.runtime.matrix.operators.AggregateOperator;
+import com.ibm.bi.dml.runtime.matrix.operators.AggregateUnaryOperator;
+import com.ibm.bi.dml.runtime.matrix.operators.Operator;
+import com.ibm.bi.dml.runtime.matrix.operators.ScalarOperator;
+import com.ibm.bi.dml.runtime.matrix.operators.UnaryOperator;
+
+/**
+ * Fused spark instruction for chains of cell-wise matrix-scalar and unary builtin
+ * operations, optionally followed by a unary aggregate. The entire chain is evaluated
+ * per cell in a single map function, i.e., without intermediate rdds or blocks.
+ * 
+ */
+public class CellwiseChainSPInstruction extends UnarySPInstruction
+{
+
+	//cell-wise stages (opcodes, stage types, optional scalar operands)
+	private String[] _opcodes = null;
+	private String[] _types = null;
+	private CPOperand[] _scalars = null;
+
+	//optional unary aggregate
+	private String _aggopcode = null;
+	private AggregateOperator _aop = null;
+	private SparkAggType _aggtype = null;
+
+	public CellwiseChainSPInstruction(AggregateUnaryOperator auop, AggregateOperator aop, CPOperand in, CPOperand out,
+			String[] opcodes, String[] types, CPOperand[] scalars, String aggopcode, SparkAggType aggtype, String opcode, String istr)
+	{
+		super(auop, in, out, opcode, istr);
+		_sptype = SPINSTRUCTION_TYPE.CellwiseChain;
+
+		_opcodes = opcodes;
+		_types = types;
+		_scalars = scalars;
+		_aggopcode = aggopcode;
+		_aop = aop;
+		_aggtype = aggtype;
+	}
+
+	/**
+	 * 
+	 * @param str
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	public static Instruction parseInstruction( String str )
+		throws DMLRuntimeException
+	{
+		String[] parts = InstructionUtils.getInstructionPartsWithValueType(str);
+		String opcode = parts[0];
+
+		if ( !opcode.equalsIgnoreCase(CellwiseChain.OPCODE) )
+			throw new DMLRuntimeException("CellwiseChainSPInstruction.parseInstruction():: Unknown opcode " + opcode);
+
+		CPOperand in = new CPOperand(parts[1]);
+		CPOperand out = new CPOperand(parts[2]);
+
+		//parse cell-wise stages
+		int numStages = Integer.parseInt(parts[3]);
+		String[] opcodes = new String[numStages];
+		String[] types = new String[numStages];
+		CPOperand[] scalars = new CPOperand[numStages];
+		int pos = 4;
+		for( int i=0; i<numStages; i++ ) {
+			opcodes[i] = parts[pos++];
+			types[i] = parts[pos++];
+			if( !types[i].equals(CellwiseChain.STAGE_UNARY) )
+				scalars[i] = new CPOperand(parts[pos++]);
+		}
+
+		//parse optional unary aggregate
+		String aggopcode = parts[pos++];
+		SparkAggType aggtype = SparkAggType.valueOf(parts[pos++]);
+		AggregateUnaryOperator auop = null;
+		AggregateOperator aop = null;
+		if( !aggopcode.equals(CellwiseChain.NO_AGG) ) {
+			String aopcode = InstructionUtils.deriveAggregateOperatorOpcode(aggopcode);
+			CorrectionLocationType corrLoc = InstructionUtils.deriveAggregateOperatorCorrectionLocation(aggopcode);
+			String corrExists = (corrLoc != CorrectionLocationType.NONE) ? "true" : "false";
+			auop = InstructionUtils.parseBasicAggregateUnaryOperator(aggopcode);
+			aop = InstructionUtils.parseAggregateOperator(aopcode, corrExists, corrLoc.toString());
+		}
+
+		return new CellwiseChainSPInstruction(auop, aop, in, out, opcodes, types, scalars, aggopcode, aggtype, opcode, str);
+	}
+
+	/**
+	 * Returns the opcodes of all fused operations in execution order.
+	 * 
+	 * @return
+	 */
+	public String[] getFusedOpcodes()
+	{
+		boolean agg = !_aggopcode.equals(CellwiseChain.NO_AGG);
+		String[] ret = Arrays.copyOf(_opcodes, _opcodes.length + (agg ? 1 : 0));
+		if( agg )
+			ret[_opcodes.length] = _aggopcode;
+		return ret;
+	}
+
+	@Override
+	public void processInstruction( ExecutionContext ec )
+		throws DMLRuntimeException, DMLUnsupportedOperationException
+	{
+		SparkExecutionContext sec = (SparkExecutionContext)ec;
+		MatrixCharacteristics mc = sec.getMatrixCharacteristics(input1.getName());
+
+		//get input
+		JavaPairRDD<MatrixIndexes,MatrixBlock> in = sec.getBinaryBlockRDDHandleForVariable( input1.getName() );
+		JavaPairRDD<MatrixIndexes,MatrixBlock> out = null;
+
+		//create cell-wise operators (w/ bound scalar constants)
+		Operator[] ops = createCellwiseOperators(ec);
+		AggregateUnaryOperator auop = (AggregateUnaryOperator)_optr;
+
+		if( auop == null ) //CELLWISE CHAIN
+		{
+			//execute fused cell-wise operations
+			out = in.mapValues(new RDDCellwiseChainFunction(ops));
+
+			//put output RDD handle into symbol table
+			updateUnaryOutputMatrixCharacteristics(sec);
+			sec.setRDDHandleForVariable(output.getName(), out);
+			sec.addLineageRDD(output.getName(), input1.getName());
+			return;
+		}
+
+		//CELLWISE CHAIN w/ UNARY AGGREGATE
+		if( _aggtype == SparkAggType.NONE ) {
+			//in case of no block aggregation, we always drop the correction as well as
+			//use a partitioning-preserving mapvalues
+			out = in.mapValues(new RDDCellwiseChainUAggValueFunction(ops, auop, mc.getRowsPerBlock(), mc.getColsPerBlock()));
+		}
+		else {
+			//in case of single/multi-block aggregation, we always keep the correction
+			out = in.mapToPair(new RDDCellwiseChainUAggFunction(ops, auop, mc.getRowsPerBlock(), mc.getColsPerBlock()));
+		}
+
+		//perform aggregation if necessary and put output into symbol table
+		if( _aggtype == SparkAggType.SINGLE_BLOCK )
+		{
+			MatrixBlock out2 = RDDAggregateUtils.aggStable(out, _aop);
+
+			//drop correction after aggregation
+			out2.dropLastRowsOrColums(_aop.correctionLocation);
+
+			//put output block into symbol table (no lineage because single block)
+			//this also includes implicit maintenance of matrix characteristics
+			sec.setMatrixOutput(output.getName(), out2);
+		}
+		else //MULTI_BLOCK or NONE
+		{
+			if( _aggtype == SparkAggType.MULTI_BLOCK ) {
+				out = RDDAggregateUtils.aggByKeyStable(out, _aop);
+
+				//drop correction after aggregation if required
+				if( auop.aggOp.correctionExists )
+					out = out.mapValues( new AggregateDropCorrectionFunction(_aop) );
+			}
+
+			//put output RDD handle into symbol table
+			updateUnaryAggOutputMatrixCharacteristics(sec, auop);
+			sec.setRDDHandleForVariable(output.getName(), out);
+			sec.addLineageRDD(output.getName(), input1.getName());
+		}
+	}
+
+	/**
+	 * 
+	 * @param ec
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	private Operator[] createCellwiseOperators( ExecutionContext ec )
+		throws DMLRuntimeException
+	{
+		Operator[] ops = new Operator[_opcodes.length];
+		for( int i=0; i<_opcodes.length; i++ ) {
+			if( _types[i].equals(CellwiseChain.STAGE_UNARY) ) {
+				ops[i] = new UnaryOperator(Builtin.getBuiltinFnObject(_opcodes[i]));
+			}
+			else {
+				//note: we create new operators per execution because the spark
+				//functions capture the operators with bound scalar constants
+				ScalarObject constant = (ScalarObject) ec.getScalarInput(
+						_scalars[i].getName(), _scalars[i].getValueType(), _scalars[i].isLiteral());
+				ops[i] = InstructionUtils.parseScalarBinaryOperator(_opcodes[i],
+						_types[i].equals(CellwiseChain.STAGE_LEFT), constant.getDoubleValue());
+			}
+		}
+
+		return ops;
+	}
+
+	/**
+	 * 
+	 * @param sec
+	 * @param auop
+	 * @throws DMLRuntimeException
+	 */
+	private void updateUnaryAggOutputMatrixCharacteristics(SparkExecutionContext sec, AggregateUnaryOperator auop)
+		throws DMLRuntimeException
+	{
+		MatrixCharacteristics mc1 = sec.getMatrixCharacteristics(input1.getName());
+		MatrixCharacteristics mcOut = sec.getMatrixCharacteristics(output.getName());
+		if( !mcOut.dimsKnown() ) {
+			if( !mc1.dimsKnown() )
+				throw new DMLRuntimeException("The output dimensions are not specified and cannot be inferred from input:" + mc1.toString() + " " + mcOut.toString());
+
+			//infer statistics from input based on operator
+			if( auop.indexFn instanceof ReduceAll )
+				mcOut.set(1, 1, mc1.getRowsPerBlock(), mc1.getColsPerBlock());
+			else if (auop.indexFn instanceof ReduceCol)
+				mcOut.set(mc1.getRows(), 1, mc1.getRowsPerBlock(), mc1.getColsPerBlock());
+			else if (auop.indexFn instanceof ReduceRow)
+				mcOut.set(1, mc1.getCols(), mc1.getRowsPerBlock(), mc1.getColsPerBlock());
+		}
+	}
+
+	/**
+	 * Evaluates the chain of cell-wise operations for a single value.
+	 * 
+	 * @param ops
+	 * @param val
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	private static double executeCellwise( Operator[] ops, double val )
+		throws DMLRuntimeException
+	{
+		double ret = val;
+		for( int i=0; i<ops.length; i++ ) {
+			if( ops[i] instanceof ScalarOperator )
+				ret = ((ScalarOperator)ops[i]).executeScalar(ret);
+			else
+				ret = ((UnaryOperator)ops[i]).fn.execute(ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Evaluates the chain of cell-wise operations for an entire block,
+	 * allocating only the output block.
+	 * 
+	 * @param in
+	 * @param ops
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	private static MatrixBlock executeCellwise( MatrixBlock in, Operator[] ops )
+		throws DMLRuntimeException
+	{
+		final int m = in.getNumRows();
+		final int n = in.getNumColumns();
+
+		//determine sparse-safeness of the entire chain (independent of individual operations)
+		double val0 = executeCellwise(ops, 0);
+
+		//early abort for empty blocks
+		if( in.isEmptyBlock(false) ) {
+			MatrixBlock ret = new MatrixBlock(m, n, true);
+			if( val0 != 0 )
+				ret.init(val0, m, n);
+			return ret;
+		}
+
+		MatrixBlock ret = null;
+		if( in.isInSparseFormat() && val0 == 0 ) //SPARSE <- SPARSE
+		{
+			ret = new MatrixBlock(m, n, true, in.getNonZeros());
+			SparseRow[] a = in.getSparseRows();
+			for( int i=0; i<m; i++ ) {
+				if( a[i]==null || a[i].isEmpty() )
+					continue;
+				int alen = a[i].size();
+				int[] aix = a[i].getIndexContainer();
+				double[] avals = a[i].getValueContainer();
+				for( int j=0; j<alen; j++ )
+					ret.appendValue(i, aix[j], executeCellwise(ops, avals[j]));
+			}
+		}
+		else //DENSE <- SPARSE/DENSE
+		{
+			ret = new MatrixBlock(m, n, false);
+			ret.allocateDenseBlock();
+			double[] c = ret.getDenseArray();
+			if( in.isInSparseFormat() ) {
+				SparseRow[] a = in.getSparseRows();
+				Arrays.fill(c, 0, m*n, val0);
+				for( int i=0, cix=0; i<m; i++, cix+=n ) {
+					if( a[i]==null || a[i].isEmpty() )
+						continue;
+					int alen = a[i].size();
+					int[] aix = a[i].getIndexContainer();
+					double[] avals = a[i].getValueContainer();
+					for( int j=0; j<alen; j++ )
+						c[cix+aix[j]] = executeCellwise(ops, avals[j]);
+				}
+			}
+			else {
+				double[] a = in.getDenseArray();
+				for( int i=0; i<m*n; i++ )
+					c[i] = executeCellwise(ops, a[i]);
+			}
+			ret.recomputeNonZeros();
+			ret.examSparsity();
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Evaluates the chain of cell-wise operations and a full sum in a single pass,
+	 * without allocating any intermediate block.
+	 * 
+	 * @param in
+	 * @param ops
+	 * @param keepCorr
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	private static MatrixBlock executeCellwiseSum( MatrixBlock in, Operator[] ops, boolean keepCorr )
+		throws DMLRuntimeException
+	{
+		final int m = in.getNumRows();
+		final int n = in.getNumColumns();
+		KahanObject kbuff = new KahanObject(0, 0);
+		KahanPlus kplus = KahanPlus.getKahanPlusFnObject();
+		double val0 = executeCellwise(ops, 0);
+
+		if( in.isEmptyBlock(false) ) {
+			kplus.execute2(kbuff, val0 * m * n);
+		}
+		else if( in.isInSparseFormat() ) {
+			SparseRow[] a = in.getSparseRows();
+			long lnnz = 0;
+			for( int i=0; i<m; i++ ) {
+				if( a[i]==null || a[i].isEmpty() )
+					continue;
+				int alen = a[i].size();
+				double[] avals = a[i].getValueContainer();
+				for( int j=0; j<alen; j++ )
+					kplus.execute2(kbuff, executeCellwise(ops, avals[j]));
+				lnnz += alen;
+			}
+			//contribution of all zero cells
+			if( val0 != 0 )
+				kplus.execute2(kbuff, val0 * ((long)m * n - lnnz));
+		}
+		else {
+			double[] a = in.getDenseArray();
+			for( int i=0; i<m*n; i++ )
+				kplus.execute2(kbuff, executeCellwise(ops, a[i]));
+		}
+
+		//create output block (w/ correction in last column if required)
+		MatrixBlock ret = new MatrixBlock(1, keepCorr ? 2 : 1, false);
+		ret.quickSetValue(0, 0, kbuff._sum);
+		if( keepCorr )
+			ret.quickSetValue(0, 1, kbuff._correction);
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param auop
+	 * @return
+	 */
+	private static boolean isFullSum( AggregateUnaryOperator auop ) {
+		return auop.indexFn instanceof ReduceAll
+			&& auop.aggOp.increOp.fn instanceof KahanPlus;
+	}
+
+	/**
+	 * 
+	 */
+	private static class RDDCellwiseChainFunction implements Function<MatrixBlock,MatrixBlock>
+	{
+		private static final long serialVersionUID = -4183264389154826870L;
+
+		private Operator[] _ops = null;
+
+		public RDDCellwiseChainFunction( Operator[] ops ) {
+			_ops = ops;
+		}
+
+		@Override
+		public MatrixBlock call( MatrixBlock arg0 )
+			throws Exception
+		{
+			return executeCellwise(arg0, _ops);
+		}
+	}
+
+	/**
+	 * 
+	 */
+	private static class RDDCellwiseChainUAggFunction implements PairFunction<Tuple2<MatrixIndexes, MatrixBlock>, MatrixIndexes, MatrixBlock>
+	{
+		private static final long serialVersionUID = 6911372418384412951L;
+
+		private Operator[] _ops = null;
+		private AggregateUnaryOperator _op = null;
+		private int _brlen = -1;
+		private int _bclen = -1;
+
+		public RDDCellwiseChainUAggFunction( Operator[] ops, AggregateUnaryOperator op, int brlen, int bclen )
+		{
+			_ops = ops;
+			_op = op;
+			_brlen = brlen;
+			_bclen = bclen;
+		}
+
+		@Override
+		public Tuple2<MatrixIndexes, MatrixBlock> call( Tuple2<MatrixIndexes, MatrixBlock> arg0 )
+			throws Exception
+		{
+			MatrixIndexes ixIn = arg0._1();
+			MatrixBlock blkIn = arg0._2();
+
+			//fused full sum w/o intermediate (always keep the correction)
+			if( isFullSum(_op) )
+				return new Tuple2<MatrixIndexes,MatrixBlock>(new MatrixIndexes(1,1), executeCellwiseSum(blkIn, _ops, true));
+
+			//cell-wise operations and unary aggregate (always keep the correction)
+			MatrixIndexes ixOut = new MatrixIndexes();
+			MatrixBlock blkOut = new MatrixBlock();
+			OperationsOnMatrixValues.performAggregateUnary( ixIn, executeCellwise(blkIn, _ops),
+					  ixOut, blkOut, _op, _brlen, _bclen);
+
+			return new Tuple2<MatrixIndexes, MatrixBlock>(ixOut, blkOut);
+		}
+	}
+
+	/**
+	 * 
+	 */
+	private static class RDDCellwiseChainUAggValueFunction implements Function<MatrixBlock, MatrixBlock>
+	{
+		private static final long serialVersionUID = -2417306294372741512L;
+
+		private Operator[] _ops = null;
+		private AggregateUnaryOperator _op = null;
+		private int _brlen = -1;
+		private int _bclen = -1;
+		private MatrixIndexes _ix = null;
+
+		public RDDCellwiseChainUAggValueFunction( Operator[] ops, AggregateUnaryOperator op, int brlen, int bclen )
+		{
+			_ops = ops;
+			_op = op;
+			_brlen = brlen;
+			_bclen = bclen;
+
+			_ix = new MatrixIndexes(1,1);
+		}
+
+		@Override
+		public MatrixBlock call( MatrixBlock arg0 )
+			throws Exception
+		{
+			//fused full sum w/o intermediate (drop correction)
+			if( isFullSum(_op) )
+				return executeCellwiseSum(arg0, _ops, false);
+
+			//cell-wise operations and unary aggregate
+			MatrixBlock blkOut = new MatrixBlock();
+			executeCellwise(arg0, _ops).aggregateUnaryOperations(_op, blkOut, _brlen, _bclen, _ix);
+
+			//always drop correction since no aggregation
+			blkOut.dropLastRowsOrColums(_op.aggOp.correctionLocation);
+
+			return blkOut;
+		}
+	}
+}
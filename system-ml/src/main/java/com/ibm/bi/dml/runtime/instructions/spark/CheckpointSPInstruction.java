@@ -87,13 +87,15 @@ public class CheckpointSPInstruction extends UnarySPInstruction
 		JavaPairRDD<MatrixIndexes,MatrixBlock> in = sec.getBinaryBlockRDDHandleForVariable( input1.getName() );
 		MatrixCharacteristics mcIn = sec.getMatrixCharacteristics( input1.getName() );
 		
-		// Step 2: Checkpoint given rdd (only if currently in different storage level to prevent redundancy)
+		// Step 2: Checkpoint given rdd (only if not already persisted to prevent redundancy)
 		// -------
 		// Note that persist is an transformation which will be triggered on-demand with the next rdd operations
-		// This prevents unnecessary overhead if the dataset is only consumed by cp operations.
+		// This prevents unnecessary overhead if the dataset is only consumed by cp operations. We do not
+		// re-persist rdds that are already persisted in a different storage level because this would keep 
+		// two copies of the data in executor memory (the old one is still referenced via lineage).
 
 		JavaPairRDD<MatrixIndexes,MatrixBlock> out = null;
-		if( !in.getStorageLevel().equals( _level ) ) 
+		if( in.getStorageLevel().equals( StorageLevel.NONE() ) && !_level.equals( StorageLevel.NONE() ) ) 
 		{
 			//investigate issue of unnecessarily large number of partitions
 			boolean coalesce = false;
@@ -42,6 +42,7 @@ import com.ibm.bi.dml.runtime.instructions.spark.data.LazyIterableIterator;
 import com.ibm.bi.dml.runtime.instructions.spark.data.PartitionedBroadcastMatrix;
 import com.ibm.bi.dml.runtime.instructions.spark.functions.FilterNonEmptyBlocksFunction;
 import com.ibm.bi.dml.runtime.instructions.spark.utils.RDDAggregateUtils;
+import com.ibm.bi.dml.runtime.instructions.spark.utils.SparkUtils;
 import com.ibm.bi.dml.runtime.matrix.MatrixCharacteristics;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixIndexes;
@@ -124,8 +125,16 @@ public class MapmmSPInstruction extends BinarySPInstruction
 		
 		//execute mapmult instruction
 		JavaPairRDD<MatrixIndexes,MatrixBlock> out = null;
-		if( requiresFlatMapFunction(_type, mcBc) ) 
+		if( requiresFlatMapFunction(_type, mcBc) ) {
+			//increase input partitions for large outputs (e.g., outer products)
+			if( _aggtype == SparkAggType.NONE ) {
+				MatrixCharacteristics mcOut = (_type==CacheType.LEFT) ?
+					new MatrixCharacteristics(mcBc.getRows(), mcRdd.getCols(), mcRdd.getRowsPerBlock(), mcRdd.getColsPerBlock()) :
+					new MatrixCharacteristics(mcRdd.getRows(), mcBc.getCols(), mcRdd.getRowsPerBlock(), mcRdd.getColsPerBlock());
+				in1 = SparkUtils.repartitionForOutput(in1, mcRdd, mcOut);
+			}
 			out = in1.flatMapToPair( new RDDFlatMapMMFunction(_type, in2) );
+		}
 		else if( preservesPartitioning(mcRdd, _type) )
 			out = in1.mapPartitionsToPair(new RDDMapMMPartitionFunction(_type, in2), true);
 		else
@@ -167,9 +167,9 @@ public class MatrixIndexingSPInstruction  extends UnarySPInstruction
 				out = in1.filter(new IsBlockInRange(rl, ru, cl, cu, mcOut))
 			             .flatMapToPair(new SliceBlock(ixrange, mcOut));
 				
-				//aggregation if required 
+				//aggregation if required (w/ output partitions sized according to selected range)
 				if( _aggType != SparkAggType.NONE )
-					out = RDDAggregateUtils.mergeByKey(out);
+					out = RDDAggregateUtils.mergeByKey(out, SparkUtils.getNumPreferredPartitions(mcOut, out));
 			}
 				
 			//put output RDD handle into symbol table
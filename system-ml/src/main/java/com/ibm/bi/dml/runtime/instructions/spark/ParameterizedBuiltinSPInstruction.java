@@ -274,7 +274,12 @@ public class ParameterizedBuiltinSPInstruction  extends ComputationSPInstruction
 					.flatMapToPair(new RDDRemoveEmptyFunction(rows, maxDim, brlen, bclen));		
 			}				
 
-			out = RDDAggregateUtils.mergeByKey(out);
+			//update output statistics (required for correctness)
+			MatrixCharacteristics mcOut = sec.getMatrixCharacteristics(output.getName());
+			mcOut.set(rows?maxDim:mcIn.getRows(), rows?mcIn.getCols():maxDim, (int)brlen, (int)bclen, mcIn.getNonZeros());
+			
+			//merge partial blocks (w/ output partitions sized according to reduced output)
+			out = RDDAggregateUtils.mergeByKey(out, SparkUtils.getNumPreferredPartitions(mcOut, out));
 			
 			//store output rdd handle
 			sec.setRDDHandleForVariable(output.getName(), out);
@@ -283,10 +288,6 @@ public class ParameterizedBuiltinSPInstruction  extends ComputationSPInstruction
 				sec.addLineageRDD(output.getName(), rddOffVar);
 			else
 				sec.addLineageBroadcast(output.getName(), rddOffVar);		// TODO
-			
-			//update output statistics (required for correctness)
-			MatrixCharacteristics mcOut = sec.getMatrixCharacteristics(output.getName());
-			mcOut.set(rows?maxDim:mcIn.getRows(), rows?mcIn.getCols():maxDim, (int)brlen, (int)bclen, mcIn.getNonZeros());
 		}
 		else if ( opcode.equalsIgnoreCase("replace") ) 
 		{	
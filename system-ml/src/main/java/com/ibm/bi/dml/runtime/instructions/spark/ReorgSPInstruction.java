@@ -156,8 +156,8 @@ public class ReorgSPInstruction extends UnarySPInstruction
 			if( ixret ) { //sort indexes 
 				out = RDDSortUtils.sortIndexesByVal(out, !desc, mcIn.getRows(), mcIn.getRowsPerBlock());
 			}	
-			else if( singleCol && !desc) { //sort single-column matrix
-				out = RDDSortUtils.sortByVal(out, mcIn.getRows(), mcIn.getRowsPerBlock());
+			else if( singleCol ) { //sort single-column matrix
+				out = RDDSortUtils.sortByVal(out, !desc, mcIn.getRows(), mcIn.getRowsPerBlock());
 			}
 			else { //sort multi-column matrix
 				if (! _bSortIndInMem)
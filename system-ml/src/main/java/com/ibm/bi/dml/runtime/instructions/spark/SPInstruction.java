@@ -42,7 +42,7 @@ public abstract class SPInstruction extends Instruction
 		Builtin, BuiltinUnary, BuiltinBinary, Checkpoint, 
 		CentralMoment, Covariance, QSort, QPick,
 		ParameterizedBuiltin, MAppend, RAppend, GAppend, GAlignedAppend, Rand, 
-		MatrixReshape, Ternary, Quaternary, CumsumAggregate, CumsumOffset, BinUaggChain, UaggOuterChain, 
+		MatrixReshape, Ternary, Quaternary, CumsumAggregate, CumsumOffset, BinUaggChain, UaggOuterChain, CellwiseChain, 
 		Write, INVALID, 
 	};
 	
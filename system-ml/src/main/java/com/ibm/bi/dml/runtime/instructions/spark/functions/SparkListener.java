@@ -37,25 +37,41 @@ import scala.collection.Iterator;
 import scala.collection.Seq;
 import scala.xml.Node;
 
+import com.ibm.bi.dml.api.DMLScript;
 import com.ibm.bi.dml.api.MLContext;
 import com.ibm.bi.dml.api.MLContextProxy;
 import com.ibm.bi.dml.runtime.instructions.spark.SPInstruction;
+import com.ibm.bi.dml.utils.Statistics;
 
 // Instead of extending org.apache.spark.JavaSparkListener
 /**
- * This class is only used by MLContext for now. It is used to provide UI data for Python notebook.
+ * This class is used by MLContext to provide UI data for Python notebook, and by the 
+ * spark execution context (without UI data) to measure stage metrics for statistics
+ * such as the shuffle write per task, i.e., the actual sizes of shuffle partitions.
  *
  */
 public class SparkListener extends RDDOperationGraphListener {
 	
 	
 	public SparkListener(SparkContext sc) {
+		this(sc, true);
+	}
+	
+	/**
+	 * 
+	 * @param sc
+	 * @param uiData maintain ui data (dags, timelines, instruction mapping), 
+	 *   otherwise only stage metrics
+	 */
+	public SparkListener(SparkContext sc, boolean uiData) {
 		super(sc.conf());
 		this._sc = sc;
+		this._uiData = uiData;
 	}
 	
 	// protected SparkExecutionContext sec = null;
 	protected SparkContext _sc = null;
+	protected boolean _uiData = true;
 	protected Set<SPInstruction> currentInstructions = new HashSet<SPInstruction>();
 	private HashMap<Integer, ArrayList<TaskUIData>> stageTaskMapping = new HashMap<Integer, ArrayList<TaskUIData>>();  
 	
@@ -64,6 +80,8 @@ public class SparkListener extends RDDOperationGraphListener {
 	public HashMap<Integer, Seq<Node>> jobDAGs = new HashMap<Integer, Seq<Node>>();
 	public HashMap<Integer, Long> stageExecutionTime = new HashMap<Integer, Long>();
 	public HashMap<Integer, ArrayList<Integer>> stageRDDMapping = new HashMap<Integer, ArrayList<Integer>>(); 
+	public HashMap<Integer, Integer> stageNumTasks = new HashMap<Integer, Integer>();
+	public HashMap<Integer, Long> stageShuffleWriteBytes = new HashMap<Integer, Long>();
 	
 	public void addCurrentInstruction(SPInstruction inst) {
 		synchronized(currentInstructions) {
@@ -87,6 +105,8 @@ public class SparkListener extends RDDOperationGraphListener {
 	@Override
 	public void onJobEnd(org.apache.spark.scheduler.SparkListenerJobEnd jobEnd) {
 		super.onJobEnd(jobEnd);
+		if( !_uiData )
+			return;
 		int jobID = jobEnd.jobId();
 		Seq<Node> jobNodes = org.apache.spark.ui.UIUtils.showDagVizForJob(jobID, this.getOperationGraphForJob(jobID));
 		jobDAGs.put(jobID, jobNodes);
@@ -103,6 +123,8 @@ public class SparkListener extends RDDOperationGraphListener {
 	@Override
 	public void onStageSubmitted(SparkListenerStageSubmitted stageSubmitted) {
 		super.onStageSubmitted(stageSubmitted);
+		if( !_uiData )
+			return;
 		// stageSubmitted.stageInfo()
 		
 		Integer stageID = stageSubmitted.stageInfo().stageId();
@@ -159,9 +181,35 @@ public class SparkListener extends RDDOperationGraphListener {
 			else {
 				// TODO: throw exception
 			}
+			
+			//maintain number of tasks and shuffle write per stage (for partition sizes)
+			Integer numTasks = stageNumTasks.get(stageID);
+			stageNumTasks.put(stageID, (numTasks!=null) ? numTasks+1 : 1);
+			if( taskEnd.taskMetrics() != null && taskEnd.taskMetrics().shuffleWriteMetrics().isDefined() ) {
+				long bytes = taskEnd.taskMetrics().shuffleWriteMetrics().get().shuffleBytesWritten();
+				Long totalBytes = stageShuffleWriteBytes.get(stageID);
+				stageShuffleWriteBytes.put(stageID, (totalBytes!=null) ? totalBytes+bytes : bytes);
+			}
 		}
 	};
 	
+	/**
+	 * Returns the average shuffle write in bytes per task of the given stage,
+	 * which allows to monitor the actual partition sizes of shuffle outputs.
+	 * 
+	 * @param stageID
+	 * @return average bytes per task, or -1 if unknown
+	 */
+	public long getAvgShuffleWritePerTask(int stageID) {
+		synchronized(currentInstructions) {
+			Integer numTasks = stageNumTasks.get(stageID);
+			Long totalBytes = stageShuffleWriteBytes.get(stageID);
+			if( numTasks == null || totalBytes == null || numTasks == 0 )
+				return -1;
+			return totalBytes / numTasks;
+		}
+	}
+	
 	@Override
 	public void onStageCompleted(SparkListenerStageCompleted stageCompleted) {
 		super.onStageCompleted(stageCompleted);	
@@ -171,6 +219,17 @@ public class SparkListener extends RDDOperationGraphListener {
 			stageExecutionTime.put(stageCompleted.stageInfo().stageId(), completionTime-submissionTime);
 		}
 		catch(Exception e) {}
+		
+		//maintain measured shuffle write of stages with shuffle output
+		if( DMLScript.STATISTICS ) {
+			int stageID = stageCompleted.stageInfo().stageId();
+			synchronized(currentInstructions) {
+				Integer numTasks = stageNumTasks.get(stageID);
+				Long totalBytes = stageShuffleWriteBytes.get(stageID);
+				if( numTasks != null && totalBytes != null )
+					Statistics.incrementSparkShuffleWrite(numTasks, totalBytes);
+			}
+		}
 	}
 	
 }
@@ -194,6 +194,19 @@ public class RDDAggregateUtils
 				new MergeBlocksFunction());
 	}
 	
+	/**
+	 * Merges disjoint data of all blocks per key into the given number of output partitions.
+	 * 
+	 * @param in
+	 * @param numPartitions
+	 * @return
+	 */
+	public static JavaPairRDD<MatrixIndexes, MatrixBlock> mergeByKey( JavaPairRDD<MatrixIndexes, MatrixBlock> in, int numPartitions )
+	{
+		return in.reduceByKey(
+				new MergeBlocksFunction(), numPartitions);
+	}
+	
 	/**
 	 * Merges disjoint data of all blocks per key.
 	 * 
@@ -19,15 +19,21 @@ package com.ibm.bi.dml.runtime.instructions.spark.utils;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
 
+import org.apache.spark.HashPartitioner;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.api.java.function.Function;
 import org.apache.spark.api.java.function.PairFlatMapFunction;
-import org.apache.spark.api.java.function.PairFunction;
 import org.apache.spark.broadcast.Broadcast;
 
 import scala.Tuple2;
@@ -43,15 +49,34 @@ import com.ibm.bi.dml.runtime.instructions.spark.functions.ReplicateVectorFuncti
 import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixIndexes;
 import com.ibm.bi.dml.runtime.matrix.operators.ReorgOperator;
-import com.ibm.bi.dml.runtime.util.DataConverter;
+import com.ibm.bi.dml.runtime.util.SortUtils;
 import com.ibm.bi.dml.runtime.util.UtilFunctions;
 
 /**
- * 
+ * Distributed sort primitives for binary block column vectors. All sort operations
+ * are realized as a block-based sample sort: (1) sample splitters from the input blocks,
+ * (2) sort each block locally into a sorted run and split it by the splitters,
+ * (3) range-partition the sorted runs, and (4) merge all runs per partition.
+ * In contrast to a generic sortByKey, this never materializes per-cell tuples.
  */
 public class RDDSortUtils 
 {
+	//number of samples per output partition used for splitter selection
+	private static final int SAMPLES_PER_PARTITION = 100;
+	
+	//fixed seed of splitter sampling for reproducible partitioning
+	private static final long SAMPLE_SEED = 7;
 	
+	//forced number of output partitions (for testing only)
+	public static int FORCED_NUM_PARTITIONS = -1;
+
+	private enum RunOutputType {
+		VALUES,          //sorted values
+		VALUES_WEIGHTS,  //sorted values and their weights
+		INDEXES,         //source indexes in target position
+		TARGET_INDEXES   //target indexes in source position
+	}
+
 	/**
 	 * 
 	 * @param in
@@ -61,25 +86,33 @@ public class RDDSortUtils
 	 */
 	public static JavaPairRDD<MatrixIndexes, MatrixBlock> sortByVal( JavaPairRDD<MatrixIndexes, MatrixBlock> in, long rlen, int brlen )
 	{
-		//create value-index rdd from inputs
-		JavaRDD<Double> dvals = in.values()
-				.flatMap(new ExtractDoubleValuesFunction());
-	
-		//sort (creates sorted range per partition)
-		long hdfsBlocksize = InfrastructureAnalyzer.getHDFSBlockSize();
-		int numPartitions = (int)Math.ceil(((double)rlen*8)/hdfsBlocksize);
-		JavaRDD<Double> sdvals = dvals
-				.sortBy(new CreateDoubleKeyFunction(), true, numPartitions);
-		
+		return sortByVal(in, true, rlen, brlen);
+	}
+
+	/**
+	 * 
+	 * @param in
+	 * @param asc
+	 * @param rlen
+	 * @param brlen
+	 * @return
+	 */
+	public static JavaPairRDD<MatrixIndexes, MatrixBlock> sortByVal( JavaPairRDD<MatrixIndexes, MatrixBlock> in, boolean asc, long rlen, int brlen )
+	{
+		//create value runs from inputs
+		JavaRDD<ValueRun> runs = in
+				.map(new ExtractValueRunFunction(false, brlen));
+
+		//sample sort (creates sorted range per partition)
+		int numPartitions = getNumPartitions(rlen, 8);
+		JavaPairRDD<Integer, ValueRun> sruns =
+				sampleSort(runs, asc, false, rlen, brlen, numPartitions);
+
 		//create binary block output
-		JavaPairRDD<MatrixIndexes, MatrixBlock> ret = sdvals
-				.zipWithIndex()
-		        .mapPartitionsToPair(new ConvertToBinaryBlockFunction(rlen, brlen));
-		ret = RDDAggregateUtils.mergeByKey(ret);	
-		
-		return ret;
+		long[] offsets = computeRunOffsets(sruns, numPartitions);
+		return convertToBinaryBlock(sruns, offsets, RunOutputType.VALUES, rlen, brlen);
 	}
-	
+
 	/**
 	 * 
 	 * @param in
@@ -88,28 +121,23 @@ public class RDDSortUtils
 	 * @param brlen
 	 * @return
 	 */
-	public static JavaPairRDD<MatrixIndexes, MatrixBlock> sortByVal( JavaPairRDD<MatrixIndexes, MatrixBlock> in, 
+	public static JavaPairRDD<MatrixIndexes, MatrixBlock> sortByVal( JavaPairRDD<MatrixIndexes, MatrixBlock> in,
 			JavaPairRDD<MatrixIndexes, MatrixBlock> in2, long rlen, int brlen )
 	{
-		//create value-index rdd from inputs
-		JavaRDD<DoublePair> dvals = in.join(in2).values()
-				.flatMap(new ExtractDoubleValuesFunction2());
-	
-		//sort (creates sorted range per partition)
-		long hdfsBlocksize = InfrastructureAnalyzer.getHDFSBlockSize();
-		int numPartitions = (int)Math.ceil(((double)rlen*8)/hdfsBlocksize);
-		JavaRDD<DoublePair> sdvals = dvals
-				.sortBy(new CreateDoubleKeyFunction2(), true, numPartitions);
+		//create value-weight runs from inputs
+		JavaRDD<ValueRun> runs = in.join(in2).values()
+				.map(new ExtractValueRunFunction2());
+
+		//sample sort (creates sorted range per partition)
+		int numPartitions = getNumPartitions(rlen, 16);
+		JavaPairRDD<Integer, ValueRun> sruns =
+				sampleSort(runs, true, false, rlen, brlen, numPartitions);
 
 		//create binary block output
-		JavaPairRDD<MatrixIndexes, MatrixBlock> ret = sdvals
-				.zipWithIndex()
-		        .mapPartitionsToPair(new ConvertToBinaryBlockFunction2(rlen, brlen));
-		ret = RDDAggregateUtils.mergeByKey(ret);		
-		
-		return ret;
+		long[] offsets = computeRunOffsets(sruns, numPartitions);
+		return convertToBinaryBlock(sruns, offsets, RunOutputType.VALUES_WEIGHTS, rlen, brlen);
 	}
-	
+
 	/**
 	 * 
 	 * @param in
@@ -117,29 +145,23 @@ public class RDDSortUtils
 	 * @param brlen
 	 * @return
 	 */
-	public static JavaPairRDD<MatrixIndexes, MatrixBlock> sortIndexesByVal( JavaPairRDD<MatrixIndexes, MatrixBlock> val, 
+	public static JavaPairRDD<MatrixIndexes, MatrixBlock> sortIndexesByVal( JavaPairRDD<MatrixIndexes, MatrixBlock> val,
 			boolean asc, long rlen, int brlen )
 	{
-		//create value-index rdd from inputs
-		JavaPairRDD<ValueIndexPair, Double> dvals = val
-				.flatMapToPair(new ExtractDoubleValuesWithIndexFunction(brlen));
-	
-		//sort (creates sorted range per partition)
-		long hdfsBlocksize = InfrastructureAnalyzer.getHDFSBlockSize();
-		int numPartitions = (int)Math.ceil(((double)rlen*16)/hdfsBlocksize);
-		JavaRDD<ValueIndexPair> sdvals = dvals
-				.sortByKey(new IndexComparator(asc), true, numPartitions)
-				.keys(); //workaround for index comparator
-	 
+		//create value-index runs from inputs
+		JavaRDD<ValueRun> runs = val
+				.map(new ExtractValueRunFunction(true, brlen));
+
+		//sample sort (creates sorted range per partition, stable wrt index)
+		int numPartitions = getNumPartitions(rlen, 16);
+		JavaPairRDD<Integer, ValueRun> sruns =
+				sampleSort(runs, asc, true, rlen, brlen, numPartitions);
+
 		//create binary block output
-		JavaPairRDD<MatrixIndexes, MatrixBlock> ret = sdvals
-				.zipWithIndex()
-		        .mapPartitionsToPair(new ConvertToBinaryBlockFunction3(rlen, brlen));
-		ret = RDDAggregateUtils.mergeByKey(ret);		
-		
-		return ret;	
+		long[] offsets = computeRunOffsets(sruns, numPartitions);
+		return convertToBinaryBlock(sruns, offsets, RunOutputType.INDEXES, rlen, brlen);
 	}
-	
+
 	/**
 	 * 
 	 * @param val
@@ -149,101 +171,46 @@ public class RDDSortUtils
 	 * @param brlen
 	 * @return
 	 */
-	public static JavaPairRDD<MatrixIndexes, MatrixBlock> sortDataByVal( JavaPairRDD<MatrixIndexes, MatrixBlock> val, 
+	public static JavaPairRDD<MatrixIndexes, MatrixBlock> sortDataByVal( JavaPairRDD<MatrixIndexes, MatrixBlock> val,
 			JavaPairRDD<MatrixIndexes, MatrixBlock> data, boolean asc, long rlen, long clen, int brlen, int bclen )
 	{
-		//create value-index rdd from inputs
-		JavaPairRDD<ValueIndexPair, Double> dvals = val
-				.flatMapToPair(new ExtractDoubleValuesWithIndexFunction(brlen));
-	
-		//sort (creates sorted range per partition)
-		long hdfsBlocksize = InfrastructureAnalyzer.getHDFSBlockSize();
-		int numPartitions = (int)Math.ceil(((double)rlen*16)/hdfsBlocksize);
-		JavaRDD<ValueIndexPair> sdvals = dvals
-				.sortByKey(new IndexComparator(asc), true, numPartitions)
-				.keys(); //workaround for index comparator
-	 
-		//create target indexes by original index
-		long numRep = (long)Math.ceil((double)clen/bclen);
-		JavaPairRDD<MatrixIndexes, MatrixBlock> ixmap = sdvals
-				.zipWithIndex()
-				.mapToPair(new ExtractIndexFunction())
-				.sortByKey()
-		        .mapPartitionsToPair(new ConvertToBinaryBlockFunction4(rlen, brlen));
-		ixmap = RDDAggregateUtils.mergeByKey(ixmap);		
-		
+		//create value-index runs from inputs
+		JavaRDD<ValueRun> runs = val
+				.map(new ExtractValueRunFunction(true, brlen));
+
+		//sample sort (creates sorted range per partition, stable wrt index)
+		int numPartitions = getNumPartitions(rlen, 16);
+		JavaPairRDD<Integer, ValueRun> sruns =
+				sampleSort(runs, asc, true, rlen, brlen, numPartitions);
+		long[] offsets = computeRunOffsets(sruns, numPartitions);
+
+		//create target indexes by original index (range partitioning
+		//of source indexes with known, block-aligned splitters)
+		long numBlocks = (long)Math.ceil((double)rlen/brlen);
+		long blocksPerPart = (long)Math.ceil((double)numBlocks/numPartitions);
+		ArrayList<DoublePair> splitters = new ArrayList<DoublePair>();
+		for( long bix=blocksPerPart; bix<numBlocks; bix+=blocksPerPart )
+			splitters.add(new DoublePair(bix*brlen+1, 0));
+		JavaRDD<ValueRun> iruns = sruns
+				.map(new InvertValueRunFunction(offsets));
+		JavaPairRDD<MatrixIndexes, MatrixBlock> ixmap = convertToBinaryBlock(
+				splitAndMergeRuns(iruns, splitters.toArray(new DoublePair[0]), true, false, numPartitions),
+				null, RunOutputType.TARGET_INDEXES, rlen, brlen);
+
 		//replicate indexes for all column blocks
+		long numRep = (long)Math.ceil((double)clen/bclen);
 		JavaPairRDD<MatrixIndexes, MatrixBlock> rixmap = ixmap
-				.flatMapToPair(new ReplicateVectorFunction(false, numRep));      
-		
+				.flatMapToPair(new ReplicateVectorFunction(false, numRep));
+
 		//create binary block output
 		JavaPairRDD<MatrixIndexes, RowMatrixBlock> ret = data
 				.join(rixmap)
 				.mapPartitionsToPair(new ShuffleMatrixBlockRowsFunction(rlen, brlen));
 		return RDDAggregateUtils.mergeRowsByKey(ret);
 	}
-	
-	/**
-	 * 
-	 * @param val
-	 * @param data
-	 * @param asc
-	 * @param rlen
-	 * @param brlen
-	 * @param bclen
-	 * @param ec
-	 * @param r_op
-	 * @return
-	 * @throws DMLRuntimeException 
-	 * @throws DMLUnsupportedOperationException 
-	 */
-	/* This function collects and sorts value column through cluster distribution and then broadcasts it. 
-	 * 
-	 * For now, its commented out until it gets evaluated completely through experiments.
-	 */
-//	public static JavaPairRDD<MatrixIndexes, MatrixBlock> sortDataByValDistSort( JavaPairRDD<MatrixIndexes, MatrixBlock> val, 
-//			JavaPairRDD<MatrixIndexes, MatrixBlock> data, boolean asc, long rlen, long clen, int brlen, int bclen, 
-//				ExecutionContext ec, ReorgOperator r_op) 
-//					throws DMLRuntimeException, DMLUnsupportedOperationException
-//	{
-//		SparkExecutionContext sec = (SparkExecutionContext)ec;
-//		MatrixBlock sortedBlock;
-//		
-//		//create value-index rdd from inputs
-//		JavaPairRDD<ValueIndexPair, Double> dvals = val
-//				.flatMapToPair(new ExtractDoubleValuesWithIndexFunction(brlen));
-//	
-//		//sort (creates sorted range per partition)
-//		long hdfsBlocksize = InfrastructureAnalyzer.getHDFSBlockSize();
-//		int numPartitions = (int)Math.ceil(((double)rlen*16)/hdfsBlocksize);
-//		JavaRDD<ValueIndexPair> sdvals = dvals
-//				.sortByKey(new IndexComparator(asc), true, numPartitions)
-//				.keys(); //workaround for index comparator
-//	 
-//		//create target indexes by original index
-//		JavaPairRDD<Long, Long> ixmap = sdvals
-//				.zipWithIndex()
-//				.mapToPair(new ExtractIndexFunction())			// Original Index sorted by values
-//				.sortByKey();									// Original Index sorted to original order, with target index associaed with them.
-//		
-//		JavaPairRDD<MatrixIndexes, MatrixBlock> ixmap2 = ixmap 
-//        		.mapPartitions(new ConvertToBinaryBlockFunction4(rlen, brlen))
-//        		.mapToPair(new UnfoldBinaryBlockFunction());
-//		
-//		sortedBlock = SparkExecutionContext.toMatrixBlock(ixmap2, (int)rlen, 1, brlen, bclen, -1);
-//
-//		PartitionedMatrixBlock pmb = new PartitionedMatrixBlock(sortedBlock, brlen, bclen);		
-//		Broadcast<PartitionedMatrixBlock> _pmb = sec.getSparkContext().broadcast(pmb);	
-//
-//		JavaPairRDD<MatrixIndexes, MatrixBlock> ret = data
-//					.flatMapToPair(new ShuffleMatrixBlockRowsInMemFunction(rlen, brlen, _pmb));
-//		ret = RDDAggregateUtils.mergeByKey(ret);
-//
-//		return ret;	
-//	}
-	
+
 	/**
-	 * This function collects and sorts value column in memory and then broadcasts it. 
+	 * This function collects and sorts value column in memory and then broadcasts it.
 	 * 
 	 * @param val
 	 * @param data
@@ -254,12 +221,12 @@ public class RDDSortUtils
 	 * @param ec
 	 * @param r_op
 	 * @return
-	 * @throws DMLRuntimeException 
-	 * @throws DMLUnsupportedOperationException 
+	 * @throws DMLRuntimeException
+	 * @throws DMLUnsupportedOperationException
 	 */
-	public static JavaPairRDD<MatrixIndexes, MatrixBlock> sortDataByValMemSort( JavaPairRDD<MatrixIndexes, MatrixBlock> val, 
-			JavaPairRDD<MatrixIndexes, MatrixBlock> data, boolean asc, long rlen, long clen, int brlen, int bclen, 
-			SparkExecutionContext sec, ReorgOperator r_op) 
+	public static JavaPairRDD<MatrixIndexes, MatrixBlock> sortDataByValMemSort( JavaPairRDD<MatrixIndexes, MatrixBlock> val,
+			JavaPairRDD<MatrixIndexes, MatrixBlock> data, boolean asc, long rlen, long clen, int brlen, int bclen,
+			SparkExecutionContext sec, ReorgOperator r_op)
 					throws DMLRuntimeException, DMLUnsupportedOperationException
 	{
 		//collect orderby column for in-memory sorting
@@ -267,188 +234,509 @@ public class RDDSortUtils
 				.toMatrixBlock(val, (int)rlen, 1, brlen, bclen, -1);
 
 		//in-memory sort operation (w/ index return: source index in target position)
-		ReorgOperator lrop = new ReorgOperator(SortIndex.getSortIndexFnObject(1, !asc, true));	
+		ReorgOperator lrop = new ReorgOperator(SortIndex.getSortIndexFnObject(1, !asc, true));
 		MatrixBlock sortedIx = (MatrixBlock) inMatBlock
 				.reorgOperations(lrop, new MatrixBlock(), -1, -1, -1);
-		
+
 		//flip sort indices from <source ix in target pos> to <target ix in source pos>
-		MatrixBlock sortedIxSrc = new MatrixBlock(sortedIx.getNumRows(), 1, false); 
-		for (int i=0; i < sortedIx.getNumRows(); i++) 
-			sortedIxSrc.quickSetValue((int)sortedIx.quickGetValue(i,0)-1, 0, i+1);			
+		MatrixBlock sortedIxSrc = new MatrixBlock(sortedIx.getNumRows(), 1, false);
+		for (int i=0; i < sortedIx.getNumRows(); i++)
+			sortedIxSrc.quickSetValue((int)sortedIx.quickGetValue(i,0)-1, 0, i+1);
 
 		//broadcast index vector
-		PartitionedMatrixBlock pmb = new PartitionedMatrixBlock(sortedIxSrc, brlen, bclen);		
-		Broadcast<PartitionedMatrixBlock> _pmb = sec.getSparkContext().broadcast(pmb);	
+		PartitionedMatrixBlock pmb = new PartitionedMatrixBlock(sortedIxSrc, brlen, bclen);
+		Broadcast<PartitionedMatrixBlock> _pmb = sec.getSparkContext().broadcast(pmb);
 
 		//sort data with broadcast index vector
 		JavaPairRDD<MatrixIndexes, RowMatrixBlock> ret = data
 				.mapPartitionsToPair(new ShuffleMatrixBlockRowsInMemFunction(rlen, brlen, _pmb));
 		return RDDAggregateUtils.mergeRowsByKey(ret);
 	}
-	
+
 	/**
 	 * 
+	 * @param rlen
+	 * @param bytesPerCell
+	 * @return
 	 */
-	private static class ExtractDoubleValuesFunction implements FlatMapFunction<MatrixBlock,Double> 
+	private static int getNumPartitions( long rlen, int bytesPerCell )
 	{
-		private static final long serialVersionUID = 6888003502286282876L;
+		if( FORCED_NUM_PARTITIONS > 0 )
+			return FORCED_NUM_PARTITIONS;
+		
+		long hdfsBlocksize = InfrastructureAnalyzer.getHDFSBlockSize();
+		return (int)Math.max(Math.ceil(((double)rlen*bytesPerCell)/hdfsBlocksize), 1);
+	}
 
-		@Override
-		public Iterable<Double> call(MatrixBlock arg0) 
-			throws Exception 
-		{
-			return DataConverter.convertToDoubleList(arg0);
-		}		
+	/**
+	 * Sample sort of unsorted value runs, which returns exactly one sorted run
+	 * per non-empty output partition, keyed by its partition id.
+	 * 
+	 * @param runs
+	 * @param asc
+	 * @param stable
+	 * @param rlen
+	 * @param brlen
+	 * @param numPartitions
+	 * @return
+	 */
+	private static JavaPairRDD<Integer, ValueRun> sampleSort( JavaRDD<ValueRun> runs, boolean asc, boolean stable,
+			long rlen, int brlen, int numPartitions )
+	{
+		//sample values from all runs (w/o local sort)
+		long numRuns = (long)Math.ceil((double)rlen/brlen);
+		int numSamples = (int)Math.max(Math.ceil((double)SAMPLES_PER_PARTITION*numPartitions/numRuns), 1);
+		List<DoublePair> samples = runs
+				.flatMap(new SampleValueRunFunction(numSamples, SAMPLE_SEED))
+				.collect();
+
+		//select splitters as equi-depth quantiles of the sorted sample
+		ArrayList<DoublePair> tmp = new ArrayList<DoublePair>(samples);
+		Collections.sort(tmp, new DoublePairComparator(asc, stable));
+		int numSplitters = tmp.isEmpty() ? 0 : numPartitions-1;
+		DoublePair[] splitters = new DoublePair[numSplitters];
+		for( int i=0; i<numSplitters; i++ )
+			splitters[i] = tmp.get((int)((long)(i+1)*tmp.size()/numPartitions));
+
+		return splitAndMergeRuns(runs, splitters, asc, stable, numPartitions);
 	}
 
 	/**
 	 * 
+	 * @param runs
+	 * @param splitters
+	 * @param asc
+	 * @param stable
+	 * @param numPartitions
+	 * @return
 	 */
-	private static class ExtractDoubleValuesFunction2 implements FlatMapFunction<Tuple2<MatrixBlock,MatrixBlock>,DoublePair> 
+	private static JavaPairRDD<Integer, ValueRun> splitAndMergeRuns( JavaRDD<ValueRun> runs, DoublePair[] splitters,
+			boolean asc, boolean stable, int numPartitions )
 	{
-		private static final long serialVersionUID = 2132672563825289022L;
+		//local sort and range partitioning of sorted runs
+		//(note: hash partitioner is identity for partition ids)
+		return runs
+				.flatMapToPair(new SortAndSplitValueRunFunction(splitters, asc, stable))
+				.partitionBy(new HashPartitioner(numPartitions))
+				.mapPartitionsToPair(new MergeValueRunsFunction(asc, stable));
+	}
 
-		@Override
-		public Iterable<DoublePair> call(Tuple2<MatrixBlock,MatrixBlock> arg0) 
-			throws Exception 
-		{
-			ArrayList<DoublePair> ret = new ArrayList<DoublePair>(); 
-			MatrixBlock mb1 = arg0._1();
-			MatrixBlock mb2 = arg0._2();
-			
-			for( int i=0; i<mb1.getNumRows(); i++) {
-				ret.add(new DoublePair(
-						mb1.quickGetValue(i, 0),
-						mb2.quickGetValue(i, 0)));
+	/**
+	 * Computes the global row offsets of all sorted partitions. Similar to zipWithIndex,
+	 * this requires an additional job but reuses the already computed shuffle output.
+	 * 
+	 * @param sruns
+	 * @param numPartitions
+	 * @return
+	 */
+	private static long[] computeRunOffsets( JavaPairRDD<Integer, ValueRun> sruns, int numPartitions )
+	{
+		Map<Integer, Long> lens = sruns
+				.mapValues(new GetValueRunLengthFunction())
+				.collectAsMap();
+
+		long[] ret = new long[numPartitions];
+		long offset = 0;
+		for( int i=0; i<numPartitions; i++ ) {
+			ret[i] = offset;
+			if( lens.containsKey(i) )
+				offset += lens.get(i);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param sruns
+	 * @param offsets
+	 * @param type
+	 * @param rlen
+	 * @param brlen
+	 * @return
+	 */
+	private static JavaPairRDD<MatrixIndexes, MatrixBlock> convertToBinaryBlock( JavaPairRDD<Integer, ValueRun> sruns,
+			long[] offsets, RunOutputType type, long rlen, int brlen )
+	{
+		JavaPairRDD<MatrixIndexes, MatrixBlock> ret = sruns
+				.flatMapToPair(new ConvertValueRunToBinaryBlockFunction(offsets, type, rlen, brlen));
+
+		//merge partial boundary blocks of adjacent partitions
+		//(target indexes are partitioned by block-aligned splitters)
+		if( type != RunOutputType.TARGET_INDEXES )
+			ret = RDDAggregateUtils.mergeByKey(ret);
+
+		return ret;
+	}
+
+	/**
+	 * Local sort of a value run, which returns a new sorted run. For stable sort,
+	 * we assume that the auxiliary values are increasing row indexes.
+	 * 
+	 * @param run
+	 * @param asc
+	 * @param stable
+	 * @return
+	 */
+	private static ValueRun sortValueRun( ValueRun run, boolean asc, boolean stable )
+	{
+		int len = run.length();
+
+		//create index vector and copy values
+		int[] vix = new int[len];
+		double[] values = new double[len];
+		for( int i=0; i<len; i++ ) {
+			vix[i] = i;
+			values[i] = run.vals[i];
+		}
+
+		//sort index vector on copied values (unstable)
+		SortUtils.sortByValue(0, len, values, vix);
+
+		//flip order if descending requested
+		if( !asc ) {
+			for( int i=0; i<len/2; i++ ) {
+				int tmpIx = vix[i]; vix[i] = vix[len-i-1]; vix[len-i-1] = tmpIx;
+				double tmpVal = values[i]; values[i] = values[len-i-1]; values[len-i-1] = tmpVal;
 			}
-			
-			return ret;
-		}		
+		}
+
+		//final pass to ensure stable output
+		if( stable ) {
+			for( int i=0; i<len-1; i++ ) {
+				double tmp = values[i];
+				//determine run of equal values
+				int rlen = 0;
+				while( i+rlen+1<len && tmp==values[i+rlen+1] )
+					rlen++;
+				//unstable sort of run indexes (equal value guaranteed)
+				if( rlen>0 ) {
+					Arrays.sort(vix, i, i+rlen+1);
+					i += rlen; //skip processed run
+				}
+			}
+		}
+
+		//create output run in sorted order
+		ValueRun ret = new ValueRun(len, run.aux!=null);
+		for( int i=0; i<len; i++ ) {
+			ret.vals[i] = run.vals[vix[i]];
+			if( run.aux != null )
+				ret.aux[i] = run.aux[vix[i]];
+		}
+
+		return ret;
 	}
-	
-	private static class ExtractDoubleValuesWithIndexFunction implements PairFlatMapFunction<Tuple2<MatrixIndexes,MatrixBlock>,ValueIndexPair,Double> 
+
+	/**
+	 * K-way merge of sorted value runs via a min-heap of run cursors.
+	 * 
+	 * @param runs
+	 * @param len
+	 * @param asc
+	 * @param stable
+	 * @return
+	 */
+	private static ValueRun mergeValueRuns( ArrayList<ValueRun> runs, int len, final boolean asc, final boolean stable )
+	{
+		//shortcut for single run (no merge required)
+		if( runs.size() == 1 )
+			return runs.get(0);
+
+		final ValueRun[] aruns = runs.toArray(new ValueRun[0]);
+		final int[] pos = new int[aruns.length];
+		PriorityQueue<Integer> heap = new PriorityQueue<Integer>(aruns.length,
+			new Comparator<Integer>() {
+				@Override
+				public int compare(Integer r1, Integer r2) {
+					return compareValues(aruns[r1].vals[pos[r1]], aruns[r1].getAux(pos[r1]),
+							aruns[r2].vals[pos[r2]], aruns[r2].getAux(pos[r2]), asc, stable);
+				}
+			});
+		for( int r=0; r<aruns.length; r++ )
+			if( aruns[r].length() > 0 )
+				heap.add(r);
+
+		//merge runs into output run
+		boolean aux = (aruns[0].aux != null);
+		ValueRun ret = new ValueRun(len, aux);
+		for( int i=0; i<len; i++ ) {
+			int r = heap.poll();
+			ret.vals[i] = aruns[r].vals[pos[r]];
+			if( aux )
+				ret.aux[i] = aruns[r].aux[pos[r]];
+			if( ++pos[r] < aruns[r].length() )
+				heap.add(r);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Compares two value-aux pairs with the same semantics (primitive comparison)
+	 * as the local sort; auxiliary values are only used as tie-breaker for stable sort.
+	 * 
+	 * @param v1
+	 * @param a1
+	 * @param v2
+	 * @param a2
+	 * @param asc
+	 * @param stable
+	 * @return
+	 */
+	private static int compareValues( double v1, double a1, double v2, double a2, boolean asc, boolean stable )
+	{
+		int ret = (v1 < v2) ? -1 : (v1 > v2) ? 1 : 0;
+		if( !asc )
+			ret = -ret;
+		if( ret == 0 && stable )
+			ret = (a1 < a2) ? -1 : (a1 > a2) ? 1 : 0;
+		return ret;
+	}
+
+	/**
+	 * 
+	 */
+	private static class ExtractValueRunFunction implements Function<Tuple2<MatrixIndexes,MatrixBlock>,ValueRun>
 	{
 		private static final long serialVersionUID = -3976735381580482118L;
-		
+
+		private boolean _withIndex = false;
 		private int _brlen = -1;
-		
-		public ExtractDoubleValuesWithIndexFunction(int brlen)
+
+		public ExtractValueRunFunction(boolean withIndex, int brlen)
 		{
+			_withIndex = withIndex;
 			_brlen = brlen;
 		}
-		
+
 		@Override
-		public Iterable<Tuple2<ValueIndexPair,Double>> call(Tuple2<MatrixIndexes,MatrixBlock> arg0) 
-			throws Exception 
+		public ValueRun call(Tuple2<MatrixIndexes,MatrixBlock> arg0)
+			throws Exception
 		{
-			ArrayList<Tuple2<ValueIndexPair,Double>> ret = new ArrayList<Tuple2<ValueIndexPair,Double>>(); 
 			MatrixIndexes ix = arg0._1();
 			MatrixBlock mb = arg0._2();
-			
+			int len = mb.getNumRows();
+
+			ValueRun ret = new ValueRun(len, _withIndex);
 			long ixoffset = (ix.getRowIndex()-1)*_brlen;
-			for( int i=0; i<mb.getNumRows(); i++) {
-				double val = mb.quickGetValue(i, 0);
-				ret.add(new Tuple2<ValueIndexPair,Double>(
-						new ValueIndexPair(val,ixoffset+i+1), val));
+			for( int i=0; i<len; i++ ) {
+				ret.vals[i] = mb.quickGetValue(i, 0);
+				if( _withIndex )
+					ret.aux[i] = ixoffset+i+1;
 			}
-			
+
 			return ret;
-		}		
+		}
 	}
-	
+
 	/**
 	 * 
 	 */
-	private static class CreateDoubleKeyFunction implements Function<Double,Double> 
+	private static class ExtractValueRunFunction2 implements Function<Tuple2<MatrixBlock,MatrixBlock>,ValueRun>
 	{
-		private static final long serialVersionUID = 2021786334763247835L;
+		private static final long serialVersionUID = 2132672563825289022L;
 
 		@Override
-		public Double call(Double arg0) 
-			throws Exception 
+		public ValueRun call(Tuple2<MatrixBlock,MatrixBlock> arg0)
+			throws Exception
 		{
-			return arg0;
-		}		
+			MatrixBlock mb1 = arg0._1();
+			MatrixBlock mb2 = arg0._2();
+			int len = mb1.getNumRows();
+
+			ValueRun ret = new ValueRun(len, true);
+			for( int i=0; i<len; i++ ) {
+				ret.vals[i] = mb1.quickGetValue(i, 0);
+				ret.aux[i] = mb2.quickGetValue(i, 0);
+			}
+
+			return ret;
+		}
 	}
-	
+
 	/**
 	 * 
 	 */
-	private static class CreateDoubleKeyFunction2 implements Function<DoublePair,Double> 
+	private static class SampleValueRunFunction implements FlatMapFunction<ValueRun,DoublePair>
 	{
-		private static final long serialVersionUID = -7954819651274239592L;
+		private static final long serialVersionUID = 6888003502286282876L;
+
+		private int _numSamples = -1;
+		private long _seed = -1;
+
+		public SampleValueRunFunction(int numSamples, long seed)
+		{
+			_numSamples = numSamples;
+			_seed = seed;
+		}
 
 		@Override
-		public Double call(DoublePair arg0) 
-			throws Exception 
+		public Iterable<DoublePair> call(ValueRun arg0)
+			throws Exception
 		{
-			return arg0.val1;
-		}		
+			int len = arg0.length();
+			int num = Math.min(_numSamples, len);
+			ArrayList<DoublePair> ret = new ArrayList<DoublePair>(num);
+
+			Random rand = new Random(_seed);
+			for( int i=0; i<num; i++ ) {
+				int pos = (num==len) ? i : rand.nextInt(len);
+				ret.add(new DoublePair(arg0.vals[pos], arg0.getAux(pos)));
+			}
+
+			return ret;
+		}
 	}
-	
+
 	/**
 	 * 
 	 */
-	private static class ExtractIndexFunction implements PairFunction<Tuple2<ValueIndexPair,Long>,Long,Long> 
+	private static class SortAndSplitValueRunFunction implements PairFlatMapFunction<ValueRun,Integer,ValueRun>
 	{
-		private static final long serialVersionUID = -4553468724131249535L;
+		private static final long serialVersionUID = -7954819651274239592L;
+
+		private DoublePair[] _splitters = null;
+		private boolean _asc = true;
+		private boolean _stable = false;
+
+		public SortAndSplitValueRunFunction(DoublePair[] splitters, boolean asc, boolean stable)
+		{
+			_splitters = splitters;
+			_asc = asc;
+			_stable = stable;
+		}
 
 		@Override
-		public Tuple2<Long, Long> call(Tuple2<ValueIndexPair,Long> arg0)
-				throws Exception 
+		public Iterable<Tuple2<Integer, ValueRun>> call(ValueRun arg0)
+			throws Exception
 		{
-			return new Tuple2<Long,Long>(arg0._1().ix, arg0._2());
+			ArrayList<Tuple2<Integer,ValueRun>> ret = new ArrayList<Tuple2<Integer,ValueRun>>();
+			ValueRun run = sortValueRun(arg0, _asc, _stable);
+
+			//compute segment boundaries, where segment i is [splitter_{i-1}, splitter_i)
+			int numSplitters = _splitters.length;
+			int[] bounds = new int[numSplitters];
+			int pos = 0;
+			for( int i=0; i<numSplitters; ) {
+				//find group of equal splitters (heavy ties in the sample)
+				int j = i;
+				while( !_stable && j+1 < numSplitters && compareValues(_splitters[j+1].val1, 
+					_splitters[j+1].val2, _splitters[i].val1, _splitters[i].val2, _asc, false) == 0 )
+					j++;
+				int lo = lowerBound(run, pos, _splitters[i]);
+				if( i == j ) 
+					bounds[i] = lo;
+				else {
+					//unstable sort: spread ties evenly over segments i..j+1 in order
+					//to prevent a single partition from receiving all equal values
+					int n = upperBound(run, lo, _splitters[i]) - lo;
+					int m = j - i + 2;
+					for( int k=i; k<=j; k++ )
+						bounds[k] = lo + (int)((long)(k-i+1)*n/m);
+				}
+				pos = bounds[j];
+				i = j + 1;
+			}
+			
+			//split sorted run into non-empty segments
+			int start = 0;
+			for( int i=0; i<=numSplitters; i++ ) {
+				int end = (i < numSplitters) ? bounds[i] : run.length();
+				if( end > start )
+					ret.add(new Tuple2<Integer,ValueRun>(i, run.slice(start, end)));
+				start = end;
+			}
+
+			return ret;
 		}
 
+		/**
+		 * Binary search for the first position in [start, len) whose
+		 * value is not smaller than the given splitter.
+		 * 
+		 * @param run
+		 * @param start
+		 * @param splitter
+		 * @return
+		 */
+		private int lowerBound(ValueRun run, int start, DoublePair splitter)
+		{
+			int low = start;
+			int high = run.length();
+			while( low < high ) {
+				int mid = (low + high) >>> 1;
+				if( compareValues(run.vals[mid], run.getAux(mid),
+					splitter.val1, splitter.val2, _asc, _stable) < 0 )
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			return low;
+		}
+		
+		/**
+		 * Binary search for the first position in [start, len) whose
+		 * value is larger than the given splitter.
+		 * 
+		 * @param run
+		 * @param start
+		 * @param splitter
+		 * @return
+		 */
+		private int upperBound(ValueRun run, int start, DoublePair splitter)
+		{
+			int low = start;
+			int high = run.length();
+			while( low < high ) {
+				int mid = (low + high) >>> 1;
+				if( compareValues(run.vals[mid], run.getAux(mid),
+					splitter.val1, splitter.val2, _asc, _stable) <= 0 )
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			return low;
+		}
 	}
-	
+
 	/**
 	 * 
 	 */
-	private static class ConvertToBinaryBlockFunction implements PairFlatMapFunction<Iterator<Tuple2<Double,Long>>,MatrixIndexes,MatrixBlock> 
+	private static class MergeValueRunsFunction implements PairFlatMapFunction<Iterator<Tuple2<Integer,ValueRun>>,Integer,ValueRun>
 	{
 		private static final long serialVersionUID = 5000298196472931653L;
-		
-		private long _rlen = -1;
-		private int _brlen = -1;
-		
-		public ConvertToBinaryBlockFunction(long rlen, int brlen)
+
+		private boolean _asc = true;
+		private boolean _stable = false;
+
+		public MergeValueRunsFunction(boolean asc, boolean stable)
 		{
-			_rlen = rlen;
-			_brlen = brlen;
+			_asc = asc;
+			_stable = stable;
 		}
-		
-		public Iterable<Tuple2<MatrixIndexes, MatrixBlock>> call(Iterator<Tuple2<Double,Long>> arg0) 
-			throws Exception 
+
+		@Override
+		public Iterable<Tuple2<Integer, ValueRun>> call(Iterator<Tuple2<Integer, ValueRun>> arg0)
+			throws Exception
 		{
-			ArrayList<Tuple2<MatrixIndexes,MatrixBlock>> ret = new ArrayList<Tuple2<MatrixIndexes,MatrixBlock>>();
-			
-			MatrixIndexes ix = null;
-			MatrixBlock mb = null;
-			
-			while( arg0.hasNext() ) 
-			{
-				Tuple2<Double,Long> val = arg0.next();
-				long valix = val._2 + 1;
-				long rix = UtilFunctions.blockIndexCalculation(valix, _brlen);
-				int pos = UtilFunctions.cellInBlockCalculation(valix, _brlen);
-				
-				if( ix == null || ix.getRowIndex() != rix )
-				{
-					if( ix !=null )
-						ret.add(new Tuple2<MatrixIndexes,MatrixBlock>(ix,mb));
-					long len = UtilFunctions.computeBlockSize(_rlen, rix, _brlen);
-					ix = new MatrixIndexes(rix,1);
-					mb = new MatrixBlock((int)len, 1, false);	
-				}
-				
-				mb.quickSetValue(pos, 0, val._1);
+			ArrayList<Tuple2<Integer,ValueRun>> ret = new ArrayList<Tuple2<Integer,ValueRun>>();
+
+			//collect all sorted runs of this partition
+			ArrayList<ValueRun> runs = new ArrayList<ValueRun>();
+			int pid = -1;
+			int len = 0;
+			while( arg0.hasNext() ) {
+				Tuple2<Integer,ValueRun> tmp = arg0.next();
+				pid = tmp._1();
+				runs.add(tmp._2());
+				len += tmp._2().length();
 			}
-			
-			//flush last block
-			if( mb!=null && mb.getNonZeros() != 0 )
-				ret.add(new Tuple2<MatrixIndexes,MatrixBlock>(ix,mb));
-			
+
+			//merge runs into single sorted run
+			if( !runs.isEmpty() )
+				ret.add(new Tuple2<Integer,ValueRun>(pid, mergeValueRuns(runs, len, _asc, _stable)));
+
 			return ret;
 		}
 	}
@@ -456,157 +744,122 @@ public class RDDSortUtils
 	/**
 	 * 
 	 */
-	private static class ConvertToBinaryBlockFunction2 implements PairFlatMapFunction<Iterator<Tuple2<DoublePair,Long>>,MatrixIndexes,MatrixBlock> 
+	private static class GetValueRunLengthFunction implements Function<ValueRun,Long>
 	{
-		private static final long serialVersionUID = -8638434373377180192L;
-		
-		private long _rlen = -1;
-		private int _brlen = -1;
-		
-		public ConvertToBinaryBlockFunction2(long rlen, int brlen)
-		{
-			_rlen = rlen;
-			_brlen = brlen;
-		}
-		
-		public Iterable<Tuple2<MatrixIndexes, MatrixBlock>> call(Iterator<Tuple2<DoublePair,Long>> arg0) 
+		private static final long serialVersionUID = -4553468724131249535L;
+
+		@Override
+		public Long call(ValueRun arg0)
 			throws Exception
 		{
-			ArrayList<Tuple2<MatrixIndexes,MatrixBlock>> ret = new ArrayList<Tuple2<MatrixIndexes,MatrixBlock>>();
-			
-			MatrixIndexes ix = null;
-			MatrixBlock mb = null;
-			
-			while( arg0.hasNext() ) 
-			{
-				Tuple2<DoublePair,Long> val = arg0.next();
-				long valix = val._2 + 1;
-				long rix = UtilFunctions.blockIndexCalculation(valix, _brlen);
-				int pos = UtilFunctions.cellInBlockCalculation(valix, _brlen);
-				
-				if( ix == null || ix.getRowIndex() != rix )
-				{
-					if( ix !=null )
-						ret.add(new Tuple2<MatrixIndexes,MatrixBlock>(ix,mb));
-					long len = UtilFunctions.computeBlockSize(_rlen, rix, _brlen);
-					ix = new MatrixIndexes(rix,1);
-					mb = new MatrixBlock((int)len, 2, false);	
-				}
-				
-				mb.quickSetValue(pos, 0, val._1.val1);
-				mb.quickSetValue(pos, 1, val._1.val2);
-			}
-			
-			//flush last block
-			if( mb!=null && mb.getNonZeros() != 0 )
-				ret.add(new Tuple2<MatrixIndexes,MatrixBlock>(ix,mb));
-			
-			return ret;
+			return (long)arg0.length();
 		}
 	}
-	
+
 	/**
 	 * 
 	 */
-	private static class ConvertToBinaryBlockFunction3 implements PairFlatMapFunction<Iterator<Tuple2<ValueIndexPair,Long>>,MatrixIndexes,MatrixBlock> 
-	{		
-		private static final long serialVersionUID = 9113122668214965797L;
-		
-		private long _rlen = -1;
-		private int _brlen = -1;
-		
-		public ConvertToBinaryBlockFunction3(long rlen, int brlen)
+	private static class InvertValueRunFunction implements Function<Tuple2<Integer,ValueRun>,ValueRun>
+	{
+		private static final long serialVersionUID = 2021786334763247835L;
+
+		private long[] _offsets = null;
+
+		public InvertValueRunFunction(long[] offsets)
 		{
-			_rlen = rlen;
-			_brlen = brlen;
+			_offsets = offsets;
 		}
-		
-		public Iterable<Tuple2<MatrixIndexes, MatrixBlock>> call(Iterator<Tuple2<ValueIndexPair,Long>> arg0) 
+
+		@Override
+		public ValueRun call(Tuple2<Integer,ValueRun> arg0)
 			throws Exception
 		{
-			ArrayList<Tuple2<MatrixIndexes,MatrixBlock>> ret = new ArrayList<Tuple2<MatrixIndexes,MatrixBlock>>();
-			
-			MatrixIndexes ix = null;
-			MatrixBlock mb = null;
-			
-			while( arg0.hasNext() ) 
-			{
-				Tuple2<ValueIndexPair,Long> val = arg0.next();
-				long valix = val._2 + 1;
-				long rix = UtilFunctions.blockIndexCalculation(valix, _brlen);
-				int pos = UtilFunctions.cellInBlockCalculation(valix, _brlen);
-				
-				if( ix == null || ix.getRowIndex() != rix )
-				{
-					if( ix !=null )
-						ret.add(new Tuple2<MatrixIndexes,MatrixBlock>(ix,mb));
-					long len = UtilFunctions.computeBlockSize(_rlen, rix, _brlen);
-					ix = new MatrixIndexes(rix,1);
-					mb = new MatrixBlock((int)len, 1, false);	
-				}
-				
-				mb.quickSetValue(pos, 0, val._1.ix);
+			long offset = _offsets[arg0._1()];
+			ValueRun run = arg0._2();
+			int len = run.length();
+
+			//swap <value, source index> to <source index, target index>
+			ValueRun ret = new ValueRun(len, true);
+			for( int i=0; i<len; i++ ) {
+				ret.vals[i] = run.aux[i];
+				ret.aux[i] = offset+i+1;
 			}
-			
-			//flush last block
-			if( mb!=null && mb.getNonZeros() != 0 )
-				ret.add(new Tuple2<MatrixIndexes,MatrixBlock>(ix,mb));
-			
+
 			return ret;
 		}
 	}
-	
+
 	/**
 	 * 
 	 */
-	private static class ConvertToBinaryBlockFunction4 implements PairFlatMapFunction<Iterator<Tuple2<Long,Long>>,MatrixIndexes,MatrixBlock> 
-	{	
-		private static final long serialVersionUID = 9113122668214965797L;
-		
+	private static class ConvertValueRunToBinaryBlockFunction implements PairFlatMapFunction<Tuple2<Integer,ValueRun>,MatrixIndexes,MatrixBlock>
+	{
+		private static final long serialVersionUID = -8638434373377180192L;
+
+		private long[] _offsets = null;
+		private RunOutputType _type = null;
 		private long _rlen = -1;
 		private int _brlen = -1;
-		
-		public ConvertToBinaryBlockFunction4(long rlen, int brlen)
+
+		public ConvertValueRunToBinaryBlockFunction(long[] offsets, RunOutputType type, long rlen, int brlen)
 		{
+			_offsets = offsets;
+			_type = type;
 			_rlen = rlen;
 			_brlen = brlen;
 		}
-		
-		public Iterable<Tuple2<MatrixIndexes, MatrixBlock>> call(Iterator<Tuple2<Long,Long>> arg0) 
+
+		public Iterable<Tuple2<MatrixIndexes, MatrixBlock>> call(Tuple2<Integer,ValueRun> arg0)
 			throws Exception
 		{
 			ArrayList<Tuple2<MatrixIndexes,MatrixBlock>> ret = new ArrayList<Tuple2<MatrixIndexes,MatrixBlock>>();
-			
+
+			ValueRun run = arg0._2();
+			long offset = (_offsets != null) ? _offsets[arg0._1()] : 0;
+			int clen = (_type == RunOutputType.VALUES_WEIGHTS) ? 2 : 1;
+
 			MatrixIndexes ix = null;
 			MatrixBlock mb = null;
-			
-			while( arg0.hasNext() ) 
+
+			for( int i=0; i<run.length(); i++ )
 			{
-				Tuple2<Long,Long> val = arg0.next();
-				long valix = val._1;
+				long valix = (_type == RunOutputType.TARGET_INDEXES) ?
+						(long)run.vals[i] : offset+i+1;
 				long rix = UtilFunctions.blockIndexCalculation(valix, _brlen);
 				int pos = UtilFunctions.cellInBlockCalculation(valix, _brlen);
-				
+
 				if( ix == null || ix.getRowIndex() != rix )
 				{
 					if( ix !=null )
 						ret.add(new Tuple2<MatrixIndexes,MatrixBlock>(ix,mb));
 					long len = UtilFunctions.computeBlockSize(_rlen, rix, _brlen);
 					ix = new MatrixIndexes(rix,1);
-					mb = new MatrixBlock((int)len, 1, false);	
+					mb = new MatrixBlock((int)len, clen, false);
+				}
+
+				switch( _type ) {
+					case VALUES:
+						mb.quickSetValue(pos, 0, run.vals[i]);
+						break;
+					case VALUES_WEIGHTS:
+						mb.quickSetValue(pos, 0, run.vals[i]);
+						mb.quickSetValue(pos, 1, run.aux[i]);
+						break;
+					case INDEXES:
+					case TARGET_INDEXES:
+						mb.quickSetValue(pos, 0, run.aux[i]);
+						break;
 				}
-				
-				mb.quickSetValue(pos, 0, val._2+1);
 			}
-			
+
 			//flush last block
-			if( mb!=null && mb.getNonZeros() != 0 )
+			if( mb!=null )
 				ret.add(new Tuple2<MatrixIndexes,MatrixBlock>(ix,mb));
-			
+
 			return ret;
 		}
 	}
-	
+
 	private static class ShuffleMatrixBlockRowsFunction implements PairFlatMapFunction<Iterator<Tuple2<MatrixIndexes,Tuple2<MatrixBlock,MatrixBlock>>>,MatrixIndexes,RowMatrixBlock> 
 	{	
 		private static final long serialVersionUID = 6885207719329119646L;
@@ -800,44 +1053,59 @@ public class RDDSortUtils
 	}
 	
 	/**
-	 * 
+	 * Value run of a column vector block (or partition) with optional auxiliary
+	 * values (weights or row indexes), stored as primitive arrays instead of 
+	 * individual tuples per cell.
 	 */
-	private static class ValueIndexPair implements Serializable 
+	private static class ValueRun implements Serializable
 	{
 		private static final long serialVersionUID = -3273385845538526829L;
 		
-		public double val; 
-		public long ix; 
-
-		public ValueIndexPair(double dval, long lix) {
-			val = dval;
-			ix = lix;
+		public double[] vals;
+		public double[] aux;
+		
+		public ValueRun(double[] dvals, double[] daux) {
+			vals = dvals;
+			aux = daux;
+		}
+		
+		public ValueRun(int len, boolean withAux) {
+			this(new double[len], withAux ? new double[len] : null);
+		}
+		
+		public int length() {
+			return vals.length;
+		}
+		
+		public double getAux(int pos) {
+			return (aux != null) ? aux[pos] : 0;
+		}
+		
+		public ValueRun slice(int start, int end) {
+			return new ValueRun(Arrays.copyOfRange(vals, start, end),
+				(aux != null) ? Arrays.copyOfRange(aux, start, end) : null);
 		}
 	}
 	
-	public static class IndexComparator implements Comparator<ValueIndexPair>, Serializable 
+	/**
+	 * Comparator of sampled value-aux pairs for splitter selection.
+	 */
+	private static class DoublePairComparator implements Comparator<DoublePair>, Serializable 
 	{
 		private static final long serialVersionUID = 5154839870549241343L;
 		
-		private boolean _asc;
-		public IndexComparator(boolean asc) {
+		private boolean _asc = true;
+		private boolean _stable = false;
+		
+		public DoublePairComparator(boolean asc, boolean stable) {
 			_asc = asc;
+			_stable = stable;
 		}
 			
 		@Override
-		public int compare(ValueIndexPair o1, ValueIndexPair o2) 
+		public int compare(DoublePair o1, DoublePair o2) 
 		{
-			//note: use conversion to Double and Long instead of native
-			//compare for compatibility with jdk 6
-			int retVal = Double.valueOf(o1.val).compareTo(o2.val);
-			if(retVal != 0) {
-				return (_asc ? retVal : -1*retVal);
-			}
-			else {
-				//for stable sort
-				return Long.valueOf(o1.ix).compareTo(o2.ix);
-			}
+			return compareValues(o1.val1, o1.val2, o2.val1, o2.val2, _asc, _stable);
 		}
-		
 	}
 }
@@ -30,6 +30,8 @@ import org.apache.spark.storage.StorageLevel;
 
 import scala.Tuple2;
 
+import com.ibm.bi.dml.api.DMLScript;
+import com.ibm.bi.dml.hops.OptimizerUtils;
 import com.ibm.bi.dml.lops.Checkpoint;
 import com.ibm.bi.dml.runtime.DMLRuntimeException;
 import com.ibm.bi.dml.runtime.DMLUnsupportedOperationException;
@@ -41,6 +43,7 @@ import com.ibm.bi.dml.runtime.matrix.data.MatrixCell;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixIndexes;
 import com.ibm.bi.dml.runtime.matrix.mapred.IndexedMatrixValue;
 import com.ibm.bi.dml.runtime.util.UtilFunctions;
+import com.ibm.bi.dml.utils.Statistics;
 
 public class SparkUtils 
 {	
@@ -301,6 +304,59 @@ public class SparkUtils
 		return ret;
 	}
 	
+	/**
+	 * Returns the preferred number of partitions for an rdd with the given (output) matrix 
+	 * characteristics, such that partitions approximately match the configured target partition 
+	 * size. If the dimensions are unknown or partition sizing is disabled, we fall back to the 
+	 * number of partitions of the given input rdd.
+	 * 
+	 * @param mc
+	 * @param in
+	 * @return
+	 */
+	public static int getNumPreferredPartitions( MatrixCharacteristics mc, JavaPairRDD<?,?> in )
+	{
+		int numParts = in.partitions().size();
+		if( !OptimizerUtils.ALLOW_SPARK_PARTITION_SIZING || !mc.dimsKnown() )
+			return numParts;
+		
+		int ret = OptimizerUtils.estimateNumPartitions(mc);
+		
+		//maintain statistics on adjusted partitioning
+		if( DMLScript.STATISTICS && ret != numParts )
+			Statistics.incrementSparkPartitionsResized();
+		
+		return ret;
+	}
+	
+	/**
+	 * Repartitions the given rdd if its partitions are significantly larger than the 
+	 * configured target partition size for the expected output of a subsequent operation. 
+	 * This is intended for small inputs of operations with large outputs (e.g., outer 
+	 * products), where an increased number of input partitions is cheap and directly
+	 * translates into an increased number of output partitions.
+	 * 
+	 * @param in
+	 * @param mcIn
+	 * @param mcOut
+	 * @return
+	 */
+	public static JavaPairRDD<MatrixIndexes, MatrixBlock> repartitionForOutput( JavaPairRDD<MatrixIndexes, MatrixBlock> in, MatrixCharacteristics mcIn, MatrixCharacteristics mcOut )
+	{
+		int numParts = in.partitions().size();
+		int numPrefParts = getNumPreferredPartitions(mcOut, in);
+		
+		//bound by number of input blocks (avoid empty partitions)
+		if( mcIn.dimsKnown() )
+			numPrefParts = (int) Math.min(numPrefParts, mcIn.getNumRowBlocks()*mcIn.getNumColBlocks());
+		
+		//repartition only if it increases the number of partitions by more than 2x
+		if( numPrefParts > 2 * numParts )
+			return in.repartition(numPrefParts);
+		
+		return in;
+	}
+	
 	/**
 	 * Utility to compute dimensions and non-zeros in a given RDD of binary cells.
 	 * 
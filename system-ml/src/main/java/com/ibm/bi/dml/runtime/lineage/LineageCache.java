@@ -0,0 +1,309 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.runtime.lineage;
+
+import java.util.HashMap;
+import java.util.Map.Entry;
+
+import com.ibm.bi.dml.api.DMLScript;
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.parser.Expression.DataType;
+import com.ibm.bi.dml.runtime.DMLRuntimeException;
+import com.ibm.bi.dml.runtime.controlprogram.caching.LazyWriteBuffer;
+import com.ibm.bi.dml.runtime.controlprogram.context.ExecutionContext;
+import com.ibm.bi.dml.runtime.instructions.cp.CPOperand;
+import com.ibm.bi.dml.runtime.instructions.cp.DoubleObject;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Bounded in-memory cache of intermediate results of expensive CP instructions
+ * (e.g., tsmm, ba+*, and unary aggregates), keyed by their lineage. Instructions probe
+ * this cache before execution and reuse the cached result if an identical operation
+ * over identical inputs has been computed before (e.g., t(X)%*%X or colSums(X) in
+ * loops over fixed inputs).
+ * 
+ * The cache shares the budget of the LazyWriteBuffer, i.e., it only uses the currently
+ * free buffer memory and its entries are dropped before buffered matrices are evicted
+ * (because dropping requires no write). Within this budget, we evict the entries with
+ * smallest benefit, defined as compute time times number of accesses per byte.
+ * 
+ * Cached and reused matrix blocks are copied in order to prevent side effects of
+ * update-in-place operations.
+ * 
+ */
+public class LineageCache
+{
+
+	//cached results by lineage
+	private static HashMap<LineageItem, CacheEntry> _cache = new HashMap<LineageItem, CacheEntry>();
+
+	//current size in bytes
+	private static long _size = 0;
+
+	/**
+	 * Indicates if the lineage-based reuse cache is enabled.
+	 * 
+	 * @return
+	 */
+	public static boolean isEnabled() {
+		return OptimizerUtils.ALLOW_LINEAGE_REUSE;
+	}
+
+	/**
+	 * Creates the lineage of an operation over the given matrix inputs, or null
+	 * if the reuse cache is disabled or the lineage of any input is unknown.
+	 * 
+	 * @param ec
+	 * @param opcode opcode incl. all parameters that affect the result
+	 * @param inputs
+	 * @return
+	 * @throws DMLRuntimeException
+	 */
+	public static LineageItem createLineage( ExecutionContext ec, String opcode, CPOperand... inputs ) 
+		throws DMLRuntimeException
+	{
+		if( !isEnabled() )
+			return null;
+		
+		LineageItem[] lin = new LineageItem[inputs.length];
+		for( int i=0; i<inputs.length; i++ )
+			lin[i] = ec.getMatrixObject(inputs[i].getName()).getLineage();
+		return LineageItem.create(opcode, lin);
+	}
+	
+	/**
+	 * Probes the cache for the given lineage and, if available, sets the
+	 * cached result as output (incl its lineage).
+	 * 
+	 * @param ec
+	 * @param lineage
+	 * @param output
+	 * @return true if the cached result was reused
+	 * @throws DMLRuntimeException
+	 */
+	public static boolean reuse( ExecutionContext ec, LineageItem lineage, CPOperand output ) 
+		throws DMLRuntimeException
+	{
+		MatrixBlock mb = get(lineage);
+		if( mb == null )
+			return false;
+		
+		if( output.getDataType() == DataType.SCALAR )
+			ec.setScalarOutput(output.getName(), new DoubleObject(output.getName(), mb.getValue(0, 0)));
+		else {
+			ec.setMatrixOutput(output.getName(), mb);
+			ec.getMatrixObject(output.getName()).setLineage(lineage);
+		}
+		return true;
+	}
+	
+	/**
+	 * Puts the computed result into the cache and sets the lineage of the 
+	 * (already set) matrix output.
+	 * 
+	 * @param ec
+	 * @param lineage
+	 * @param output
+	 * @param data
+	 * @param computeTime compute time in nano seconds
+	 * @throws DMLRuntimeException
+	 */
+	public static void put( ExecutionContext ec, LineageItem lineage, CPOperand output, MatrixBlock data, long computeTime ) 
+		throws DMLRuntimeException
+	{
+		if( lineage == null )
+			return;
+		
+		put(lineage, data, computeTime);
+		if( output.getDataType() == DataType.MATRIX )
+			ec.getMatrixObject(output.getName()).setLineage(lineage);
+	}
+	
+	/**
+	 * Probes the cache for the given lineage and returns a copy of the
+	 * cached matrix block, or null if not available.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	public static MatrixBlock get( LineageItem key )
+	{
+		if( key == null )
+			return null;
+
+		CacheEntry e = null;
+		synchronized( _cache ) {
+			e = _cache.get(key);
+			if( e != null )
+				e._accesses++;
+		}
+
+		if( DMLScript.STATISTICS ) {
+			if( e != null ) {
+				Statistics.incrementLineageCacheHits();
+				Statistics.incrementLineageCacheSavedTime(e._computeTime);
+			}
+			else
+				Statistics.incrementLineageCacheMisses();
+		}
+
+		return (e != null) ? new MatrixBlock(e._data) : null;
+	}
+
+	/**
+	 * Puts a copy of the given matrix block into the cache, if its benefit exceeds the
+	 * benefit of all entries that would need to be evicted to make room.
+	 * 
+	 * @param key
+	 * @param data
+	 * @param computeTime compute time in nano seconds
+	 */
+	public static void put( LineageItem key, MatrixBlock data, long computeTime )
+	{
+		if( key == null )
+			return;
+
+		long lsize = data.estimateSizeInMemory();
+		double benefit = getBenefit(computeTime, 1, lsize);
+
+		synchronized( _cache )
+		{
+			if( _cache.containsKey(key) )
+				return;
+
+			//evict entries with smaller benefit to make room
+			long limit = LazyWriteBuffer.getFreeBufferSize();
+			while( _size + lsize > limit ) {
+				LineageItem minKey = getMinBenefitKey();
+				if( minKey == null || getBenefit(_cache.get(minKey)) >= benefit )
+					return; //reject new entry
+				evict(minKey);
+			}
+
+			_cache.put(key, new CacheEntry(new MatrixBlock(data), lsize, computeTime));
+			_size += lsize;
+		}
+	}
+
+	/**
+	 * Evicts entries in ascending order of their benefit until the cache size
+	 * is below the given size in bytes. This is used by the LazyWriteBuffer to
+	 * make room for buffered matrices.
+	 * 
+	 * @param maxSize
+	 */
+	public static void reduceSize( long maxSize )
+	{
+		synchronized( _cache ) {
+			while( _size > Math.max(maxSize, 0) && !_cache.isEmpty() )
+				evict(getMinBenefitKey());
+		}
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public static long getSize()
+	{
+		synchronized( _cache ) {
+			return _size;
+		}
+	}
+
+	/**
+	 * 
+	 */
+	public static void clear()
+	{
+		synchronized( _cache ) {
+			_cache.clear();
+			_size = 0;
+		}
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	private static LineageItem getMinBenefitKey()
+	{
+		LineageItem ret = null;
+		double min = Double.MAX_VALUE;
+		for( Entry<LineageItem, CacheEntry> e : _cache.entrySet() ) {
+			double benefit = getBenefit(e.getValue());
+			if( benefit < min ) {
+				min = benefit;
+				ret = e.getKey();
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param key
+	 */
+	private static void evict( LineageItem key )
+	{
+		CacheEntry e = _cache.remove(key);
+		_size -= e._size;
+
+		if( DMLScript.STATISTICS )
+			Statistics.incrementLineageCacheEvictions();
+	}
+
+	/**
+	 * 
+	 * @param e
+	 * @return
+	 */
+	private static double getBenefit( CacheEntry e ) {
+		return getBenefit(e._computeTime, e._accesses, e._size);
+	}
+
+	/**
+	 * 
+	 * @param computeTime
+	 * @param accesses
+	 * @param size
+	 * @return
+	 */
+	private static double getBenefit( long computeTime, int accesses, long size ) {
+		return ((double)computeTime) * accesses / Math.max(size, 1);
+	}
+
+	/**
+	 * Cached matrix block with its size, compute time, and number of accesses.
+	 */
+	private static class CacheEntry
+	{
+		private final MatrixBlock _data;
+		private final long _size;
+		private final long _computeTime;
+		private int _accesses;
+
+		public CacheEntry( MatrixBlock data, long size, long computeTime ) {
+			_data = data;
+			_size = size;
+			_computeTime = computeTime;
+			_accesses = 1;
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.runtime.lineage;
+
+import java.util.Arrays;
+
+import com.ibm.bi.dml.runtime.controlprogram.parfor.util.IDSequence;
+
+/**
+ * Lineage trace of a matrix, i.e., either a leaf (a matrix object of unknown origin,
+ * identified by a unique id) or an operation (opcode incl. relevant parameters) over
+ * the lineage items of its inputs. Lineage items are immutable and compared by value,
+ * which allows their use as keys of the lineage-based reuse cache.
+ * 
+ */
+public class LineageItem
+{
+
+	private static IDSequence _idSeq = new IDSequence();
+
+	private final long _id;               //leaf id, -1 for operations
+	private final String _opcode;         //opcode, null for leafs
+	private final LineageItem[] _inputs;  //input lineage, null for leafs
+	private final int _hash;
+
+	private LineageItem( long id, String opcode, LineageItem[] inputs )
+	{
+		_id = id;
+		_opcode = opcode;
+		_inputs = inputs;
+
+		//precompute hash code (lineage items are immutable)
+		_hash = (opcode == null) ? Long.valueOf(id).hashCode() :
+			31 * opcode.hashCode() + Arrays.hashCode(inputs);
+	}
+
+	/**
+	 * Creates a new leaf lineage item with unique id.
+	 * 
+	 * @return
+	 */
+	public static LineageItem createLeaf() {
+		return new LineageItem(_idSeq.getNextID(), null, null);
+	}
+
+	/**
+	 * Creates a new lineage item for the given operation and input lineage items,
+	 * or null if the lineage of any input is unknown.
+	 * 
+	 * @param opcode
+	 * @param inputs
+	 * @return
+	 */
+	public static LineageItem create( String opcode, LineageItem... inputs )
+	{
+		for( LineageItem in : inputs )
+			if( in == null )
+				return null;
+		return new LineageItem(-1, opcode, inputs);
+	}
+
+	public boolean isLeaf() {
+		return (_opcode == null);
+	}
+
+	public String getOpcode() {
+		return _opcode;
+	}
+
+	public LineageItem[] getInputs() {
+		return _inputs;
+	}
+
+	@Override
+	public int hashCode() {
+		return _hash;
+	}
+
+	@Override
+	public boolean equals( Object o )
+	{
+		if( this == o )
+			return true;
+		if( !(o instanceof LineageItem) )
+			return false;
+
+		LineageItem that = (LineageItem) o;
+		if( _hash != that._hash || _id != that._id )
+			return false;
+		return isLeaf() ? that.isLeaf() :
+			_opcode.equals(that._opcode) && Arrays.equals(_inputs, that._inputs);
+	}
+
+	@Override
+	public String toString()
+	{
+		if( isLeaf() )
+			return "L" + _id;
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(_opcode);
+		sb.append('(');
+		for( int i=0; i<_inputs.length; i++ ) {
+			if( i > 0 )
+				sb.append(',');
+			sb.append(_inputs[i].toString());
+		}
+		sb.append(')');
+		return sb.toString();
+	}
+}
@@ -43,6 +43,7 @@ import com.ibm.bi.dml.runtime.instructions.cp.KahanObject;
 import com.ibm.bi.dml.runtime.matrix.operators.AggregateOperator;
 import com.ibm.bi.dml.runtime.matrix.operators.AggregateUnaryOperator;
 import com.ibm.bi.dml.runtime.matrix.operators.UnaryOperator;
+import com.ibm.bi.dml.runtime.util.ThreadBudget;
 import com.ibm.bi.dml.runtime.util.UtilFunctions;
 
 /**
@@ -241,6 +242,9 @@ public class LibMatrixAgg
 			out.allocateDenseBlock();
 		}
 		
+		//acquire threads from shared thread budget (e.g., nested in parfor workers)
+		k = ThreadBudget.acquire( k );
+		
 		//core multi-threaded unary aggregate computation
 		//(currently: always parallelization over number of rows)
 		try {
@@ -264,6 +268,9 @@ public class LibMatrixAgg
 		catch(Exception ex) {
 			throw new DMLRuntimeException(ex);
 		}
+		finally {
+			ThreadBudget.release( k );
+		}
 				
 		//cleanup output and change representation (if necessary)
 		out.recomputeNonZeros();
@@ -360,6 +367,8 @@ public class LibMatrixAgg
 		//Timing time = new Timing(true);
 		
 		double val = -1;
+		//acquire threads from shared thread budget (e.g., nested in parfor workers)
+		k = ThreadBudget.acquire( k );
 		try {
 			ExecutorService pool = Executors.newFixedThreadPool( k );
 			ArrayList<AggTernaryTask> tasks = new ArrayList<AggTernaryTask>();
@@ -378,6 +387,9 @@ public class LibMatrixAgg
 		catch(Exception ex) {
 			throw new DMLRuntimeException(ex);
 		}
+		finally {
+			ThreadBudget.release( k );
+		}
 		
 		//System.out.println("tak+ k="+k+" ("+in1.rlen+","+in1.sparse+","+in2.sparse+","+in3.sparse+") in "+time.stop()+"ms.");
 		
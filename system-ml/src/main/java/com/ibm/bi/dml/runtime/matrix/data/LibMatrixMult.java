@@ -35,6 +35,7 @@ import com.ibm.bi.dml.runtime.DMLRuntimeException;
 import com.ibm.bi.dml.runtime.DMLUnsupportedOperationException;
 import com.ibm.bi.dml.runtime.functionobjects.SwapIndex;
 import com.ibm.bi.dml.runtime.matrix.operators.ReorgOperator;
+import com.ibm.bi.dml.runtime.util.ThreadBudget;
 import com.ibm.bi.dml.runtime.util.UtilFunctions;
 
 /**
@@ -175,6 +176,9 @@ public class LibMatrixMult
 		boolean pm2 = checkParMatrixMultRightInput(m1, m2, k);
 		int ru = pm2 ? m2.rlen : m1.rlen; 
 		
+		//acquire threads from shared thread budget (e.g., nested in parfor workers)
+		k = ThreadBudget.acquire( k );
+		
 		//core multi-threaded matrix mult computation
 		//(currently: always parallelization over number of rows)
 		try {
@@ -199,6 +203,9 @@ public class LibMatrixMult
 		catch(Exception ex) {
 			throw new DMLRuntimeException(ex);
 		}
+		finally {
+			ThreadBudget.release( k );
+		}
 		
 		//post-processing (nnz maintained in parallel)
 		ret.examSparsity();
@@ -290,6 +297,9 @@ public class LibMatrixMult
 		ret.sparse = false;
 		ret.allocateDenseBlock();
 		
+		//acquire threads from shared thread budget (e.g., nested in parfor workers)
+		k = ThreadBudget.acquire( k );
+		
 		//core matrix mult chain computation
 		//(currently: always parallelization over number of rows)
 		try {
@@ -308,6 +318,9 @@ public class LibMatrixMult
 		catch(Exception ex) {
 			throw new DMLRuntimeException(ex);
 		}
+		finally {
+			ThreadBudget.release( k );
+		}
 		
 		//post-processing
 		ret.recomputeNonZeros();
@@ -389,6 +402,9 @@ public class LibMatrixMult
 		ret.sparse = false;
 		ret.allocateDenseBlock();
 	
+		//acquire threads from shared thread budget (e.g., nested in parfor workers)
+		k = ThreadBudget.acquire( k );
+		
 		//core multi-threaded matrix mult computation
 		try {
 			ExecutorService pool = Executors.newFixedThreadPool( k );
@@ -403,6 +419,9 @@ public class LibMatrixMult
 		catch(Exception ex) {
 			throw new DMLRuntimeException(ex);
 		}
+		finally {
+			ThreadBudget.release( k );
+		}
 		
 		//post-processing
 		copyUpperToLowerTriangle( ret );		
@@ -486,6 +505,8 @@ public class LibMatrixMult
 		ret1.sparse = false;
 		ret1.allocateDenseBlock();
 		
+		//acquire threads from shared thread budget (e.g., nested in parfor workers)
+		k = ThreadBudget.acquire( k );
 		try
 		{
 			ExecutorService pool = Executors.newFixedThreadPool(k);
@@ -499,6 +520,9 @@ public class LibMatrixMult
 		catch (InterruptedException e) {
 			throw new DMLRuntimeException(e);
 		}
+		finally {
+			ThreadBudget.release( k );
+		}
 		
 		//post-processing
 		ret1.recomputeNonZeros();
@@ -577,6 +601,8 @@ public class LibMatrixMult
 		
 		//Timing time = new Timing(true);
 		
+		//acquire threads from shared thread budget (e.g., nested in parfor workers)
+		k = ThreadBudget.acquire( k );
 		try 
 		{			
 			ExecutorService pool = Executors.newFixedThreadPool(k);
@@ -592,6 +618,9 @@ public class LibMatrixMult
 		catch (InterruptedException e) {
 			throw new DMLRuntimeException(e);
 		}
+		finally {
+			ThreadBudget.release( k );
+		}
 
 		//System.out.println("MMWSLoss "+wt.toString()+" k="+k+" ("+mX.isInSparseFormat()+","+mX.getNumRows()+","+mX.getNumColumns()+","+mX.getNonZeros()+")x" +
 		//                   "("+mV.isInSparseFormat()+","+mV.getNumRows()+","+mV.getNumColumns()+","+mV.getNonZeros()+") in "+time.stop());
@@ -668,6 +697,8 @@ public class LibMatrixMult
 		ret.sparse = mW.sparse;
 		ret.allocateDenseOrSparseBlock();
 		
+		//acquire threads from shared thread budget (e.g., nested in parfor workers)
+		k = ThreadBudget.acquire( k );
 		try 
 		{			
 			ExecutorService pool = Executors.newFixedThreadPool(k);
@@ -684,6 +715,9 @@ public class LibMatrixMult
 		catch (InterruptedException e) {
 			throw new DMLRuntimeException(e);
 		}
+		finally {
+			ThreadBudget.release( k );
+		}
 
 		//post-processing (nnz maintained in parallel)
 		ret.examSparsity();
@@ -773,6 +807,8 @@ public class LibMatrixMult
 		ret.sparse = wt.isBasic()?mW.sparse:false;
 		ret.allocateDenseOrSparseBlock();
 
+		//acquire threads from shared thread budget (e.g., nested in parfor workers)
+		k = ThreadBudget.acquire( k );
 		try 
 		{			
 			ExecutorService pool = Executors.newFixedThreadPool(k);
@@ -799,6 +835,9 @@ public class LibMatrixMult
 		catch (InterruptedException e) {
 			throw new DMLRuntimeException(e);
 		}
+		finally {
+			ThreadBudget.release( k );
+		}
 
 		//post-processing
 		ret.examSparsity();
@@ -868,6 +907,8 @@ public class LibMatrixMult
 		ret.sparse = false;
 		ret.allocateDenseBlock();
 		
+		//acquire threads from shared thread budget (e.g., nested in parfor workers)
+		k = ThreadBudget.acquire( k );
 		try 
 		{			
 			ExecutorService pool = Executors.newFixedThreadPool(k);
@@ -883,6 +924,9 @@ public class LibMatrixMult
 		catch (InterruptedException e) {
 			throw new DMLRuntimeException(e);
 		}
+		finally {
+			ThreadBudget.release( k );
+		}
 		
 		//System.out.println("MMWCe "+wt.toString()+" k="+k+" ("+mW.isInSparseFormat()+","+mW.getNumRows()+","+mW.getNumColumns()+","+mW.getNonZeros()+")x" +
 		//                 "("+mV.isInSparseFormat()+","+mV.getNumRows()+","+mV.getNumColumns()+","+mV.getNonZeros()+") in "+time.stop());
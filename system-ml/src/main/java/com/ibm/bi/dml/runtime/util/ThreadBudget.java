@@ -0,0 +1,157 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.runtime.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ibm.bi.dml.runtime.controlprogram.parfor.stat.InfrastructureAnalyzer;
+
+/**
+ * Process-wide budget of threads, shared by all levels of local parallelism, i.e., local parfor
+ * workers (incl. nested parfor) and multi-threaded matrix operations. Instead of multiplying the 
+ * degrees of parallelism of nested constructs, each construct acquires additional threads from 
+ * this budget (non-blocking, at most the requested number) and returns them as soon as they are
+ * no longer used. Since the calling thread always keeps its own slot, the granted degree of 
+ * parallelism is at least one, which guarantees progress if the budget is exhausted.
+ * 
+ * For example, a parfor with k workers on k cores leaves no additional threads for its body, 
+ * hence operations run single-threaded; as workers finish their last tasks, the released 
+ * threads are picked up by operations of the remaining workers.
+ * 
+ */
+public class ThreadBudget 
+{
+	
+	public static boolean USE_SHARED_BUDGET = true;
+	
+	//number of available threads (in addition to the main thread)
+	private static final int _numThreads = InfrastructureAnalyzer.getLocalParallelism() - 1;
+	private static final AtomicInteger _avail = new AtomicInteger( _numThreads );
+	
+	//statistics of budget usage (max number of acquired and available threads)
+	private static final AtomicInteger _maxAcquired = new AtomicInteger( 0 );
+	private static final AtomicInteger _maxAvail = new AtomicInteger( _numThreads );
+	
+	/**
+	 * Acquires up to k-1 additional threads for the calling thread.
+	 * 
+	 * @param k requested degree of parallelism
+	 * @return granted degree of parallelism (between 1 and k)
+	 */
+	public static int acquire( int k )
+	{
+		if( !USE_SHARED_BUDGET || k <= 1 )
+			return k;
+		
+		return 1 + acquireAdditional( k-1 );
+	}
+	
+	/**
+	 * Releases the additional threads of a granted degree of parallelism.
+	 * 
+	 * @param k granted degree of parallelism
+	 */
+	public static void release( int k )
+	{
+		if( !USE_SHARED_BUDGET || k <= 1 )
+			return;
+		
+		releaseAdditional( k-1 );
+	}
+	
+	/**
+	 * Acquires up to n additional threads (non-blocking).
+	 * 
+	 * @param n
+	 * @return number of acquired threads (between 0 and n)
+	 */
+	public static int acquireAdditional( int n )
+	{
+		while( true )
+		{
+			int avail = _avail.get();
+			int ret = Math.max(Math.min(avail, n), 0);
+			if( ret == 0 || _avail.compareAndSet(avail, avail-ret) ) {
+				if( ret > 0 )
+					updateMax( _maxAcquired, _numThreads-(avail-ret) );
+				return ret;
+			}
+		}
+	}
+	
+	/**
+	 * 
+	 * @param n
+	 */
+	public static void releaseAdditional( int n )
+	{
+		if( n > 0 )
+			updateMax( _maxAvail, _avail.addAndGet(n) );
+	}
+	
+	/**
+	 * 
+	 * @return
+	 */
+	public static int getNumAvailable()
+	{
+		return _avail.get();
+	}
+	
+	/**
+	 * Returns the maximum number of concurrently acquired threads since the last reset. 
+	 * 
+	 * @return
+	 */
+	public static int getMaxNumAcquired()
+	{
+		return _maxAcquired.get();
+	}
+	
+	/**
+	 * Returns the maximum number of available threads since the last reset, which 
+	 * exceeds the initial budget only if threads have been released multiple times. 
+	 * 
+	 * @return
+	 */
+	public static int getMaxNumAvailable()
+	{
+		return _maxAvail.get();
+	}
+	
+	/**
+	 * 
+	 */
+	public static void resetStatistics()
+	{
+		_maxAcquired.set( 0 );
+		_maxAvail.set( _avail.get() );
+	}
+	
+	/**
+	 * 
+	 * @param max
+	 * @param val
+	 */
+	private static void updateMax( AtomicInteger max, int val )
+	{
+		int cur = max.get();
+		while( val > cur && !max.compareAndSet(cur, val) )
+			cur = max.get();
+	}
+}
@@ -30,11 +30,15 @@ import com.ibm.bi.dml.hops.Hop.VisitStatus;
 import com.ibm.bi.dml.hops.HopsException;
 import com.ibm.bi.dml.hops.LiteralOp;
 import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.hops.globalopt.Summary;
+import com.ibm.bi.dml.hops.globalopt.Summary.PlanChange;
 import com.ibm.bi.dml.hops.globalopt.gdfgraph.GDFLoopNode;
 import com.ibm.bi.dml.hops.globalopt.gdfgraph.GDFNode;
 import com.ibm.bi.dml.hops.globalopt.gdfgraph.GDFNode.NodeType;
 import com.ibm.bi.dml.lops.Lop;
+import com.ibm.bi.dml.lops.LopProperties.ExecType;
 import com.ibm.bi.dml.parser.DMLProgram;
+import com.ibm.bi.dml.parser.Expression.DataType;
 import com.ibm.bi.dml.parser.ForStatement;
 import com.ibm.bi.dml.parser.ExternalFunctionStatement;
 import com.ibm.bi.dml.parser.ForStatementBlock;
@@ -57,11 +61,13 @@ import com.ibm.bi.dml.runtime.controlprogram.Program;
 import com.ibm.bi.dml.runtime.controlprogram.ProgramBlock;
 import com.ibm.bi.dml.runtime.controlprogram.WhileProgramBlock;
 import com.ibm.bi.dml.runtime.controlprogram.context.SparkExecutionContext;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.ProgramConverter;
 import com.ibm.bi.dml.runtime.controlprogram.parfor.stat.InfrastructureAnalyzer;
 import com.ibm.bi.dml.runtime.instructions.Instruction;
 import com.ibm.bi.dml.runtime.instructions.MRJobInstruction;
 import com.ibm.bi.dml.runtime.instructions.cp.CPInstruction;
 import com.ibm.bi.dml.runtime.instructions.spark.CSVReblockSPInstruction;
+import com.ibm.bi.dml.runtime.instructions.spark.CellwiseChainSPInstruction;
 import com.ibm.bi.dml.runtime.instructions.spark.ReblockSPInstruction;
 import com.ibm.bi.dml.runtime.instructions.spark.SPInstruction;
 import com.ibm.bi.dml.yarn.ropt.YarnClusterAnalyzer;
@@ -491,6 +497,34 @@ public class Explain
 		return sb.toString();		
 	}
 	
+	/**
+	 * Explains the result of global data flow optimization, i.e., the costs of
+	 * default and chosen plan as well as all hops whose configuration (execution
+	 * type, block size) differs from the default plan.
+	 * 
+	 * @param summary
+	 * @return
+	 */
+	public static String explainGlobalOptimization( Summary summary )
+	{
+		StringBuilder sb = new StringBuilder();
+		
+		sb.append("# Costs default plan = "+summary.getCostsInitial()+"\n");
+		sb.append("# Costs chosen plan  = "+summary.getCostsOptimal()+"\n");
+		sb.append("# Time budget        = "+((summary.getTimeBudget()>0) ? 
+				summary.getTimeBudget()+" ms" : "unlimited")+"\n");
+		sb.append("# Budget exceeded    = "+summary.isBudgetExceeded()+"\n");
+		sb.append("# Default fallback   = "+summary.isFallback()+"\n");
+		sb.append("# Changed hops       = "+summary.getPlanChanges().size()+"\n");
+		
+		for( PlanChange pc : summary.getPlanChanges() ) {
+			sb.append("--("+pc.getHopID()+") "+pc.getOpString()+" [line "+pc.getLine()+"]: ");
+			sb.append(pc.getDefaultConfig()+" -> "+pc.getOptimalConfig()+"\n");
+		}
+		
+		return sb.toString();
+	}
+	
 	/**
 	 * Counts the number of compiled MRJob/Spark instructions in the
 	 * given runtime program.
@@ -696,6 +730,14 @@ public class Explain
 				sb.append(" [rblk]");
 			else if( hop.requiresCheckpoint() )
 				sb.append(" [chkpt]");
+			
+			//estimated number of partitions of spark intermediates
+			if( hop.getExecType() == ExecType.SPARK && hop.getDataType() == DataType.MATRIX 
+				&& hop.dimsKnown() && OptimizerUtils.ALLOW_SPARK_PARTITION_SIZING ) 
+			{
+				sb.append(" [np=" + OptimizerUtils.estimateNumPartitions(hop.getDim1(), hop.getDim2(), 
+						hop.getRowsInBlock(), hop.getColsInBlock(), hop.getNnz()) + "]");
+			}
 		}
 		
 		//exec type
@@ -854,8 +896,13 @@ public class Explain
 		{
 			ForProgramBlock fpb = (ForProgramBlock) pb;
 			sb.append(offset);
-			if( pb instanceof ParForProgramBlock )
-				sb.append("PARFOR (lines "+fpb.getBeginLine()+"-"+fpb.getEndLine()+")\n");
+			if( pb instanceof ParForProgramBlock ) {
+				ParForProgramBlock pfpb = (ParForProgramBlock) pb;
+				sb.append("PARFOR (lines "+fpb.getBeginLine()+"-"+fpb.getEndLine()+")");
+				if( pfpb.getReadOnlyPinnedVariables() != null ) //pinned read-only inputs
+					sb.append(" [pin="+ProgramConverter.serializeStringCollection(pfpb.getReadOnlyPinnedVariables())+"]");
+				sb.append("\n");
+			}
 			else
 				sb.append("FOR (lines "+fpb.getBeginLine()+"-"+fpb.getEndLine()+")\n");
 			sb.append(explainInstructions(fpb.getFromInstructions(), level+1));
@@ -911,6 +958,8 @@ public class Explain
 		String tmp = null;
 		if( inst instanceof MRJobInstruction )
 			tmp = explainMRJobInstruction((MRJobInstruction)inst, level+1);
+		else if ( inst instanceof CellwiseChainSPInstruction )
+			tmp = explainCellwiseChainInstruction((CellwiseChainSPInstruction)inst);
 		else if ( inst instanceof SPInstruction || inst instanceof CPInstruction)
 			tmp = inst.toString();
 		
@@ -923,6 +972,28 @@ public class Explain
 		return tmp;
 	}
 	
+	/**
+	 * Explains a fused spark instruction by its instruction string, followed by 
+	 * the group of fused operations in execution order.
+	 * 
+	 * @param inst
+	 * @return
+	 */
+	private static String explainCellwiseChainInstruction( CellwiseChainSPInstruction inst )
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append(inst.toString());
+		sb.append(" [fused: ");
+		String[] opcodes = inst.getFusedOpcodes();
+		for( int i=0; i<opcodes.length; i++ ) {
+			sb.append(i>0 ? "," : "");
+			sb.append(opcodes[i]);
+		}
+		sb.append("]");
+		
+		return sb.toString();
+	}
+	
 	/**
 	 * 
 	 * @param inst
@@ -47,6 +47,9 @@ public class Statistics
 	private static long compileEndTime = 0;
 	public static long compileTime = 0;
 	
+	//compiled plan cache hit of last compilation (null if disabled)
+	private static Boolean compiledPlanCacheHit = null;
+	
 	private static long execStartTime = 0;
 	private static long execEndTime = 0;
 	public static long execTime = 0;
@@ -68,6 +71,8 @@ public class Statistics
 	private static AtomicLong hopRecompileTime = new AtomicLong(0); //in nano sec
 	private static AtomicLong hopRecompilePred = new AtomicLong(0); //count
 	private static AtomicLong hopRecompileSB = new AtomicLong(0);   //count
+	private static AtomicLong hopRecompileCacheHits = new AtomicLong(0);   //count
+	private static AtomicLong hopRecompileCacheMisses = new AtomicLong(0); //count
 
 	//Function recompile stats 
 	private static AtomicLong funRecompileTime = new AtomicLong(0); //in nano sec
@@ -75,12 +80,36 @@ public class Statistics
 	
 	//Spark-specific stats
 	private static long sparkCtxCreateTime = 0; 
+	private static AtomicLong sparkCtxWaitTime = new AtomicLong(0); //in nano sec
+	private static AtomicLong sparkPartResized = new AtomicLong(0); //count
+	private static AtomicLong sparkShuffleTasks = new AtomicLong(0); //count of tasks w/ shuffle write
+	private static AtomicLong sparkShuffleWrite = new AtomicLong(0); //in bytes
+	private static AtomicLong sparkParForReuse = new AtomicLong(0); //count of reused parfor bodies
+
+	//Codegen compile stats
+	private static AtomicLong codegenCompileTime = new AtomicLong(0); //in nano sec
+	private static AtomicLong codegenClassCompile = new AtomicLong(0); //count
+	private static AtomicLong codegenPlanCacheHits = new AtomicLong(0); //count
+
+	//Lineage reuse cache stats
+	private static AtomicLong lineageCacheHits = new AtomicLong(0);      //count
+	private static AtomicLong lineageCacheMisses = new AtomicLong(0);    //count
+	private static AtomicLong lineageCacheEvictions = new AtomicLong(0); //count
+	private static AtomicLong lineageCacheSavedTime = new AtomicLong(0); //in nano sec
 
 	//PARFOR optimization stats 
 	private static long parforOptTime = 0; //in milli sec
 	private static long parforOptCount = 0; //count
 	private static long parforInitTime = 0; //in milli sec
 	private static long parforMergeTime = 0; //in milli sec
+	private static long parforDynCount = 0; //count of local parfor w/ dynamic dop
+	private static int parforDynMinDOP = -1; //min observed active dop
+	private static int parforDynMaxDOP = -1; //max observed active dop
+	private static long parforMergeDelta = 0; //count of delta result merges
+	private static long parforMergeFull = 0; //count of full compare result merges
+	private static long parforSpecTasks = 0; //count of speculative task attempts
+	private static long parforSteals = 0; //count of stolen tasks (work-stealing)
+	private static long parforSplits = 0; //count of runtime range splits (work-stealing)
 	
 	//heavy hitter counts and times 
 	private static HashMap<String,Long> _cpInstTime   =  new HashMap<String, Long>();
@@ -214,6 +243,16 @@ public class Statistics
 		//note: not synchronized due to use of atomics
 		hopRecompileSB.addAndGet(delta);
 	}
+	
+	public static void incrementRecompilePlanCacheHits() {
+		//note: not synchronized due to use of atomics
+		hopRecompileCacheHits.incrementAndGet();
+	}
+	
+	public static void incrementRecompilePlanCacheMisses() {
+		//note: not synchronized due to use of atomics
+		hopRecompileCacheMisses.incrementAndGet();
+	}
 
 	public static void incrementFunRecompileTime( long delta ) {
 		//note: not synchronized due to use of atomics
@@ -225,6 +264,57 @@ public class Statistics
 		funRecompiles.incrementAndGet();
 	}
 	
+	public static void incrementSparkPartitionsResized() {
+		//note: not synchronized due to use of atomics
+		sparkPartResized.incrementAndGet();
+	}
+	
+	public static void incrementSparkShuffleWrite( long numTasks, long bytes ) {
+		//note: not synchronized due to use of atomics
+		sparkShuffleTasks.addAndGet(numTasks);
+		sparkShuffleWrite.addAndGet(bytes);
+	}
+	
+	public static void incrementSparkParForBodyReuse( long delta ) {
+		//note: not synchronized due to use of atomics
+		sparkParForReuse.addAndGet(delta);
+	}
+	
+	public static void incrementCodegenCompileTime( long delta ) {
+		//note: not synchronized due to use of atomics
+		codegenCompileTime.addAndGet(delta);
+	}
+	
+	public static void incrementCodegenClassCompile() {
+		//note: not synchronized due to use of atomics
+		codegenClassCompile.incrementAndGet();
+	}
+	
+	public static void incrementCodegenPlanCacheHits() {
+		//note: not synchronized due to use of atomics
+		codegenPlanCacheHits.incrementAndGet();
+	}
+	
+	public static void incrementLineageCacheHits() {
+		//note: not synchronized due to use of atomics
+		lineageCacheHits.incrementAndGet();
+	}
+	
+	public static void incrementLineageCacheMisses() {
+		//note: not synchronized due to use of atomics
+		lineageCacheMisses.incrementAndGet();
+	}
+	
+	public static void incrementLineageCacheEvictions() {
+		//note: not synchronized due to use of atomics
+		lineageCacheEvictions.incrementAndGet();
+	}
+	
+	public static void incrementLineageCacheSavedTime( long delta ) {
+		//note: not synchronized due to use of atomics
+		lineageCacheSavedTime.addAndGet(delta);
+	}
+	
 	public static synchronized void incrementParForOptimCount(){
 		parforOptCount ++;
 	}
@@ -240,6 +330,28 @@ public class Statistics
 	public static synchronized void incrementParForMergeTime( long time ) {
 		parforMergeTime += time;
 	}
+	
+	public static synchronized void incrementParForMergeCount( boolean delta ) {
+		if( delta )
+			parforMergeDelta ++;
+		else
+			parforMergeFull ++;
+	}
+	
+	public static synchronized void incrementParForSpeculativeTasks( long delta ) {
+		parforSpecTasks += delta;
+	}
+	
+	public static synchronized void incrementParForWorkStealing( long steals, long splits ) {
+		parforSteals += steals;
+		parforSplits += splits;
+	}
+	
+	public static synchronized void maintainParForDynamicDOP( int minK, int maxK ) {
+		parforDynCount ++;
+		parforDynMinDOP = (parforDynMinDOP < 0) ? minK : Math.min(parforDynMinDOP, minK);
+		parforDynMaxDOP = Math.max(parforDynMaxDOP, maxK);
+	}
 
 	public static void startCompileTimer() {
 		if( DMLScript.STATISTICS )
@@ -255,6 +367,14 @@ public class Statistics
 		return compileEndTime - compileStartTime;
 	}
 	
+	public static void setCompiledPlanCacheHit( Boolean hit ) {
+		compiledPlanCacheHit = hit;
+	}
+	
+	public static Boolean getCompiledPlanCacheHit() {
+		return compiledPlanCacheHit;
+	}
+	
 	/**
 	 * Starts the timer, should be invoked immediately before invoking
 	 * Program.execute()
@@ -285,11 +405,33 @@ public class Statistics
 		hopRecompileTime.set(0);
 		hopRecompilePred.set(0);
 		hopRecompileSB.set(0);
+		hopRecompileCacheHits.set(0);
+		hopRecompileCacheMisses.set(0);
+		sparkPartResized.set(0);
+		sparkShuffleTasks.set(0);
+		sparkShuffleWrite.set(0);
+		sparkParForReuse.set(0);
+		sparkCtxWaitTime.set(0);
+		codegenCompileTime.set(0);
+		codegenClassCompile.set(0);
+		codegenPlanCacheHits.set(0);
+		lineageCacheHits.set(0);
+		lineageCacheMisses.set(0);
+		lineageCacheEvictions.set(0);
+		lineageCacheSavedTime.set(0);
 		
 		parforOptCount = 0;
 		parforOptTime = 0;
 		parforInitTime = 0;
 		parforMergeTime = 0;
+		parforDynCount = 0;
+		parforDynMinDOP = -1;
+		parforDynMaxDOP = -1;
+		parforMergeDelta = 0;
+		parforMergeFull = 0;
+		parforSpecTasks = 0;
+		parforSteals = 0;
+		parforSplits = 0;
 		
 		resetJITCompileTime();
 		resetJVMgcTime();
@@ -328,6 +470,22 @@ public class Statistics
 		sparkCtxCreateTime = ns;
 	}
 	
+	/**
+	 * 
+	 * @param ns
+	 */
+	public static void incrementSparkCtxWaitTime(long ns) {
+		sparkCtxWaitTime.addAndGet(ns);
+	}
+	
+	public static long getSparkCtxCreateTime() {
+		return sparkCtxCreateTime;
+	}
+	
+	public static long getSparkCtxWaitTime() {
+		return sparkCtxWaitTime.get();
+	}
+	
 	public static String getCPHeavyHitterCode( Instruction inst )
 	{
 		String opcode = null;
@@ -375,6 +533,17 @@ public class Statistics
 		return _cpInstTime.keySet();
 	}
 	
+	/**
+	 * 
+	 * @param opcode
+	 * @return number of executed CP instructions with the given opcode
+	 */
+	public synchronized static long getCPHeavyHitterCount( String opcode )
+	{
+		Long cnt = _cpInstCounts.get(opcode);
+		return (cnt != null) ? cnt : 0;
+	}
+	
 	/**
 	 * 
 	 * @param num
@@ -465,6 +634,14 @@ public class Statistics
 		return hopRecompileSB.get();
 	}
 	
+	public static long getRecompilePlanCacheHits(){
+		return hopRecompileCacheHits.get();
+	}
+	
+	public static long getRecompilePlanCacheMisses(){
+		return hopRecompileCacheMisses.get();
+	}
+	
 	public static long getFunRecompileTime(){
 		return funRecompileTime.get();
 	}
@@ -477,6 +654,53 @@ public class Statistics
 		return parforOptCount;
 	}
 	
+	public static long getSparkPartitionsResized(){
+		return sparkPartResized.get();
+	}
+	
+	/**
+	 * Returns the measured average shuffle write per task (see SparkListener), 
+	 * i.e., the actual size of shuffle partitions.
+	 * 
+	 * @return average bytes per task, or -1 if no shuffle write was measured
+	 */
+	public static long getSparkAvgShuffleWritePerTask(){
+		long tasks = sparkShuffleTasks.get();
+		return (tasks > 0) ? sparkShuffleWrite.get() / tasks : -1;
+	}
+	
+	public static long getSparkParForBodyReuse(){
+		return sparkParForReuse.get();
+	}
+	
+	public static long getCodegenCompileTime(){
+		return codegenCompileTime.get();
+	}
+	
+	public static long getCodegenClassCompile(){
+		return codegenClassCompile.get();
+	}
+	
+	public static long getCodegenPlanCacheHits(){
+		return codegenPlanCacheHits.get();
+	}
+	
+	public static long getLineageCacheHits(){
+		return lineageCacheHits.get();
+	}
+	
+	public static long getLineageCacheMisses(){
+		return lineageCacheMisses.get();
+	}
+	
+	public static long getLineageCacheEvictions(){
+		return lineageCacheEvictions.get();
+	}
+	
+	public static long getLineageCacheSavedTime(){
+		return lineageCacheSavedTime.get();
+	}
+	
 	public static long getParforOptTime(){
 		return parforOptTime;
 	}
@@ -488,6 +712,38 @@ public class Statistics
 	public static long getParforMergeTime(){
 		return parforMergeTime;
 	}
+	
+	public static synchronized long getParforDeltaMergeCount(){
+		return parforMergeDelta;
+	}
+	
+	public static synchronized long getParforFullMergeCount(){
+		return parforMergeFull;
+	}
+	
+	public static synchronized long getParforSpeculativeTasks(){
+		return parforSpecTasks;
+	}
+	
+	public static synchronized long getParforSteals(){
+		return parforSteals;
+	}
+	
+	public static synchronized long getParforSplits(){
+		return parforSplits;
+	}
+	
+	public static synchronized long getParforDynamicDOPCount(){
+		return parforDynCount;
+	}
+	
+	public static synchronized int getParforDynamicMinDOP(){
+		return parforDynMinDOP;
+	}
+	
+	public static synchronized int getParforDynamicMaxDOP(){
+		return parforDynMaxDOP;
+	}
 
 	/**
 	 * Prints statistics.
@@ -502,6 +758,8 @@ public class Statistics
 		if( DMLScript.STATISTICS ) {
 			sb.append("Total elapsed time:\t\t" + String.format("%.3f", (getCompileTime()+getRunTime())*1e-9) + " sec.\n"); // nanoSec --> sec
 			sb.append("Total compilation time:\t\t" + String.format("%.3f", getCompileTime()*1e-9) + " sec.\n"); // nanoSec --> sec
+			if( compiledPlanCacheHit != null )
+				sb.append("Compiled plan cache hit:\t" + compiledPlanCacheHit + ".\n");
 		}
 		sb.append("Total execution time:\t\t" + String.format("%.3f", getRunTime()*1e-9) + " sec.\n"); // nanoSec --> sec
 		if( OptimizerUtils.isSparkExecutionMode() ) {
@@ -519,24 +777,55 @@ public class Statistics
 		if( DMLScript.STATISTICS ) 
 		{
 			sb.append("Cache hits (Mem, WB, FS, HDFS):\t" + CacheStatistics.displayHits() + ".\n");
+			if( CacheStatistics.getPinnedHits()>0 )
+				sb.append("Cache hits (pinned, lock-free):\t" + CacheStatistics.getPinnedHits() + ".\n");
 			sb.append("Cache writes (WB, FS, HDFS):\t" + CacheStatistics.displayWrites() + ".\n");
 			sb.append("Cache times (ACQr/m, RLS, EXP):\t" + CacheStatistics.displayTime() + " sec.\n");
 			sb.append("HOP DAGs recompiled (PRED, SB):\t" + getHopRecompiledPredDAGs() + "/" + getHopRecompiledSBDAGs() + ".\n");
 			sb.append("HOP DAGs recompile time:\t" + String.format("%.3f", ((double)getHopRecompileTime())/1000000000) + " sec.\n");
+			if( getRecompilePlanCacheHits()>0 || getRecompilePlanCacheMisses()>0 )
+				sb.append("Recompile cache (hits, misses):\t" + getRecompilePlanCacheHits() + "/" + getRecompilePlanCacheMisses() + ".\n");
 			if( getFunRecompiles()>0 ) {
 				sb.append("Functions recompiled:\t\t" + getFunRecompiles() + ".\n");
 				sb.append("Functions recompile time:\t" + String.format("%.3f", ((double)getFunRecompileTime())/1000000000) + " sec.\n");	
 			}
 			if( OptimizerUtils.isSparkExecutionMode() ){
-				String lazy = SparkExecutionContext.isLazySparkContextCreation() ? "(lazy)" : "(eager)";
+				String lazy = SparkExecutionContext.isAsyncSparkContextCreation() ? "(async)" :
+					SparkExecutionContext.isLazySparkContextCreation() ? "(lazy)" : "(eager)";
 				sb.append("Spark ctx create time "+lazy+":\t"+
 						String.format("%.3f", ((double)sparkCtxCreateTime)*1e-9)  + " sec.\n" ); // nanoSec --> sec
+				sb.append("Spark ctx wait time:\t\t"+
+						String.format("%.3f", ((double)sparkCtxWaitTime.get())*1e-9)  + " sec.\n" ); // nanoSec --> sec
+				sb.append("Spark partitionings resized:\t" + getSparkPartitionsResized() + ".\n");
+				if( getSparkAvgShuffleWritePerTask()>=0 )
+					sb.append("Spark shuffle write/task:\t" + String.format("%.3f", 
+						((double)getSparkAvgShuffleWritePerTask())/1024/1024) + "/" + 
+						OptimizerUtils.getSparkPartitionSize()/1024/1024 + " MB (measured/target).\n");
+				if( getSparkParForBodyReuse()>0 )
+					sb.append("Spark parfor bodies reused:\t" + getSparkParForBodyReuse() + ".\n");
+			}
+			if( getCodegenClassCompile()>0 || getCodegenPlanCacheHits()>0 ) {
+				sb.append("Codegen compile (classes, hits):\t" + getCodegenClassCompile() + "/" + getCodegenPlanCacheHits() + ".\n");
+				sb.append("Codegen compile time:\t\t" + String.format("%.3f", ((double)getCodegenCompileTime())/1000000000) + " sec.\n");
+			}
+			if( getLineageCacheHits()>0 || getLineageCacheMisses()>0 ) {
+				sb.append("Lineage cache (hits, misses):\t" + getLineageCacheHits() + "/" + getLineageCacheMisses() + ".\n");
+				sb.append("Lineage cache evictions:\t" + getLineageCacheEvictions() + ".\n");
+				sb.append("Lineage cache saved time:\t" + String.format("%.3f", ((double)getLineageCacheSavedTime())/1000000000) + " sec.\n");
 			}
 			if( parforOptCount>0 ){
 				sb.append("ParFor loops optimized:\t\t" + getParforOptCount() + ".\n");
 				sb.append("ParFor optimize time:\t\t" + String.format("%.3f", ((double)getParforOptTime())/1000) + " sec.\n");	
 				sb.append("ParFor initialize time:\t\t" + String.format("%.3f", ((double)getParforInitTime())/1000) + " sec.\n");	
 				sb.append("ParFor result merge time:\t" + String.format("%.3f", ((double)getParforMergeTime())/1000) + " sec.\n");	
+				if( parforMergeDelta>0 || parforMergeFull>0 )
+					sb.append("ParFor result merges (delta, full):\t" + getParforDeltaMergeCount() + "/" + getParforFullMergeCount() + ".\n");
+				if( parforSpecTasks>0 )
+					sb.append("ParFor speculative tasks:\t" + getParforSpeculativeTasks() + ".\n");
+				if( parforSteals>0 || parforSplits>0 )
+					sb.append("ParFor work stealing (steals, splits):\t" + getParforSteals() + "/" + getParforSplits() + ".\n");
+				if( parforDynCount>0 )
+					sb.append("ParFor dynamic dop (min, max):\t" + getParforDynamicMinDOP() + "/" + getParforDynamicMaxDOP() + ".\n");
 			}
 			sb.append("Total JIT compile time:\t\t" + ((double)getJITCompileTime())/1000 + " sec.\n");
 			sb.append("Total JVM GC count:\t\t" + getJVMgcCount() + ".\n");
@@ -0,0 +1,166 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.binary.matrix;
+
+import java.util.HashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.api.DMLScript;
+import com.ibm.bi.dml.api.DMLScript.RUNTIME_PLATFORM;
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.lops.CellwiseChain;
+import com.ibm.bi.dml.runtime.instructions.Instruction;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixValue.CellIndex;
+import com.ibm.bi.dml.test.integration.AutomatedTestBase;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.test.utils.TestUtils;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Tests for fused chains of cell-wise spark operations, with and without
+ * fusion in order to compare the results of both plans.
+ * 
+ */
+public class CellwiseChainTest extends AutomatedTestBase
+{
+
+	private final static String TEST_NAME1 = "CellwiseChain_Sum";
+	private final static String TEST_NAME2 = "CellwiseChain_RowSums";
+	private final static String TEST_NAME3 = "CellwiseChain_Cellwise";
+	private final static String TEST_DIR = "functions/binary/matrix/";
+	private final static String TEST_CLASS_DIR = TEST_DIR + CellwiseChainTest.class.getSimpleName() + "/";
+	private final static double eps = 1e-8;
+
+	private final static int rows = 1468;
+	private final static int cols = 1052; //multi block
+
+	private final static double sparsity1 = 0.5; //dense
+	private final static double sparsity2 = 0.1; //sparse
+
+	@Override
+	public void setUp()
+	{
+		TestUtils.clearAssertionInformation();
+		addTestConfiguration(TEST_NAME1, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME1, new String[] { "B" }));
+		addTestConfiguration(TEST_NAME2, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME2, new String[] { "B" }));
+		addTestConfiguration(TEST_NAME3, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME3, new String[] { "B" }));
+	}
+
+	@Test
+	public void testCellwiseChainSumDenseSP()
+	{
+		runCellwiseChainTest(TEST_NAME1, false, true);
+	}
+
+	@Test
+	public void testCellwiseChainSumSparseSP()
+	{
+		runCellwiseChainTest(TEST_NAME1, true, true);
+	}
+
+	@Test
+	public void testCellwiseChainSumDenseNoFusionSP()
+	{
+		runCellwiseChainTest(TEST_NAME1, false, false);
+	}
+
+	@Test
+	public void testCellwiseChainRowSumsDenseSP()
+	{
+		runCellwiseChainTest(TEST_NAME2, false, true);
+	}
+
+	@Test
+	public void testCellwiseChainRowSumsSparseSP()
+	{
+		runCellwiseChainTest(TEST_NAME2, true, true);
+	}
+
+	@Test
+	public void testCellwiseChainCellwiseDenseSP()
+	{
+		runCellwiseChainTest(TEST_NAME3, false, true);
+	}
+
+	@Test
+	public void testCellwiseChainCellwiseSparseSP()
+	{
+		runCellwiseChainTest(TEST_NAME3, true, true);
+	}
+
+	@Test
+	public void testCellwiseChainCellwiseSparseNoFusionSP()
+	{
+		runCellwiseChainTest(TEST_NAME3, true, false);
+	}
+
+	/**
+	 * 
+	 * @param testname
+	 * @param sparse
+	 * @param fusion
+	 */
+	private void runCellwiseChainTest( String testname, boolean sparse, boolean fusion )
+	{
+		RUNTIME_PLATFORM platformOld = rtplatform;
+		rtplatform = RUNTIME_PLATFORM.SPARK;
+
+		boolean sparkConfigOld = DMLScript.USE_LOCAL_SPARK_CONFIG;
+		DMLScript.USE_LOCAL_SPARK_CONFIG = true;
+
+		boolean fusionOld = OptimizerUtils.ALLOW_SPARK_CELLWISE_FUSION;
+		OptimizerUtils.ALLOW_SPARK_CELLWISE_FUSION = fusion;
+
+		try
+		{
+			String TEST_NAME = testname;
+			getAndLoadTestConfiguration(TEST_NAME);
+
+			String HOME = SCRIPT_DIR + TEST_DIR;
+			fullDMLScriptName = HOME + TEST_NAME + ".dml";
+			programArgs = new String[]{"-explain", "-stats", "-args", input("A"), output("B")};
+
+			fullRScriptName = HOME + TEST_NAME + ".R";
+			rCmd = "Rscript" + " " + fullRScriptName + " " + inputDir() + " " + expectedDir();
+
+			//generate actual datasets
+			double[][] A = getRandomMatrix(rows, cols, -1, 1, sparse?sparsity2:sparsity1, 7);
+			writeInputMatrixWithMTD("A", A, true);
+
+			runTest(true, false, null, -1);
+			runRScript(true);
+
+			//compare matrices
+			HashMap<CellIndex, Double> dmlfile = readDMLMatrixFromHDFS("B");
+			HashMap<CellIndex, Double> rfile  = readRMatrixFromFS("B");
+			TestUtils.compareMatrices(dmlfile, rfile, eps, "Stat-DML", "Stat-R");
+
+			//check for fused operator
+			String opcode = Instruction.SP_INST_PREFIX + CellwiseChain.OPCODE;
+			Assert.assertEquals(fusion, Statistics.getCPHeavyHitterOpCodes().contains(opcode));
+		}
+		finally
+		{
+			rtplatform = platformOld;
+			DMLScript.USE_LOCAL_SPARK_CONFIG = sparkConfigOld;
+			OptimizerUtils.ALLOW_SPARK_CELLWISE_FUSION = fusionOld;
+		}
+	}
+}
@@ -24,6 +24,7 @@ import org.junit.Test;
 import com.ibm.bi.dml.api.DMLScript;
 import com.ibm.bi.dml.api.DMLScript.RUNTIME_PLATFORM;
 import com.ibm.bi.dml.lops.LopProperties.ExecType;
+import com.ibm.bi.dml.runtime.instructions.spark.utils.RDDSortUtils;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixValue.CellIndex;
 import com.ibm.bi.dml.test.integration.AutomatedTestBase;
 import com.ibm.bi.dml.test.integration.TestConfiguration;
@@ -246,7 +247,36 @@ public class QuantileTest extends AutomatedTestBase
 	 * @param sparseM2
 	 * @param instType
 	 */
+	@Test
+	public void testQuantile1TiesSP() 
+	{
+		runQuantileTest(TEST_NAME1, 0.25, false, true, ExecType.SPARK);
+	}
+	
+	@Test
+	public void testQuantile2TiesSP() 
+	{
+		runQuantileTest(TEST_NAME1, 0.50, false, true, ExecType.SPARK);
+	}
+	
+	@Test
+	public void testQuantile3TiesSP() 
+	{
+		runQuantileTest(TEST_NAME1, 0.75, false, true, ExecType.SPARK);
+	}
+	
+	@Test
+	public void testMedianTiesSP() 
+	{
+		runQuantileTest(TEST_NAME2, -1, false, true, ExecType.SPARK);
+	}
+	
 	private void runQuantileTest( String TEST_NAME, double p, boolean sparse, ExecType et)
+	{
+		runQuantileTest(TEST_NAME, p, sparse, false, et);
+	}
+	
+	private void runQuantileTest( String TEST_NAME, double p, boolean sparse, boolean ties, ExecType et)
 	{
 		//rtplatform for MR
 		RUNTIME_PLATFORM platformOld = rtplatform;
@@ -260,6 +290,11 @@ public class QuantileTest extends AutomatedTestBase
 		if( rtplatform == RUNTIME_PLATFORM.SPARK )
 			DMLScript.USE_LOCAL_SPARK_CONFIG = true;
 		
+		//force multiple sort partitions to split heavy ties 
+		int numPartOld = RDDSortUtils.FORCED_NUM_PARTITIONS;
+		if( ties )
+			RDDSortUtils.FORCED_NUM_PARTITIONS = 7;
+		
 		try
 		{
 			getAndLoadTestConfiguration(TEST_NAME);
@@ -274,6 +309,8 @@ public class QuantileTest extends AutomatedTestBase
 			//generate actual dataset (always dense because values <=0 invalid)
 			double sparsitya = sparse ? sparsity2 : sparsity1;
 			double[][] A = getRandomMatrix(rows, 1, 1, maxVal, sparsitya, 1236); 
+			if( ties )
+				A = TestUtils.round(getRandomMatrix(rows, 1, 1, 3, sparsitya, 1236));
 			writeInputMatrixWithMTD("A", A, true);
 			
 			runTest(true, false, null, -1); 
@@ -288,6 +325,7 @@ public class QuantileTest extends AutomatedTestBase
 		{
 			rtplatform = platformOld;
 			DMLScript.USE_LOCAL_SPARK_CONFIG = sparkConfigOld;
+			RDDSortUtils.FORCED_NUM_PARTITIONS = numPartOld;
 		}
 	}
 
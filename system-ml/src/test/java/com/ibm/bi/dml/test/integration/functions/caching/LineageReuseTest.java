@@ -0,0 +1,129 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.caching;
+
+import java.util.HashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixValue.CellIndex;
+import com.ibm.bi.dml.test.integration.AutomatedTestBase;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.test.utils.TestUtils;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Tests the lineage-based reuse of intermediates (tsmm, unary aggregates) 
+ * in a function that is repeatedly called with the same input matrix.
+ * 
+ */
+public class LineageReuseTest extends AutomatedTestBase 
+{
+	
+	private final static String TEST_NAME = "lineage_reuse";
+	private final static String TEST_DIR = "functions/caching/";
+	private final static String TEST_CLASS_DIR = TEST_DIR + LineageReuseTest.class.getSimpleName() + "/";
+	private final static double eps = 1e-8;
+	
+	private final static int rows = 1200;
+	private final static int cols = 70;
+	private final static int iters = 5;
+	private final static double sparsity1 = 0.7;
+	private final static double sparsity2 = 0.1;
+	
+	
+	@Override
+	public void setUp() 
+	{
+		TestUtils.clearAssertionInformation();
+		addTestConfiguration(TEST_NAME, 
+			new TestConfiguration(TEST_CLASS_DIR, TEST_NAME, new String[] { "R" }) );
+	}
+
+	@Test
+	public void testLineageReuseDense() 
+	{
+		runLineageReuseTest(false, true);
+	}
+	
+	@Test
+	public void testLineageReuseSparse() 
+	{
+		runLineageReuseTest(true, true);
+	}
+	
+	@Test
+	public void testNoLineageReuseDense() 
+	{
+		runLineageReuseTest(false, false);
+	}
+	
+	@Test
+	public void testNoLineageReuseSparse() 
+	{
+		runLineageReuseTest(true, false);
+	}
+	
+	/**
+	 * 
+	 * @param sparse
+	 * @param reuse
+	 */
+	private void runLineageReuseTest( boolean sparse, boolean reuse )
+	{	
+		boolean oldFlagReuse = OptimizerUtils.ALLOW_LINEAGE_REUSE;
+		
+		try
+		{
+			TestConfiguration config = getTestConfiguration(TEST_NAME);
+			loadTestConfiguration(config);
+			
+			String HOME = SCRIPT_DIR + TEST_DIR;
+			fullDMLScriptName = HOME + TEST_NAME + ".dml";
+			programArgs = new String[]{"-stats", "-args", input("X"), String.valueOf(iters), output("R") };
+			
+			fullRScriptName = HOME + TEST_NAME + ".R";
+			rCmd = "Rscript" + " " + fullRScriptName + " " + inputDir() + " " + iters + " " + expectedDir();
+	
+			double[][] X = getRandomMatrix(rows, cols, 0, 1, sparse?sparsity2:sparsity1, 7);
+			writeInputMatrixWithMTD("X", X, true);
+	
+			OptimizerUtils.ALLOW_LINEAGE_REUSE = reuse;
+			
+			runTest(true, false, null, -1); 
+			runRScript(true);
+			
+			//compare matrices
+			HashMap<CellIndex, Double> dmlfile = readDMLMatrixFromHDFS("R");
+			HashMap<CellIndex, Double> rfile  = readRMatrixFromFS("R");
+			TestUtils.compareMatrices(dmlfile, rfile, eps, "DML", "R");
+			
+			//check reuse of intermediates in all but the first call
+			if( reuse )
+				Assert.assertTrue("Missing lineage cache hits.", Statistics.getLineageCacheHits() > 0);
+			else
+				Assert.assertEquals("Unexpected lineage cache hits.", 0, Statistics.getLineageCacheHits());
+		}
+		finally
+		{
+			OptimizerUtils.ALLOW_LINEAGE_REUSE = oldFlagReuse;
+		}
+	}
+}
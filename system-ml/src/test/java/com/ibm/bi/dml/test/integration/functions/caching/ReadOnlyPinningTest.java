@@ -0,0 +1,141 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.caching;
+
+import java.util.ArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.parser.Expression.ValueType;
+import com.ibm.bi.dml.runtime.controlprogram.caching.CacheableData;
+import com.ibm.bi.dml.runtime.controlprogram.caching.MatrixObject;
+import com.ibm.bi.dml.runtime.matrix.MatrixCharacteristics;
+import com.ibm.bi.dml.runtime.matrix.MatrixFormatMetaData;
+import com.ibm.bi.dml.runtime.matrix.data.InputInfo;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
+import com.ibm.bi.dml.runtime.matrix.data.OutputInfo;
+import com.ibm.bi.dml.runtime.util.DataConverter;
+import com.ibm.bi.dml.test.integration.AutomatedTestBase;
+import com.ibm.bi.dml.test.utils.TestUtils;
+
+/**
+ * Tests concurrent pins/unpins of read-only pinned matrices with parallel 
+ * readers, where all (lock-free and regular) reads must be released in 
+ * the end, independent of the interleaving of pins, unpins, and reads.
+ * 
+ */
+public class ReadOnlyPinningTest extends AutomatedTestBase 
+{
+	private final static int rows = 100;
+	private final static int cols = 10;
+	private final static int threads = 4;
+	private final static int reads = 20000;
+	private final static int pins = 5000;
+	
+	@Override
+	public void setUp() 
+	{
+		TestUtils.clearAssertionInformation();
+	}
+
+	@Test
+	public void testConcurrentPinUnpin() 
+	{
+		runReadOnlyPinningTest(false);
+	}
+	
+	@Test
+	public void testConcurrentNestedPinUnpin() 
+	{
+		runReadOnlyPinningTest(true);
+	}
+	
+	/**
+	 * 
+	 * @param nested
+	 */
+	private void runReadOnlyPinningTest( boolean nested )
+	{
+		try
+		{
+			CacheableData.disableCaching();
+			
+			MatrixBlock mb = DataConverter.convertToMatrixBlock(
+					getRandomMatrix(rows, cols, 0, 1, 1.0, 7));
+			final MatrixObject mo = new MatrixObject(ValueType.DOUBLE, "scratch_space/pin_test", 
+				new MatrixFormatMetaData(new MatrixCharacteristics(rows, cols, 1000, 1000), 
+					OutputInfo.BinaryBlockOutputInfo, InputInfo.BinaryBlockInputInfo));
+			mo.acquireModify(mb);
+			mo.release();
+			
+			//parallel readers with lock-free and regular reads
+			final ArrayList<Throwable> errors = new ArrayList<Throwable>();
+			ArrayList<Thread> readers = new ArrayList<Thread>();
+			for( int i=0; i<threads; i++ ) {
+				Thread t = new Thread() {
+					public void run() {
+						try {
+							for( int j=0; j<reads; j++ ) {
+								MatrixBlock tmp = mo.acquireRead();
+								if( tmp.getNumRows() != rows )
+									throw new RuntimeException("Invalid read: "+tmp.getNumRows());
+								mo.release();
+							}
+						}
+						catch(Throwable ex) {
+							synchronized( errors ) {
+								errors.add(ex);
+							}
+						}
+					}
+				};
+				readers.add(t);
+				t.start();
+			}
+			
+			//concurrent pins and unpins
+			for( int i=0; i<pins; i++ ) {
+				mo.pinReadOnly();
+				if( nested ) {
+					mo.pinReadOnly();
+					mo.unpinReadOnly();
+				}
+				mo.unpinReadOnly();
+			}
+			
+			for( Thread t : readers )
+				t.join();
+			
+			if( !errors.isEmpty() )
+				throw new RuntimeException(errors.get(0));
+			
+			//check that all reads have been released
+			Assert.assertFalse("Matrix still pinned.", mo.isPinnedReadOnly());
+			Assert.assertFalse("Outstanding read lock.", "READ".equals(mo.getStatusAsString()));
+			mo.acquireModify(mb);
+			mo.release();
+		}
+		catch(Exception ex) {
+			throw new RuntimeException(ex);
+		}
+		finally {
+			CacheableData.enableCaching();
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.codegen;
+
+import java.util.HashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.hops.codegen.SpoofCompiler;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixValue.CellIndex;
+import com.ibm.bi.dml.test.integration.AutomatedTestBase;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.test.utils.TestUtils;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Tests the fusion of cell-wise operations into generated operators for the
+ * different cell templates (full aggregate, no aggregate, row and column aggregates)
+ * over dense and sparse inputs, compared against the unfused R results.
+ * 
+ */
+public class CellwiseCodegenTest extends AutomatedTestBase 
+{
+	
+	private final static String TEST_DIR = "functions/codegen/";
+	private final static String TEST_NAME1 = "cellwise_codegen1"; //sum(X*log(Y+1e-10))
+	private final static String TEST_NAME2 = "cellwise_codegen2"; //(X*2+exp(-Y))/(Y+1)
+	private final static String TEST_NAME3 = "cellwise_codegen3"; //rowSums(X*Y+X^2)
+	private final static String TEST_NAME4 = "cellwise_codegen4"; //colSums(abs(X-Y)*3)
+	private final static String TEST_NAME5 = "cellwise_codegen5"; //rowSums(abs(X*3)+Y), rowSums(abs(X*5)+Y)
+	private final static String TEST_CLASS_DIR = TEST_DIR + CellwiseCodegenTest.class.getSimpleName() + "/";
+	
+	private final static double eps = 1e-8;
+	
+	private final static int rows = 1200;
+	private final static int cols = 70;
+	
+	private final static double sparsity1 = 0.7;
+	private final static double sparsity2 = 0.05;
+	
+	
+	@Override
+	public void setUp() 
+	{
+		addTestConfiguration(TEST_NAME1, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME1, new String[] { "R" }) );
+		addTestConfiguration(TEST_NAME2, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME2, new String[] { "R" }) );
+		addTestConfiguration(TEST_NAME3, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME3, new String[] { "R" }) );
+		addTestConfiguration(TEST_NAME4, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME4, new String[] { "R" }) );
+		addTestConfiguration(TEST_NAME5, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME5, new String[] { "R" }) );
+	}
+
+	@Test
+	public void testCodegenFullAggDense() 
+	{
+		runCellwiseCodegenTest(TEST_NAME1, false);
+	}
+	
+	@Test
+	public void testCodegenFullAggSparse() 
+	{
+		runCellwiseCodegenTest(TEST_NAME1, true);
+	}
+	
+	@Test
+	public void testCodegenNoAggDense() 
+	{
+		runCellwiseCodegenTest(TEST_NAME2, false);
+	}
+	
+	@Test
+	public void testCodegenNoAggSparse() 
+	{
+		runCellwiseCodegenTest(TEST_NAME2, true);
+	}
+	
+	@Test
+	public void testCodegenRowAggDense() 
+	{
+		runCellwiseCodegenTest(TEST_NAME3, false);
+	}
+	
+	@Test
+	public void testCodegenRowAggSparse() 
+	{
+		runCellwiseCodegenTest(TEST_NAME3, true);
+	}
+	
+	@Test
+	public void testCodegenColAggDense() 
+	{
+		runCellwiseCodegenTest(TEST_NAME4, false);
+	}
+	
+	@Test
+	public void testCodegenColAggSparse() 
+	{
+		runCellwiseCodegenTest(TEST_NAME4, true);
+	}
+	
+	@Test
+	public void testCodegenLiteralReuseDense() 
+	{
+		SpoofCompiler.clearPlanCache();
+		runCellwiseCodegenTest(TEST_NAME5, false);
+		
+		//check for single generated class (literals passed as scalars)
+		Assert.assertEquals("Unexpected number of compiled classes.", 
+				1, Statistics.getCodegenClassCompile());
+		Assert.assertTrue("Missing plan cache hit.", 
+				Statistics.getCodegenPlanCacheHits() >= 1);
+	}
+	
+	/**
+	 * 
+	 * @param testname
+	 * @param sparse
+	 */
+	private void runCellwiseCodegenTest( String testname, boolean sparse )
+	{	
+		boolean codegenOld = OptimizerUtils.ALLOW_CODEGEN;
+		OptimizerUtils.ALLOW_CODEGEN = true;
+		
+		try
+		{
+			TestConfiguration config = getTestConfiguration(testname);
+			loadTestConfiguration(config);
+			
+			String HOME = SCRIPT_DIR + TEST_DIR;
+			fullDMLScriptName = HOME + testname + ".dml";
+			programArgs = new String[]{"-stats", "-args", input("X"), input("Y"), output("R") };
+			
+			fullRScriptName = HOME + testname + ".R";
+			rCmd = "Rscript" + " " + fullRScriptName + " " + inputDir() + " " + expectedDir();
+	
+			//generate input data
+			double[][] X = getRandomMatrix(rows, cols, -1, 1, sparse?sparsity2:sparsity1, 7);
+			double[][] Y = getRandomMatrix(rows, cols, 0, 1, sparse?sparsity2:sparsity1, 3);
+			writeInputMatrixWithMTD("X", X, true);
+			writeInputMatrixWithMTD("Y", Y, true);
+			
+			//run tests
+			runTest(true, false, null, -1);
+			runRScript(true);
+		
+			//compare matrices
+			HashMap<CellIndex, Double> dmlfile = readDMLMatrixFromHDFS("R");
+			HashMap<CellIndex, Double> rfile  = readRMatrixFromFS("R");
+			TestUtils.compareMatrices(dmlfile, rfile, eps, "DML", "R");
+			
+			//check for fused operator
+			Assert.assertTrue("Missing fused operator.", 
+					Statistics.getCPHeavyHitterOpCodes().contains("spoof"));
+		}
+		finally
+		{
+			OptimizerUtils.ALLOW_CODEGEN = codegenOld;
+		}
+	}
+}
@@ -19,10 +19,13 @@ package com.ibm.bi.dml.test.integration.functions.gdfo;
 
 import java.util.HashMap;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import com.ibm.bi.dml.api.DMLScript;
 import com.ibm.bi.dml.api.DMLScript.RUNTIME_PLATFORM;
+import com.ibm.bi.dml.hops.globalopt.GlobalOptimizerWrapper;
+import com.ibm.bi.dml.hops.globalopt.Summary;
 import com.ibm.bi.dml.lops.LopProperties.ExecType;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixValue.CellIndex;
 import com.ibm.bi.dml.test.integration.AutomatedTestBase;
@@ -38,6 +41,7 @@ public class GDFOLinregCG extends AutomatedTestBase
 	private final static String TEST_NAME1 = "LinregCG";
 	private final static String TEST_DIR = "functions/gdfo/";
 	private final static String TEST_CONF = "SystemML-config-globalopt.xml";
+	private final static String TEST_CONF_BUDGET = "SystemML-config-globalopt-budget.xml";
 	
 	private final static double eps = 1e-5;
 	
@@ -70,6 +74,18 @@ public class GDFOLinregCG extends AutomatedTestBase
 		runGDFOTest(TEST_NAME1, true, ExecType.CP);
 	}
 	
+	@Test
+	public void testGDFOLinregCGDenseCPExceededBudget() 
+	{
+		runGDFOTest(TEST_NAME1, false, ExecType.CP, TEST_CONF_BUDGET);
+	}
+	
+	@Test
+	public void testGDFOLinregCGSparseCPExceededBudget() 
+	{
+		runGDFOTest(TEST_NAME1, true, ExecType.CP, TEST_CONF_BUDGET);
+	}
+	
 	/*
 	@Test
 	public void testGDFOLinregCGDenseMR() 
@@ -103,6 +119,18 @@ public class GDFOLinregCG extends AutomatedTestBase
 	 * @param instType
 	 */
 	private void runGDFOTest( String testname,boolean sparse, ExecType instType)
+	{
+		runGDFOTest(testname, sparse, instType, TEST_CONF);
+	}
+	
+	/**
+	 * 
+	 * @param testname
+	 * @param sparse
+	 * @param instType
+	 * @param conf
+	 */
+	private void runGDFOTest( String testname,boolean sparse, ExecType instType, String conf)
 	{
 		//rtplatform for MR
 		RUNTIME_PLATFORM platformOld = rtplatform;
@@ -125,7 +153,7 @@ public class GDFOLinregCG extends AutomatedTestBase
 			String HOME = SCRIPT_DIR + TEST_DIR;
 			fullDMLScriptName = HOME + TEST_NAME + ".dml";
 			programArgs = new String[]{ "-explain",//"hops",
-					                    "-config="+HOME+TEST_CONF,
+					                    "-config="+HOME+conf,
 					                    "-args", HOME + INPUT_DIR + "X",
 					                             HOME + INPUT_DIR + "y",
 					                             String.valueOf(intercept),
@@ -153,6 +181,21 @@ public class GDFOLinregCG extends AutomatedTestBase
 			HashMap<CellIndex, Double> dmlfile = readDMLMatrixFromHDFS("w");
 			HashMap<CellIndex, Double> rfile  = readRMatrixFromFS("w");
 			TestUtils.compareMatrices(dmlfile, rfile, eps, "Stat-DML", "Stat-R");
+			
+			//check optimizer summary (budget, costs, and fallback to default plan)
+			Summary summary = GlobalOptimizerWrapper.getLastSummary();
+			Assert.assertNotNull("Missing global optimization summary.", summary);
+			boolean budget = conf.equals(TEST_CONF_BUDGET);
+			Assert.assertEquals("Wrong budget state.", budget, summary.isBudgetExceeded());
+			if( budget )
+				Assert.assertEquals("Wrong time budget.", 1, summary.getTimeBudget());
+			Assert.assertTrue("Invalid costs of initial plan.", summary.getCostsInitial() > 0);
+			Assert.assertTrue("Chosen plan more expensive than default plan.", 
+				summary.getCostsOptimal() <= summary.getCostsInitial());
+			if( summary.isFallback() ) {
+				Assert.assertEquals("Wrong costs after fallback to default plan.", 
+					summary.getCostsInitial(), summary.getCostsOptimal(), eps * summary.getCostsInitial());
+			}
 		}
 		finally
 		{
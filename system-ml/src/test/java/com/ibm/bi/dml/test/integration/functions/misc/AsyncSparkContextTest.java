@@ -0,0 +1,103 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.misc;
+
+import java.util.HashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.api.DMLScript;
+import com.ibm.bi.dml.api.DMLScript.RUNTIME_PLATFORM;
+import com.ibm.bi.dml.runtime.controlprogram.context.SparkExecutionContext;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixValue.CellIndex;
+import com.ibm.bi.dml.test.integration.AutomatedTestBase;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.test.utils.TestUtils;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Tests that the asynchronous spark context creation overlaps the context 
+ * startup with the cp instructions preceding the first spark instruction, 
+ * i.e., the driver waits less than the total creation time.
+ * 
+ */
+public class AsyncSparkContextTest extends AutomatedTestBase 
+{
+	
+	private static final String TEST_NAME1 = "AsyncSparkContext";
+	private static final String TEST_DIR = "functions/misc/";
+	
+	private static final int iters = 100000;
+	private static final int dim = 10;
+	
+	@Override
+	public void setUp() 
+	{
+		TestUtils.clearAssertionInformation();
+		addTestConfiguration( TEST_NAME1, new TestConfiguration(TEST_DIR, TEST_NAME1, new String[] { "R" })   );
+	}
+
+	@Test
+	public void testAsyncSparkContextOverlap()  {
+		runAsyncSparkContextTest( TEST_NAME1 );
+	}
+	
+	/**
+	 * 
+	 * @param testname
+	 */
+	private void runAsyncSparkContextTest( String testname )
+	{	
+		RUNTIME_PLATFORM platformOld = rtplatform;
+		boolean sparkConfigOld = DMLScript.USE_LOCAL_SPARK_CONFIG;
+		rtplatform = RUNTIME_PLATFORM.SPARK;
+		DMLScript.USE_LOCAL_SPARK_CONFIG = true;
+		
+		try
+		{
+			TestConfiguration config = getTestConfiguration(testname);
+			loadTestConfiguration(config);
+			
+			String HOME = SCRIPT_DIR + TEST_DIR;
+			fullDMLScriptName = HOME + testname + ".dml";
+			programArgs = new String[]{ "-stats", "-args", String.valueOf(iters), 
+				String.valueOf(dim), HOME + OUTPUT_DIR + "R" };
+			
+			runTest(true, false, null, -1); 
+			
+			//check correct result
+			HashMap<CellIndex, Double> dmlfile = readDMLMatrixFromHDFS("R");
+			double s = ((double)iters) * (iters+1) / 2;
+			Assert.assertEquals(s * dim * dim, dmlfile.get(new CellIndex(1,1)), 1e-8);
+			
+			//check overlapped spark context creation
+			Assert.assertTrue("Spark context not created asynchronously.", 
+				SparkExecutionContext.isAsyncSparkContextCreation());
+			Assert.assertTrue("Spark context creation time not measured.", 
+				Statistics.getSparkCtxCreateTime() > 0);
+			Assert.assertTrue("No overlap of cp instructions and spark context creation.", 
+				Statistics.getSparkCtxWaitTime() < Statistics.getSparkCtxCreateTime());
+		}
+		finally
+		{
+			rtplatform = platformOld;
+			DMLScript.USE_LOCAL_SPARK_CONFIG = sparkConfigOld;
+		}
+	}
+}
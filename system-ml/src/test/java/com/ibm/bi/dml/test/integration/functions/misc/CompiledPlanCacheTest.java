@@ -0,0 +1,172 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.misc;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixValue.CellIndex;
+import com.ibm.bi.dml.runtime.util.LocalFileUtils;
+import com.ibm.bi.dml.test.integration.AutomatedTestBase;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.test.utils.TestUtils;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Tests the reuse of compiled runtime programs across invocations of the same
+ * script via the on-disk compiled plan cache (incl the exclusion of scripts with
+ * imports), as well as sequential compilation.
+ * 
+ */
+public class CompiledPlanCacheTest extends AutomatedTestBase 
+{
+	
+	private static final String TEST_NAME1 = "CompiledPlanCache";
+	private static final String TEST_NAME2 = "PackageFunCall1";
+	private static final String TEST_NAME0 = "PackageFunLib";
+	private static final String TEST_DIR = "functions/misc/";
+	private static final String TEST_CONF = "SystemML-config-plancache.xml";
+	
+	private static final int rows = 100;
+	private static final int cols = 20;
+	private static final int iters = 5;
+	private static final double eps = Math.pow(10, -10);
+	
+	@Override
+	public void setUp() 
+	{
+		TestUtils.clearAssertionInformation();
+		addTestConfiguration( TEST_NAME1, new TestConfiguration(TEST_DIR, TEST_NAME1, new String[] { "R" })   );
+		addTestConfiguration( TEST_NAME2, new TestConfiguration(TEST_DIR, TEST_NAME2, new String[] {})   );
+	}
+
+	@Test
+	public void testCompiledPlanCache()  {
+		runCompiledPlanCacheTest( TEST_NAME1, true, true );
+	}
+	
+	@Test
+	public void testNoCompiledPlanCache()  {
+		runCompiledPlanCacheTest( TEST_NAME1, false, true );
+	}
+	
+	@Test
+	public void testNoCompiledPlanCacheSequentialCompile()  {
+		runCompiledPlanCacheTest( TEST_NAME1, false, false );
+	}
+	
+	@Test
+	public void testNoCompiledPlanCacheImports()  {
+		runCompiledPlanCacheImportTest( TEST_NAME2 );
+	}
+	
+	/**
+	 * 
+	 * @param testname
+	 * @param cache
+	 * @param parCompile
+	 */
+	private void runCompiledPlanCacheTest( String testname, boolean cache, boolean parCompile )
+	{	
+		boolean oldFlag = OptimizerUtils.ALLOW_PARALLEL_COMPILATION;
+		
+		try
+		{
+			TestConfiguration config = getTestConfiguration(testname);
+			
+			String HOME = SCRIPT_DIR + TEST_DIR;
+			fullDMLScriptName = HOME + testname + ".dml";
+			programArgs = cache ? 
+				new String[]{ "-config="+HOME+TEST_CONF, "-stats", "-args", 
+					HOME + INPUT_DIR + "X", String.valueOf(iters), HOME + OUTPUT_DIR + "R" } :
+				new String[]{ "-stats", "-args", 
+					HOME + INPUT_DIR + "X", String.valueOf(iters), HOME + OUTPUT_DIR + "R" };
+			fullRScriptName = HOME + testname + ".R";
+			rCmd = "Rscript" + " " + fullRScriptName + " " +
+			          HOME + INPUT_DIR + " " + iters + " " + HOME + EXPECTED_DIR;			
+			loadTestConfiguration(config);
+
+			OptimizerUtils.ALLOW_PARALLEL_COMPILATION = parCompile;
+
+			double[][] X = getRandomMatrix(rows, cols, -1, 1, 1.0, 7);
+			writeInputMatrixWithMTD("X", X, true);
+			
+			//run twice, where the second run reuses the cached plan (if enabled)
+			runTest(true, false, null, -1); 
+			runTest(true, false, null, -1); 
+			runRScript(true); 
+			
+			//compare matrices 
+			HashMap<CellIndex, Double> dmlfile = readDMLMatrixFromHDFS("R");
+			HashMap<CellIndex, Double> rfile  = readRMatrixFromFS("R");
+			TestUtils.compareMatrices(dmlfile, rfile, eps, "Stat-DML", "Stat-R");
+			
+			//check for plan cache hit of second run
+			Assert.assertEquals("Unexpected compiled plan cache hit.", 
+					cache ? Boolean.TRUE : null, Statistics.getCompiledPlanCacheHit());
+		}
+		finally
+		{
+			OptimizerUtils.ALLOW_PARALLEL_COMPILATION = oldFlag;
+		}
+	}	
+	
+	/**
+	 * 
+	 * @param testname
+	 */
+	private void runCompiledPlanCacheImportTest( String testname )
+	{
+		//copy dml scripts to current dir (for relative import path)
+		String HOME = SCRIPT_DIR + TEST_DIR;
+		String nameCall = testname + ".dml";
+		String nameLib = TEST_NAME0 + ".dml";
+		
+		try
+		{
+			FileUtils.copyFile(new File(HOME+nameCall), new File(nameCall));
+			FileUtils.copyFile(new File(HOME+nameLib), new File(nameLib));
+			
+			TestConfiguration config = getTestConfiguration(testname);
+			fullDMLScriptName = nameCall;
+			programArgs = new String[]{ "-config="+HOME+TEST_CONF, "-stats" };
+			loadTestConfiguration(config);
+			
+			//run twice, where scripts with imports are never cached
+			runTest(true, false, null, -1); 
+			runTest(true, false, null, -1); 
+			
+			Assert.assertEquals("Unexpected compiled plan cache hit.", 
+					Boolean.FALSE, Statistics.getCompiledPlanCacheHit());
+		}
+		catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		finally
+		{
+			LocalFileUtils.deleteFileIfExists(nameCall);
+			LocalFileUtils.deleteFileIfExists(nameLib);
+		}
+	}
+}
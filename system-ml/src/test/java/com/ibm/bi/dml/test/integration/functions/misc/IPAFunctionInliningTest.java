@@ -0,0 +1,176 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.misc;
+
+import java.util.HashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixValue.CellIndex;
+import com.ibm.bi.dml.test.integration.AutomatedTestBase;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.test.utils.TestUtils;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Tests the IPA inlining of a small function (single statement block after branch 
+ * removal) that is called in a loop, and the creation of size-specialized function 
+ * copies for a function that is called with inputs of different sizes.
+ * 
+ */
+public class IPAFunctionInliningTest extends AutomatedTestBase 
+{
+	
+	private static final String TEST_NAME1 = "IPAFunctionInlining";
+	private static final String TEST_NAME2 = "IPAFunctionSpecialization";
+	private static final String TEST_DIR = "functions/misc/";
+	
+	private static final int rows = 100;
+	private static final int cols = 50;
+	private static final int iters = 10;
+	private static final double eps = Math.pow(10, -10);
+	
+	@Override
+	public void setUp() 
+	{
+		TestUtils.clearAssertionInformation();
+		addTestConfiguration( TEST_NAME1, new TestConfiguration(TEST_DIR, TEST_NAME1, new String[] { "R" })   );
+		addTestConfiguration( TEST_NAME2, new TestConfiguration(TEST_DIR, TEST_NAME2, new String[] { "R" })   );
+	}
+
+	@Test
+	public void testFunctionInlining()  {
+		testIPAFunctionInlining( TEST_NAME1, true );
+	}
+	
+	@Test
+	public void testNoFunctionInlining()  {
+		testIPAFunctionInlining( TEST_NAME1, false );
+	}
+	
+	@Test
+	public void testFunctionSpecialization()  {
+		testIPAFunctionSpecialization( TEST_NAME2, true );
+	}
+	
+	@Test
+	public void testNoFunctionSpecialization()  {
+		testIPAFunctionSpecialization( TEST_NAME2, false );
+	}
+	
+	/**
+	 * 
+	 * @param testname
+	 * @param inlining
+	 */
+	private void testIPAFunctionInlining( String testname, boolean inlining )
+	{	
+		boolean oldFlag = OptimizerUtils.ALLOW_IPA_FUNCTION_INLINING;
+		
+		try
+		{
+			TestConfiguration config = getTestConfiguration(testname);
+			
+			String HOME = SCRIPT_DIR + TEST_DIR;
+			fullDMLScriptName = HOME + testname + ".dml";
+			programArgs = new String[]{ "-stats","-args", 
+					                  HOME + INPUT_DIR + "X",
+					                  String.valueOf(iters),
+					                  String.valueOf(0),
+					                  HOME + OUTPUT_DIR + "R" };
+			fullRScriptName = HOME + testname + ".R";
+			rCmd = "Rscript" + " " + fullRScriptName + " " +
+			          HOME + INPUT_DIR + " " + iters + " " + HOME + EXPECTED_DIR;			
+			loadTestConfiguration(config);
+
+			OptimizerUtils.ALLOW_IPA_FUNCTION_INLINING = inlining;
+
+			double[][] X = getRandomMatrix(rows, cols, -1, 1, 1.0, 7);
+			writeInputMatrixWithMTD("X", X, true);
+			
+			runTest(true, false, null, -1); 
+			runRScript(true); 
+			
+			//compare matrices 
+			HashMap<CellIndex, Double> dmlfile = readDMLMatrixFromHDFS("R");
+			HashMap<CellIndex, Double> rfile  = readRMatrixFromFS("R");
+			TestUtils.compareMatrices(dmlfile, rfile, eps, "Stat-DML", "Stat-R");
+			
+			//check that the function is inlined or called in every iteration
+			Assert.assertEquals("Unexpected number of function calls.", 
+					inlining ? 0 : iters, Statistics.getCPHeavyHitterCount("foo"));
+		}
+		finally
+		{
+			OptimizerUtils.ALLOW_IPA_FUNCTION_INLINING = oldFlag;
+		}
+	}
+	
+	/**
+	 * 
+	 * @param testname
+	 * @param specialization
+	 */
+	private void testIPAFunctionSpecialization( String testname, boolean specialization )
+	{	
+		boolean oldFlag = OptimizerUtils.ALLOW_IPA_FUNCTION_SPECIALIZATION;
+		
+		try
+		{
+			TestConfiguration config = getTestConfiguration(testname);
+			
+			String HOME = SCRIPT_DIR + TEST_DIR;
+			fullDMLScriptName = HOME + testname + ".dml";
+			programArgs = new String[]{ "-stats","-args", 
+					                  HOME + INPUT_DIR + "X",
+					                  HOME + INPUT_DIR + "Y",
+					                  HOME + OUTPUT_DIR + "R" };
+			fullRScriptName = HOME + testname + ".R";
+			rCmd = "Rscript" + " " + fullRScriptName + " " +
+			          HOME + INPUT_DIR + " " + HOME + EXPECTED_DIR;			
+			loadTestConfiguration(config);
+
+			OptimizerUtils.ALLOW_IPA_FUNCTION_SPECIALIZATION = specialization;
+
+			double[][] X = getRandomMatrix(rows, cols, -1, 1, 1.0, 7);
+			writeInputMatrixWithMTD("X", X, true);
+			double[][] Y = getRandomMatrix(2*rows, cols, -1, 1, 0.1, 3);
+			writeInputMatrixWithMTD("Y", Y, true);
+			
+			runTest(true, false, null, -1); 
+			runRScript(true); 
+			
+			//compare matrices 
+			HashMap<CellIndex, Double> dmlfile = readDMLMatrixFromHDFS("R");
+			HashMap<CellIndex, Double> rfile  = readRMatrixFromFS("R");
+			TestUtils.compareMatrices(dmlfile, rfile, eps, "Stat-DML", "Stat-R");
+			
+			//check that the second call uses a specialized function copy
+			Assert.assertEquals("Unexpected number of function calls.", 
+					specialization ? 1 : 2, Statistics.getCPHeavyHitterCount("foo"));
+			Assert.assertEquals("Unexpected number of specialized function calls.", 
+					specialization ? 1 : 0, Statistics.getCPHeavyHitterCount("foo_spec1"));
+		}
+		finally
+		{
+			OptimizerUtils.ALLOW_IPA_FUNCTION_SPECIALIZATION = oldFlag;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.misc;
+
+import java.util.HashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.api.DMLScript;
+import com.ibm.bi.dml.conf.ConfigurationManager;
+import com.ibm.bi.dml.conf.DMLConfig;
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.parser.AParserWrapper;
+import com.ibm.bi.dml.parser.DMLProgram;
+import com.ibm.bi.dml.parser.DMLTranslator;
+import com.ibm.bi.dml.runtime.controlprogram.Program;
+import com.ibm.bi.dml.runtime.util.MapReduceTool;
+import com.ibm.bi.dml.test.integration.AutomatedTestBase;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.test.utils.TestUtils;
+import com.ibm.bi.dml.utils.Explain;
+
+/**
+ * Tests that the parallel construction of hops and lops for programs with many
+ * function and top-level blocks produces the same runtime plan as sequential
+ * compilation (modulo the names of temporary variables and files).
+ * 
+ */
+public class ParallelCompilationTest extends AutomatedTestBase 
+{
+	
+	private static final String TEST_NAME1 = "ParallelCompilation";
+	private static final String TEST_DIR = "functions/misc/";
+	
+	private static final int rows = 100;
+	private static final int cols = 20;
+	
+	//temporary variable and file names (ids depend on the order of construction)
+	private static final Pattern TMP_NAMES = Pattern.compile("(_[a-zA-Z]*Var|temp)[0-9]+");
+	
+	@Override
+	public void setUp() 
+	{
+		TestUtils.clearAssertionInformation();
+		addTestConfiguration( TEST_NAME1, new TestConfiguration(TEST_DIR, TEST_NAME1, new String[] {})   );
+	}
+
+	@Test
+	public void testParallelCompilationPlanEquivalence()  {
+		runParallelCompilationTest( TEST_NAME1 );
+	}
+	
+	/**
+	 * 
+	 * @param testname
+	 */
+	private void runParallelCompilationTest( String testname )
+	{	
+		boolean oldFlag = OptimizerUtils.ALLOW_PARALLEL_COMPILATION;
+		
+		try
+		{
+			TestConfiguration config = getTestConfiguration(testname);
+			loadTestConfiguration(config);
+			
+			DMLConfig conf = new DMLConfig(getCurConfigFile().getPath());
+			ConfigurationManager.setConfig(conf);
+			
+			String HOME = SCRIPT_DIR + TEST_DIR;
+			String script = MapReduceTool.readStringFromHDFSFile(HOME + testname + ".dml");
+			HashMap<String, String> argVals = new HashMap<String,String>();
+			argVals.put("$1", String.valueOf(rows));
+			argVals.put("$2", String.valueOf(cols));
+			argVals.put("$3", output("R1"));
+			argVals.put("$4", output("R2"));
+			argVals.put("$5", output("R3"));
+			
+			//compile the same script with parallel and sequential hop/lop construction
+			OptimizerUtils.ALLOW_PARALLEL_COMPILATION = true;
+			String planPar = normalize(Explain.explain(compile(script, argVals, conf)));
+			OptimizerUtils.ALLOW_PARALLEL_COMPILATION = false;
+			String planSeq = normalize(Explain.explain(compile(script, argVals, conf)));
+			
+			Assert.assertEquals("Different plans of parallel and sequential compilation.", planSeq, planPar);
+		}
+		catch(Exception ex)
+		{
+			throw new RuntimeException(ex);
+		}
+		finally
+		{
+			OptimizerUtils.ALLOW_PARALLEL_COMPILATION = oldFlag;
+		}
+	}
+	
+	/**
+	 * 
+	 * @param script
+	 * @param argVals
+	 * @param conf
+	 * @return
+	 * @throws Exception
+	 */
+	private static Program compile( String script, HashMap<String, String> argVals, DMLConfig conf ) 
+		throws Exception
+	{
+		AParserWrapper parser = AParserWrapper.createParser(false);
+		DMLProgram prog = parser.parse(DMLScript.DML_FILE_PATH_ANTLR_PARSER, script, argVals);
+		DMLTranslator dmlt = new DMLTranslator(prog);
+		dmlt.liveVariableAnalysis(prog);
+		dmlt.validateParseTree(prog);
+		dmlt.constructHops(prog);
+		dmlt.rewriteHopsDAG(prog);
+		dmlt.constructLops(prog);
+		return prog.getRuntimeProgram(conf);
+	}
+	
+	/**
+	 * Renames temporary variables and files by their order of first occurrence.
+	 * 
+	 * @param plan
+	 * @return
+	 */
+	private static String normalize( String plan )
+	{
+		HashMap<String, String> names = new HashMap<String, String>();
+		StringBuffer sb = new StringBuffer();
+		Matcher m = TMP_NAMES.matcher(plan);
+		while( m.find() ) {
+			String name = names.get(m.group());
+			if( name == null ) {
+				name = m.group(1) + names.size();
+				names.put(m.group(), name);
+			}
+			m.appendReplacement(sb, name);
+		}
+		m.appendTail(sb);
+		return sb.toString();
+	}
+}
@@ -0,0 +1,132 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.misc;
+
+import java.util.HashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.api.DMLScript;
+import com.ibm.bi.dml.api.DMLScript.RUNTIME_PLATFORM;
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.lops.Checkpoint;
+import com.ibm.bi.dml.runtime.instructions.Instruction;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixValue.CellIndex;
+import com.ibm.bi.dml.test.integration.AutomatedTestBase;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.test.utils.TestUtils;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Tests the cost-based selection of checkpoint storage levels for read-only 
+ * variables of for loops with known number of iterations, where single-use 
+ * checkpoints (single iteration) are not persisted at all.
+ * 
+ */
+public class RewriteLoopCheckpointingTest extends AutomatedTestBase 
+{
+	
+	private static final String TEST_NAME1 = "RewriteLoopCheckpointing";
+	private static final String TEST_DIR = "functions/misc/";
+	
+	private static final int rows = 100;
+	private static final int cols = 50;
+	private static final double eps = Math.pow(10, -10);
+	
+	private static final String OPCODE = Instruction.SP_INST_PREFIX + Checkpoint.OPCODE;
+	
+	@Override
+	public void setUp() 
+	{
+		TestUtils.clearAssertionInformation();
+		addTestConfiguration( TEST_NAME1, new TestConfiguration(TEST_DIR, TEST_NAME1, new String[] { "R" })   );
+	}
+
+	@Test
+	public void testLoopCheckpointingSingleUse()  {
+		testRewriteLoopCheckpointing( TEST_NAME1, 1, true );
+	}
+	
+	@Test
+	public void testLoopCheckpointingMultiUse()  {
+		testRewriteLoopCheckpointing( TEST_NAME1, 5, true );
+	}
+	
+	@Test
+	public void testLoopCheckpointingSingleUseNoCostBased()  {
+		testRewriteLoopCheckpointing( TEST_NAME1, 1, false );
+	}
+	
+	/**
+	 * 
+	 * @param testname
+	 * @param iters
+	 * @param costbased
+	 */
+	private void testRewriteLoopCheckpointing( String testname, int iters, boolean costbased )
+	{	
+		boolean oldFlag = OptimizerUtils.ALLOW_COSTBASED_CHECKPOINTING;
+		RUNTIME_PLATFORM platformOld = rtplatform;
+		boolean sparkConfigOld = DMLScript.USE_LOCAL_SPARK_CONFIG;
+		
+		try
+		{
+			TestConfiguration config = getTestConfiguration(testname);
+			
+			String HOME = SCRIPT_DIR + TEST_DIR;
+			fullDMLScriptName = HOME + testname + ".dml";
+			programArgs = new String[]{ "-stats","-args", 
+					                  HOME + INPUT_DIR + "X",
+					                  String.valueOf(iters),
+					                  HOME + OUTPUT_DIR + "R" };
+			loadTestConfiguration(config);
+
+			OptimizerUtils.ALLOW_COSTBASED_CHECKPOINTING = costbased;
+			rtplatform = RUNTIME_PLATFORM.SPARK;
+			DMLScript.USE_LOCAL_SPARK_CONFIG = true;
+
+			double[][] X = getRandomMatrix(rows, cols, -1, 1, 1.0, 7);
+			writeInputMatrixWithMTD("X", X, true);
+			
+			runTest(true, false, null, -1); 
+			
+			//compare result with sum(X) * sum(1:iters)
+			double sum = 0;
+			for( int i=0; i<rows; i++ )
+				for( int j=0; j<cols; j++ )
+					sum += X[i][j];
+			HashMap<CellIndex, Double> dmlfile = readDMLMatrixFromHDFS("R");
+			Assert.assertEquals("Wrong result.", sum * iters * (iters+1) / 2, 
+					dmlfile.get(new CellIndex(1,1)), eps);
+			
+			//check that single-use checkpoints are only persisted w/o cost-based selection
+			boolean persisted = Statistics.getCPHeavyHitterCount(OPCODE) > 0;
+			if( costbased && iters <= 1 )
+				Assert.assertFalse("Unnecessary checkpoint of single-use variable.", persisted);
+			else
+				Assert.assertTrue("Missing checkpoint of multi-use variable.", persisted);
+		}
+		finally
+		{
+			OptimizerUtils.ALLOW_COSTBASED_CHECKPOINTING = oldFlag;
+			rtplatform = platformOld;
+			DMLScript.USE_LOCAL_SPARK_CONFIG = sparkConfigOld;
+		}
+	}	
+}
@@ -0,0 +1,190 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.misc;
+
+import java.util.HashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixValue.CellIndex;
+import com.ibm.bi.dml.test.integration.AutomatedTestBase;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.test.utils.TestUtils;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Tests the hoisting of loop-invariant operations (tsmm, colMeans, and a
+ * transpose-matrix multiplication over a read-only input) out of a for loop,
+ * as well as of a solve out of a guarded while loop, which must not be executed
+ * if the loop predicate is false on entry (where solve would fail).
+ * 
+ */
+public class RewriteLoopInvariantCodeMotionTest extends AutomatedTestBase 
+{
+	
+	private static final String TEST_NAME1 = "RewriteLoopInvariantCodeMotion";
+	private static final String TEST_NAME2 = "RewriteLoopInvariantCodeMotion2";
+	private static final String TEST_DIR = "functions/misc/";
+	
+	private static final int rows = 1000;
+	private static final int cols = 50;
+	private static final int iters = 10;
+	private static final double eps = Math.pow(10, -10);
+	
+	@Override
+	public void setUp() 
+	{
+		TestUtils.clearAssertionInformation();
+		addTestConfiguration( TEST_NAME1, new TestConfiguration(TEST_DIR, TEST_NAME1, new String[] { "R" })   );
+		addTestConfiguration( TEST_NAME2, new TestConfiguration(TEST_DIR, TEST_NAME2, new String[] { "R" })   );
+	}
+
+	@Test
+	public void testLoopInvariantCodeMotion()  {
+		testRewriteLoopInvariantCodeMotion( TEST_NAME1, true );
+	}
+	
+	@Test
+	public void testNoLoopInvariantCodeMotion()  {
+		testRewriteLoopInvariantCodeMotion( TEST_NAME1, false );
+	}
+	
+	@Test
+	public void testLoopInvariantCodeMotionWhile()  {
+		testRewriteLoopInvariantCodeMotionWhile( TEST_NAME2, true, iters );
+	}
+	
+	@Test
+	public void testLoopInvariantCodeMotionWhileNoIterations()  {
+		testRewriteLoopInvariantCodeMotionWhile( TEST_NAME2, true, 0 );
+	}
+	
+	@Test
+	public void testNoLoopInvariantCodeMotionWhileNoIterations()  {
+		testRewriteLoopInvariantCodeMotionWhile( TEST_NAME2, false, 0 );
+	}
+	
+	/**
+	 * 
+	 * @param testname
+	 * @param rewrites
+	 */
+	private void testRewriteLoopInvariantCodeMotion( String testname, boolean rewrites )
+	{	
+		boolean oldFlag = OptimizerUtils.ALLOW_LOOP_INVARIANT_CODE_MOTION;
+		
+		try
+		{
+			TestConfiguration config = getTestConfiguration(testname);
+			
+			String HOME = SCRIPT_DIR + TEST_DIR;
+			fullDMLScriptName = HOME + testname + ".dml";
+			programArgs = new String[]{ "-stats","-args", 
+					                  HOME + INPUT_DIR + "X",
+					                  HOME + INPUT_DIR + "y",
+					                  String.valueOf(iters),
+					                  HOME + OUTPUT_DIR + "R" };
+			fullRScriptName = HOME + testname + ".R";
+			rCmd = "Rscript" + " " + fullRScriptName + " " +
+			          HOME + INPUT_DIR + " " + iters + " " + HOME + EXPECTED_DIR;			
+			loadTestConfiguration(config);
+
+			OptimizerUtils.ALLOW_LOOP_INVARIANT_CODE_MOTION = rewrites;
+
+			double[][] X = getRandomMatrix(rows, cols, -1, 1, 1.0, 3);
+			writeInputMatrixWithMTD("X", X, true);
+			
+			double[][] y = getRandomMatrix(rows, 1, -1, 1, 1.0, 5);
+			writeInputMatrixWithMTD("y", y, true);
+			
+			runTest(true, false, null, -1); 
+			runRScript(true); 
+			
+			//compare matrices 
+			HashMap<CellIndex, Double> dmlfile = readDMLMatrixFromHDFS("R");
+			HashMap<CellIndex, Double> rfile  = readRMatrixFromFS("R");
+			TestUtils.compareMatrices(dmlfile, rfile, eps, "Stat-DML", "Stat-R");
+			
+			//check that tsmm is executed once (hoisted) or in every iteration
+			Assert.assertEquals("Unexpected number of tsmm executions.", 
+					rewrites ? 1 : iters, Statistics.getCPHeavyHitterCount("tsmm"));
+		}
+		finally
+		{
+			OptimizerUtils.ALLOW_LOOP_INVARIANT_CODE_MOTION = oldFlag;
+		}
+	}
+	
+	/**
+	 * 
+	 * @param testname
+	 * @param rewrites
+	 * @param numIter number of iterations (for zero, solve is executed over a singular matrix)
+	 */
+	private void testRewriteLoopInvariantCodeMotionWhile( String testname, boolean rewrites, int numIter )
+	{	
+		boolean oldFlag = OptimizerUtils.ALLOW_LOOP_INVARIANT_CODE_MOTION;
+		String lambda = (numIter > 0) ? "1" : "0";
+		
+		try
+		{
+			TestConfiguration config = getTestConfiguration(testname);
+			
+			String HOME = SCRIPT_DIR + TEST_DIR;
+			fullDMLScriptName = HOME + testname + ".dml";
+			programArgs = new String[]{ "-stats","-args", 
+					                  HOME + INPUT_DIR + "X",
+					                  HOME + INPUT_DIR + "y",
+					                  lambda,
+					                  String.valueOf(numIter),
+					                  HOME + OUTPUT_DIR + "R" };
+			fullRScriptName = HOME + testname + ".R";
+			rCmd = "Rscript" + " " + fullRScriptName + " " +
+			          HOME + INPUT_DIR + " " + lambda + " " + numIter + " " + HOME + EXPECTED_DIR;			
+			loadTestConfiguration(config);
+
+			OptimizerUtils.ALLOW_LOOP_INVARIANT_CODE_MOTION = rewrites;
+
+			double[][] X = getRandomMatrix(rows, cols, -1, 1, 1.0, 3);
+			writeInputMatrixWithMTD("X", X, true);
+			
+			double[][] y = getRandomMatrix(rows, 1, -1, 1, 1.0, 5);
+			writeInputMatrixWithMTD("y", y, true);
+			
+			runTest(true, false, null, -1); 
+			runRScript(true); 
+			
+			//compare matrices 
+			HashMap<CellIndex, Double> dmlfile = readDMLMatrixFromHDFS("R");
+			HashMap<CellIndex, Double> rfile  = readRMatrixFromFS("R");
+			TestUtils.compareMatrices(dmlfile, rfile, eps, "Stat-DML", "Stat-R");
+			
+			//check that solve is executed once (hoisted), never if the loop does 
+			//not execute any iteration (guarded), or in every iteration
+			int expected = (numIter == 0) ? 0 : rewrites ? 1 : numIter;
+			Assert.assertEquals("Unexpected number of solve executions.", 
+					expected, Statistics.getCPHeavyHitterCount("solve"));
+		}
+		finally
+		{
+			OptimizerUtils.ALLOW_LOOP_INVARIANT_CODE_MOTION = oldFlag;
+		}
+	}
+}
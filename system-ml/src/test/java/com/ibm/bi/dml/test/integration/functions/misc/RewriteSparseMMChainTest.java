@@ -0,0 +1,227 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.misc;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.hops.AggBinaryOp;
+import com.ibm.bi.dml.hops.DataOp;
+import com.ibm.bi.dml.hops.Hop;
+import com.ibm.bi.dml.hops.Hop.DataOpTypes;
+import com.ibm.bi.dml.hops.Hop.OpOp1;
+import com.ibm.bi.dml.hops.HopsException;
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.hops.rewrite.HopRewriteUtils;
+import com.ibm.bi.dml.hops.rewrite.ProgramRewriteStatus;
+import com.ibm.bi.dml.hops.rewrite.RewriteMatrixMultChainOptimization;
+import com.ibm.bi.dml.parser.Expression.DataType;
+import com.ibm.bi.dml.parser.Expression.ValueType;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixValue.CellIndex;
+import com.ibm.bi.dml.test.integration.AutomatedTestBase;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.test.utils.TestUtils;
+
+/**
+ * Tests the sparsity-aware ordering of matrix multiplication chains
+ * with an ultra-sparse selection matrix, with and without sparsity awareness,
+ * end-to-end as well as the chosen order and recompilation flag at hop level.
+ * 
+ */
+public class RewriteSparseMMChainTest extends AutomatedTestBase 
+{
+	
+	private static final String TEST_NAME1 = "RewriteSparseMMChain";
+	private static final String TEST_DIR = "functions/misc/";
+	
+	private static final int dim1 = 100;
+	private static final int dim2 = 1000;
+	private static final int dim3 = 10;
+	private static final double eps = Math.pow(10, -10);
+	
+	@Override
+	public void setUp() 
+	{
+		TestUtils.clearAssertionInformation();
+		addTestConfiguration( TEST_NAME1, new TestConfiguration(TEST_DIR, TEST_NAME1, new String[] { "R" })   );
+	}
+
+	@Test
+	public void testRewriteSparseMMChainSparsityAware()  {
+		testRewriteSparseMMChain( TEST_NAME1, true );
+	}
+	
+	@Test
+	public void testRewriteSparseMMChainDimsOnly()  {
+		testRewriteSparseMMChain( TEST_NAME1, false );
+	}
+	
+	@Test
+	public void testRewriteSparseMMChainOrderSparsityAware() throws HopsException  {
+		//(P %*% X) %*% V because P is ultra-sparse
+		Hop root = testRewriteSparseMMChainOrder( true, dim1, true, false );
+		Assert.assertTrue("Wrong order.", root.getInput().get(0) instanceof AggBinaryOp);
+		Assert.assertFalse("Unnecessary recompile.", root.requiresRecompile());
+	}
+	
+	@Test
+	public void testRewriteSparseMMChainOrderDimsOnly() throws HopsException  {
+		//P %*% (X %*% V) because of smaller dimensions
+		Hop root = testRewriteSparseMMChainOrder( false, dim1, true, false );
+		Assert.assertTrue("Wrong order.", root.getInput().get(1) instanceof AggBinaryOp);
+		Assert.assertFalse("Unnecessary recompile.", root.requiresRecompile());
+	}
+	
+	@Test
+	public void testRewriteSparseMMChainOrderUnknownNnz() throws HopsException  {
+		//P %*% (X %*% V) until the nnz of P is known
+		Hop root = testRewriteSparseMMChainOrder( true, -1, true, false );
+		Assert.assertTrue("Wrong order.", root.getInput().get(1) instanceof AggBinaryOp);
+		Assert.assertTrue("Missing recompile.", root.requiresRecompile());
+	}
+	
+	@Test
+	public void testRewriteSparseMMChainOrderUnknownDims() throws HopsException  {
+		//no chain optimization without known dims, hence no recompile for sparsity
+		Hop root = testRewriteSparseMMChainOrder( true, -1, false, false );
+		Assert.assertTrue("Wrong order.", root.getInput().get(0) instanceof AggBinaryOp);
+		Assert.assertFalse("Unnecessary recompile.", root.requiresRecompile());
+	}
+	
+	@Test
+	public void testRewriteSparseMMChainOrderUnknownNnzIntermediate() throws HopsException  {
+		//P %*% (X %*% V) because the nnz of the intermediate abs(P) is unknown,
+		//but no recompile because its nnz would be unknown after recompile too
+		Hop root = testRewriteSparseMMChainOrder( true, dim1, true, true );
+		Assert.assertTrue("Wrong order.", root.getInput().get(1) instanceof AggBinaryOp);
+		Assert.assertFalse("Unnecessary recompile.", root.requiresRecompile());
+	}
+	
+	/**
+	 * 
+	 * @param testname
+	 * @param sparsityAware
+	 */
+	private void testRewriteSparseMMChain( String testname, boolean sparsityAware )
+	{	
+		boolean oldFlag = OptimizerUtils.ALLOW_SPARSITY_AWARE_MMCHAIN_OPT;
+		
+		try
+		{
+			TestConfiguration config = getTestConfiguration(testname);
+			
+			String HOME = SCRIPT_DIR + TEST_DIR;
+			fullDMLScriptName = HOME + testname + ".dml";
+			programArgs = new String[]{ "-stats","-args", 
+					                  HOME + INPUT_DIR + "P",
+					                  HOME + INPUT_DIR + "X",
+					                  HOME + INPUT_DIR + "V",
+					                  HOME + OUTPUT_DIR + "R" };
+			fullRScriptName = HOME + testname + ".R";
+			rCmd = "Rscript" + " " + fullRScriptName + " " +
+			          HOME + INPUT_DIR + " " + HOME + EXPECTED_DIR;			
+			loadTestConfiguration(config);
+
+			OptimizerUtils.ALLOW_SPARSITY_AWARE_MMCHAIN_OPT = sparsityAware;
+
+			//selection matrix w/ a single non-zero per row
+			double[][] P = new double[dim1][dim2];
+			Random rand = new Random(7);
+			for( int i=0; i<dim1; i++ )
+				P[i][rand.nextInt(dim2)] = 1;
+			writeInputMatrixWithMTD("P", P, true);
+			
+			double[][] X = getRandomMatrix(dim2, dim2, -1, 1, 1.0, 3);
+			writeInputMatrixWithMTD("X", X, true);
+			
+			double[][] V = getRandomMatrix(dim2, dim3, -1, 1, 1.0, 5);
+			writeInputMatrixWithMTD("V", V, true);
+			
+			runTest(true, false, null, -1); 
+			runRScript(true); 
+			
+			//compare matrices 
+			HashMap<CellIndex, Double> dmlfile = readDMLMatrixFromHDFS("R");
+			HashMap<CellIndex, Double> rfile  = readRMatrixFromFS("R");
+			TestUtils.compareMatrices(dmlfile, rfile, eps, "Stat-DML", "Stat-R");
+		}
+		finally
+		{
+			OptimizerUtils.ALLOW_SPARSITY_AWARE_MMCHAIN_OPT = oldFlag;
+		}
+	}	
+	
+	/**
+	 * Applies the mm chain optimization to (P %*% X) %*% V, with inputs of the
+	 * same dimensions as the end-to-end test, and returns the root of the chain.
+	 * Optionally, P is replaced by the intermediate abs(P) of unknown nnz.
+	 * 
+	 * @param sparsityAware
+	 * @param nnzP
+	 * @param dimsKnownX
+	 * @param intermP
+	 * @return
+	 * @throws HopsException
+	 */
+	private Hop testRewriteSparseMMChainOrder( boolean sparsityAware, long nnzP, boolean dimsKnownX, boolean intermP ) 
+		throws HopsException
+	{
+		boolean oldFlag = OptimizerUtils.ALLOW_SPARSITY_AWARE_MMCHAIN_OPT;
+		
+		try
+		{
+			OptimizerUtils.ALLOW_SPARSITY_AWARE_MMCHAIN_OPT = sparsityAware;
+			
+			Hop P = createTransientRead("P", dim1, dim2, nnzP);
+			if( intermP ) {
+				P = HopRewriteUtils.createUnary(P, OpOp1.ABS);
+				P.setNnz(-1);
+			}
+			Hop X = createTransientRead("X", dimsKnownX ? dim2 : -1, dimsKnownX ? dim2 : -1, dimsKnownX ? (long)dim2*dim2 : -1);
+			Hop V = createTransientRead("V", dim2, dim3, (long)dim2*dim3);
+			Hop root = HopRewriteUtils.createMatrixMultiply(
+				HopRewriteUtils.createMatrixMultiply(P, X), V);
+			
+			new RewriteMatrixMultChainOptimization()
+				.rewriteHopDAG(root, new ProgramRewriteStatus());
+			
+			return root;
+		}
+		finally
+		{
+			OptimizerUtils.ALLOW_SPARSITY_AWARE_MMCHAIN_OPT = oldFlag;
+		}
+	}
+	
+	/**
+	 * 
+	 * @param name
+	 * @param rows
+	 * @param cols
+	 * @param nnz
+	 * @return
+	 */
+	private static Hop createTransientRead( String name, long rows, long cols, long nnz )
+	{
+		return new DataOp(name, DataType.MATRIX, ValueType.DOUBLE, 
+			DataOpTypes.TRANSIENTREAD, name, rows, cols, nnz, 1000, 1000);
+	}
+}
@@ -82,6 +82,18 @@ public class ParForColwiseDataPartitioningTest extends AutomatedTestBase
 		runParForDataPartitioningTest(PDataPartitioner.LOCAL, PExecMode.LOCAL, false, true);
 	}
 	
+	@Test
+	public void testParForDataPartitioningLocalMemLocalLargeDense() 
+	{
+		runParForDataPartitioningTest(PDataPartitioner.LOCAL_MEM, PExecMode.LOCAL, false, false);
+	}
+
+	@Test
+	public void testParForDataPartitioningLocalMemLocalLargeSparse() 
+	{
+		runParForDataPartitioningTest(PDataPartitioner.LOCAL_MEM, PExecMode.LOCAL, false, true);
+	}
+	
 	@Test
 	public void testParForDataPartitioningLocalRemoteLargeDense() 
 	{
@@ -170,6 +182,18 @@ public class ParForColwiseDataPartitioningTest extends AutomatedTestBase
 		runParForDataPartitioningTest(PDataPartitioner.LOCAL, PExecMode.LOCAL, true, true);
 	}
 	
+	@Test
+	public void testParForDataPartitioningLocalMemLocalSmallDense() 
+	{
+		runParForDataPartitioningTest(PDataPartitioner.LOCAL_MEM, PExecMode.LOCAL, true, false);
+	}
+
+	@Test
+	public void testParForDataPartitioningLocalMemLocalSmallSparse() 
+	{
+		runParForDataPartitioningTest(PDataPartitioner.LOCAL_MEM, PExecMode.LOCAL, true, true);
+	}
+	
 	@Test
 	public void testParForDataPartitioningLocalRemoteSmallDense() 
 	{
@@ -313,6 +337,9 @@ public class ParForColwiseDataPartitioningTest extends AutomatedTestBase
 					else
 						scriptNum = 5;	
 					break; 
+				case LOCAL_MEM: 
+					scriptNum = 10;
+					break;
 				case REMOTE_SPARK: 
 					if( mode==PExecMode.LOCAL ){
 						if( !multiParts )
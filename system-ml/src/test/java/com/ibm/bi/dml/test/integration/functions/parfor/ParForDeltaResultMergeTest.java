@@ -0,0 +1,114 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.parfor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.runtime.controlprogram.ParForProgramBlock;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Tests the delta result merge of result variables that are only modified via left indexing,
+ * with and without delta merge as well as serial and parallel local in-memory result merge.
+ * Besides the results, the test checks that the result merge actually used the delta merge.
+ * 
+ */
+public class ParForDeltaResultMergeTest extends ParForTestBase 
+{
+	
+	private final static String TEST_NAME = "parfor_delta_resultmerge";
+	private final static String TEST_CLASS_DIR = TEST_DIR + ParForDeltaResultMergeTest.class.getSimpleName() + "/";
+	
+	private final static double eps = 1e-8;
+	
+	private final static int rows = 1100;
+	private final static int cols = 37;
+	
+	private final static double sparsity1 = 0.7;
+	private final static double sparsity2 = 0.05;
+	
+	
+	@Override
+	public void setUp() 
+	{
+		addTestConfiguration(TEST_NAME, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME, new String[] { "R" }) );
+	}
+
+	@Test
+	public void testParForDeltaResultMergeDense() 
+	{
+		runParForDeltaResultMergeTest(false, true, true);
+	}
+	
+	@Test
+	public void testParForDeltaResultMergeSparse() 
+	{
+		runParForDeltaResultMergeTest(true, true, true);
+	}
+	
+	@Test
+	public void testParForDeltaResultMergeSerialSparse() 
+	{
+		runParForDeltaResultMergeTest(true, true, false);
+	}
+	
+	@Test
+	public void testParForNoDeltaResultMergeDense() 
+	{
+		runParForDeltaResultMergeTest(false, false, true);
+	}
+	
+	/**
+	 * 
+	 * @param sparse
+	 * @param delta
+	 * @param parallel
+	 */
+	private void runParForDeltaResultMergeTest( boolean sparse, boolean delta, boolean parallel )
+	{	
+		boolean deltaOld = ParForProgramBlock.USE_DELTA_RESULT_MERGE;
+		boolean parallelOld = ParForProgramBlock.USE_PARALLEL_RESULT_MERGE;
+		ParForProgramBlock.USE_DELTA_RESULT_MERGE = delta;
+		ParForProgramBlock.USE_PARALLEL_RESULT_MERGE = parallel;
+		
+		try
+		{
+			setupParForTest(TEST_NAME, TEST_NAME, true, input("X"));
+	
+			//generate input data
+			double[][] X = getRandomMatrix(rows, cols, 0, 1, sparse?sparsity2:sparsity1, 7);
+			writeInputMatrixWithMTD("X", X, true);
+			
+			//run and compare with R
+			runAndCompareParForTest(1, eps);
+			
+			//check type of result merge (single result variable)
+			Assert.assertEquals("Wrong number of delta result merges.", 
+				delta ? 1 : 0, Statistics.getParforDeltaMergeCount());
+			Assert.assertEquals("Wrong number of full result merges.", 
+				delta ? 0 : 1, Statistics.getParforFullMergeCount());
+		}
+		finally
+		{
+			ParForProgramBlock.USE_DELTA_RESULT_MERGE = deltaOld;
+			ParForProgramBlock.USE_PARALLEL_RESULT_MERGE = parallelOld;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.parfor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.runtime.controlprogram.ParForProgramBlock;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.LocalParWorkerController;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.stat.InfrastructureAnalyzer;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Tests the runtime control of the degree of parallelism of local parfor (gradual start
+ * and adjustments according to memory pressure), with and without dynamic parallelism 
+ * in order to compare the results of both plans. The memory budget is constrained such
+ * that all operations of the body fit into memory but less than two concurrent iterations,
+ * which makes the optimizer start with a memory-constrained initial degree of parallelism.
+ * Since the body is recompiled w.r.t. the max degree of parallelism, its operations exceed 
+ * the per-worker budget and are compiled to MR instead of relying on the initial dop.
+ * 
+ */
+public class ParForDynamicParallelismTest extends ParForTestBase 
+{
+	
+	private final static String TEST_NAME = "parfor_dynamic_dop";
+	private final static String TEST_CLASS_DIR = TEST_DIR + ParForDynamicParallelismTest.class.getSimpleName() + "/";
+	
+	private final static double eps = 1e-8;
+	
+	private final static int rows = 2000;
+	private final static int cols = 100;
+	
+	private final static double sparsity1 = 0.7;
+	private final static double sparsity2 = 0.05;
+	
+	
+	@Override
+	public void setUp() 
+	{
+		addTestConfiguration(TEST_NAME, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME, new String[] { "R" }) );
+	}
+
+	@Test
+	public void testParForDynamicParallelismDense() 
+	{
+		runParForDynamicParallelismTest(false, true);
+	}
+	
+	@Test
+	public void testParForDynamicParallelismSparse() 
+	{
+		runParForDynamicParallelismTest(true, true);
+	}
+	
+	@Test
+	public void testParForNoDynamicParallelismDense() 
+	{
+		runParForDynamicParallelismTest(false, false);
+	}
+	
+	@Test
+	public void testParForDynamicParallelismBudgetCap() 
+		throws InterruptedException
+	{
+		//controller w/ relaxed memory (growth) but budget for only two workers 
+		LocalParWorkerController controller = new LocalParWorkerController(8, 1, 2, true, false);
+		try {
+			controller.start();
+			Thread.sleep(2000);
+			int maxK = controller.getMaxDegreeOfParallelism();
+			Assert.assertTrue("Growth beyond compiled budget: "+maxK, maxK >= 1 && maxK <= 2);
+			Assert.assertTrue("Wrong current dop: "+controller.getDegreeOfParallelism(), 
+				controller.getDegreeOfParallelism() <= 2);
+		}
+		finally {
+			controller.close();
+		}
+	}
+	
+	/**
+	 * 
+	 * @param sparse
+	 * @param dynamic
+	 */
+	private void runParForDynamicParallelismTest( boolean sparse, boolean dynamic )
+	{	
+		boolean dynamicOld = ParForProgramBlock.USE_DYNAMIC_PARALLELISM;
+		long oldmem = InfrastructureAnalyzer.getLocalMaxMemory();
+		ParForProgramBlock.USE_DYNAMIC_PARALLELISM = dynamic;
+		
+		//constrain memory budget to the estimate of the body (all ops in CP)
+		double sparsity = sparse ? sparsity2 : sparsity1;
+		long sizeX = OptimizerUtils.estimateSizeExactSparsity(rows, cols, sparsity);
+		long sizeS = OptimizerUtils.estimateSizeExactSparsity(cols, cols, 1.0);
+		long mem = (long)((3*sizeX + 2*sizeS) / OptimizerUtils.MEM_UTIL_FACTOR);
+		InfrastructureAnalyzer.setLocalMaxMemory(mem);
+		
+		try
+		{
+			setupParForTest(TEST_NAME, TEST_NAME, true, input("X"));
+	
+			//generate input data
+			double[][] X = getRandomMatrix(rows, cols, 0, 1, sparsity, 7);
+			writeInputMatrixWithMTD("X", X, true);
+			
+			//run and compare with R
+			runAndCompareParForTest(1, eps);
+			
+			//check observed degree of parallelism (started below the parfor dop, 
+			//never more active workers than cores or iterations)
+			int k = Math.min(InfrastructureAnalyzer.getLocalParallelism(), cols);
+			boolean expected = dynamic && k > 1;
+			
+			//check body w.r.t. local recompile budget (max dop for dynamic parallelism,
+			//where the initial dop would allow all operations in CP)
+			if( expected )
+				Assert.assertTrue("Body not compiled w.r.t. max dop.", 
+					Statistics.getNoOfExecutedMRJobs() > 0);
+			else
+				Assert.assertEquals("Unexpected number of executed MR jobs.", 
+					0, Statistics.getNoOfExecutedMRJobs());
+			Assert.assertEquals("Unexpected number of parfor w/ dynamic dop.", 
+				expected ? 1 : 0, Statistics.getParforDynamicDOPCount());
+			if( expected ) {
+				int minK = Statistics.getParforDynamicMinDOP();
+				int maxK = Statistics.getParforDynamicMaxDOP();
+				Assert.assertTrue("Wrong initial dop: "+minK, minK >= 1 && minK < k);
+				Assert.assertTrue("Wrong max dop: "+maxK, maxK >= minK && maxK <= k);
+			}
+		}
+		finally
+		{
+			ParForProgramBlock.USE_DYNAMIC_PARALLELISM = dynamicOld;
+			InfrastructureAnalyzer.setLocalMaxMemory(oldmem);
+		}
+	}
+}
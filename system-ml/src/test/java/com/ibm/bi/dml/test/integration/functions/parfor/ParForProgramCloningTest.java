@@ -0,0 +1,104 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.parfor;
+
+import org.junit.Test;
+
+import com.ibm.bi.dml.runtime.controlprogram.ParForProgramBlock;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+
+/**
+ * Tests the structural cloning of parfor bodies for local workers and the compact
+ * serialization of parfor bodies for remote workers, with and without these
+ * optimizations in order to compare the results of both.
+ * 
+ */
+public class ParForProgramCloningTest extends ParForTestBase 
+{
+	
+	private final static String TEST_NAME1 = "parfor_cloning1"; //local
+	private final static String TEST_NAME2 = "parfor_cloning2"; //remote mr
+	private final static String TEST_CLASS_DIR = TEST_DIR + ParForProgramCloningTest.class.getSimpleName() + "/";
+	
+	private final static double eps = 1e-8;
+	
+	private final static int rows = 100;
+	private final static int cols = 23;
+	
+	
+	@Override
+	public void setUp() 
+	{
+		addTestConfiguration(TEST_NAME1, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME1, new String[] { "R" }) );
+		addTestConfiguration(TEST_NAME2, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME2, new String[] { "R" }) );
+	}
+
+	@Test
+	public void testParForStructuralCloningLocal() 
+	{
+		runParForProgramCloningTest(TEST_NAME1, true);
+	}
+	
+	@Test
+	public void testParForNoStructuralCloningLocal() 
+	{
+		runParForProgramCloningTest(TEST_NAME1, false);
+	}
+	
+	@Test
+	public void testParForCompactSerializationRemoteMR() 
+	{
+		runParForProgramCloningTest(TEST_NAME2, true);
+	}
+	
+	@Test
+	public void testParForNoCompactSerializationRemoteMR() 
+	{
+		runParForProgramCloningTest(TEST_NAME2, false);
+	}
+	
+	/**
+	 * 
+	 * @param testname
+	 * @param opt
+	 */
+	private void runParForProgramCloningTest( String testname, boolean opt )
+	{	
+		boolean cloningOld = ParForProgramBlock.USE_STRUCTURAL_CLONING;
+		boolean compactOld = ParForProgramBlock.USE_COMPACT_SERIALIZATION;
+		ParForProgramBlock.USE_STRUCTURAL_CLONING = opt;
+		ParForProgramBlock.USE_COMPACT_SERIALIZATION = opt;
+		
+		try
+		{
+			setupParForTest(testname, "parfor_cloning", false, input("A"));
+	
+			//generate input data
+			double[][] A = getRandomMatrix(rows, cols, 0, 1, 1.0, 7);
+			writeInputMatrixWithMTD("A", A, true);
+			
+			//run and compare with R
+			runAndCompareParForTest(1, eps);
+		}
+		finally
+		{
+			ParForProgramBlock.USE_STRUCTURAL_CLONING = cloningOld;
+			ParForProgramBlock.USE_COMPACT_SERIALIZATION = compactOld;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.parfor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.runtime.controlprogram.ParForProgramBlock;
+import com.ibm.bi.dml.runtime.controlprogram.caching.CacheStatistics;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.stat.InfrastructureAnalyzer;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+
+/**
+ * Tests the pinning of loop-invariant read-only inputs for local parfor workers,
+ * with and without pinning in order to compare the results of both plans. The body
+ * reads the read-only inputs multiple times per iteration, which are expected to be 
+ * served as lock-free reads of the pinned in-memory blocks.
+ * 
+ */
+public class ParForReadOnlyPinningTest extends ParForTestBase 
+{
+	
+	private final static String TEST_NAME = "parfor_readonly_pinning";
+	private final static String TEST_CLASS_DIR = TEST_DIR + ParForReadOnlyPinningTest.class.getSimpleName() + "/";
+	
+	private final static double eps = 1e-8;
+	
+	private final static int rows = 1100;
+	private final static int cols = 37;
+	
+	private final static double sparsity1 = 0.7;
+	private final static double sparsity2 = 0.05;
+	
+	
+	@Override
+	public void setUp() 
+	{
+		addTestConfiguration(TEST_NAME, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME, new String[] { "R" }) );
+	}
+
+	@Test
+	public void testParForReadOnlyPinningDense() 
+	{
+		runParForReadOnlyPinningTest(false, true);
+	}
+	
+	@Test
+	public void testParForReadOnlyPinningSparse() 
+	{
+		runParForReadOnlyPinningTest(true, true);
+	}
+	
+	@Test
+	public void testParForNoReadOnlyPinningDense() 
+	{
+		runParForReadOnlyPinningTest(false, false);
+	}
+	
+	/**
+	 * 
+	 * @param sparse
+	 * @param pinning
+	 */
+	private void runParForReadOnlyPinningTest( boolean sparse, boolean pinning )
+	{	
+		boolean pinningOld = ParForProgramBlock.USE_READONLY_INPUT_PINNING;
+		ParForProgramBlock.USE_READONLY_INPUT_PINNING = pinning;
+		
+		try
+		{
+			setupParForTest(TEST_NAME, TEST_NAME, true, input("X"), input("v"));
+	
+			//generate input data
+			double[][] X = getRandomMatrix(rows, cols, 0, 1, sparse?sparsity2:sparsity1, 7);
+			double[][] v = getRandomMatrix(cols, 1, 0, 1, 1.0, 3);
+			writeInputMatrixWithMTD("X", X, true);
+			writeInputMatrixWithMTD("v", v, true);
+			
+			//run and compare with R
+			runAndCompareParForTest(1, eps);
+			
+			//check lock-free reads of pinned inputs (at least two reads of X per iteration,
+			//pinning only applies to multi-threaded parfor)
+			long hits = CacheStatistics.getPinnedHits();
+			if( pinning && InfrastructureAnalyzer.getLocalParallelism() > 1 )
+				Assert.assertTrue("Too few pinned reads: "+hits, hits >= 2*cols);
+			else
+				Assert.assertEquals("Unexpected pinned reads.", 0, hits);
+		}
+		finally
+		{
+			ParForProgramBlock.USE_READONLY_INPUT_PINNING = pinningOld;
+		}
+	}
+}
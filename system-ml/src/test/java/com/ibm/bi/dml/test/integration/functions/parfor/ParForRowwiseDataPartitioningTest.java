@@ -83,6 +83,18 @@ public class ParForRowwiseDataPartitioningTest extends AutomatedTestBase
 		runParForDataPartitioningTest(PDataPartitioner.LOCAL, PExecMode.LOCAL, false, true);
 	}
 	
+	@Test
+	public void testParForDataPartitioningLocalMemLocalLargeDense() 
+	{
+		runParForDataPartitioningTest(PDataPartitioner.LOCAL_MEM, PExecMode.LOCAL, false, false);
+	}
+
+	@Test
+	public void testParForDataPartitioningLocalMemLocalLargeSparse() 
+	{
+		runParForDataPartitioningTest(PDataPartitioner.LOCAL_MEM, PExecMode.LOCAL, false, true);
+	}
+	
 	@Test
 	public void testParForDataPartitioningLocalRemoteLargeDense() 
 	{
@@ -171,6 +183,18 @@ public class ParForRowwiseDataPartitioningTest extends AutomatedTestBase
 		runParForDataPartitioningTest(PDataPartitioner.LOCAL, PExecMode.LOCAL, true, true);
 	}
 	
+	@Test
+	public void testParForDataPartitioningLocalMemLocalSmallDense() 
+	{
+		runParForDataPartitioningTest(PDataPartitioner.LOCAL_MEM, PExecMode.LOCAL, true, false);
+	}
+
+	@Test
+	public void testParForDataPartitioningLocalMemLocalSmallSparse() 
+	{
+		runParForDataPartitioningTest(PDataPartitioner.LOCAL_MEM, PExecMode.LOCAL, true, true);
+	}
+	
 	@Test
 	public void testParForDataPartitioningLocalRemoteSmallDense() 
 	{
@@ -314,6 +338,9 @@ public class ParForRowwiseDataPartitioningTest extends AutomatedTestBase
 					else
 						scriptNum = 5;
 					break;
+				case LOCAL_MEM: 
+					scriptNum = 10;
+					break;
 				case REMOTE_SPARK: 
 					if( mode==PExecMode.LOCAL ){
 						if( !multiParts )
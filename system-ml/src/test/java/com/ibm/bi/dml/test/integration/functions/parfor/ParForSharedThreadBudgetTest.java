@@ -0,0 +1,111 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.parfor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.runtime.controlprogram.parfor.stat.InfrastructureAnalyzer;
+import com.ibm.bi.dml.runtime.util.ThreadBudget;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+
+/**
+ * Tests nested local parfor with multi-threaded matrix multiplications in the inner body, 
+ * with and without the shared thread budget in order to compare the results of both plans.
+ * With the shared budget, threads are expected to be acquired by parfor workers and 
+ * operations, and to be returned exactly once (no leaked or multiply released threads).
+ * 
+ */
+public class ParForSharedThreadBudgetTest extends ParForTestBase 
+{
+	
+	private final static String TEST_NAME = "parfor_shared_threadbudget";
+	private final static String TEST_CLASS_DIR = TEST_DIR + ParForSharedThreadBudgetTest.class.getSimpleName() + "/";
+	
+	private final static double eps = 1e-8;
+	
+	private final static int rows = 1100;
+	private final static int cols = 40;
+	
+	private final static double sparsity1 = 0.7;
+	private final static double sparsity2 = 0.05;
+	
+	
+	@Override
+	public void setUp() 
+	{
+		addTestConfiguration(TEST_NAME, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME, new String[] { "R" }) );
+	}
+
+	@Test
+	public void testParForSharedThreadBudgetDense() 
+	{
+		runParForSharedThreadBudgetTest(false, true);
+	}
+	
+	@Test
+	public void testParForSharedThreadBudgetSparse() 
+	{
+		runParForSharedThreadBudgetTest(true, true);
+	}
+	
+	@Test
+	public void testParForNoSharedThreadBudgetDense() 
+	{
+		runParForSharedThreadBudgetTest(false, false);
+	}
+	
+	/**
+	 * 
+	 * @param sparse
+	 * @param budget
+	 */
+	private void runParForSharedThreadBudgetTest( boolean sparse, boolean budget )
+	{	
+		boolean budgetOld = ThreadBudget.USE_SHARED_BUDGET;
+		ThreadBudget.USE_SHARED_BUDGET = budget;
+		
+		try
+		{
+			setupParForTest(TEST_NAME, TEST_NAME, false, input("X"));
+	
+			//generate input data
+			double[][] X = getRandomMatrix(rows, cols, 0, 1, sparse?sparsity2:sparsity1, 7);
+			writeInputMatrixWithMTD("X", X, true);
+			
+			ThreadBudget.resetStatistics();
+			
+			//run and compare with R
+			runAndCompareParForTest(1, eps);
+			
+			//check usage of the shared budget (threads acquired by workers and operations,
+			//all threads returned, and no thread returned multiple times)
+			int k = InfrastructureAnalyzer.getLocalParallelism();
+			if( budget && k > 1 )
+				Assert.assertTrue("No threads acquired from budget.", ThreadBudget.getMaxNumAcquired() > 0);
+			else if( !budget )
+				Assert.assertEquals("Unexpected threads acquired from budget.", 0, ThreadBudget.getMaxNumAcquired());
+			Assert.assertEquals("Wrong number of available threads.", k-1, ThreadBudget.getNumAvailable());
+			Assert.assertTrue("Threads released multiple times.", ThreadBudget.getMaxNumAvailable() <= k-1);
+		}
+		finally
+		{
+			ThreadBudget.USE_SHARED_BUDGET = budgetOld;
+		}
+	}
+}
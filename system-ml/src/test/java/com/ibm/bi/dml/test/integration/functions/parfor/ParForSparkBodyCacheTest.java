@@ -0,0 +1,111 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.parfor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.api.DMLScript;
+import com.ibm.bi.dml.api.DMLScript.RUNTIME_PLATFORM;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Tests remote spark parfor with many small tasks, where parsed parfor bodies
+ * and execution contexts are reused across tasks of the same executor. Each
+ * partition of tasks parses at most one body, and bodies are not reused across
+ * jobs (repeated runs), which is checked via the number of reused bodies.
+ * 
+ */
+public class ParForSparkBodyCacheTest extends ParForTestBase 
+{
+	
+	private final static String TEST_NAME = "parfor_spark_bodycache";
+	private final static String TEST_CLASS_DIR = TEST_DIR + ParForSparkBodyCacheTest.class.getSimpleName() + "/";
+	
+	private final static double eps = 1e-8;
+	
+	private final static int rows = 1100;
+	private final static int cols = 37;
+	private final static int par = 4;
+	
+	private final static double sparsity1 = 0.7;
+	private final static double sparsity2 = 0.05;
+	
+	
+	@Override
+	public void setUp() 
+	{
+		addTestConfiguration(TEST_NAME, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME, new String[] { "R" }) );
+	}
+
+	@Test
+	public void testParForSparkBodyCacheDense() 
+	{
+		runParForSparkBodyCacheTest(false, 1);
+	}
+	
+	@Test
+	public void testParForSparkBodyCacheSparse() 
+	{
+		runParForSparkBodyCacheTest(true, 1);
+	}
+	
+	@Test
+	public void testParForSparkBodyCacheDenseRepeated() 
+	{
+		runParForSparkBodyCacheTest(false, 2);
+	}
+	
+	/**
+	 * 
+	 * @param sparse
+	 * @param runs
+	 */
+	private void runParForSparkBodyCacheTest( boolean sparse, int runs )
+	{	
+		RUNTIME_PLATFORM oldRT = rtplatform;
+		boolean oldUseSparkConfig = DMLScript.USE_LOCAL_SPARK_CONFIG;
+		
+		try
+		{
+			DMLScript.USE_LOCAL_SPARK_CONFIG = true;
+			rtplatform = RUNTIME_PLATFORM.HYBRID_SPARK;
+			
+			setupParForTest(TEST_NAME, TEST_NAME, true, input("X"));
+	
+			//generate input data
+			double[][] X = getRandomMatrix(rows, cols, 0, 1, sparse?sparsity2:sparsity1, 7);
+			writeInputMatrixWithMTD("X", X, true);
+			
+			//run and compare with R (repeated runs within the same jvm, i.e., with populated executor caches)
+			runAndCompareParForTest(runs, eps);
+			
+			//check reused bodies of last run (one task per iteration, at most one parsed
+			//body per partition, and no reuse of bodies of previous jobs)
+			long reused = Statistics.getSparkParForBodyReuse();
+			Assert.assertTrue("Wrong number of reused bodies: "+reused, 
+				reused >= cols - par && reused < cols);
+		}
+		finally
+		{
+			rtplatform = oldRT;
+			DMLScript.USE_LOCAL_SPARK_CONFIG = oldUseSparkConfig;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.parfor;
+
+import org.junit.Test;
+
+import com.ibm.bi.dml.runtime.controlprogram.ParForProgramBlock;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+
+/**
+ * Tests the local in-memory result merge for sparse and dense results with 
+ * existing non-zeros (merge with compare), in serial and parallel mode.
+ * 
+ */
+public class ParForSparseResultMergeTest extends ParForTestBase 
+{
+	
+	private final static String TEST_NAME = "parfor_sparse_resultmerge";
+	private final static String TEST_CLASS_DIR = TEST_DIR + ParForSparseResultMergeTest.class.getSimpleName() + "/";
+	
+	private final static double eps = 1e-10;
+	
+	private final static int rows = 1201;
+	private final static int cols = 1003;
+	
+	private final static double sparsity1 = 0.7;
+	private final static double sparsity2 = 0.01;
+	
+	
+	@Override
+	public void setUp() 
+	{
+		addTestConfiguration(TEST_NAME, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME, new String[] { "R" }) );
+	}
+
+	@Test
+	public void testParForResultMergeDenseParallel() 
+	{
+		runParForResultMergeTest(false, true);
+	}
+	
+	@Test
+	public void testParForResultMergeSparseParallel() 
+	{
+		runParForResultMergeTest(true, true);
+	}
+	
+	@Test
+	public void testParForResultMergeDenseSerial() 
+	{
+		runParForResultMergeTest(false, false);
+	}
+	
+	@Test
+	public void testParForResultMergeSparseSerial() 
+	{
+		runParForResultMergeTest(true, false);
+	}
+	
+	/**
+	 * 
+	 * @param sparse
+	 * @param parallel
+	 */
+	private void runParForResultMergeTest( boolean sparse, boolean parallel )
+	{	
+		boolean parallelOld = ParForProgramBlock.USE_PARALLEL_RESULT_MERGE;
+		ParForProgramBlock.USE_PARALLEL_RESULT_MERGE = parallel;
+		
+		try
+		{
+			setupParForTest(TEST_NAME, TEST_NAME, false, input("A"));
+	
+			//generate input data
+			double[][] A = getRandomMatrix(rows, cols, 1, 2, sparse?sparsity2:sparsity1, 7);
+			writeInputMatrixWithMTD("A", A, true);
+			
+			//run and compare with R
+			runAndCompareParForTest(1, eps);
+		}
+		finally
+		{
+			ParForProgramBlock.USE_PARALLEL_RESULT_MERGE = parallelOld;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.parfor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.runtime.controlprogram.ParForProgramBlock;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Tests remote parfor with a straggler task via the local stand-in of remote parfor jobs,
+ * with and without speculative task execution in order to compare the results of both plans.
+ * The straggler runs far longer than the other tasks, which is expected to trigger a duplicate 
+ * attempt if speculative execution is enabled.
+ * 
+ */
+public class ParForSpeculativeExecutionTest extends ParForTestBase 
+{
+	
+	private final static String TEST_NAME = "parfor_speculative_exec";
+	private final static String TEST_CLASS_DIR = TEST_DIR + ParForSpeculativeExecutionTest.class.getSimpleName() + "/";
+	
+	private final static double eps = 1e-8;
+	
+	private final static int rows = 1100;
+	private final static int cols = 37;
+	
+	private final static double sparsity1 = 0.7;
+	private final static double sparsity2 = 0.05;
+	
+	
+	@Override
+	public void setUp() 
+	{
+		addTestConfiguration(TEST_NAME, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME, new String[] { "R" }) );
+	}
+
+	@Test
+	public void testParForSpeculativeExecutionDense() 
+	{
+		runParForSpeculativeExecutionTest(false, true);
+	}
+	
+	@Test
+	public void testParForSpeculativeExecutionSparse() 
+	{
+		runParForSpeculativeExecutionTest(true, true);
+	}
+	
+	@Test
+	public void testParForNoSpeculativeExecutionDense() 
+	{
+		runParForSpeculativeExecutionTest(false, false);
+	}
+	
+	/**
+	 * 
+	 * @param sparse
+	 * @param speculative
+	 */
+	private void runParForSpeculativeExecutionTest( boolean sparse, boolean speculative )
+	{	
+		boolean localOld = ParForProgramBlock.USE_LOCAL_SPECULATION;
+		boolean specOld = ParForProgramBlock.USE_SPECULATIVE_EXECUTION;
+		ParForProgramBlock.USE_LOCAL_SPECULATION = true;
+		ParForProgramBlock.USE_SPECULATIVE_EXECUTION = speculative;
+		
+		try
+		{
+			setupParForTest(TEST_NAME, TEST_NAME, true, input("X"));
+	
+			//generate input data
+			double[][] X = getRandomMatrix(rows, cols, 0, 1, sparse?sparsity2:sparsity1, 7);
+			writeInputMatrixWithMTD("X", X, true);
+			
+			//run and compare with R
+			runAndCompareParForTest(1, eps);
+			
+			//check speculative attempt of the straggler task (at most one per task)
+			long numSpec = Statistics.getParforSpeculativeTasks();
+			if( speculative )
+				Assert.assertTrue("Wrong number of speculative tasks: "+numSpec, numSpec >= 1 && numSpec <= cols);
+			else
+				Assert.assertEquals("Unexpected speculative tasks.", 0, numSpec);
+		}
+		finally
+		{
+			ParForProgramBlock.USE_LOCAL_SPECULATION = localOld;
+			ParForProgramBlock.USE_SPECULATIVE_EXECUTION = specOld;
+		}
+	}
+}
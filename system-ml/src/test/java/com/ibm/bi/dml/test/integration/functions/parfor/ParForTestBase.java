@@ -0,0 +1,87 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.parfor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.ibm.bi.dml.runtime.matrix.data.MatrixValue.CellIndex;
+import com.ibm.bi.dml.test.integration.AutomatedTestBase;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.test.utils.TestUtils;
+
+/**
+ * Shared fixture of parfor tests that run a dml script and its R counterpart
+ * with the same inputs, and compare the output matrix R of both scripts.
+ * 
+ */
+public abstract class ParForTestBase extends AutomatedTestBase 
+{
+	
+	protected final static String TEST_DIR = "functions/parfor/";
+	
+	/**
+	 * Loads the test configuration and sets up the dml and R script invocations,
+	 * where the dml script is called with the given arguments and the output R,
+	 * and the R script is called with the input and expected directories.
+	 * 
+	 * @param testname name of the test configuration and dml script
+	 * @param rname name of the R script
+	 * @param stats true if statistics should be collected
+	 * @param args script arguments, excluding the output
+	 */
+	protected void setupParForTest( String testname, String rname, boolean stats, String... args )
+	{
+		TestConfiguration config = getTestConfiguration(testname);
+		loadTestConfiguration(config);
+		
+		String HOME = SCRIPT_DIR + TEST_DIR;
+		fullDMLScriptName = HOME + testname + ".dml";
+		ArrayList<String> pargs = new ArrayList<String>();
+		if( stats )
+			pargs.add("-stats");
+		pargs.add("-args");
+		for( String arg : args )
+			pargs.add(arg);
+		pargs.add(output("R"));
+		programArgs = pargs.toArray(new String[0]);
+		
+		fullRScriptName = HOME + rname + ".R";
+		rCmd = "Rscript" + " " + fullRScriptName + " " + inputDir() + " " + expectedDir();
+	}
+	
+	/**
+	 * Runs the dml script (the given number of times) and the R script, 
+	 * and compares the output matrices.
+	 * 
+	 * @param runs number of dml script runs
+	 * @param eps tolerance of the comparison
+	 */
+	protected void runAndCompareParForTest( int runs, double eps )
+	{
+		//run tests
+		for( int i=0; i<runs; i++ )
+			runTest(true, false, null, -1);
+		runRScript(true);
+		
+		//compare matrices
+		HashMap<CellIndex, Double> dmlfile = readDMLMatrixFromHDFS("R");
+		HashMap<CellIndex, Double> rfile  = readRMatrixFromFS("R");
+		TestUtils.compareMatrices(dmlfile, rfile, eps, "DML", "R");
+	}
+}
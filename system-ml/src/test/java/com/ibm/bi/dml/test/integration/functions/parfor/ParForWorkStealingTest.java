@@ -0,0 +1,94 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.parfor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Tests the work-stealing task partitioner of local parfor for iterations
+ * of increasing costs and different minimum chunk sizes.
+ * 
+ */
+public class ParForWorkStealingTest extends ParForTestBase 
+{
+	
+	private final static String TEST_NAME = "parfor_workstealing";
+	private final static String TEST_CLASS_DIR = TEST_DIR + ParForWorkStealingTest.class.getSimpleName() + "/";
+	
+	private final static double eps = 1e-8;
+	
+	private final static int rows = 50;
+	private final static int cols = 173; //not a multiple of par
+	private final static int par = 4;
+	
+	
+	@Override
+	public void setUp() 
+	{
+		addTestConfiguration(TEST_NAME, new TestConfiguration(TEST_CLASS_DIR, TEST_NAME, new String[] { "R" }) );
+	}
+
+	@Test
+	public void testParForWorkStealingTasksize1() 
+	{
+		runParForWorkStealingTest(1);
+	}
+	
+	@Test
+	public void testParForWorkStealingTasksize4() 
+	{
+		runParForWorkStealingTest(4);
+	}
+	
+	@Test
+	public void testParForWorkStealingTasksizeLarge() 
+	{
+		runParForWorkStealingTest(cols);
+	}
+	
+	/**
+	 * 
+	 * @param tasksize
+	 */
+	private void runParForWorkStealingTest( int tasksize )
+	{	
+		setupParForTest(TEST_NAME, TEST_NAME, true, input("A"), String.valueOf(tasksize));
+
+		//generate input data
+		double[][] A = getRandomMatrix(rows, cols, 0, 1, 1.0, 7);
+		writeInputMatrixWithMTD("A", A, true);
+		
+		//run and compare with R
+		runAndCompareParForTest(1, eps);
+		
+		//check work stealing for skewed iteration costs (idle workers steal from the
+		//expensive ranges), where min chunks larger than the ranges prevent any splits
+		long steals = Statistics.getParforSteals();
+		long splits = Statistics.getParforSplits();
+		if( tasksize < cols/par ) {
+			Assert.assertTrue("No stolen tasks.", steals > 0);
+			Assert.assertTrue("No range splits.", splits > 0);
+		}
+		else
+			Assert.assertEquals("Unexpected range splits.", 0, splits);
+	}
+}
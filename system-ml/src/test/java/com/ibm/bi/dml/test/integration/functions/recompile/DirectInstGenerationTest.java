@@ -0,0 +1,107 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.recompile;
+
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixValue.CellIndex;
+import com.ibm.bi.dml.test.integration.AutomatedTestBase;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.test.utils.TestUtils;
+
+/**
+ * Tests the direct generation of arithmetic, relational, and boolean CP instructions
+ * (matrix-scalar, scalar-scalar, matrix-matrix) from lops, compared to instruction
+ * string parsing.
+ * 
+ */
+public class DirectInstGenerationTest extends AutomatedTestBase 
+{
+	
+	private final static String TEST_NAME = "direct_inst_generation";
+	private final static String TEST_DIR = "functions/recompile/";
+	private final static String TEST_CLASS_DIR = TEST_DIR + DirectInstGenerationTest.class.getSimpleName() + "/";
+	private final static double eps = 1e-8;
+	
+	private final static int rows = 150;
+	private final static int cols = 30;
+	private final static double sparsity = 0.6;
+	
+	
+	@Override
+	public void setUp() 
+	{
+		TestUtils.clearAssertionInformation();
+		addTestConfiguration(TEST_NAME, 
+			new TestConfiguration(TEST_CLASS_DIR, TEST_NAME, new String[] { "R" }) );
+	}
+
+	@Test
+	public void testDirectInstGeneration() 
+	{
+		runDirectInstGenerationTest(true);
+	}
+	
+	@Test
+	public void testInstStringParsing() 
+	{
+		runDirectInstGenerationTest(false);
+	}
+	
+	/**
+	 * 
+	 * @param direct
+	 */
+	private void runDirectInstGenerationTest( boolean direct )
+	{	
+		boolean oldFlagDirect = OptimizerUtils.ALLOW_DIRECT_INST_GENERATION;
+		
+		try
+		{
+			TestConfiguration config = getTestConfiguration(TEST_NAME);
+			loadTestConfiguration(config);
+			
+			String HOME = SCRIPT_DIR + TEST_DIR;
+			fullDMLScriptName = HOME + TEST_NAME + ".dml";
+			programArgs = new String[]{"-args", input("X"), output("R") };
+			
+			fullRScriptName = HOME + TEST_NAME + ".R";
+			rCmd = "Rscript" + " " + fullRScriptName + " " + inputDir() + " " + expectedDir();
+	
+			double[][] X = getRandomMatrix(rows, cols, 0, 1, sparsity, 3);
+			writeInputMatrixWithMTD("X", X, true);
+	
+			OptimizerUtils.ALLOW_DIRECT_INST_GENERATION = direct;
+			
+			runTest(true, false, null, -1); 
+			runRScript(true);
+			
+			//compare matrices
+			HashMap<CellIndex, Double> dmlfile = readDMLMatrixFromHDFS("R");
+			HashMap<CellIndex, Double> rfile  = readRMatrixFromFS("R");
+			TestUtils.compareMatrices(dmlfile, rfile, eps, "DML", "R");
+		}
+		finally
+		{
+			OptimizerUtils.ALLOW_DIRECT_INST_GENERATION = oldFlagDirect;
+		}
+	}
+}
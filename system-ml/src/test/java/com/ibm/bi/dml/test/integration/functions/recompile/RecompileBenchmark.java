@@ -0,0 +1,251 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.recompile;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.ibm.bi.dml.api.DMLScript;
+import com.ibm.bi.dml.api.DMLScript.RUNTIME_PLATFORM;
+import com.ibm.bi.dml.conf.ConfigurationManager;
+import com.ibm.bi.dml.conf.DMLConfig;
+import com.ibm.bi.dml.hops.Hop;
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.hops.recompile.Recompiler;
+import com.ibm.bi.dml.parser.AParserWrapper;
+import com.ibm.bi.dml.parser.DMLProgram;
+import com.ibm.bi.dml.parser.DMLTranslator;
+import com.ibm.bi.dml.parser.DataExpression;
+import com.ibm.bi.dml.parser.ForStatementBlock;
+import com.ibm.bi.dml.parser.IfStatementBlock;
+import com.ibm.bi.dml.parser.StatementBlock;
+import com.ibm.bi.dml.parser.WhileStatementBlock;
+import com.ibm.bi.dml.runtime.controlprogram.ForProgramBlock;
+import com.ibm.bi.dml.runtime.controlprogram.FunctionProgramBlock;
+import com.ibm.bi.dml.runtime.controlprogram.IfProgramBlock;
+import com.ibm.bi.dml.runtime.controlprogram.LocalVariableMap;
+import com.ibm.bi.dml.runtime.controlprogram.Program;
+import com.ibm.bi.dml.runtime.controlprogram.ProgramBlock;
+import com.ibm.bi.dml.runtime.controlprogram.WhileProgramBlock;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.stat.Timing;
+
+/**
+ * Micro benchmark of dynamic recompilation throughput, which compiles the given
+ * script (e.g., from scripts/algorithms) and repeatedly recompiles all statement
+ * block and predicate DAGs of the runtime program, once with instruction string
+ * parsing and once with the direct generation of instruction objects (see
+ * OptimizerUtils.ALLOW_DIRECT_INST_GENERATION). The plan cache of recompiled
+ * instructions is disabled in order to measure the actual recompilation.
+ * 
+ * Usage: RecompileBenchmark &lt;script&gt; &lt;reps&gt; [name=value]*
+ * (e.g., RecompileBenchmark scripts/algorithms/LinearRegCG.dml 100 X=X Y=Y B=B)
+ * 
+ */
+public class RecompileBenchmark
+{
+
+	private static final int WARMUP_REPS = 10;
+
+	/**
+	 * 
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args)
+		throws Exception
+	{
+		if( args.length < 2 ) {
+			System.out.println("Usage: RecompileBenchmark <script> <reps> [name=value]*");
+			return;
+		}
+
+		String fname = args[0];
+		int reps = Integer.parseInt(args[1]);
+		HashMap<String, String> nvargs = new HashMap<String, String>();
+		for( int i=2; i<args.length; i++ ) {
+			String[] parts = args[i].split("=");
+			nvargs.put("$"+parts[0], parts[1]);
+		}
+
+		//setup single node configuration (all operations in CP, no input files required)
+		DataExpression.REJECT_READ_UNKNOWN_SIZE = false;
+		DMLScript.rtplatform = RUNTIME_PLATFORM.SINGLE_NODE;
+		ConfigurationManager.setConfig(new DMLConfig());
+		boolean flagCache = OptimizerUtils.ALLOW_RECOMPILE_PLAN_CACHE;
+		boolean flagDirect = OptimizerUtils.ALLOW_DIRECT_INST_GENERATION;
+		OptimizerUtils.ALLOW_RECOMPILE_PLAN_CACHE = false;
+
+		try
+		{
+			//compile script and collect all dags
+			Program rtprog = compileScript(fname, nvargs);
+			ArrayList<StatementBlock> sbs = new ArrayList<StatementBlock>();
+			ArrayList<Hop> preds = new ArrayList<Hop>();
+			for( ProgramBlock pb : rtprog.getProgramBlocks() )
+				rCollectDags(pb, sbs, preds);
+			for( FunctionProgramBlock fpb : rtprog.getFunctionProgramBlocks().values() )
+				rCollectDags(fpb, sbs, preds);
+
+			System.out.println("Recompile benchmark "+fname+": "
+				+ sbs.size()+" statement block DAGs, "+preds.size()+" predicate DAGs, "+reps+" reps.");
+
+			//measure recompilation throughput w/ and w/o direct generation
+			for( boolean direct : new boolean[]{false, true} ) {
+				OptimizerUtils.ALLOW_DIRECT_INST_GENERATION = direct;
+				recompileDags(sbs, preds, WARMUP_REPS);
+				Timing time = new Timing(true);
+				int count = recompileDags(sbs, preds, reps);
+				double t = time.stop();
+				System.out.println("--"+(direct?"direct generation":"string parsing")+": "
+					+ String.format("%.3f", t)+" ms, "+String.format("%.1f", count/(t/1000))+" DAGs/s.");
+			}
+		}
+		finally
+		{
+			OptimizerUtils.ALLOW_RECOMPILE_PLAN_CACHE = flagCache;
+			OptimizerUtils.ALLOW_DIRECT_INST_GENERATION = flagDirect;
+		}
+	}
+
+	/**
+	 * 
+	 * @param fname
+	 * @param nvargs
+	 * @return
+	 * @throws Exception
+	 */
+	private static Program compileScript( String fname, HashMap<String, String> nvargs )
+		throws Exception
+	{
+		String script = readScript(fname);
+
+		AParserWrapper parser = AParserWrapper.createParser(false);
+		DMLProgram prog = parser.parse(fname, script, nvargs);
+
+		DMLTranslator dmlt = new DMLTranslator(prog);
+		dmlt.liveVariableAnalysis(prog);
+		dmlt.validateParseTree(prog);
+		dmlt.constructHops(prog);
+		dmlt.rewriteHopsDAG(prog);
+		dmlt.constructLops(prog);
+
+		return prog.getRuntimeProgram(ConfigurationManager.getConfig());
+	}
+
+	/**
+	 * 
+	 * @param sbs
+	 * @param preds
+	 * @param reps
+	 * @return number of recompiled dags
+	 * @throws Exception
+	 */
+	private static int recompileDags( ArrayList<StatementBlock> sbs, ArrayList<Hop> preds, int reps )
+		throws Exception
+	{
+		int count = 0;
+		for( int i=0; i<reps; i++ ) {
+			for( StatementBlock sb : sbs ) {
+				Recompiler.recompileHopsDag(sb, sb.get_hops(), new LocalVariableMap(), null, false, 0);
+				count++;
+			}
+			for( Hop pred : preds ) {
+				Recompiler.recompileHopsDag(pred, new LocalVariableMap(), null, false, 0);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 
+	 * @param pb
+	 * @param sbs
+	 * @param preds
+	 */
+	private static void rCollectDags( ProgramBlock pb, ArrayList<StatementBlock> sbs, ArrayList<Hop> preds )
+	{
+		if( pb instanceof WhileProgramBlock ) {
+			WhileProgramBlock wpb = (WhileProgramBlock) pb;
+			addPredicate(((WhileStatementBlock)wpb.getStatementBlock()).getPredicateHops(), preds);
+			for( ProgramBlock c : wpb.getChildBlocks() )
+				rCollectDags(c, sbs, preds);
+		}
+		else if( pb instanceof IfProgramBlock ) {
+			IfProgramBlock ipb = (IfProgramBlock) pb;
+			addPredicate(((IfStatementBlock)ipb.getStatementBlock()).getPredicateHops(), preds);
+			for( ProgramBlock c : ipb.getChildBlocksIfBody() )
+				rCollectDags(c, sbs, preds);
+			for( ProgramBlock c : ipb.getChildBlocksElseBody() )
+				rCollectDags(c, sbs, preds);
+		}
+		else if( pb instanceof ForProgramBlock ) { //includes parfor
+			ForProgramBlock fpb = (ForProgramBlock) pb;
+			ForStatementBlock fsb = (ForStatementBlock) fpb.getStatementBlock();
+			addPredicate(fsb.getFromHops(), preds);
+			addPredicate(fsb.getToHops(), preds);
+			addPredicate(fsb.getIncrementHops(), preds);
+			for( ProgramBlock c : fpb.getChildBlocks() )
+				rCollectDags(c, sbs, preds);
+		}
+		else if( pb instanceof FunctionProgramBlock ) {
+			for( ProgramBlock c : ((FunctionProgramBlock)pb).getChildBlocks() )
+				rCollectDags(c, sbs, preds);
+		}
+		else if( pb.getStatementBlock() != null && pb.getStatementBlock().get_hops() != null ) {
+			sbs.add(pb.getStatementBlock());
+		}
+	}
+
+	/**
+	 * 
+	 * @param pred
+	 * @param preds
+	 */
+	private static void addPredicate( Hop pred, ArrayList<Hop> preds ) {
+		if( pred != null )
+			preds.add(pred);
+	}
+
+	/**
+	 * 
+	 * @param fname
+	 * @return
+	 * @throws IOException
+	 */
+	private static String readScript( String fname )
+		throws IOException
+	{
+		StringBuilder sb = new StringBuilder();
+		BufferedReader in = new BufferedReader(new FileReader(fname));
+		try {
+			String line = null;
+			while( (line = in.readLine()) != null ) {
+				sb.append(line);
+				sb.append("\n");
+			}
+		}
+		finally {
+			in.close();
+		}
+		return sb.toString();
+	}
+}
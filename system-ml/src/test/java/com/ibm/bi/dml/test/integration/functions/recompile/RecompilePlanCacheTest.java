@@ -0,0 +1,119 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.recompile;
+
+import java.util.HashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixValue.CellIndex;
+import com.ibm.bi.dml.test.integration.AutomatedTestBase;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.test.utils.TestUtils;
+import com.ibm.bi.dml.utils.Statistics;
+
+/**
+ * Tests the reuse of recompiled instructions for statement blocks that are
+ * recompiled with equal input statistics in a loop, with and without plan cache.
+ * 
+ */
+public class RecompilePlanCacheTest extends AutomatedTestBase 
+{
+	
+	private final static String TEST_NAME = "recompile_plan_cache";
+	private final static String TEST_DIR = "functions/recompile/";
+	private final static String TEST_CLASS_DIR = TEST_DIR + RecompilePlanCacheTest.class.getSimpleName() + "/";
+	private final static double eps = 1e-8;
+	
+	private final static int rows = 300;
+	private final static int cols = 20;
+	private final static int iters = 10;
+	private final static double sparsity = 0.7;
+	
+	
+	@Override
+	public void setUp() 
+	{
+		TestUtils.clearAssertionInformation();
+		addTestConfiguration(TEST_NAME, 
+			new TestConfiguration(TEST_CLASS_DIR, TEST_NAME, new String[] { "R" }) );
+	}
+
+	@Test
+	public void testRecompileWithPlanCache() 
+	{
+		runRecompilePlanCacheTest(true);
+	}
+	
+	@Test
+	public void testRecompileWithoutPlanCache() 
+	{
+		runRecompilePlanCacheTest(false);
+	}
+	
+	/**
+	 * 
+	 * @param cache
+	 */
+	private void runRecompilePlanCacheTest( boolean cache )
+	{	
+		boolean oldFlagCache = OptimizerUtils.ALLOW_RECOMPILE_PLAN_CACHE;
+		
+		try
+		{
+			TestConfiguration config = getTestConfiguration(TEST_NAME);
+			loadTestConfiguration(config);
+			
+			String HOME = SCRIPT_DIR + TEST_DIR;
+			fullDMLScriptName = HOME + TEST_NAME + ".dml";
+			programArgs = new String[]{"-stats", "-args", input("X"), 
+				Integer.toString(iters), output("R") };
+			
+			fullRScriptName = HOME + TEST_NAME + ".R";
+			rCmd = "Rscript" + " " + fullRScriptName + " " + inputDir() + " " 
+				+ Integer.toString(iters) + " " + expectedDir();
+	
+			double[][] X = getRandomMatrix(rows, cols, 0, 1, sparsity, 7);
+			writeInputMatrixWithMTD("X", X, true);
+	
+			OptimizerUtils.ALLOW_RECOMPILE_PLAN_CACHE = cache;
+			
+			runTest(true, false, null, -1); 
+			runRScript(true);
+			
+			//compare matrices
+			HashMap<CellIndex, Double> dmlfile = readDMLMatrixFromHDFS("R");
+			HashMap<CellIndex, Double> rfile  = readRMatrixFromFS("R");
+			TestUtils.compareMatrices(dmlfile, rfile, eps, "DML", "R");
+			
+			//check plan cache hits (all but the first recompilations of the loop body)
+			if( cache )
+				Assert.assertTrue("Missing recompile plan cache hits.", 
+						Statistics.getRecompilePlanCacheHits() > 0);
+			else
+				Assert.assertEquals("Unexpected recompile plan cache hits.", 
+						0, Statistics.getRecompilePlanCacheHits());
+		}
+		finally
+		{
+			OptimizerUtils.ALLOW_RECOMPILE_PLAN_CACHE = oldFlagCache;
+		}
+	}
+}
@@ -0,0 +1,160 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.recompile;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.hops.estim.DensityMap;
+import com.ibm.bi.dml.runtime.DMLRuntimeException;
+import com.ibm.bi.dml.runtime.matrix.data.LibMatrixMult;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixValue.CellIndex;
+import com.ibm.bi.dml.runtime.util.DataConverter;
+import com.ibm.bi.dml.test.integration.AutomatedTestBase;
+import com.ibm.bi.dml.test.integration.TestConfiguration;
+import com.ibm.bi.dml.test.utils.TestUtils;
+
+/**
+ * Tests the sketch-based sparsity estimation of intermediates during dynamic 
+ * recompilation over skewed sparse inputs, with and without estimation, as well
+ * as the accuracy of density map estimates for skewed matrix products.
+ * 
+ */
+public class SketchSparsityEstimationTest extends AutomatedTestBase 
+{
+	
+	private final static String TEST_NAME = "sketch_sparsity_estimation";
+	private final static String TEST_DIR = "functions/recompile/";
+	private final static String TEST_CLASS_DIR = TEST_DIR + SketchSparsityEstimationTest.class.getSimpleName() + "/";
+	private final static double eps = 1e-8;
+	
+	private final static int rows = 600;
+	private final static int cols = 500;
+	private final static double sparsity = 0.005;
+	private final static double skew = 3;
+	
+	
+	@Override
+	public void setUp() 
+	{
+		TestUtils.clearAssertionInformation();
+		addTestConfiguration(TEST_NAME, 
+			new TestConfiguration(TEST_CLASS_DIR, TEST_NAME, new String[] { "R" }) );
+	}
+
+	@Test
+	public void testSkewedWithSketchEstimation() 
+	{
+		runSketchSparsityEstimationTest(true);
+	}
+	
+	@Test
+	public void testSkewedWithoutSketchEstimation() 
+	{
+		runSketchSparsityEstimationTest(false);
+	}
+	
+	@Test
+	public void testSkewedMatMultEstimationAccuracy() 
+		throws DMLRuntimeException 
+	{
+		MatrixBlock A = DataConverter.convertToMatrixBlock(getSkewedMatrix(2000, 1500, 0.001, 3));
+		MatrixBlock B = DataConverter.convertToMatrixBlock(getSkewedMatrix(1500, 2000, 0.001, 11));
+		MatrixBlock C = new MatrixBlock(2000, 2000, false);
+		LibMatrixMult.matrixMult(A, B, C);
+		
+		//average-case estimate over total number of non-zeros
+		double sp1 = OptimizerUtils.getSparsity(2000, 1500, A.getNonZeros());
+		double sp2 = OptimizerUtils.getSparsity(1500, 2000, B.getNonZeros());
+		double avg = 2000d * 2000 * OptimizerUtils.getMatMultSparsity(sp1, sp2, 2000, 1500, 2000, false);
+		
+		//density map estimate (more accurate due to correlated skew in the common dimension)
+		long est = DensityMap.create(A).matMult(DensityMap.create(B)).getNonZeros();
+		
+		double nnz = C.getNonZeros();
+		Assert.assertTrue("Inaccurate density map estimate: "+est+" vs "+nnz+" (average-case "+avg+").", 
+			Math.abs(est - nnz) < Math.abs(avg - nnz) );
+	}
+	
+	/**
+	 * 
+	 * @param estim
+	 */
+	private void runSketchSparsityEstimationTest( boolean estim )
+	{	
+		boolean oldFlagEstim = OptimizerUtils.ALLOW_SKETCH_SPARSITY_ESTIMATION;
+		
+		try
+		{
+			TestConfiguration config = getTestConfiguration(TEST_NAME);
+			loadTestConfiguration(config);
+			
+			String HOME = SCRIPT_DIR + TEST_DIR;
+			fullDMLScriptName = HOME + TEST_NAME + ".dml";
+			programArgs = new String[]{"-args", input("X"), input("Y"), output("R") };
+			
+			fullRScriptName = HOME + TEST_NAME + ".R";
+			rCmd = "Rscript" + " " + fullRScriptName + " " + inputDir() + " " + expectedDir();
+	
+			writeInputMatrixWithMTD("X", getSkewedMatrix(rows, cols, sparsity, 7), true);
+			writeInputMatrixWithMTD("Y", getSkewedMatrix(cols, rows, sparsity, 3), true);
+	
+			OptimizerUtils.ALLOW_SKETCH_SPARSITY_ESTIMATION = estim;
+			
+			runTest(true, false, null, -1); 
+			runRScript(true);
+			
+			//compare matrices
+			HashMap<CellIndex, Double> dmlfile = readDMLMatrixFromHDFS("R");
+			HashMap<CellIndex, Double> rfile  = readRMatrixFromFS("R");
+			TestUtils.compareMatrices(dmlfile, rfile, eps, "DML", "R");
+		}
+		finally
+		{
+			OptimizerUtils.ALLOW_SKETCH_SPARSITY_ESTIMATION = oldFlagEstim;
+		}
+	}
+	
+	/**
+	 * Creates a sparse matrix whose row and column indexes of non-zeros
+	 * follow a power-law distribution (skewed toward the first rows/columns).
+	 * 
+	 * @param rows
+	 * @param cols
+	 * @param sparsity
+	 * @param seed
+	 * @return
+	 */
+	private static double[][] getSkewedMatrix( int rows, int cols, double sparsity, long seed )
+	{
+		double[][] ret = new double[rows][cols];
+		Random rand = new Random(seed);
+		long nnz = (long)(sparsity * rows * cols);
+		for( long i=0; i<nnz; i++ ) {
+			int ri = (int)(rows * Math.pow(rand.nextDouble(), skew));
+			int ci = (int)(cols * Math.pow(rand.nextDouble(), skew));
+			ret[ri][ci] = 1 + rand.nextDouble();
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,152 @@
+/**
+ * (C) Copyright IBM Corp. 2010, 2015
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package com.ibm.bi.dml.test.integration.functions.recompile;
+
+import java.util.Random;
+
+import com.ibm.bi.dml.hops.OptimizerUtils;
+import com.ibm.bi.dml.hops.estim.DensityMap;
+import com.ibm.bi.dml.runtime.DMLRuntimeException;
+import com.ibm.bi.dml.runtime.controlprogram.parfor.stat.Timing;
+import com.ibm.bi.dml.runtime.matrix.data.LibMatrixMult;
+import com.ibm.bi.dml.runtime.matrix.data.MatrixBlock;
+
+/**
+ * Accuracy and performance benchmark of sparsity estimators for matrix products over
+ * synthetic skewed inputs, which compares the worst-case and average-case estimates
+ * (see OptimizerUtils.getMatMultSparsity) and the density map estimate with the exact
+ * number of non-zeros. The inputs A (m x k) and B (k x n) are generated with power-law
+ * distributed row and column indexes, where the skew parameter 1 gives uniformly
+ * distributed non-zeros and larger values give increasing skew toward the first rows
+ * and columns (and thus correlated non-zeros in the common dimension).
+ * 
+ * Usage: SparsityEstimatorBenchmark &lt;m&gt; &lt;k&gt; &lt;n&gt; &lt;sparsity&gt; &lt;skew&gt; [&lt;reps&gt;]
+ * (e.g., SparsityEstimatorBenchmark 10000 10000 1000 0.001 3 10)
+ * 
+ */
+public class SparsityEstimatorBenchmark
+{
+
+	private static final long SEED = 7;
+
+	/**
+	 * 
+	 * @param args
+	 * @throws DMLRuntimeException
+	 */
+	public static void main(String[] args)
+		throws DMLRuntimeException
+	{
+		if( args.length < 5 ) {
+			System.out.println("Usage: SparsityEstimatorBenchmark <m> <k> <n> <sparsity> <skew> [<reps>]");
+			return;
+		}
+
+		int m = Integer.parseInt(args[0]);
+		int k = Integer.parseInt(args[1]);
+		int n = Integer.parseInt(args[2]);
+		double sp = Double.parseDouble(args[3]);
+		double skew = Double.parseDouble(args[4]);
+		int reps = (args.length > 5) ? Integer.parseInt(args[5]) : 1;
+
+		System.out.println("Sparsity estimator benchmark: A="+m+"x"+k+", B="+k+"x"+n
+			+ ", sparsity="+sp+", skew="+skew+", "+reps+" reps.");
+
+		Random rand = new Random(SEED);
+		double[] errWorst = new double[reps];
+		double[] errAvg = new double[reps];
+		double[] errMap = new double[reps];
+		double tMult = 0, tMap = 0;
+
+		for( int r=0; r<reps; r++ )
+		{
+			MatrixBlock A = createSkewedMatrix(m, k, sp, skew, rand);
+			MatrixBlock B = createSkewedMatrix(k, n, sp, skew, rand);
+
+			//exact number of non-zeros
+			Timing time = new Timing(true);
+			MatrixBlock C = new MatrixBlock(m, n, false);
+			LibMatrixMult.matrixMult(A, B, C);
+			tMult += time.stop();
+			double nnz = Math.max(C.getNonZeros(), 1);
+
+			//estimates based on total number of non-zeros
+			double sp1 = OptimizerUtils.getSparsity(m, k, A.getNonZeros());
+			double sp2 = OptimizerUtils.getSparsity(k, n, B.getNonZeros());
+			double cells = (double)m * n;
+			errWorst[r] = cells * OptimizerUtils.getMatMultSparsity(sp1, sp2, m, k, n, true) / nnz;
+			errAvg[r] = cells * OptimizerUtils.getMatMultSparsity(sp1, sp2, m, k, n, false) / nnz;
+
+			//estimate based on density maps (incl construction)
+			time.start();
+			DensityMap mapA = DensityMap.create(A);
+			DensityMap mapB = DensityMap.create(B);
+			int b = Math.max(Math.max(mapA.getBlocksize(), mapB.getBlocksize()), DensityMap.getBlocksize(m, n));
+			long est = mapA.coarsen(b).matMult(mapB.coarsen(b)).getNonZeros();
+			tMap += time.stop();
+			errMap[r] = est / nnz;
+		}
+
+		//report mean ratio of estimated to exact non-zeros and runtime
+		System.out.println("--worst-case:   "+formatError(errWorst));
+		System.out.println("--average-case: "+formatError(errAvg));
+		System.out.println("--density map:  "+formatError(errMap)+", "+String.format("%.3f", tMap/reps)+" ms/estimate");
+		System.out.println("--exact (mult): "+String.format("%.3f", tMult/reps)+" ms/product");
+	}
+
+	/**
+	 * Creates a sparse matrix with approximately sparsity*rows*cols non-zeros, where
+	 * row and column indexes are drawn from a power-law distribution.
+	 * 
+	 * @param rows
+	 * @param cols
+	 * @param sp
+	 * @param skew
+	 * @param rand
+	 * @return
+	 */
+	private static MatrixBlock createSkewedMatrix( int rows, int cols, double sp, double skew, Random rand )
+	{
+		MatrixBlock ret = new MatrixBlock(rows, cols, true);
+		long nnz = (long)(sp * rows * cols);
+		for( long i=0; i<nnz; i++ ) {
+			int ri = (int)(rows * Math.pow(rand.nextDouble(), skew));
+			int ci = (int)(cols * Math.pow(rand.nextDouble(), skew));
+			ret.quickSetValue(ri, ci, 1 + rand.nextDouble());
+		}
+		ret.recomputeNonZeros();
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param ratios estimated/exact non-zeros per repetition
+	 * @return
+	 */
+	private static String formatError( double[] ratios )
+	{
+		double sum = 0, max = 0;
+		for( double r : ratios ) {
+			double err = Math.abs(r - 1);
+			sum += err;
+			max = Math.max(max, err);
+		}
+		return "mean relative error "+String.format("%.4f", sum/ratios.length)
+			+ " (max "+String.format("%.4f", max)+")";
+	}
+}
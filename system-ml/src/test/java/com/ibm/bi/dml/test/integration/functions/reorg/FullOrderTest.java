@@ -26,6 +26,7 @@ import com.ibm.bi.dml.api.DMLScript.RUNTIME_PLATFORM;
 import com.ibm.bi.dml.hops.OptimizerUtils;
 import com.ibm.bi.dml.hops.ReorgOp;
 import com.ibm.bi.dml.lops.LopProperties.ExecType;
+import com.ibm.bi.dml.runtime.instructions.spark.utils.RDDSortUtils;
 import com.ibm.bi.dml.runtime.matrix.data.MatrixValue.CellIndex;
 import com.ibm.bi.dml.test.integration.AutomatedTestBase;
 import com.ibm.bi.dml.test.integration.TestConfiguration;
@@ -57,6 +58,7 @@ public class FullOrderTest extends AutomatedTestBase
 		DENSE,
 		SPARSE,
 		EMPTY,
+		TIES, //few distinct values
 	}
 	
 	/**
@@ -887,6 +889,30 @@ public class FullOrderTest extends AutomatedTestBase
 		runOrderTest(false, InputType.DENSE, true, false, true, ExecType.SPARK, true);
 	}
 	
+	@Test
+	public void testOrderVectorDataAscTiesSP() 
+	{
+		runOrderTest(false, InputType.TIES, false, false, true, ExecType.SPARK);
+	}
+	
+	@Test
+	public void testOrderVectorIndexAscTiesSP() 
+	{
+		runOrderTest(false, InputType.TIES, false, true, true, ExecType.SPARK);
+	}
+	
+	@Test
+	public void testOrderVectorDataDescTiesSP() 
+	{
+		runOrderTest(false, InputType.TIES, true, false, true, ExecType.SPARK);
+	}
+	
+	@Test
+	public void testOrderVectorIndexDescTiesSP() 
+	{
+		runOrderTest(false, InputType.TIES, true, true, true, ExecType.SPARK);
+	}
+	
 
 	/**
 	 * 
@@ -923,6 +949,7 @@ public class FullOrderTest extends AutomatedTestBase
 		RUNTIME_PLATFORM platformOld = rtplatform;
 		boolean rewriteOld = OptimizerUtils.ALLOW_ALGEBRAIC_SIMPLIFICATION;
 		boolean forceOpOld = ReorgOp.FORCE_DIST_SORT_INDEXES;
+		int numPartOld = RDDSortUtils.FORCED_NUM_PARTITIONS;
 		
 		boolean sparkConfigOld = DMLScript.USE_LOCAL_SPARK_CONFIG;
 		
@@ -943,6 +970,10 @@ public class FullOrderTest extends AutomatedTestBase
 			OptimizerUtils.ALLOW_ALGEBRAIC_SIMPLIFICATION = rewrite;
 			ReorgOp.FORCE_DIST_SORT_INDEXES = forceDistSort;
 			
+			//force multiple sort partitions to split heavy ties 
+			if( dtype == InputType.TIES )
+				RDDSortUtils.FORCED_NUM_PARTITIONS = 7;
+			
 			int rows = matrix ? rows1 : rows2;
 			int cols = matrix ? cols1 : 1;
 			int bycol = matrix ? by : 1;
@@ -967,6 +998,8 @@ public class FullOrderTest extends AutomatedTestBase
 			int nnz = (dtype==InputType.EMPTY)? 0 : -1;
 			
 			double[][] A = getRandomMatrix(rows, cols, min, max, sparsity, 7); 
+			if( dtype == InputType.TIES )
+				A = TestUtils.round(getRandomMatrix(rows, cols, -2, 2, sparsity, 7));
 			writeInputMatrixWithMTD("A", A, nnz, true);
 	
 			boolean exceptionExpected = false;
@@ -985,6 +1018,7 @@ public class FullOrderTest extends AutomatedTestBase
 			rtplatform = platformOld;
 			OptimizerUtils.ALLOW_ALGEBRAIC_SIMPLIFICATION = rewriteOld;
 			ReorgOp.FORCE_DIST_SORT_INDEXES = forceOpOld;
+			RDDSortUtils.FORCED_NUM_PARTITIONS = numPartOld;
 			DMLScript.USE_LOCAL_SPARK_CONFIG = sparkConfigOld;
 		}
 	}
@@ -17,12 +17,19 @@
 
 package com.ibm.bi.dml.test.integration.functions.unary.matrix;
 
+import java.io.File;
+
+import org.apache.wink.json4j.JSONObject;
+import org.junit.Assert;
 import org.junit.Test;
 
 import com.ibm.bi.dml.api.DMLScript;
 import com.ibm.bi.dml.api.DMLScript.RUNTIME_PLATFORM;
+import com.ibm.bi.dml.hops.OptimizerUtils;
 import com.ibm.bi.dml.hops.ParameterizedBuiltinOp;
 import com.ibm.bi.dml.lops.LopProperties.ExecType;
+import com.ibm.bi.dml.parser.DMLTranslator;
+import com.ibm.bi.dml.parser.DataExpression;
 import com.ibm.bi.dml.runtime.matrix.MatrixCharacteristics;
 import com.ibm.bi.dml.test.integration.AutomatedTestBase;
 import com.ibm.bi.dml.test.integration.TestConfiguration;
@@ -126,6 +133,18 @@ public class RemoveEmptyTest extends AutomatedTestBase
 	{
 		runTestRemoveEmpty( TEST_NAME1, "cols", ExecType.SPARK, true );
 	}
+	
+	@Test
+	public void testRemoveEmptyRowsDenseSPPartitionSizing() 
+	{
+		runTestRemoveEmptyPartitionSizing( TEST_NAME1, "rows", true );
+	}
+	
+	@Test
+	public void testRemoveEmptyRowsDenseSPNoPartitionSizing() 
+	{
+		runTestRemoveEmptyPartitionSizing( TEST_NAME1, "rows", false );
+	}
 
 	
 	@Test
@@ -402,6 +421,61 @@ public class RemoveEmptyTest extends AutomatedTestBase
 	
 
 	//-------------------------------------------------------------------------------------	
+	/**
+	 * 
+	 * @param testname
+	 * @param margin
+	 * @param sizing
+	 */
+	private void runTestRemoveEmptyPartitionSizing( String testname, String margin, boolean sizing )
+	{
+		boolean sizingOld = OptimizerUtils.ALLOW_SPARK_PARTITION_SIZING;
+		OptimizerUtils.ALLOW_SPARK_PARTITION_SIZING = sizing;
+		
+		try
+		{
+			runTestRemoveEmpty(testname, margin, ExecType.SPARK, false);
+			
+			//check that the shuffle output is sized according to the reduced output, i.e., 
+			//the number of output partitions (part files of the text output) corresponds to 
+			//the target partition size instead of the partitions of the input
+			JSONObject meta = new DataExpression().readMetadataFile(output("V")+".mtd", false);
+			long rlen = Long.parseLong(meta.get(DataExpression.READROWPARAM).toString());
+			long clen = Long.parseLong(meta.get(DataExpression.READCOLPARAM).toString());
+			long nnz = Long.parseLong(meta.get(DataExpression.READNUMNONZEROPARAM).toString());
+			int expected = OptimizerUtils.estimateNumPartitions(rlen, clen, 
+				DMLTranslator.DMLBlockSize, DMLTranslator.DMLBlockSize, nnz);
+			int numParts = getNumPartFiles(output("V"));
+			if( sizing )
+				Assert.assertEquals("Output partitions not resized.", expected, numParts);
+			else
+				Assert.assertTrue("Unexpected resized partitions: "+numParts, numParts > expected);
+		}
+		catch(Exception ex)
+		{
+			throw new RuntimeException(ex);
+		}
+		finally
+		{
+			OptimizerUtils.ALLOW_SPARK_PARTITION_SIZING = sizingOld;
+		}
+	}
+	
+	/**
+	 * 
+	 * @param dir
+	 * @return
+	 */
+	private static int getNumPartFiles( String dir )
+	{
+		File[] files = new File(dir).listFiles();
+		int count = 0;
+		for( File f : files )
+			if( f.getName().startsWith("part-") )
+				count++;
+		return count;
+	}
+	
 	/**
 	 * 
 	 * @param testname